@@ -0,0 +1,70 @@
+package com.clinica.sistema;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Compara dos archivos de resultados JMH (-rf json) y termina con error si algun benchmark empeoro mas que la tolerancia.
+// Uso: ComparadorResultadosJmh <base.json> <actual.json> [tolerancia, por defecto 0.10]. Si base.json no existe, no compara.
+public class ComparadorResultadosJmh {
+
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Uso: ComparadorResultadosJmh <base.json> <actual.json> [tolerancia]");
+            System.exit(2);
+        }
+        File base = new File(args[0]);
+        // Sin resultados base no hay contra que comparar (por ejemplo, la primera ejecucion): se omite sin error.
+        if (!base.isFile()) {
+            System.out.println("No existe el archivo de resultados base " + base + "; se omite la comparacion.");
+            return;
+        }
+        double tolerancia = args.length > 2 ? Double.parseDouble(args[2]) : 0.10;
+
+        ObjectMapper mapper = new ObjectMapper();
+        Map<String, JsonNode> anteriores = indexar(mapper.readTree(base));
+        Map<String, JsonNode> actuales = indexar(mapper.readTree(new File(args[1])));
+
+        int regresiones = 0;
+        for (Map.Entry<String, JsonNode> entrada : actuales.entrySet()) {
+            JsonNode anterior = anteriores.get(entrada.getKey());
+            if (anterior == null) {
+                System.out.printf("NUEVO      %s%n", entrada.getKey());
+                continue;
+            }
+            double puntajeBase = anterior.path("primaryMetric").path("score").asDouble();
+            double puntaje = entrada.getValue().path("primaryMetric").path("score").asDouble();
+            // En modo throughput mas es mejor; en los modos de tiempo (avgt, ss, sample) menos es mejor.
+            boolean masEsMejor = "thrpt".equals(entrada.getValue().path("mode").asText());
+            double cambio = (puntaje - puntajeBase) / puntajeBase;
+            double empeora = masEsMejor ? -cambio : cambio;
+            boolean regresion = empeora > tolerancia;
+            if (regresion) {
+                regresiones++;
+            }
+            System.out.printf("%-10s %s: %.3f -> %.3f %s (%+.1f%%)%n", regresion ? "REGRESION" : "OK", entrada.getKey(),
+                    puntajeBase, puntaje, entrada.getValue().path("primaryMetric").path("scoreUnit").asText(), cambio * 100);
+        }
+
+        if (regresiones > 0) {
+            System.err.printf("%d benchmark(s) empeoraron mas de %.0f%%.%n", regresiones, tolerancia * 100);
+            System.exit(1);
+        }
+    }
+
+    // Clave: nombre del benchmark, modo y parametros (@Param), si los hay.
+    private static Map<String, JsonNode> indexar(JsonNode resultados) {
+        Map<String, JsonNode> porClave = new LinkedHashMap<>();
+        for (JsonNode resultado : resultados) {
+            StringBuilder clave = new StringBuilder(resultado.path("benchmark").asText())
+                    .append(" [").append(resultado.path("mode").asText()).append(']');
+            resultado.path("params").fields().forEachRemaining(p -> clave.append(' ').append(p.getKey()).append('=').append(p.getValue().asText()));
+            porClave.put(clave.toString(), resultado);
+        }
+        return porClave;
+    }
+}
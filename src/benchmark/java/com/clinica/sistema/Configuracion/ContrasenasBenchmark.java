@@ -0,0 +1,72 @@
+package com.clinica.sistema.Configuracion;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+// Verificaciones de contrasena por segundo (lo que cuesta cada login) segun el costo de BCrypt.
+// 'unNucleo' corre en un solo hilo: su puntaje es directamente logins/s por nucleo. 'poolAcotado' satura el
+// CodificadorContrasenasAcotado con tantos hilos de peticion como nucleos: su puntaje dividido entre los nucleos
+// debe quedar cerca del de 'unNucleo' (el pool no agrega costo y aprovecha todos los nucleos).
+@Fork(1)
+@Warmup(iterations = 2, time = 3)
+@Measurement(iterations = 3, time = 5)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class ContrasenasBenchmark {
+
+    private static final String CONTRASENA = "jeanpierre";
+
+    @State(Scope.Benchmark)
+    public static class Codificadores {
+
+        @Param({ "8", "10", "12" })
+        int costo;
+
+        BCryptPasswordEncoder bcrypt;
+        CodificadorContrasenasAcotado acotado;
+        String hash;
+        private ThreadPoolTaskExecutor ejecutor;
+
+        @Setup(Level.Trial)
+        public void preparar() {
+            bcrypt = new BCryptPasswordEncoder(costo);
+            hash = bcrypt.encode(CONTRASENA);
+            // Mismo pool que EjecutoresConfig.ejecutorContrasenas con los valores por defecto.
+            ejecutor = new EjecutoresConfig().ejecutorContrasenas(0, 100);
+            acotado = new CodificadorContrasenasAcotado(bcrypt, ejecutor);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            ejecutor.shutdown();
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public boolean unNucleo(Codificadores codificadores) {
+        return codificadores.bcrypt.matches(CONTRASENA, codificadores.hash);
+    }
+
+    @Benchmark
+    @Threads(Threads.MAX)
+    public boolean poolAcotado(Codificadores codificadores) {
+        return codificadores.acotado.matches(CONTRASENA, codificadores.hash);
+    }
+}
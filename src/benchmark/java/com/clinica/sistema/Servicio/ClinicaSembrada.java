@@ -0,0 +1,143 @@
+package com.clinica.sistema.Servicio;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import com.clinica.sistema.SistemaApplication;
+import com.clinica.sistema.Configuracion.SembradorHorarios;
+import com.clinica.sistema.Modelo.CursorCita;
+import com.clinica.sistema.Modelo.FilaReporteCita;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+// Aplicacion completa sobre H2 (perfil 'test') con la carga inicial de DataLoader mas un volumen realista:
+// miles de pacientes, cientos de miles de citas y un paciente cronico con un historial largo.
+// La comparten todos los benchmarks de un mismo fork; las tareas programadas quedan en pausa para no interferir.
+@State(Scope.Benchmark)
+public class ClinicaSembrada {
+
+    static final List<LocalTime> HORAS = List.of(LocalTime.of(9, 0), LocalTime.of(11, 0), LocalTime.of(15, 0));
+
+    private static final int PACIENTES = 2_000;
+    private static final int CITAS = 200_000;
+    private static final int CITAS_PACIENTE_CRONICO = 2_000;
+    private static final int DIAS_HISTORIA = 3 * 365;
+    private static final List<String> ESTADOS_PASADOS = List.of("Completada", "Completada", "Completada", "Cancelada");
+
+    record Hueco(Long idMedico, LocalDate fecha, LocalTime hora) {
+    }
+
+    private ConfigurableApplicationContext contexto;
+
+    CitaServicio citaServicio;
+    ExportacionExcelServicio exportacionExcelServicio;
+    List<Medico> medicos;
+    PacienteAutenticado pacienteCronico;
+    PacienteAutenticado pacienteReservas;
+    String cursorPendientesProfundo;
+    String cursorHistorialProfundo;
+
+    private SembradorHorarios sembradorHorarios;
+    private IndiceDisponibilidad indiceDisponibilidad;
+    // Los huecos nuevos se siembran en dias lejanos, sin chocar con los horarios de DataLoader ni entre iteraciones.
+    private LocalDate siguienteDiaLibre = LocalDate.now().plusYears(5);
+
+    @Setup(Level.Trial)
+    public void iniciar() {
+        contexto = new SpringApplicationBuilder(SistemaApplication.class)
+                .profiles("test")
+                .properties("server.port=0",
+                        "spring.main.banner-mode=off",
+                        "clinica.notificaciones.intervalo-ms=3600000",
+                        "clinica.citas.cierre.retraso-inicial-ms=3600000",
+                        "clinica.indice-disponibilidad.verificacion-ms=3600000")
+                .run();
+
+        citaServicio = contexto.getBean(CitaServicio.class);
+        exportacionExcelServicio = contexto.getBean(ExportacionExcelServicio.class);
+        sembradorHorarios = contexto.getBean(SembradorHorarios.class);
+        indiceDisponibilidad = contexto.getBean(IndiceDisponibilidad.class);
+        medicos = contexto.getBean(MedicoRepositorio.class).findAll();
+
+        List<Paciente> pacientes = sembrarPacientes(contexto.getBean(PacienteRepositorio.class));
+        sembrarCitas(contexto.getBean(JdbcTemplate.class), pacientes);
+        pacienteCronico = PacienteAutenticado.desde(pacientes.get(0), List.of());
+        pacienteReservas = PacienteAutenticado.desde(pacientes.get(1), List.of());
+
+        // Cursores a mitad del historial del paciente cronico, para medir paginas profundas.
+        List<FilaReporteCita> filas = contexto.getBean(CitaRepositorio.class).findFilasPorPaciente(pacienteCronico.getId());
+        List<FilaReporteCita> pendientes = filas.stream().filter(f -> "Pendiente".equals(f.estado())).toList();
+        List<FilaReporteCita> pasadas = filas.stream().filter(f -> !"Pendiente".equals(f.estado())).toList();
+        cursorPendientesProfundo = CursorCita.desde(pendientes.get(pendientes.size() / 2)).codificar();
+        cursorHistorialProfundo = CursorCita.desde(pasadas.get(pasadas.size() / 2)).codificar();
+    }
+
+    @TearDown(Level.Trial)
+    public void cerrar() {
+        contexto.close();
+    }
+
+    // Siembra (y publica en el indice de disponibilidad) al menos 'cantidad' horarios libres nuevos.
+    synchronized List<Hueco> huecosNuevos(int cantidad) {
+        int porDia = medicos.size() * HORAS.size();
+        int dias = (cantidad + porDia - 1) / porDia;
+        LocalDate inicio = siguienteDiaLibre;
+        LocalDate fin = inicio.plusDays(dias - 1);
+        siguienteDiaLibre = fin.plusDays(1);
+        sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+        indiceDisponibilidad.reconstruir();
+
+        List<Hueco> huecos = new ArrayList<>(dias * porDia);
+        for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+            for (LocalTime hora : HORAS) {
+                for (Medico medico : medicos) {
+                    huecos.add(new Hueco(medico.getId(), fecha, hora));
+                }
+            }
+        }
+        return huecos.subList(0, cantidad);
+    }
+
+    private static List<Paciente> sembrarPacientes(PacienteRepositorio pacienteRepositorio) {
+        List<Paciente> pacientes = new ArrayList<>(PACIENTES);
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes.add(new Paciente(null, "Paciente", "Benchmark", String.format("%08d", 50_000_000 + i), "900000000",
+                    "paciente" + i + "@benchmark.com", "sin-uso", new ArrayList<>()));
+        }
+        return pacienteRepositorio.saveAll(pacientes);
+    }
+
+    // Citas de los ultimos tres anos y de los proximos meses, repartidas entre pacientes y medicos.
+    // El primer paciente concentra un historial largo, mitad pasado y mitad pendiente.
+    private void sembrarCitas(JdbcTemplate jdbcTemplate, List<Paciente> pacientes) {
+        LocalDate hoy = LocalDate.now();
+        List<Object[]> filas = new ArrayList<>(CITAS);
+        for (int i = 0; i < CITAS; i++) {
+            boolean cronico = i < CITAS_PACIENTE_CRONICO;
+            Paciente paciente = cronico ? pacientes.get(0) : pacientes.get(1 + i % (pacientes.size() - 1));
+            boolean pendiente = cronico ? i % 2 == 0 : i % 10 == 0;
+            LocalDate fecha = pendiente ? hoy.plusDays(1 + i % 180) : hoy.minusDays(1 + i % DIAS_HISTORIA);
+            filas.add(new Object[] {
+                fecha, HORAS.get(i % HORAS.size()), pendiente ? "Pendiente" : ESTADOS_PASADOS.get(i % ESTADOS_PASADOS.size()),
+                paciente.getId(), medicos.get(i % medicos.size()).getId()
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO citas (fecha, hora, estado, paciente_id, medico_id) VALUES (?, ?, ?, ?, ?)", filas);
+        jdbcTemplate.execute("ANALYZE");
+    }
+}
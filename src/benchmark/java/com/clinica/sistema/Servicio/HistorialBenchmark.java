@@ -0,0 +1,72 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.infra.Blackhole;
+
+import com.clinica.sistema.Modelo.PaginaCitas;
+
+// Lecturas del historial de un paciente cronico: lo que hace HistorialControlador al abrir la pagina
+// (primera pagina de pendientes y de pasadas), una pagina profunda por cursor y la exportacion completa a Excel.
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+@BenchmarkMode(Mode.AverageTime)
+public class HistorialBenchmark {
+
+    @State(Scope.Thread)
+    public static class Sesion {
+
+        @Setup(Level.Trial)
+        public void iniciar(ClinicaSembrada clinica) {
+            ContextoPaciente.establecer(clinica.pacienteCronico);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            ContextoPaciente.limpiar();
+        }
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public void paginaHistorial(ClinicaSembrada clinica, Sesion sesion, Blackhole blackhole) {
+        Long idPaciente = clinica.pacienteCronico.getId();
+        blackhole.consume(clinica.citaServicio.obtenerPaginaCitasPendientes(idPaciente, null));
+        blackhole.consume(clinica.citaServicio.obtenerPaginaHistorialCitas(idPaciente, null));
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PaginaCitas paginaProfundaHistorial(ClinicaSembrada clinica, Sesion sesion) {
+        return clinica.citaServicio.obtenerPaginaHistorialCitas(clinica.pacienteCronico.getId(), clinica.cursorHistorialProfundo);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public PaginaCitas paginaProfundaPendientes(ClinicaSembrada clinica, Sesion sesion) {
+        return clinica.citaServicio.obtenerPaginaCitasPendientes(clinica.pacienteCronico.getId(), clinica.cursorPendientesProfundo);
+    }
+
+    @Benchmark
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    public int exportarHistorialExcel(ClinicaSembrada clinica, Sesion sesion) throws IOException {
+        return clinica.exportacionExcelServicio.escribirFilas("Historial Citas - Benchmark",
+                clinica.citaServicio.obtenerResumenCitasPorPaciente(clinica.pacienteCronico.getId()).iterator(),
+                OutputStream.nullOutputStream());
+    }
+}
@@ -0,0 +1,108 @@
+package com.clinica.sistema.Servicio;
+
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.HorarioDisponible;
+import com.clinica.sistema.Servicio.ClinicaSembrada.Hueco;
+
+// Camino caliente de la reserva: consulta de horarios libres, creacion y cancelacion de citas.
+// crearCita y cancelarCita consumen datos, asi que se miden en lotes fijos (SingleShotTime): el puntaje es el
+// tiempo de un lote de OPERACIONES_POR_LOTE operaciones, preparado fuera de la medicion antes de cada iteracion.
+@Fork(1)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 3)
+public class ReservaBenchmark {
+
+    private static final int OPERACIONES_POR_LOTE = 500;
+
+    // Sesion del paciente en el hilo del benchmark, como la establece FiltroContextoPaciente en una peticion.
+    @State(Scope.Thread)
+    public static class Sesion {
+
+        @Setup(Level.Trial)
+        public void iniciar(ClinicaSembrada clinica) {
+            ContextoPaciente.establecer(clinica.pacienteReservas);
+        }
+
+        @TearDown(Level.Trial)
+        public void cerrar() {
+            ContextoPaciente.limpiar();
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class HuecosLibres {
+
+        final Deque<Hueco> huecos = new ArrayDeque<>();
+
+        @Setup(Level.Iteration)
+        public void sembrar(ClinicaSembrada clinica) {
+            huecos.clear();
+            huecos.addAll(clinica.huecosNuevos(OPERACIONES_POR_LOTE));
+        }
+    }
+
+    @State(Scope.Thread)
+    public static class CitasReservadas {
+
+        final Deque<Long> ids = new ArrayDeque<>();
+
+        @Setup(Level.Iteration)
+        public void reservar(ClinicaSembrada clinica, Sesion sesion) {
+            ids.clear();
+            for (Hueco hueco : clinica.huecosNuevos(OPERACIONES_POR_LOTE)) {
+                ids.add(clinica.citaServicio.crearCita(hueco.fecha().toString(), hueco.hora().toString(),
+                        hueco.idMedico(), clinica.pacienteReservas.getId()).getId());
+            }
+        }
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.AverageTime)
+    @OutputTimeUnit(TimeUnit.MICROSECONDS)
+    public List<HorarioDisponible> obtenerHorariosDisponibles(ClinicaSembrada clinica) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        Long idMedico = clinica.medicos.get(aleatorio.nextInt(clinica.medicos.size())).getId();
+        LocalDate fecha = LocalDate.now().plusDays(aleatorio.nextInt(1, 31));
+        return clinica.citaServicio.obtenerHorariosDisponiblesPorMedicoYFecha(idMedico, fecha);
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = OPERACIONES_POR_LOTE)
+    @Measurement(iterations = 5, batchSize = OPERACIONES_POR_LOTE)
+    public Cita crearCita(ClinicaSembrada clinica, Sesion sesion, HuecosLibres libres) {
+        Hueco hueco = libres.huecos.remove();
+        return clinica.citaServicio.crearCita(hueco.fecha().toString(), hueco.hora().toString(),
+                hueco.idMedico(), clinica.pacienteReservas.getId());
+    }
+
+    @Benchmark
+    @BenchmarkMode(Mode.SingleShotTime)
+    @OutputTimeUnit(TimeUnit.MILLISECONDS)
+    @Warmup(iterations = 3, batchSize = OPERACIONES_POR_LOTE)
+    @Measurement(iterations = 5, batchSize = OPERACIONES_POR_LOTE)
+    public boolean cancelarCita(ClinicaSembrada clinica, Sesion sesion, CitasReservadas reservadas) {
+        return clinica.citaServicio.cancelarCita(reservadas.ids.remove());
+    }
+}
@@ -0,0 +1,76 @@
+package com.clinica.sistema.Configuracion;
+
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.clinica.sistema.Servicio.ContrasenasSaturadasException;
+
+// Ejecuta el hashing de contrasenas (BCrypt, costoso en CPU a proposito) en un pool acotado al numero de nucleos,
+// en lugar de hacerlo en los hilos de peticion sin limite. Si el pool y su cola estan llenos, rechaza de inmediato.
+public class CodificadorContrasenasAcotado implements PasswordEncoder {
+
+    private final Logger logger = LoggerFactory.getLogger(CodificadorContrasenasAcotado.class);
+
+    private final PasswordEncoder delegado;
+    private final ThreadPoolTaskExecutor ejecutor;
+    private final AtomicLong rechazos = new AtomicLong();
+
+    public CodificadorContrasenasAcotado(PasswordEncoder delegado, ThreadPoolTaskExecutor ejecutor) {
+        this.delegado = delegado;
+        this.ejecutor = ejecutor;
+    }
+
+    @Override
+    public String encode(CharSequence contrasena) {
+        return ejecutar(() -> delegado.encode(contrasena));
+    }
+
+    @Override
+    public boolean matches(CharSequence contrasena, String codificada) {
+        return ejecutar(() -> delegado.matches(contrasena, codificada));
+    }
+
+    // El rehash al iniciar sesion es opcional: si el pool no tiene cola libre se pospone al siguiente login,
+    // para que un pico de logins no haga fallar inicios de sesion ya verificados. Es solo un atajo: la cola puede llenarse
+    // antes del encode, y ese rechazo lo absorbe ProveedorAutenticacionContrasenas conservando el hash anterior.
+    @Override
+    public boolean upgradeEncoding(String codificada) {
+        return delegado.upgradeEncoding(codificada)
+                && ejecutor.getThreadPoolExecutor().getQueue().remainingCapacity() > 0;
+    }
+
+    public long getRechazos() {
+        return rechazos.get();
+    }
+
+    private <T> T ejecutar(Callable<T> tarea) {
+        Future<T> resultado;
+        try {
+            resultado = ejecutor.submit(tarea);
+        } catch (TaskRejectedException e) {
+            long total = rechazos.incrementAndGet();
+            logger.warn("Pool de hashing de contrasenas saturado; se rechaza la operacion (rechazos acumulados: {}).", total);
+            throw new ContrasenasSaturadasException("Hay demasiadas contrasenas en proceso en este momento. Intentalo nuevamente en unos segundos.");
+        }
+        try {
+            return resultado.get();
+        } catch (InterruptedException e) {
+            resultado.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrumpido mientras se procesaba la contrasena.", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException causa) {
+                throw causa;
+            }
+            throw new IllegalStateException("Error al procesar la contrasena.", e.getCause());
+        }
+    }
+}
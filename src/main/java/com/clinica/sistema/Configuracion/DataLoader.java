@@ -2,15 +2,14 @@ package com.clinica.sistema.Configuracion;
 
 import com.clinica.sistema.Modelo.Direccion;
 import com.clinica.sistema.Modelo.Especialidad;
-import com.clinica.sistema.Modelo.Horario;
 import com.clinica.sistema.Modelo.Medico;
 import com.clinica.sistema.Modelo.Paciente;
 import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
-import com.clinica.sistema.Repositorio.HorarioRepositorio;
 import com.clinica.sistema.Repositorio.MedicoRepositorio;
 import com.clinica.sistema.Repositorio.PacienteRepositorio;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
@@ -32,20 +31,23 @@ public class DataLoader implements CommandLineRunner {
 
     private final EspecialidadRepositorio especialidadRepositorio;
     private final MedicoRepositorio medicoRepositorio;
-    private final HorarioRepositorio horarioRepositorio;
     private final PacienteRepositorio pacienteRepositorio;
     private final PasswordEncoder passwordEncoder;
+    private final SembradorHorarios sembradorHorarios;
+
+    @Value("${clinica.horarios.dias-generados:31}")
+    private int diasHorarios;
 
     public DataLoader(EspecialidadRepositorio especialidadRepositorio,
                       MedicoRepositorio medicoRepositorio,
-                      HorarioRepositorio horarioRepositorio,
                       PacienteRepositorio pacienteRepositorio,
-                      PasswordEncoder passwordEncoder) {
+                      PasswordEncoder passwordEncoder,
+                      SembradorHorarios sembradorHorarios) {
         this.especialidadRepositorio = especialidadRepositorio;
         this.medicoRepositorio = medicoRepositorio;
-        this.horarioRepositorio = horarioRepositorio;
         this.pacienteRepositorio = pacienteRepositorio;
         this.passwordEncoder = passwordEncoder;
+        this.sembradorHorarios = sembradorHorarios;
     }
 
     @Override
@@ -199,10 +201,8 @@ public class DataLoader implements CommandLineRunner {
             String correo = data.get("correo");
             String direccionCompleta = data.get("direccion");
 
-            Optional<Paciente> existingPacienteDni = pacienteRepositorio.findByDni(dni);
-            Optional<Paciente> existingPacienteCorreo = pacienteRepositorio.findByCorreo(correo);
-
-            if (existingPacienteDni.isPresent() || existingPacienteCorreo.isPresent()) {
+            // Una sola consulta por correo o DNI (el filtro de registro aun no esta construido durante la carga inicial).
+            if (!pacienteRepositorio.findIdsPorCorreoODni(correo, dni).isEmpty()) {
                 logger.info("Paciente con DNI '{}' o correo '{}' ya existe. Omitiendo creacion.", dni, correo);
                 continue;
             }
@@ -239,8 +239,9 @@ public class DataLoader implements CommandLineRunner {
         }
         logger.info("Pacientes procesados. Nuevos pacientes creados: {}", pacientesNuevosCount);
 
-        LocalDate startDate = LocalDate.of(2025, 7, 15);
-        LocalDate endDate = LocalDate.of(2025, 8, 15);
+        // Ventana movil desde hoy; en cada arranque solo se insertan los horarios que falten.
+        LocalDate startDate = LocalDate.now();
+        LocalDate endDate = startDate.plusDays(diasHorarios);
         List<LocalTime> horasDisponibles = Arrays.asList(
                 LocalTime.of(9, 0),
                 LocalTime.of(11, 0),
@@ -248,40 +249,8 @@ public class DataLoader implements CommandLineRunner {
         );
 
         logger.info("Procesando horarios del {} al {} para cada medico...", startDate, endDate);
-
-        long existingHorariosCount = horarioRepositorio.count();
-        final long HORARIOS_MIN_PARA_OMITIR = 100; // Define el umbral de horarios existentes
-
-        if (existingHorariosCount >= HORARIOS_MIN_PARA_OMITIR) {
-            logger.info("Se encontraron {} horarios existentes (mayor o igual a {}). Asumiendo que los horarios ya estan cargados y omitiendo la creacion detallada.",
-                    existingHorariosCount, HORARIOS_MIN_PARA_OMITIR);
-        } else {
-            logger.info("Se encontraron {} horarios existentes (menos de {}). Procediendo con la verificacion y posible creacion de horarios.",
-                    existingHorariosCount, HORARIOS_MIN_PARA_OMITIR);
-
-            int horariosCreadosCount = 0;
-            for (Medico medico : medicosMap.values()) {
-                for (LocalDate date = startDate; !date.isAfter(endDate); date = date.plusDays(1)) {
-                    for (LocalTime time : horasDisponibles) {
-                        Optional<Horario> existingHorario = horarioRepositorio.findByMedicoAndFechaAndHora(medico, date, time);
-                        if (existingHorario.isPresent()) {
-                            logger.debug("Horario para el medico '{} {}' en la fecha '{}' a las '{}' ya existe. Omitiendo creacion.",
-                                medico.getNombre(), medico.getApellido(), date, time);
-                            continue;
-                        }
-
-                        Horario horario = new Horario();
-                        horario.setMedico(medico);
-                        horario.setFecha(date);
-                        horario.setHora(time);
-                        horario.setDisponible(true);
-                        horarioRepositorio.save(horario);
-                        horariosCreadosCount++;
-                    }
-                }
-            }
-            logger.info("Total de horarios nuevos creados en esta ejecucion: {}", horariosCreadosCount);
-        }
+        int horariosCreadosCount = sembradorHorarios.sembrar(medicosMap.values(), startDate, endDate, horasDisponibles);
+        logger.info("Total de horarios nuevos creados en esta ejecucion: {}", horariosCreadosCount);
 
         logger.info("Carga de datos iniciales completada.");
     }
@@ -0,0 +1,100 @@
+package com.clinica.sistema.Configuracion;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+
+import com.clinica.sistema.Servicio.RuedaTemporizadores;
+
+@Configuration
+public class EjecutoresConfig {
+
+    // Pool acotado para el envio de correos en segundo plano.
+    // Su cola es finita: el despachador solo reclama tantas notificaciones como huecos libres haya.
+    @Bean(name = "ejecutorNotificaciones")
+    public ThreadPoolTaskExecutor ejecutorNotificaciones(
+            @Value("${clinica.notificaciones.hilos:2}") int hilos,
+            @Value("${clinica.notificaciones.capacidad-cola:50}") int capacidadCola) {
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(hilos);
+        ejecutor.setMaxPoolSize(hilos);
+        ejecutor.setQueueCapacity(capacidadCola);
+        ejecutor.setThreadNamePrefix("notificaciones-");
+        ejecutor.setWaitForTasksToCompleteOnShutdown(true);
+        ejecutor.setAwaitTerminationSeconds(30);
+        ejecutor.initialize();
+        return ejecutor;
+    }
+
+    // Pool para reportes generales: cada reporte ocupa una conexion durante toda su lectura,
+    // por lo que se limita cuantos se generan a la vez para no agotar el pool de conexiones.
+    @Bean(name = "ejecutorReportes")
+    public ThreadPoolTaskExecutor ejecutorReportes(
+            @Value("${clinica.reportes.max-concurrentes:2}") int maxConcurrentes,
+            @Value("${clinica.reportes.capacidad-cola:10}") int capacidadCola) {
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(maxConcurrentes);
+        ejecutor.setMaxPoolSize(maxConcurrentes);
+        ejecutor.setQueueCapacity(capacidadCola);
+        ejecutor.setThreadNamePrefix("reportes-");
+        ejecutor.initialize();
+        return ejecutor;
+    }
+
+    // Pool para el hashing de contrasenas (BCrypt): trabajo de CPU, por eso un hilo de plataforma por nucleo
+    // (clinica.contrasenas.hilos=0) y nunca hilos virtuales. Con la cola llena el login se rechaza de inmediato.
+    @Bean(name = "ejecutorContrasenas")
+    public ThreadPoolTaskExecutor ejecutorContrasenas(
+            @Value("${clinica.contrasenas.hilos:0}") int hilos,
+            @Value("${clinica.contrasenas.capacidad-cola:100}") int capacidadCola) {
+        int tamano = hilos > 0 ? hilos : Runtime.getRuntime().availableProcessors();
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(tamano);
+        ejecutor.setMaxPoolSize(tamano);
+        ejecutor.setQueueCapacity(capacidadCola);
+        ejecutor.setThreadNamePrefix("contrasenas-");
+        ejecutor.initialize();
+        return ejecutor;
+    }
+
+    // Pool que escribe los eventos de estado de ambulancia en las conexiones SSE abiertas. Las conexiones no ocupan hilos
+    // mientras esperan; cada suscriptor tiene como mucho una tarea en cola, por eso la cola admite tantas como conexiones.
+    @Bean(name = "ejecutorEventosAmbulancia")
+    public ThreadPoolTaskExecutor ejecutorEventosAmbulancia(
+            @Value("${clinica.ambulancias.eventos.hilos:4}") int hilos,
+            @Value("${clinica.ambulancias.eventos.capacidad-cola:20000}") int capacidadCola) {
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(hilos);
+        ejecutor.setMaxPoolSize(hilos);
+        ejecutor.setQueueCapacity(capacidadCola);
+        ejecutor.setThreadNamePrefix("eventos-ambulancia-");
+        ejecutor.initialize();
+        return ejecutor;
+    }
+
+    // Rueda de temporizadores para los SLA de la cola de triaje de ambulancias: un solo hilo para miles de plazos
+    // pendientes, con una resolucion de 'tick-ms'. Las acciones solo reordenan la cola; el diario y la publicacion
+    // de las escaladas quedan para 'ejecutorDiarioSla'.
+    @Bean(name = "ruedaSla", destroyMethod = "detener")
+    public RuedaTemporizadores ruedaSla(
+            @Value("${clinica.ambulancias.rueda.tick-ms:100}") long tickMs,
+            @Value("${clinica.ambulancias.rueda.ranuras:512}") int ranuras) {
+        return new RuedaTemporizadores("rueda-sla", tickMs, ranuras);
+    }
+
+    // Un hilo que anota en el diario (con su fsync) y publica las escaladas de SLA fuera del hilo de la rueda. El despacho
+    // tiene como mucho una tarea en cola, que vacia todas las escaladas pendientes en orden.
+    @Bean(name = "ejecutorDiarioSla")
+    public ThreadPoolTaskExecutor ejecutorDiarioSla() {
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(1);
+        ejecutor.setMaxPoolSize(1);
+        ejecutor.setQueueCapacity(10);
+        ejecutor.setThreadNamePrefix("diario-sla-");
+        ejecutor.setWaitForTasksToCompleteOnShutdown(true);
+        ejecutor.setAwaitTerminationSeconds(10);
+        ejecutor.initialize();
+        return ejecutor;
+    }
+}
@@ -0,0 +1,40 @@
+package com.clinica.sistema.Configuracion;
+
+import java.io.IOException;
+
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Servicio.ContextoPaciente;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+// Establece el contexto del paciente (identidad y claves MDC) una vez por peticion y lo limpia al terminar.
+// Se registra con el orden por defecto, despues de la cadena de Spring Security, cuando la autenticacion ya esta cargada.
+@Component
+public class FiltroContextoPaciente extends OncePerRequestFilter {
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication == null || !authentication.isAuthenticated()
+                || !(authentication.getPrincipal() instanceof PacienteAutenticado paciente)) {
+            filterChain.doFilter(request, response);
+            return;
+        }
+
+        ContextoPaciente.establecer(paciente);
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            ContextoPaciente.limpiar();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package com.clinica.sistema.Configuracion;
+
+import java.util.Random;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.CommandLineRunner;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+import com.clinica.sistema.Servicio.DespachoAmbulancias;
+import com.clinica.sistema.Servicio.FlotaAmbulancias;
+
+// Flota simulada mientras no haya integracion con el GPS de las unidades: registra 'unidades' ambulancias en posiciones
+// pseudoaleatorias (semilla fija) dentro de Lima Metropolitana y hace avanzar las solicitudes asignadas: la unidad sale
+// tras 'salida-ms', llega en los minutos estimados y da por atendida la solicitud tras 'atencion-ms' en el lugar.
+// Con unidades=0 no registra nada y la flota queda a cargo de quien llame a FlotaAmbulancias.registrar.
+@Component
+public class FlotaSimulada implements CommandLineRunner {
+
+    private static final Logger logger = LoggerFactory.getLogger(FlotaSimulada.class);
+
+    // Rectangulo aproximado de Lima Metropolitana.
+    static final double LATITUD_MIN = -12.25;
+    static final double LATITUD_MAX = -11.85;
+    static final double LONGITUD_MIN = -77.15;
+    static final double LONGITUD_MAX = -76.85;
+
+    private final FlotaAmbulancias flota;
+    private final DespachoAmbulancias despacho;
+    private final int unidades;
+    private final long semilla;
+    private final long salidaMs;
+    private final long atencionMs;
+
+    public FlotaSimulada(FlotaAmbulancias flota, DespachoAmbulancias despacho,
+                         @Value("${clinica.ambulancias.simulacion.unidades:0}") int unidades,
+                         @Value("${clinica.ambulancias.simulacion.semilla:42}") long semilla,
+                         @Value("${clinica.ambulancias.simulacion.salida-ms:60000}") long salidaMs,
+                         @Value("${clinica.ambulancias.simulacion.atencion-ms:900000}") long atencionMs) {
+        this.flota = flota;
+        this.despacho = despacho;
+        this.unidades = unidades;
+        this.semilla = semilla;
+        this.salidaMs = salidaMs;
+        this.atencionMs = atencionMs;
+    }
+
+    @Override
+    public void run(String... args) {
+        if (unidades <= 0) {
+            return;
+        }
+        Random aleatorio = new Random(semilla);
+        for (int i = 1; i <= unidades; i++) {
+            flota.registrar(String.format("AMB-%04d", i), posicionAleatoria(aleatorio));
+        }
+        logger.info("Flota simulada: {} ambulancias registradas en Lima Metropolitana.", unidades);
+    }
+
+    @Scheduled(initialDelayString = "${clinica.ambulancias.simulacion.revision-ms:10000}",
+               fixedDelayString = "${clinica.ambulancias.simulacion.revision-ms:10000}")
+    public void avanzarAtenciones() {
+        if (unidades <= 0) {
+            return;
+        }
+        long ahora = System.currentTimeMillis();
+        int finalizadas = 0;
+        for (SolicitudAmbulancia solicitud : despacho.getActivas()) {
+            if (solicitud.getCodigoUnidad() == null) {
+                continue;
+            }
+            long salida = solicitud.getAsignadaMs() + salidaMs;
+            long llegada = salida + solicitud.getMinutosEstimados() * 60_000L;
+            if (ahora >= salida) {
+                despacho.marcarEnCamino(solicitud.getId());
+            }
+            if (ahora >= llegada) {
+                despacho.marcarEnLugar(solicitud.getId());
+            }
+            if (ahora >= llegada + atencionMs && SolicitudAmbulancia.ESTADO_EN_LUGAR.equals(solicitud.getEstado())
+                    && despacho.finalizar(solicitud.getId())) {
+                finalizadas++;
+            }
+        }
+        if (finalizadas > 0) {
+            logger.info("Flota simulada: {} atenciones finalizadas, {} unidades disponibles.", finalizadas, flota.getDisponibles());
+        }
+    }
+
+    static Posicion posicionAleatoria(Random aleatorio) {
+        return new Posicion(LATITUD_MIN + aleatorio.nextDouble() * (LATITUD_MAX - LATITUD_MIN),
+                LONGITUD_MIN + aleatorio.nextDouble() * (LONGITUD_MAX - LONGITUD_MIN));
+    }
+}
@@ -0,0 +1,212 @@
+package com.clinica.sistema.Configuracion;
+
+import java.util.concurrent.TimeUnit;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import com.clinica.sistema.Modelo.Notificacion;
+import com.clinica.sistema.Repositorio.NotificacionRepositorio;
+import com.clinica.sistema.Servicio.CatalogoServicio;
+import com.clinica.sistema.Servicio.CentralEstadoAmbulancias;
+import com.clinica.sistema.Servicio.CierreCitasVencidas;
+import com.clinica.sistema.Servicio.DespachoAmbulancias;
+import com.clinica.sistema.Servicio.DiarioDespacho;
+import com.clinica.sistema.Servicio.FiltroRegistroPacientes;
+import com.clinica.sistema.Servicio.FlotaAmbulancias;
+import com.clinica.sistema.Servicio.GeocodificadorDirecciones;
+import com.clinica.sistema.Servicio.IndiceDisponibilidad;
+import com.clinica.sistema.Servicio.MotorEnvioCorreo;
+import com.clinica.sistema.Servicio.RuedaTemporizadores;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.TimeGauge;
+import io.micrometer.core.instrument.binder.MeterBinder;
+
+// Publica en Micrometer los contadores que los servicios ya llevaban (indice de disponibilidad, cierre de citas,
+// pool SMTP y bandeja de salida, hashing de contrasenas, filtro de registro, geocodificacion, flota de ambulancias,
+// cola de triaje, seguimiento en vivo, catalogo). Los lee al momento del scrape, sin cambiar como los actualiza cada servicio.
+// Las peticiones HTTP (http.server.requests), el pool de conexiones (hikaricp.*) y la JVM los mide Spring Boot.
+@Configuration
+public class MetricasConfiguracion {
+
+    @Bean
+    public MeterBinder metricasIndiceDisponibilidad(IndiceDisponibilidad indice) {
+        return registro -> {
+            FunctionCounter.builder("clinica.indice.disponibilidad.consultas", indice, IndiceDisponibilidad::getAciertos)
+                    .description("Consultas de horarios respondidas desde el indice en memoria")
+                    .tag("resultado", "acierto")
+                    .register(registro);
+            FunctionCounter.builder("clinica.indice.disponibilidad.consultas", indice, IndiceDisponibilidad::getFallos)
+                    .description("Consultas de horarios que tuvieron que ir a la base de datos")
+                    .tag("resultado", "fallo")
+                    .register(registro);
+            FunctionCounter.builder("clinica.indice.disponibilidad.reconstrucciones", indice, IndiceDisponibilidad::getReconstrucciones)
+                    .register(registro);
+            FunctionCounter.builder("clinica.indice.disponibilidad.inconsistencias", indice, IndiceDisponibilidad::getInconsistencias)
+                    .description("Verificaciones en las que el indice no coincidia con la base de datos")
+                    .register(registro);
+            Gauge.builder("clinica.indice.disponibilidad.tasa.acierto", indice, IndiceDisponibilidad::getTasaAcierto)
+                    .register(registro);
+            TimeGauge.builder("clinica.indice.disponibilidad.ultima.reconstruccion", indice, TimeUnit.MILLISECONDS,
+                            IndiceDisponibilidad::getUltimaReconstruccionMs)
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasCierreCitas(CierreCitasVencidas cierre) {
+        return registro -> {
+            FunctionCounter.builder("clinica.citas.cierre.ejecuciones", cierre, CierreCitasVencidas::getEjecuciones)
+                    .register(registro);
+            FunctionCounter.builder("clinica.citas.cierre.completadas", cierre, CierreCitasVencidas::getCitasCompletadas)
+                    .description("Citas vencidas pasadas a 'Completada' por el cierre programado")
+                    .register(registro);
+            TimeGauge.builder("clinica.citas.cierre.ultima.ejecucion", cierre, TimeUnit.MILLISECONDS, CierreCitasVencidas::getUltimaEjecucionMs)
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasCorreo(MotorEnvioCorreo motor, NotificacionRepositorio notificacionRepositorio) {
+        return registro -> {
+            Gauge.builder("clinica.correo.bandeja", notificacionRepositorio, repositorio -> repositorio.countByEstado(Notificacion.ESTADO_PENDIENTE))
+                    .description("Notificaciones de la bandeja de salida por estado")
+                    .tag("estado", "pendiente")
+                    .register(registro);
+            Gauge.builder("clinica.correo.bandeja", notificacionRepositorio, repositorio -> repositorio.countByEstado(Notificacion.ESTADO_FALLIDA))
+                    .description("Notificaciones de la bandeja de salida por estado")
+                    .tag("estado", "fallida")
+                    .register(registro);
+            Gauge.builder("clinica.correo.pool.conexiones", motor, MotorEnvioCorreo::getTamanoPool)
+                    .description("Conexiones SMTP del pool")
+                    .tag("estado", "total")
+                    .register(registro);
+            Gauge.builder("clinica.correo.pool.conexiones", motor, MotorEnvioCorreo::getConexionesLibres)
+                    .description("Conexiones SMTP del pool")
+                    .tag("estado", "libres")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasContrasenas(CodificadorContrasenasAcotado codificador) {
+        return registro -> FunctionCounter.builder("clinica.contrasenas.rechazos", codificador, CodificadorContrasenasAcotado::getRechazos)
+                .description("Logins o registros rechazados porque el pool de hashing estaba saturado")
+                .register(registro);
+    }
+
+    @Bean
+    public MeterBinder metricasFiltroRegistro(FiltroRegistroPacientes filtro) {
+        return registro -> {
+            FunctionCounter.builder("clinica.registro.filtro.consultas", filtro, FiltroRegistroPacientes::getDescartados)
+                    .description("Verificaciones de registro respondidas por el filtro sin consultar la base de datos")
+                    .tag("resultado", "nuevo")
+                    .register(registro);
+            FunctionCounter.builder("clinica.registro.filtro.consultas", filtro, FiltroRegistroPacientes::getPosibles)
+                    .description("Verificaciones de registro que tuvieron que confirmarse en la base de datos")
+                    .tag("resultado", "posible")
+                    .register(registro);
+            FunctionCounter.builder("clinica.registro.filtro.falsos.positivos", filtro, FiltroRegistroPacientes::getFalsosPositivos)
+                    .register(registro);
+            Gauge.builder("clinica.registro.filtro.elementos", filtro, FiltroRegistroPacientes::getElementosAproximados)
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasGeocodificacion(GeocodificadorDirecciones geocodificador) {
+        return registro -> {
+            FunctionCounter.builder("clinica.direcciones.geocodificacion", geocodificador, GeocodificadorDirecciones::getAciertos)
+                    .description("Direcciones geocodificadas desde la cache de texto normalizado")
+                    .tag("resultado", "acierto")
+                    .register(registro);
+            FunctionCounter.builder("clinica.direcciones.geocodificacion", geocodificador, GeocodificadorDirecciones::getFallos)
+                    .description("Direcciones que tuvieron que buscarse en el nomenclator")
+                    .tag("resultado", "fallo")
+                    .register(registro);
+            FunctionCounter.builder("clinica.direcciones.sin.ubicacion", geocodificador, GeocodificadorDirecciones::getSinUbicacion)
+                    .description("Direcciones que el nomenclator no pudo ubicar")
+                    .register(registro);
+            Gauge.builder("clinica.direcciones.cache.tamano", geocodificador, GeocodificadorDirecciones::getTamanoCache)
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasFlotaAmbulancias(FlotaAmbulancias flota) {
+        return registro -> {
+            Gauge.builder("clinica.ambulancias.unidades", flota, FlotaAmbulancias::getTotalUnidades)
+                    .tag("estado", "total")
+                    .register(registro);
+            Gauge.builder("clinica.ambulancias.unidades", flota, FlotaAmbulancias::getDisponibles)
+                    .tag("estado", "disponibles")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.asignaciones", flota, FlotaAmbulancias::getAsignaciones)
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.conflictos", flota, FlotaAmbulancias::getConflictos)
+                    .description("Unidades elegidas que otra solicitud reservo primero (se busco la siguiente)")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasColaTriaje(DespachoAmbulancias despacho, DiarioDespacho diario,
+                                          @Qualifier("ruedaSla") RuedaTemporizadores ruedaSla) {
+        return registro -> {
+            Gauge.builder("clinica.ambulancias.cola.tamano", despacho, DespachoAmbulancias::getEnCola)
+                    .description("Solicitudes de ambulancia esperando unidad")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.encoladas", despacho, DespachoAmbulancias::getEncoladas)
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.escaladas", despacho, DespachoAmbulancias::getEscaladas)
+                    .description("Subidas de prioridad por cercania o vencimiento del SLA")
+                    .register(registro);
+            Gauge.builder("clinica.ambulancias.escaladas.pendientes", despacho, DespachoAmbulancias::getEscaladasPendientes)
+                    .description("Escaladas aplicadas a la cola que aun no se anotaron en el diario")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.sla.vencidos", despacho, DespachoAmbulancias::getSlaVencidos)
+                    .description("Solicitudes que siguieron en cola al vencer su SLA")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.rechazadas", despacho, DespachoAmbulancias::getRechazadas)
+                    .description("Solicitudes rechazadas con la cola de triaje llena")
+                    .register(registro);
+            Gauge.builder("clinica.ambulancias.sla.pendientes", ruedaSla, RuedaTemporizadores::getPendientes)
+                    .register(registro);
+            TimeGauge.builder("clinica.ambulancias.sla.retraso", ruedaSla, TimeUnit.MILLISECONDS, RuedaTemporizadores::getRetrasoMedioMs)
+                    .description("Retraso medio de los temporizadores de SLA respecto de su plazo")
+                    .tag("estadistica", "media")
+                    .register(registro);
+            TimeGauge.builder("clinica.ambulancias.sla.retraso", ruedaSla, TimeUnit.MILLISECONDS, RuedaTemporizadores::getRetrasoMaximoMs)
+                    .tag("estadistica", "maximo")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.diario.errores", diario, DiarioDespacho::getErrores)
+                    .description("Eventos de despacho que no se pudieron escribir en el diario")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasSeguimientoAmbulancias(CentralEstadoAmbulancias central) {
+        return registro -> {
+            Gauge.builder("clinica.ambulancias.seguimiento.conexiones", central, CentralEstadoAmbulancias::getConexiones)
+                    .description("Conexiones SSE abiertas siguiendo una solicitud de ambulancia")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.seguimiento.enviados", central, CentralEstadoAmbulancias::getEnviados)
+                    .description("Eventos de estado y latidos escritos en las conexiones")
+                    .register(registro);
+            FunctionCounter.builder("clinica.ambulancias.seguimiento.lentos", central, CentralEstadoAmbulancias::getDesconectadosLentos)
+                    .description("Conexiones cerradas por acumular demasiados eventos sin enviar")
+                    .register(registro);
+        };
+    }
+
+    @Bean
+    public MeterBinder metricasCatalogo(CatalogoServicio catalogo) {
+        return registro -> Gauge.builder("clinica.catalogo.version", catalogo, CatalogoServicio::getVersion)
+                .description("Version vigente del catalogo de especialidades y medicos")
+                .register(registro);
+    }
+}
@@ -1,17 +1,23 @@
 package com.clinica.sistema.Configuracion;
 
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 
 @Configuration
 public class PasswordEncoderConfig {
 
-    // Configura y proporciona una instancia de BCryptPasswordEncoder.
-    // Este bean se usará para codificar y verificar contraseñas de forma segura.
+    // Configura y proporciona una instancia de BCryptPasswordEncoder con el costo configurado.
+    // Este bean se usará para codificar y verificar contraseñas de forma segura, en el pool acotado de hashing.
+    // Las contraseñas guardadas con un costo menor se vuelven a codificar al iniciar sesion (ver CustomUserDetailsService).
     @Bean
-    public PasswordEncoder passwordEncoder() {
-        return new BCryptPasswordEncoder();
+    public CodificadorContrasenasAcotado passwordEncoder(
+            @Value("${clinica.contrasenas.costo:10}") int costo,
+            @Qualifier("ejecutorContrasenas") ThreadPoolTaskExecutor ejecutor) {
+        return new CodificadorContrasenasAcotado(new BCryptPasswordEncoder(costo), ejecutor);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,45 @@
+package com.clinica.sistema.Configuracion;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import com.clinica.sistema.Servicio.ContrasenasSaturadasException;
+
+// Login con correo y contrasena que recodifica el hash guardado cuando usa un costo menor que el vigente.
+// El rehash se hace aqui y no en DaoAuthenticationProvider para poder omitirlo: si el pool de hashing rechaza la tarea
+// (la cola puede llenarse despues de upgradeEncoding), el login ya verificado sigue con el hash anterior.
+public class ProveedorAutenticacionContrasenas extends DaoAuthenticationProvider {
+
+    private final Logger registro = LoggerFactory.getLogger(ProveedorAutenticacionContrasenas.class);
+
+    private final PasswordEncoder codificador;
+    private final UserDetailsPasswordService servicioContrasenas;
+
+    public ProveedorAutenticacionContrasenas(UserDetailsService usuarios, PasswordEncoder codificador,
+                                             UserDetailsPasswordService servicioContrasenas) {
+        super(usuarios);
+        setPasswordEncoder(codificador);
+        this.codificador = codificador;
+        this.servicioContrasenas = servicioContrasenas;
+    }
+
+    @Override
+    protected Authentication createSuccessAuthentication(Object principal, Authentication authentication, UserDetails usuario) {
+        UserDetails vigente = usuario;
+        if (codificador.upgradeEncoding(usuario.getPassword())) {
+            try {
+                String nuevaContrasena = codificador.encode(authentication.getCredentials().toString());
+                vigente = servicioContrasenas.updatePassword(usuario, nuevaContrasena);
+            } catch (ContrasenasSaturadasException e) {
+                registro.debug("Pool de hashing saturado; se conserva el hash de {} hasta su siguiente inicio de sesion.", usuario.getUsername());
+            }
+        }
+        return super.createSuccessAuthentication(principal, authentication, vigente);
+    }
+}
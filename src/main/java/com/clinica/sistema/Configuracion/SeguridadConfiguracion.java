@@ -1,14 +1,21 @@
 package com.clinica.sistema.Configuracion;
 
+import java.util.Map;
+
+import com.clinica.sistema.Servicio.ContrasenasSaturadasException;
 import com.clinica.sistema.Servicio.CustomUserDetailsService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.actuate.autoconfigure.security.servlet.EndpointRequest;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.core.annotation.Order;
 import org.springframework.security.config.annotation.authentication.builders.AuthenticationManagerBuilder;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
+import org.springframework.security.config.http.SessionCreationPolicy;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
+import org.springframework.security.web.authentication.ExceptionMappingAuthenticationFailureHandler;
 
 @Configuration
 @EnableWebSecurity
@@ -33,17 +40,35 @@ public class SeguridadConfiguracion {
     }
 
     // Configura el AuthenticationManager para usar el servicio de usuario personalizado y el codificador de contraseñas.
+    // El proveedor recodifica los hashes con costo antiguo al iniciar sesion, salvo que el pool de hashing este saturado.
     @Autowired
     public void configureGlobal(AuthenticationManagerBuilder auth) throws Exception {
-        auth.userDetailsService(customUserDetailsService).passwordEncoder(passwordEncoder);
+        auth.authenticationProvider(new ProveedorAutenticacionContrasenas(customUserDetailsService, passwordEncoder, customUserDetailsService));
     }
 
+    // Salud y metricas (Prometheus): solo administradores, con autenticacion basica y sin sesion. La aplicacion se despliega
+    // como war detras de un proxy, asi que no hay puerto de administracion aparte y la direccion remota no identifica al cliente.
     @Bean
+    @Order(1)
+    public SecurityFilterChain actuatorFilterChain(HttpSecurity http) throws Exception {
+        http
+            .securityMatcher(EndpointRequest.toAnyEndpoint())
+            .authorizeHttpRequests(authorize -> authorize.anyRequest().hasRole("ADMIN"))
+            .httpBasic(basic -> { })
+            .sessionManagement(sesion -> sesion.sessionCreationPolicy(SessionCreationPolicy.STATELESS))
+            .csrf(csrf -> csrf.disable());
+        return http.build();
+    }
+
+    @Bean
+    @Order(2)
     public SecurityFilterChain securityFilterChain(HttpSecurity http) throws Exception {
         http
             .authorizeHttpRequests(authorize -> authorize
                 // Permite acceso sin autenticacion a estas rutas y recursos estaticos.
                 .requestMatchers("/login", "/registro", "/css/**", "/js/**", "/images/**").permitAll()
+                // Los reportes generales de la clinica solo estan disponibles para administradores.
+                .requestMatchers("/admin/**").hasRole("ADMIN")
                 // Cualquier otra peticion debe ser autenticada.
                 .anyRequest().authenticated()
             )
@@ -56,8 +81,8 @@ public class SeguridadConfiguracion {
                 .passwordParameter("contraseña")
                 // Redirecciona a la raiz ("/") despues de un inicio de sesion exitoso.
                 .defaultSuccessUrl("/", true)
-                // Redirecciona a "/login?error" en caso de inicio de sesion fallido.
-                .failureUrl("/login?error")
+                // Redirecciona a "/login?error" en caso de inicio de sesion fallido, o a "/login?ocupado" si el pool de hashing esta saturado.
+                .failureHandler(manejadorFallos())
                 .permitAll()
             )
             .logout(logout -> logout
@@ -75,4 +100,11 @@ public class SeguridadConfiguracion {
 
         return http.build();
     }
+
+    private ExceptionMappingAuthenticationFailureHandler manejadorFallos() {
+        ExceptionMappingAuthenticationFailureHandler manejador = new ExceptionMappingAuthenticationFailureHandler();
+        manejador.setDefaultFailureUrl("/login?error");
+        manejador.setExceptionMappings(Map.of(ContrasenasSaturadasException.class.getName(), "/login?ocupado"));
+        return manejador;
+    }
 }
\ No newline at end of file
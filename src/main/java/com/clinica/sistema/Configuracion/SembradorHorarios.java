@@ -0,0 +1,84 @@
+package com.clinica.sistema.Configuracion;
+
+import java.sql.Date;
+import java.sql.Time;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.Medico;
+
+// Genera los horarios de los medicos de forma idempotente: por cada medico lee en una sola consulta los horarios
+// ya existentes del rango y solo inserta los que faltan, con inserciones JDBC por lotes.
+// Hibernate no agrupa inserciones con IDENTITY, por eso se usa JdbcTemplate directamente.
+@Component
+public class SembradorHorarios {
+
+    private static final Logger logger = LoggerFactory.getLogger(SembradorHorarios.class);
+
+    private static final String SQL_EXISTENTES =
+            "SELECT fecha, hora FROM horarios WHERE medico_id = ? AND fecha BETWEEN ? AND ?";
+    private static final String SQL_INSERTAR =
+            "INSERT INTO horarios (fecha, hora, disponible, medico_id) VALUES (?, ?, ?, ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final int tamanoLote;
+
+    public SembradorHorarios(JdbcTemplate jdbcTemplate,
+                             @Value("${clinica.horarios.lote-insercion:1000}") int tamanoLote) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.tamanoLote = tamanoLote;
+    }
+
+    // Crea los horarios que falten para cada medico, dia del rango y hora. Devuelve cuantos se insertaron.
+    public int sembrar(Collection<Medico> medicos, LocalDate inicio, LocalDate fin, List<LocalTime> horas) {
+        long comienzo = System.nanoTime();
+        int insertados = 0;
+
+        for (Medico medico : medicos) {
+            Set<HorarioClave> existentes = new HashSet<>(jdbcTemplate.query(SQL_EXISTENTES,
+                    (rs, fila) -> new HorarioClave(rs.getDate("fecha").toLocalDate(), rs.getTime("hora").toLocalTime()),
+                    medico.getId(), Date.valueOf(inicio), Date.valueOf(fin)));
+
+            List<HorarioClave> faltantes = new ArrayList<>();
+            for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+                for (LocalTime hora : horas) {
+                    HorarioClave clave = new HorarioClave(fecha, hora);
+                    if (!existentes.contains(clave)) {
+                        faltantes.add(clave);
+                    }
+                }
+            }
+
+            if (!faltantes.isEmpty()) {
+                jdbcTemplate.batchUpdate(SQL_INSERTAR, faltantes, tamanoLote, (ps, clave) -> {
+                    ps.setDate(1, Date.valueOf(clave.fecha()));
+                    ps.setTime(2, Time.valueOf(clave.hora()));
+                    ps.setBoolean(3, true);
+                    ps.setLong(4, medico.getId());
+                });
+                insertados += faltantes.size();
+                logger.debug("Medico '{} {}': {} horarios existentes, {} creados.",
+                        medico.getNombre(), medico.getApellido(), existentes.size(), faltantes.size());
+            }
+        }
+
+        long duracionMs = (System.nanoTime() - comienzo) / 1_000_000;
+        logger.info("Horarios sembrados del {} al {} para {} medicos: {} nuevos en {} ms ({} horarios/s).",
+                inicio, fin, medicos.size(), insertados, duracionMs, insertados * 1000L / Math.max(1, duracionMs));
+        return insertados;
+    }
+
+    private record HorarioClave(LocalDate fecha, LocalTime hora) {
+    }
+}
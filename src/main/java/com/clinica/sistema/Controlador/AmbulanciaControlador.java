@@ -1,6 +1,7 @@
 package com.clinica.sistema.Controlador;
 
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Optional;
@@ -9,20 +10,24 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.ResponseBody;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
 import com.clinica.sistema.Modelo.Direccion;
-import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
 import com.clinica.sistema.Servicio.AuthServicio;
+import com.clinica.sistema.Servicio.CentralEstadoAmbulancias;
+import com.clinica.sistema.Servicio.ContextoPaciente;
+import com.clinica.sistema.Servicio.DespachoAmbulancias;
 import com.clinica.sistema.Servicio.DireccionServicio;
 
 @Controller
@@ -32,6 +37,8 @@ public class AmbulanciaControlador {
 
     private final AuthServicio authServicio; // Servicio para la logica de autenticacion.
     private final DireccionServicio direccionServicio; // Servicio para la gestion de direcciones.
+    private final DespachoAmbulancias despachoAmbulancias; // Asignacion de la unidad mas cercana.
+    private final CentralEstadoAmbulancias centralEstado; // Seguimiento en vivo de las solicitudes (SSE).
 
     // Constantes para las claves MDC
     private static final String MDC_USER_FULL_NAME = "userFullName";
@@ -39,57 +46,24 @@ public class AmbulanciaControlador {
     private static final String MDC_USER_DNI = "userDni";
 
     // Constructor que inyecta los servicios necesarios.
-    public AmbulanciaControlador(AuthServicio authServicio, DireccionServicio direccionServicio) {
+    public AmbulanciaControlador(AuthServicio authServicio, DireccionServicio direccionServicio,
+                                 DespachoAmbulancias despachoAmbulancias, CentralEstadoAmbulancias centralEstado) {
         this.authServicio = authServicio;
         this.direccionServicio = direccionServicio;
+        this.despachoAmbulancias = despachoAmbulancias;
+        this.centralEstado = centralEstado;
     }
 
-    // Metodo auxiliar para obtener el objeto Paciente del usuario actualmente logueado y establecer el MDC.
-    // Este metodo AHORA SOLO ESTABLECE el MDC. La limpieza se hara en el 'finally' de cada metodo de controlador.
-    private Paciente getPacienteLogueado() {
-        // Obtiene la informacion de autenticacion del contexto de seguridad de Spring.
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        // Verifica si el usuario esta autenticado y si el principal es un objeto UserDetails.
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() instanceof String) {
-            logger.debug("No hay usuario autenticado o el principal no es un UserDetails.");
-            // No limpiar MDC aqui, ya que este metodo es llamado por otros que pueden haberlo establecido.
-            return null;
-        }
-
-        // Extrae los detalles del usuario y su correo electronico (usado como nombre de usuario).
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String correoUsuario = userDetails.getUsername();
-        logger.debug("Buscando paciente logueado con correo: {}", correoUsuario);
-
-        // Busca el paciente en la base de datos usando el correo.
-        Optional<Paciente> pacienteOpt = authServicio.buscarPorCorreo(correoUsuario);
-        if (pacienteOpt.isPresent()) {
-            Paciente paciente = pacienteOpt.get();
-            // Establece los valores en el MDC
-            MDC.put(MDC_USER_FULL_NAME, paciente.getNombre() + " " + paciente.getApellido());
-            MDC.put(MDC_USER_ID, String.valueOf(paciente.getId()));
-            MDC.put(MDC_USER_DNI, paciente.getDni());
-            logger.debug("Paciente logueado encontrado con ID: {} y correo: {}. MDC establecido.", paciente.getId(), correoUsuario);
-        } else {
-            logger.warn("No se encontro paciente en la base de datos para el correo: {}.", correoUsuario);
-            // No limpiar MDC aqui, dejar que el 'finally' del controlador lo haga.
-        }
-        return pacienteOpt.orElse(null);
+    // Metodo auxiliar para obtener el paciente logueado. FiltroContextoPaciente ya establecio el paciente y el MDC
+    // para toda la peticion (y los limpia al terminar), por lo que aqui no se consulta la base de datos.
+    private PacienteAutenticado getPacienteLogueado() {
+        return ContextoPaciente.actual().orElse(null);
     }
 
-    // Metodo auxiliar para limpiar informacion del paciente del MDC
-    private void clearPacienteMDCContext() {
-        MDC.remove(MDC_USER_FULL_NAME);
-        MDC.remove(MDC_USER_ID);
-        MDC.remove(MDC_USER_DNI);
-    }
-
-
     @GetMapping("/ambulancia")
     public String mostrarPaginaAmbulancia(Model model) {
         // Primero, intentar obtener el paciente logueado.
-        // getPacienteLogueado() AHORA es responsable de establecer el MDC.
-        Paciente pacienteLogueado = getPacienteLogueado();
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
 
         try {
             // El primer log ahora usa el MDC, si esta disponible.
@@ -108,18 +82,14 @@ public class AmbulanciaControlador {
             }
 
             // Añade el nombre completo del paciente al modelo.
-            model.addAttribute("nombreCompleto", pacienteLogueado.getNombre() + " " + pacienteLogueado.getApellido());
+            model.addAttribute("nombreCompleto", pacienteLogueado.getNombreCompleto());
+
 
-     
-            // Aqui esta el bloque original que causaba el problema del MDC null.
-            // Ahora todo el manejo de direcciones y su log se mueve fuera del 'try' anidado
-            // y dentro del 'try' principal para que el 'finally' principal lo cubra.
             try {
                 // Obtiene la lista de direcciones del paciente.
                 List<Direccion> direcciones = direccionServicio.obtenerDireccionesPorPaciente(pacienteLogueado.getId());
                 // Añade las direcciones al modelo.
                 model.addAttribute("direccionesPaciente", direcciones);
-                // ESTA LINEA DE LOG AHORA ESTA DENTRO DEL TRY EXTERNO Y ANTES DEL FINALLY EXTERNO.
                 logger.info("El paciente {} (ID: {}, DNI: {}) ha cargado {} direcciones.",
                             MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), direcciones.size());
             } catch (IllegalArgumentException e) {
@@ -132,13 +102,11 @@ public class AmbulanciaControlador {
 
             return "ambulancia"; // Retorna el nombre de la vista (ambulancia.html).
 
-        } catch (IllegalArgumentException e) { // Captura cualquier otra excepcion que pueda ocurrir antes del finally
+        } catch (IllegalArgumentException e) { // Captura cualquier otra excepcion al preparar la pagina
             logger.error("Ocurrio un error inesperado al mostrar la pagina de ambulancia para el paciente {} (ID: {}, DNI: {}): {}",
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
             model.addAttribute("error", "Ocurrio un error inesperado. Por favor, intente de nuevo.");
             return "errorPage"; // O una pagina de error generica
-        } finally {
-            clearPacienteMDCContext(); // Limpiar MDC al finalizar el metodo del controlador
         }
     }
 
@@ -146,7 +114,7 @@ public class AmbulanciaControlador {
     @PostMapping("/paciente/direcciones")
     @ResponseBody
     public ResponseEntity<?> guardarNuevaDireccion(@RequestBody Map<String, String> payload) {
-        Paciente pacienteLogueado = getPacienteLogueado(); // Esto establecera el MDC si el paciente es encontrado
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
 
         try {
             // Si no esta logueado, retorna un error de no autorizado.
@@ -170,7 +138,7 @@ public class AmbulanciaControlador {
             // Crea un nuevo objeto Direccion y lo asocia al paciente.
             Direccion nuevaDireccion = new Direccion();
             nuevaDireccion.setDireccionCompleta(direccionCompleta);
-            nuevaDireccion.setPaciente(pacienteLogueado);
+            nuevaDireccion.setPaciente(authServicio.referenciaPaciente(pacienteLogueado.getId()));
 
             // Guarda la nueva direccion usando el servicio.
             Direccion direccionGuardada = direccionServicio.guardarDireccion(nuevaDireccion);
@@ -182,8 +150,6 @@ public class AmbulanciaControlador {
             logger.error("Error interno al guardar la nueva direccion para el paciente {} (ID: {}, DNI: {}): {}",
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al guardar la direccion."));
-        } finally {
-            clearPacienteMDCContext(); // Limpiar MDC al finalizar el metodo del controlador
         }
     }
 
@@ -191,7 +157,7 @@ public class AmbulanciaControlador {
     @PostMapping("/solicitar-ambulancia")
     @ResponseBody // Indica que la respuesta de este metodo debe ser directamente el cuerpo de la respuesta HTTP.
     public ResponseEntity<?> solicitarAmbulancia(@RequestBody Map<String, Long> payload) {
-        Paciente pacienteLogueado = getPacienteLogueado(); // Esto establecera el MDC si el paciente es encontrado
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
 
         try {
             // Si no esta logueado, retorna un error de no autorizado.
@@ -222,17 +188,84 @@ public class AmbulanciaControlador {
 
             Direccion direccionSolicitada = direccionOpt.get();
 
-            logger.info("El paciente {} (ID: {}, DNI: {}) ha procesado exitosamente la solicitud de ambulancia con direccion: {} (ID: {}).",
-                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), direccionSolicitada.getDireccionCompleta(), direccionId);
-            return ResponseEntity.ok(Map.of("message", "Solicitud de ambulancia procesada exitosamente.")); // Retorna un mensaje de exito con estado HTTP 200 OK.
+            // Sin coordenadas no se puede elegir la unidad mas cercana.
+            if (direccionSolicitada.ubicacion().isEmpty()) {
+                logger.warn("Intento fallido de solicitar ambulancia: La direccion con ID: {} del paciente {} (ID: {}, DNI: {}) no tiene ubicacion.",
+                            direccionId, MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
+                return ResponseEntity.unprocessableEntity().body(Map.of("message",
+                        "No se pudo ubicar la direccion seleccionada. Llame a la central de emergencias."));
+            }
+
+            // Gravedad declarada en la solicitud (1 = critica ... 4 = baja); ordena la cola de triaje si no hay unidad libre.
+            Long gravedad = payload.getOrDefault("gravedad", (long) SolicitudAmbulancia.GRAVEDAD_ALTA);
+            if (gravedad == null || gravedad < SolicitudAmbulancia.GRAVEDAD_CRITICA || gravedad > SolicitudAmbulancia.GRAVEDAD_BAJA) {
+                logger.warn("Intento fallido de solicitar ambulancia: Gravedad {} no valida para el paciente {} (ID: {}, DNI: {}).",
+                            gravedad, MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
+                return ResponseEntity.badRequest().body(Map.of("message", "La gravedad debe estar entre "
+                        + SolicitudAmbulancia.GRAVEDAD_CRITICA + " y " + SolicitudAmbulancia.GRAVEDAD_BAJA + "."));
+            }
+
+            // Reserva la unidad disponible mas cercana o deja la solicitud en la cola de triaje.
+            SolicitudAmbulancia solicitud = despachoAmbulancias.solicitar(pacienteLogueado.getId(), direccionSolicitada, gravedad.intValue());
+            if (SolicitudAmbulancia.ESTADO_SIN_UNIDAD.equals(solicitud.getEstado())) {
+                logger.warn("Cola de triaje llena: no se pudo registrar la solicitud {} del paciente {} (ID: {}, DNI: {}).",
+                            solicitud.getId(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
+                return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("message",
+                        "No hay ambulancias disponibles en este momento. Llame a la central de emergencias."));
+            }
+
+            Map<String, Object> respuesta = new LinkedHashMap<>();
+            respuesta.put("solicitudId", solicitud.getId());
+            respuesta.put("estado", solicitud.getEstado());
+            if (!SolicitudAmbulancia.ESTADO_ASIGNADA.equals(solicitud.getEstado())) {
+                int posicion = despachoAmbulancias.posicionEnCola(solicitud);
+                logger.info("Solicitud de ambulancia {} del paciente {} (ID: {}, DNI: {}) en cola de triaje, posicion {}.",
+                            solicitud.getId(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), posicion);
+                respuesta.put("message", "Todas las ambulancias estan ocupadas. Su solicitud quedo en cola y se le asignara la primera unidad libre.");
+                respuesta.put("posicionEnCola", posicion);
+                return ResponseEntity.status(HttpStatus.ACCEPTED).body(respuesta); // En cola: HTTP 202 Accepted.
+            }
+
+            logger.info("El paciente {} (ID: {}, DNI: {}) ha procesado exitosamente la solicitud de ambulancia con direccion: {} (ID: {}). Unidad asignada: {}",
+                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), direccionSolicitada.getDireccionCompleta(), direccionId,
+                        solicitud.getCodigoUnidad());
+            respuesta.put("message", "Solicitud de ambulancia procesada exitosamente.");
+            respuesta.put("unidad", solicitud.getCodigoUnidad());
+            respuesta.put("distanciaKm", Math.round(solicitud.getDistanciaKm() * 10) / 10.0);
+            respuesta.put("minutosEstimados", solicitud.getMinutosEstimados());
+            return ResponseEntity.ok(respuesta); // Retorna la unidad asignada con estado HTTP 200 OK.
 
         } catch (IllegalArgumentException e) {
             // Maneja cualquier error interno al procesar la solicitud de ambulancia.
             logger.error("Error interno al procesar la solicitud de ambulancia para el paciente {} (ID: {}, DNI: {}): {}",
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(Map.of("message", "Error interno al procesar la solicitud de ambulancia."));
-        } finally {
-            clearPacienteMDCContext(); // Limpiar MDC al finalizar el metodo del controlador
         }
     }
-}
\ No newline at end of file
+
+    // Flujo de Server-Sent Events con los cambios de estado de una solicitud activa del paciente
+    // (en cola, asignada, en camino, en el lugar, finalizada). La conexion se cierra al finalizar la solicitud.
+    @GetMapping(value = "/ambulancia/solicitudes/{id}/eventos", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> seguirSolicitud(@PathVariable("id") long idSolicitud) {
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
+        if (pacienteLogueado == null || pacienteLogueado.getId() == null) {
+            logger.warn("Intento de seguir la solicitud de ambulancia {} por usuario no logueado o sin ID de paciente.", idSolicitud);
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
+        }
+
+        // Solo el paciente que hizo la solicitud puede seguirla; para los demas no existe.
+        Optional<SolicitudAmbulancia> solicitud = despachoAmbulancias.buscarActiva(idSolicitud)
+                .filter(activa -> pacienteLogueado.getId().equals(activa.getIdPaciente()));
+        if (solicitud.isEmpty()) {
+            logger.warn("El paciente {} (ID: {}, DNI: {}) intento seguir la solicitud de ambulancia {}, que no esta activa o no le pertenece.",
+                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), idSolicitud);
+            return ResponseEntity.notFound().build();
+        }
+
+        logger.info("El paciente {} (ID: {}, DNI: {}) sigue en vivo la solicitud de ambulancia {}.",
+                    MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), idSolicitud);
+        return ResponseEntity.ok()
+                .header("X-Accel-Buffering", "no") // Evita que un proxy inverso acumule los eventos.
+                .body(centralEstado.suscribir(solicitud.get()));
+    }
+}
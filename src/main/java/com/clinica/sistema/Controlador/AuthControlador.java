@@ -14,6 +14,7 @@ import org.springframework.web.bind.annotation.RequestParam;
 import com.clinica.sistema.Modelo.Direccion;
 import com.clinica.sistema.Modelo.Paciente;
 import com.clinica.sistema.Servicio.AuthServicio;
+import com.clinica.sistema.Servicio.ContrasenasSaturadasException;
 
 import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
@@ -157,6 +158,12 @@ public class AuthControlador {
             model.addAttribute("paciente", paciente);
             model.addAttribute("direccionCompleta", direccionCompleta);
             return "registro";
+        } catch (ContrasenasSaturadasException e) {
+            logger.warn("Registro del usuario con correo {} rechazado: pool de hashing de contrasenas saturado.", paciente.getCorreo());
+            model.addAttribute("error", e.getMessage());
+            model.addAttribute("paciente", paciente);
+            model.addAttribute("direccionCompleta", direccionCompleta);
+            return "registro";
         } catch (Exception e) {
             logger.error("Error inesperado al intentar registrar al usuario con correo {}: {}. Stack trace completo:", paciente.getCorreo(), e.getMessage(), e);
             model.addAttribute("error", "Ocurrio un error inesperado al procesar su registro. Intentelo de nuevo mas tarde.");
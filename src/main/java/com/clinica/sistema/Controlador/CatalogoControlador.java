@@ -0,0 +1,33 @@
+package com.clinica.sistema.Controlador;
+
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.clinica.sistema.Servicio.CatalogoServicio;
+
+// Permite a los administradores recargar el catalogo de especialidades y medicos sin reiniciar la aplicacion.
+@RestController
+@RequestMapping("/admin/catalogo")
+public class CatalogoControlador {
+
+    private final Logger logger = LoggerFactory.getLogger(CatalogoControlador.class);
+
+    private final CatalogoServicio catalogoServicio;
+
+    public CatalogoControlador(CatalogoServicio catalogoServicio) {
+        this.catalogoServicio = catalogoServicio;
+    }
+
+    @PostMapping("/recargar")
+    public Map<String, Long> recargarCatalogo(Authentication authentication) {
+        long version = catalogoServicio.recargar();
+        logger.info("El administrador {} recargo el catalogo de referencia (v{}).", authentication.getName(), version);
+        return Map.of("version", version);
+    }
+}
@@ -1,30 +1,18 @@
 package com.clinica.sistema.Controlador;
 
-import java.io.ByteArrayOutputStream;
 import java.io.IOException;
-import java.time.LocalDate;
-import java.time.LocalTime;
-import java.util.ArrayList;
-import java.util.Comparator;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
-import java.util.Optional;
-import java.util.stream.Collectors;
+import java.util.Map;
 
-import org.apache.poi.ss.usermodel.Cell;
-import org.apache.poi.ss.usermodel.Row;
-import org.apache.poi.ss.usermodel.Sheet;
-import org.apache.poi.ss.usermodel.Workbook;
-import org.apache.poi.xssf.usermodel.XSSFWorkbook;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -32,10 +20,14 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.clinica.sistema.Modelo.Cita;
-import com.clinica.sistema.Modelo.Paciente;
-import com.clinica.sistema.Servicio.AuthServicio;
+import com.clinica.sistema.Modelo.FilaReporteCita;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Modelo.PaginaCitas;
 import com.clinica.sistema.Servicio.CitaServicio;
+import com.clinica.sistema.Servicio.ContextoPaciente;
+import com.clinica.sistema.Servicio.ExportacionExcelServicio;
+
+import jakarta.servlet.http.HttpServletResponse;
 
 @Controller
 public class HistorialControlador {
@@ -43,118 +35,47 @@ public class HistorialControlador {
     private final Logger logger = LoggerFactory.getLogger(HistorialControlador.class);
 
     private final CitaServicio citaServicio;
-    private final AuthServicio authServicio;
+    private final ExportacionExcelServicio exportacionExcelServicio;
 
     private static final String MDC_USER_FULL_NAME = "userFullName";
     private static final String MDC_USER_ID = "userId";
     private static final String MDC_USER_DNI = "userDni";
 
-    public HistorialControlador(CitaServicio citaServicio, AuthServicio authServicio) {
+    public HistorialControlador(CitaServicio citaServicio, ExportacionExcelServicio exportacionExcelServicio) {
         this.citaServicio = citaServicio;
-        this.authServicio = authServicio;
-    }
-
-    // Metodo auxiliar para establecer informacion del paciente en el MDC
-    private void setPacienteMDCContext(Paciente paciente) {
-        if (paciente != null) {
-            MDC.put(MDC_USER_FULL_NAME, paciente.getNombre() + " " + paciente.getApellido());
-            MDC.put(MDC_USER_ID, String.valueOf(paciente.getId()));
-            MDC.put(MDC_USER_DNI, paciente.getDni());
-        }
+        this.exportacionExcelServicio = exportacionExcelServicio;
     }
 
-    // Metodo auxiliar para limpiar informacion del paciente del MDC
-    private void clearPacienteMDCContext() {
-        MDC.remove(MDC_USER_FULL_NAME);
-        MDC.remove(MDC_USER_ID);
-        MDC.remove(MDC_USER_DNI);
-    }
-
-    // Este metodo solo obtiene el paciente, no gestiona el MDC.
-    private Paciente getPacienteLogueado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-        if (authentication == null || !authentication.isAuthenticated() || authentication.getPrincipal() instanceof String) {
-            logger.debug("No hay usuario autenticado o el principal no es un UserDetails.");
-            return null;
-        }
-
-        UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-        String correoUsuario = userDetails.getUsername();
-        logger.debug("Buscando paciente logueado con correo: {}", correoUsuario);
-
-        Optional<Paciente> pacienteOpt = authServicio.buscarPorCorreo(correoUsuario);
-        if (pacienteOpt.isPresent()) {
-            Paciente paciente = pacienteOpt.get();
-            // Ya no ponemos MDC aqui, lo hara el metodo del controlador que llama a esto
-            logger.debug("Paciente logueado encontrado con ID: {} y correo: {}", paciente.getId(), correoUsuario);
-        } else {
-            logger.warn("No se encontro paciente en la base de datos para el correo: {}", correoUsuario);
-        }
-        return pacienteOpt.orElse(null);
+    // El paciente y las claves MDC los establece FiltroContextoPaciente una vez por peticion; aqui no se consulta la base de datos.
+    private PacienteAutenticado getPacienteLogueado() {
+        return ContextoPaciente.actual().orElse(null);
     }
 
     @GetMapping("/historial")
     public String mostrarPaginaHistorialCitas(Model model) {
-        Paciente usuario = getPacienteLogueado();
+        PacienteAutenticado usuario = getPacienteLogueado();
 
         if (usuario == null || usuario.getId() == null) {
             logger.warn("Usuario no logueado o sin ID de paciente intento acceder a la pagina de historial de citas. Redirigiendo a login.");
             return "redirect:/login?error=Sesion expirada o no iniciada. Por favor, vuelve a iniciar sesion.";
         }
 
-        // Establecer MDC al inicio del metodo del controlador
-        setPacienteMDCContext(usuario);
         logger.info("El usuario {} (ID: {}, DNI: {}) ha accedido a la pagina de historial de citas.", 
                      MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
 
         try {
-            List<Cita> todasLasCitas = citaServicio.obtenerTodasLasCitasPorPaciente(usuario.getId());
-            logger.debug("Se recuperaron {} citas totales para el usuario con DNI: {}.", todasLasCitas.size(), usuario.getDni());
-
-            LocalDate fechaActual = LocalDate.now();
-            LocalTime horaActual = LocalTime.now();
-            
-            List<Cita> citasActualizadas = new ArrayList<>();
-            List<Cita> citasPendientes = new ArrayList<>();
-            List<Cita> historialCitas = new ArrayList<>();
-
-            for (Cita cita : todasLasCitas) {
-                if ("Pendiente".equals(cita.getEstado()) && 
-                    (cita.getFecha().isBefore(fechaActual) || 
-                    (cita.getFecha().isEqual(fechaActual) && cita.getHora().isBefore(horaActual)))) {
-                    
-                    cita.setEstado("Completada"); 
-                    citasActualizadas.add(cita); 
-                    logger.info("Cita ID {} (Fecha: {}, Hora: {}) del paciente {} (ID: {}, DNI: {}) marcada como 'Completada' porque ha pasado su hora.", 
-                                 cita.getId(), cita.getFecha(), cita.getHora(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
-                }
-
-                if ("Pendiente".equals(cita.getEstado())) {
-                    citasPendientes.add(cita);
-                } else {
-                    historialCitas.add(cita);
-                }
-            }
-
-            if (!citasActualizadas.isEmpty()) {
-                citaServicio.guardarCitas(citasActualizadas);
-                logger.info("Se actualizaron {} citas a estado 'Completada' en la base de datos para el paciente {} (ID: {}, DNI: {}).", 
-                             citasActualizadas.size(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
-            }
-
-            citasPendientes.sort(Comparator
-                .comparing(Cita::getFecha)
-                .thenComparing(Cita::getHora));
-            
-            historialCitas.sort(Comparator
-                .comparing(Cita::getFecha, Comparator.reverseOrder())
-                .thenComparing(Cita::getHora, Comparator.reverseOrder()));
-
-            model.addAttribute("citasPendientes", citasPendientes);
-            model.addAttribute("historialCitas", historialCitas);
-            model.addAttribute("nombreUsuario", usuario.getNombre() + " " + usuario.getApellido());
-            logger.info("Citas pendientes: {} y historial de citas: {} cargados y actualizados para el usuario {} (ID: {}, DNI: {}).", 
-                         citasPendientes.size(), historialCitas.size(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
+            // Primera pagina de cada lista, leida por clave (fecha, hora, id); las siguientes se piden a /api/historial.
+            // Solo lectura: el paso de citas vencidas a 'Completada' lo realiza el proceso programado CierreCitasVencidas.
+            PaginaCitas citasPendientes = citaServicio.obtenerPaginaCitasPendientes(usuario.getId(), null);
+            PaginaCitas historialCitas = citaServicio.obtenerPaginaHistorialCitas(usuario.getId(), null);
+
+            model.addAttribute("citasPendientes", citasPendientes.citas());
+            model.addAttribute("siguientePendientes", citasPendientes.siguiente());
+            model.addAttribute("historialCitas", historialCitas.citas());
+            model.addAttribute("siguienteHistorial", historialCitas.siguiente());
+            model.addAttribute("nombreUsuario", usuario.getNombreCompleto());
+            logger.info("Citas pendientes: {} y historial de citas: {} cargados para el usuario {} (ID: {}, DNI: {}).", 
+                         citasPendientes.citas().size(), historialCitas.citas().size(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
 
         } catch (IllegalArgumentException e) {
             logger.error("Error al cargar las citas del usuario {} (ID: {}, DNI: {}): {}", 
@@ -168,129 +89,113 @@ public class HistorialControlador {
             model.addAttribute("error", "Ocurrio un error inesperado al cargar sus citas.");
             model.addAttribute("citasPendientes", List.of());
             model.addAttribute("historialCitas", List.of());
-        } finally {
-            // Limpiar MDC al finalizar el metodo del controlador
-            clearPacienteMDCContext();
         }
 
         return "historialCita";
     }
 
+    // Paginas siguientes de las citas pendientes; 'despues' es el cursor devuelto por la pagina anterior.
+    @GetMapping("/api/historial/pendientes")
+    @ResponseBody
+    public ResponseEntity<?> obtenerPaginaPendientes(@RequestParam(value = "despues", required = false) String despues) {
+        PacienteAutenticado usuario = getPacienteLogueado();
+        if (usuario == null || usuario.getId() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Sesion expirada o no iniciada."));
+        }
+        try {
+            return ResponseEntity.ok(citaServicio.obtenerPaginaCitasPendientes(usuario.getId(), despues));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Pagina de citas pendientes invalida para el usuario {} (ID: {}): {}", 
+                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    // Paginas siguientes del historial (completadas o canceladas), de la mas reciente a la mas antigua.
+    @GetMapping("/api/historial/pasadas")
+    @ResponseBody
+    public ResponseEntity<?> obtenerPaginaHistorial(@RequestParam(value = "antes", required = false) String antes) {
+        PacienteAutenticado usuario = getPacienteLogueado();
+        if (usuario == null || usuario.getId() == null) {
+            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body(Map.of("error", "Sesion expirada o no iniciada."));
+        }
+        try {
+            return ResponseEntity.ok(citaServicio.obtenerPaginaHistorialCitas(usuario.getId(), antes));
+        } catch (IllegalArgumentException e) {
+            logger.warn("Pagina del historial de citas invalida para el usuario {} (ID: {}): {}", 
+                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        }
+    }
+
     @GetMapping("/historial/exportar/excel")
-    public ResponseEntity<byte[]> exportarHistorialCitasExcel() {
-        Paciente pacienteLogueado = getPacienteLogueado();
+    public void exportarHistorialCitasExcel(HttpServletResponse response) throws IOException {
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
 
         if (pacienteLogueado == null || pacienteLogueado.getId() == null) {
             logger.warn("Intento de exportar historial de citas por usuario no logueado o sin ID de paciente. Retornando no autorizado.");
-            return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("No autorizado: Debes iniciar sesion para exportar.".getBytes());
+            escribirError(response, HttpStatus.UNAUTHORIZED, "No autorizado: Debes iniciar sesion para exportar.");
+            return;
         }
 
-        // Establecer MDC al inicio del metodo del controlador
-        setPacienteMDCContext(pacienteLogueado);
         logger.info("El usuario {} (ID: {}, DNI: {}) ha solicitado exportar su historial de citas a Excel.", 
                      MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
 
         try {
-            List<Cita> citasDelPaciente = citaServicio.obtenerTodasLasCitasPorPaciente(pacienteLogueado.getId());
+            // La consulta ya devuelve las filas ordenadas por fecha y hora.
+            List<FilaReporteCita> citasDelPaciente = citaServicio.obtenerResumenCitasPorPaciente(pacienteLogueado.getId());
             logger.debug("Se recuperaron {} citas totales para la exportacion de Excel del usuario {} (ID: {}, DNI: {}).", 
                          citasDelPaciente.size(), MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
 
-            List<Cita> citasPendientes = citasDelPaciente.stream()
-                .filter(cita -> "Pendiente".equals(cita.getEstado()))
-                .collect(Collectors.toList());
-
-            List<Cita> historialCitas = citasDelPaciente.stream()
-                .filter(cita -> !"Pendiente".equals(cita.getEstado()))
-                .collect(Collectors.toList());
-
-            List<Cita> todasLasCitasParaExportar = new ArrayList<>(citasPendientes);
-            todasLasCitasParaExportar.addAll(historialCitas);
-            todasLasCitasParaExportar.sort(Comparator
-                .comparing(Cita::getFecha)
-                .thenComparing(Cita::getHora));
-
-            try (Workbook workbook = new XSSFWorkbook();
-                 ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
-                Sheet sheet = workbook.createSheet(
-                                     "Historial Citas - " + pacienteLogueado.getNombre() + " " + pacienteLogueado.getApellido());
+            // El libro se escribe directamente en la respuesta, sin copiarlo antes a un arreglo de bytes.
+            response.setContentType(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                    .filename("historial_citas_" + pacienteLogueado.getId() + ".xlsx").build().toString());
 
-                Row headerRow = sheet.createRow(0);
-                String[] headers = { "ID Cita", "Fecha", "Hora", "Estado", "Medico", "Especialidad" };
-                for (int i = 0; i < headers.length; i++) {
-                    Cell cell = headerRow.createCell(i);
-                    cell.setCellValue(headers[i]);
-                }
-
-                int rowNum = 1;
-                for (Cita cita : todasLasCitasParaExportar) {
-                    Row row = sheet.createRow(rowNum++);
-                    row.createCell(0).setCellValue(cita.getId());
-                    row.createCell(1).setCellValue(cita.getFecha().toString());
-                    row.createCell(2).setCellValue(cita.getHora().toString());
-                    row.createCell(3).setCellValue(cita.getEstado());
-
-                    if (cita.getMedico() != null) {
-                        row.createCell(4).setCellValue(cita.getMedico().getNombre() + " " + cita.getMedico().getApellido());
-                        if (cita.getMedico().getEspecialidad() != null) {
-                            row.createCell(5).setCellValue(cita.getMedico().getEspecialidad().getNombre());
-                        } else {
-                            row.createCell(5).setCellValue("Sin Especialidad");
-                        }
-                    } else {
-                        row.createCell(4).setCellValue("Medico Desconocido");
-                        row.createCell(5).setCellValue("N/A");
-                    }
-                }
-
-                for (int i = 0; i < headers.length; i++) {
-                    sheet.autoSizeColumn(i);
-                }
-
-                workbook.write(outputStream);
-                logger.info("Reporte Excel generado exitosamente para el usuario {} (ID: {}, DNI: {}). Tamano: {} bytes.", 
-                             MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), outputStream.toByteArray().length);
-
-                HttpHeaders httpHeaders = new HttpHeaders();
-                httpHeaders.setContentType(MediaType.APPLICATION_OCTET_STREAM);
-                httpHeaders.setContentDispositionFormData("attachment",
-                        "historial_citas_" + pacienteLogueado.getId() + ".xlsx");
-                httpHeaders.setContentLength(outputStream.toByteArray().length);
-
-                return ResponseEntity.ok().headers(httpHeaders).body(outputStream.toByteArray());
-
-            } catch (IOException e) {
-                logger.error("Error de IO al generar el reporte Excel para el usuario {} (ID: {}, DNI: {}): {}", 
-                             MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
-                return ResponseEntity.internalServerError()
-                    .body(("Error al generar el reporte: " + e.getMessage()).getBytes());
-            }
+            int filas = exportacionExcelServicio.escribirFilas(
+                    "Historial Citas - " + pacienteLogueado.getNombreCompleto(),
+                    citasDelPaciente.iterator(), response.getOutputStream());
+            logger.info("Reporte Excel generado exitosamente para el usuario {} (ID: {}, DNI: {}). Filas: {}.", 
+                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), filas);
 
+        } catch (IOException e) {
+            logger.error("Error de IO al generar el reporte Excel para el usuario {} (ID: {}, DNI: {}): {}", 
+                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
+            escribirError(response, HttpStatus.INTERNAL_SERVER_ERROR, "Error al generar el reporte: " + e.getMessage());
         } catch (IllegalArgumentException e) {
             logger.error("Error de argumento ilegal al exportar historial de citas para el usuario {} (ID: {}, DNI: {}): {}", 
                          MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage());
-            return ResponseEntity.badRequest().body(e.getMessage().getBytes());
+            escribirError(response, HttpStatus.BAD_REQUEST, e.getMessage());
         } catch (Exception e) {
             logger.error("Error inesperado al exportar historial de citas para el usuario {} (ID: {}, DNI: {}): {}", 
                          MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage(), e);
-            return ResponseEntity.internalServerError().body(("Error inesperado al generar el reporte: " + e.getMessage()).getBytes());
-        } finally {
-            // Limpiar MDC al finalizar el metodo del controlador
-            clearPacienteMDCContext();
+            escribirError(response, HttpStatus.INTERNAL_SERVER_ERROR, "Error inesperado al generar el reporte: " + e.getMessage());
+        }
+    }
+
+    // Responde con un mensaje de error en texto plano, salvo que ya se haya empezado a enviar el archivo.
+    private void escribirError(HttpServletResponse response, HttpStatus estado, String mensaje) throws IOException {
+        if (response.isCommitted()) {
+            logger.warn("No se pudo informar el error al cliente porque la respuesta ya se estaba enviando: {}", mensaje);
+            return;
         }
+        response.reset();
+        response.setStatus(estado.value());
+        response.setContentType(MediaType.TEXT_PLAIN_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        response.getWriter().write(mensaje);
     }
 
     @PostMapping("/cancelar-cita")
     @ResponseBody
     public ResponseEntity<String> cancelarCita(@RequestParam Long id) {
-        Paciente pacienteLogueado = getPacienteLogueado();
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
 
         if (pacienteLogueado == null || pacienteLogueado.getId() == null) {
             logger.warn("Solicitud de cancelacion de cita con ID: {} por un usuario no logueado o sin ID de paciente.", id);
             return ResponseEntity.status(HttpStatus.UNAUTHORIZED).body("No autorizado: Debes iniciar sesion para cancelar citas.");
         }
 
-        // Establecer MDC al inicio del metodo del controlador
-        setPacienteMDCContext(pacienteLogueado);
         
         String userDetails = "usuario " + MDC.get(MDC_USER_FULL_NAME) + " (ID: " + MDC.get(MDC_USER_ID) + ", DNI: " + MDC.get(MDC_USER_DNI) + ")";
         logger.info("Solicitud de cancelacion de cita con ID: {} por parte del {}.", id, userDetails);
@@ -307,12 +212,12 @@ public class HistorialControlador {
         } catch (IllegalArgumentException e) {
             logger.error("Error al cancelar la cita con ID: {} por parte del {}: {}", id, userDetails, e.getMessage());
             return ResponseEntity.badRequest().body("Error al cancelar la cita: " + e.getMessage());
+        } catch (IllegalStateException e) {
+            logger.warn("La cita con ID: {} no se pudo cancelar para el {}: {}", id, userDetails, e.getMessage());
+            return ResponseEntity.status(HttpStatus.CONFLICT).body("No se pudo cancelar la cita: " + e.getMessage());
         } catch (Exception e) {
             logger.error("Error interno al cancelar la cita con ID: {} por parte del {}: {}", id, userDetails, e.getMessage(), e);
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body("Error interno al cancelar la cita.");
-        } finally {
-            // Limpiar MDC al finalizar el metodo del controlador
-            clearPacienteMDCContext();
         }
     }
 }
\ No newline at end of file
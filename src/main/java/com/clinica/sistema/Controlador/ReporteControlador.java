@@ -0,0 +1,96 @@
+package com.clinica.sistema.Controlador;
+
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.core.io.FileSystemResource;
+import org.springframework.core.io.Resource;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.Authentication;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import com.clinica.sistema.Modelo.TrabajoReporte;
+import com.clinica.sistema.Servicio.ReporteCitasServicio;
+
+// API de reportes generales para administradores: solicitar, consultar el progreso y descargar.
+@RestController
+@RequestMapping("/admin/reportes")
+public class ReporteControlador {
+
+    private final Logger logger = LoggerFactory.getLogger(ReporteControlador.class);
+
+    private final ReporteCitasServicio reporteCitasServicio;
+
+    public ReporteControlador(ReporteCitasServicio reporteCitasServicio) {
+        this.reporteCitasServicio = reporteCitasServicio;
+    }
+
+    @PostMapping
+    public ResponseEntity<?> solicitarReporte(@RequestParam(value = "formato", defaultValue = TrabajoReporte.FORMATO_XLSX) String formato,
+                                              @RequestParam("desde") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate desde,
+                                              @RequestParam("hasta") @DateTimeFormat(iso = DateTimeFormat.ISO.DATE) LocalDate hasta,
+                                              @RequestParam(value = "idEspecialidad", required = false) Long idEspecialidad,
+                                              @RequestParam(value = "idMedico", required = false) Long idMedico,
+                                              Authentication authentication) {
+        try {
+            TrabajoReporte trabajo = reporteCitasServicio.solicitarReporte(
+                    authentication.getName(), formato, desde, hasta, idEspecialidad, idMedico);
+            return ResponseEntity.status(HttpStatus.ACCEPTED)
+                    .header(HttpHeaders.LOCATION, "/admin/reportes/" + trabajo.getId())
+                    .body(trabajo);
+        } catch (IllegalArgumentException e) {
+            logger.warn("Solicitud de reporte invalida de {}: {}", authentication.getName(), e.getMessage());
+            return ResponseEntity.badRequest().body(Map.of("error", e.getMessage()));
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(Map.of("error", e.getMessage()));
+        }
+    }
+
+    @GetMapping
+    public List<TrabajoReporte> listarReportes(Authentication authentication) {
+        return reporteCitasServicio.obtenerTrabajos(authentication.getName());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<TrabajoReporte> consultarReporte(@PathVariable String id, Authentication authentication) {
+        return ResponseEntity.of(reporteCitasServicio.obtenerTrabajo(id, authentication.getName()));
+    }
+
+    @GetMapping("/{id}/descarga")
+    public ResponseEntity<Resource> descargarReporte(@PathVariable String id, Authentication authentication) {
+        Optional<TrabajoReporte> trabajoOpt = reporteCitasServicio.obtenerTrabajo(id, authentication.getName());
+        if (trabajoOpt.isEmpty()) {
+            return ResponseEntity.notFound().build();
+        }
+
+        TrabajoReporte trabajo = trabajoOpt.get();
+        if (!TrabajoReporte.ESTADO_COMPLETADO.equals(trabajo.getEstado()) || trabajo.getArchivo() == null) {
+            return ResponseEntity.status(HttpStatus.CONFLICT).build();
+        }
+
+        logger.info("El administrador {} descarga el reporte {}.", authentication.getName(), id);
+        MediaType tipo = TrabajoReporte.FORMATO_CSV.equals(trabajo.getFormato())
+                ? new MediaType("text", "csv")
+                : MediaType.parseMediaType("application/vnd.openxmlformats-officedocument.spreadsheetml.sheet");
+        return ResponseEntity.ok()
+                .contentType(tipo)
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("reporte_citas_" + trabajo.getDesde() + "_" + trabajo.getHasta() + "." + trabajo.getFormato())
+                        .build().toString())
+                .body(new FileSystemResource(trabajo.getArchivo()));
+    }
+}
@@ -7,9 +7,9 @@ import java.util.Optional;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
-import org.springframework.security.core.Authentication;
-import org.springframework.security.core.context.SecurityContextHolder;
-import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Controller;
 import org.springframework.ui.Model;
 import org.springframework.web.bind.annotation.GetMapping;
@@ -17,71 +17,39 @@ import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseBody;
 
-import com.clinica.sistema.Modelo.Especialidad;
-import com.clinica.sistema.Modelo.Horario;
-import com.clinica.sistema.Modelo.Medico;
-import com.clinica.sistema.Modelo.Paciente;
-import com.clinica.sistema.Servicio.AuthServicio;
+import com.clinica.sistema.Modelo.HorarioDisponible;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Servicio.CatalogoServicio;
 import com.clinica.sistema.Servicio.CitaServicio;
+import com.clinica.sistema.Servicio.ContextoPaciente;
+import com.clinica.sistema.Servicio.HorarioNoDisponibleException;
 
 @Controller
 public class ReservaControlador {
     private final Logger logger = LoggerFactory.getLogger(ReservaControlador.class);
 
     private final CitaServicio citaServicio;
-    private final AuthServicio authServicio;
+    private final CatalogoServicio catalogoServicio;
 
     private static final String MDC_USER_FULL_NAME = "userFullName";
     private static final String MDC_USER_ID = "userId";
     private static final String MDC_USER_DNI = "userDni";
 
-    public ReservaControlador(CitaServicio citaServicio, AuthServicio authServicio) {
+    public ReservaControlador(CitaServicio citaServicio, CatalogoServicio catalogoServicio) {
         this.citaServicio = citaServicio;
-        this.authServicio = authServicio;
+        this.catalogoServicio = catalogoServicio;
     }
 
-    private Paciente getPacienteLogueado() {
-        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
-
-        if (authentication == null || !authentication.isAuthenticated()) {
-            logger.debug("Intento de obtener paciente logueado: No hay autenticacion o el usuario no esta autenticado.");
-            return null;
-        }
-
-        if (authentication.getPrincipal() instanceof String) {
-            logger.debug("Intento de obtener paciente logueado: Principal es String, no UserDetails. Posiblemente usuario anonimo o sin rol.");
-            return null;
-        }
-
-        try {
-            UserDetails userDetails = (UserDetails) authentication.getPrincipal();
-            String correoUsuario = userDetails.getUsername();
-            logger.debug("Buscando paciente logueado con correo: {}", correoUsuario);
-            Optional<Paciente> pacienteOpt = authServicio.buscarPorCorreo(correoUsuario);
-            if (pacienteOpt.isPresent()) {
-                Paciente paciente = pacienteOpt.get();
-                MDC.put(MDC_USER_FULL_NAME, paciente.getNombre() + " " + paciente.getApellido());
-                MDC.put(MDC_USER_ID, String.valueOf(paciente.getId()));
-                MDC.put(MDC_USER_DNI, paciente.getDni());
-                logger.debug("Paciente logueado encontrado con ID: {} y correo: {}", paciente.getId(), correoUsuario);
-            } else {
-                logger.warn("Paciente logueado no encontrado en la base de datos para el correo: {}", correoUsuario);
-            }
-            return pacienteOpt.orElse(null);
-        } catch (ClassCastException e) {
-            logger.error("Error al castear principal a UserDetails: {}", e.getMessage());
-            return null;
-        } catch (IllegalArgumentException e) {
-            logger.error("Error inesperado al obtener paciente logueado: {}", e.getMessage(), e);
-            return null;
-        }
+    // El paciente y las claves MDC los establece FiltroContextoPaciente una vez por peticion; no se consulta la base de datos.
+    private PacienteAutenticado getPacienteLogueado() {
+        return ContextoPaciente.actual().orElse(null);
     }
 
     @GetMapping("/reserva")
     public String mostrarPaginaReservaCita(Model model) {
-        Paciente pacienteLogueado = getPacienteLogueado();
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
         if (pacienteLogueado != null) {
-            model.addAttribute("nombreUsuario", pacienteLogueado.getNombre() + " " + pacienteLogueado.getApellido());
+            model.addAttribute("nombreUsuario", pacienteLogueado.getNombreCompleto());
             logger.info("El usuario {} (ID: {}, DNI: {}) ha accedido a la pagina de reserva de citas.", 
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI));
         } else {
@@ -96,7 +64,7 @@ public class ReservaControlador {
                                   @RequestParam("horaCita") String horaStr,
                                   @RequestParam("idMedico") Long idMedico,
                                   Model model) {
-        Paciente pacienteLogueado = getPacienteLogueado();
+        PacienteAutenticado pacienteLogueado = getPacienteLogueado();
         if (pacienteLogueado == null || pacienteLogueado.getId() == null) {
             logger.warn("Intento de confirmar cita por usuario no logueado o sin ID de paciente. Redirigiendo a login.");
             return "redirect:/login?error=Sesion expirada o no iniciada. Por favor, vuelve a iniciar sesion.";
@@ -113,6 +81,10 @@ public class ReservaControlador {
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), idMedico, fechaStr, horaStr);
             return "redirect:/historial";
 
+        } catch (HorarioNoDisponibleException e) {
+            logger.warn("Horario ocupado al confirmar cita para el usuario {} (ID: {}, DNI: {}) con Medico ID: {} en Fecha: {} Hora: {}.",
+                        MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), idMedico, fechaStr, horaStr);
+            return "redirect:/reserva?error=El horario seleccionado acaba de ser reservado por otro paciente. Por favor, elige otro horario.";
         } catch (IllegalArgumentException e) {
             logger.error("Error al confirmar cita para el usuario {} (ID: {}, DNI: {}). Causa: {}", 
                         MDC.get(MDC_USER_FULL_NAME), MDC.get(MDC_USER_ID), MDC.get(MDC_USER_DNI), e.getMessage());
@@ -128,35 +100,44 @@ public class ReservaControlador {
         }
     }
 
+    // Responde con el JSON ya serializado del catalogo; el navegador revalida con If-None-Match y recibe 304 si no cambio.
     @GetMapping("/api/especialidades")
     @ResponseBody
-    public List<Especialidad> obtenerTodasLasEspecialidades() {
-        List<Especialidad> especialidades = citaServicio.obtenerTodasLasEspecialidades();
-        logger.debug("API: {} (ID: {}) solicito y se devolvieron {} especialidades.", 
+    public ResponseEntity<byte[]> obtenerTodasLasEspecialidades() {
+        CatalogoServicio.RecursoJson especialidades = catalogoServicio.getEspecialidadesJson();
+        logger.debug("API: {} (ID: {}) solicito las especialidades (catalogo v{}).", 
                      MDC.get(MDC_USER_FULL_NAME) != null ? MDC.get(MDC_USER_FULL_NAME) : "Usuario no logueado",
                      MDC.get(MDC_USER_ID) != null ? MDC.get(MDC_USER_ID) : "N/A", 
-                     especialidades.size());
-        return especialidades;
+                     catalogoServicio.getVersion());
+        return respuestaCatalogo(especialidades);
     }
 
     @GetMapping("/api/medicos-por-especialidad")
     @ResponseBody
-    public List<Medico> obtenerMedicosPorEspecialidad(@RequestParam("idEspecialidad") Long idEspecialidad) {
+    public ResponseEntity<byte[]> obtenerMedicosPorEspecialidad(@RequestParam("idEspecialidad") Long idEspecialidad) {
         logger.debug("API: {} (ID: {}) solicito medicos para especialidad con ID: {}", 
                      MDC.get(MDC_USER_FULL_NAME) != null ? MDC.get(MDC_USER_FULL_NAME) : "Usuario no logueado",
                      MDC.get(MDC_USER_ID) != null ? MDC.get(MDC_USER_ID) : "N/A", 
                      idEspecialidad);
-        List<Medico> medicos = citaServicio.obtenerMedicosPorEspecialidad(idEspecialidad);
-        logger.debug("API: {} (ID: {}) recibio {} medicos para la especialidad ID: {}.", 
-                     MDC.get(MDC_USER_FULL_NAME) != null ? MDC.get(MDC_USER_FULL_NAME) : "Usuario no logueado",
-                     MDC.get(MDC_USER_ID) != null ? MDC.get(MDC_USER_ID) : "N/A", 
-                     medicos.size(), idEspecialidad);
-        return medicos;
+        Optional<CatalogoServicio.RecursoJson> medicos = catalogoServicio.getMedicosJson(idEspecialidad);
+        if (medicos.isEmpty()) {
+            logger.warn("API: se solicitaron medicos para una especialidad inexistente (ID: {}).", idEspecialidad);
+            return ResponseEntity.notFound().build();
+        }
+        return respuestaCatalogo(medicos.get());
+    }
+
+    private ResponseEntity<byte[]> respuestaCatalogo(CatalogoServicio.RecursoJson recurso) {
+        return ResponseEntity.ok()
+                .eTag(recurso.etag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(recurso.contenido());
     }
 
     @GetMapping("/api/horarios-disponibles")
     @ResponseBody
-    public List<Horario> obtenerHorariosDisponibles(
+    public List<HorarioDisponible> obtenerHorariosDisponibles(
             @RequestParam("idMedico") Long idMedico,
             @RequestParam("fechaCita") String fechaCitaStr) {
         LocalDate fecha = LocalDate.parse(fechaCitaStr);
@@ -164,7 +145,7 @@ public class ReservaControlador {
                      MDC.get(MDC_USER_FULL_NAME) != null ? MDC.get(MDC_USER_FULL_NAME) : "Usuario no logueado",
                      MDC.get(MDC_USER_ID) != null ? MDC.get(MDC_USER_ID) : "N/A", 
                      idMedico, fechaCitaStr);
-        List<Horario> horarios = citaServicio.obtenerHorariosDisponiblesPorMedicoYFecha(idMedico, fecha);
+        List<HorarioDisponible> horarios = citaServicio.obtenerHorariosDisponiblesPorMedicoYFecha(idMedico, fecha);
         logger.debug("API: {} (ID: {}) recibio {} horarios disponibles para Medico ID: {} en Fecha: {}.", 
                      MDC.get(MDC_USER_FULL_NAME) != null ? MDC.get(MDC_USER_FULL_NAME) : "Usuario no logueado",
                      MDC.get(MDC_USER_ID) != null ? MDC.get(MDC_USER_ID) : "N/A", 
@@ -6,16 +6,26 @@ import java.time.LocalTime;
 import jakarta.persistence.CascadeType;
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 
+// Indices de las consultas frecuentes: citas de un paciente por estado (historial), pendientes por fecha
+// (cierre de citas vencidas) y rango de fechas (reportes generales).
 @Entity
-@Table(name = "citas")
+@Table(name = "citas", indexes = {
+    // Paginacion del historial por (fecha, hora, id): el id va implicito al final de cada indice secundario en InnoDB.
+    @Index(name = "idx_citas_paciente_estado", columnList = "paciente_id, estado, fecha, hora"),
+    @Index(name = "idx_citas_paciente_fecha_hora", columnList = "paciente_id, fecha, hora"),
+    @Index(name = "idx_citas_estado_fecha", columnList = "estado, fecha"),
+    @Index(name = "idx_citas_fecha_hora", columnList = "fecha, hora")
+})
 public class Cita {
 
     @Id
@@ -31,15 +41,16 @@ public class Cita {
     @Column(nullable = false, length = 50)
     private String estado;
 
-    @ManyToOne
+    // Asociaciones perezosas: las pantallas de lectura usan proyecciones (FilaReporteCita) y no cargan estas entidades.
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "paciente_id", nullable = false)
     private Paciente paciente;
 
-    @ManyToOne
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "medico_id", nullable = false)
     private Medico medico;
 
-    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true)
+    @OneToOne(cascade = CascadeType.ALL, orphanRemoval = true, fetch = FetchType.LAZY)
     @JoinColumn(name = "notificacion_id", referencedColumnName = "id")
     private Notificacion notificacion;
 
@@ -123,9 +134,9 @@ public class Cita {
                 ", fecha=" + fecha +
                 ", hora=" + hora +
                 ", estado='" + estado + '\'' +
-                ", paciente=" + paciente +
-                ", medico=" + medico +
-                ", notificacion=" + notificacion +
+                ", paciente=" + (paciente != null ? paciente.getId() : null) +
+                ", medico=" + (medico != null ? medico.getId() : null) +
+                ", notificacion=" + (notificacion != null ? notificacion.getId() : null) +
                 '}';
     }
 }
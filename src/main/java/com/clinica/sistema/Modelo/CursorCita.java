@@ -0,0 +1,32 @@
+package com.clinica.sistema.Modelo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+// Posicion de una cita en el orden (fecha, hora, id) usada para paginar por clave: la siguiente pagina empieza
+// justo despues (o antes, en orden descendente) de esta cita, sin OFFSET. Se codifica como "fecha_hora_id".
+public record CursorCita(LocalDate fecha, LocalTime hora, Long id) {
+
+    private static final String SEPARADOR = "_";
+
+    public static CursorCita desde(FilaReporteCita fila) {
+        return new CursorCita(fila.fecha(), fila.hora(), fila.id());
+    }
+
+    public String codificar() {
+        return fecha + SEPARADOR + hora + SEPARADOR + id;
+    }
+
+    public static CursorCita decodificar(String valor) {
+        String[] partes = valor == null ? new String[0] : valor.split(SEPARADOR);
+        if (partes.length != 3) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido: " + valor);
+        }
+        try {
+            return new CursorCita(LocalDate.parse(partes[0]), LocalTime.parse(partes[1]), Long.valueOf(partes[2]));
+        } catch (DateTimeParseException | NumberFormatException e) {
+            throw new IllegalArgumentException("Cursor de paginacion invalido: " + valor);
+        }
+    }
+}
@@ -1,5 +1,7 @@
 package com.clinica.sistema.Modelo;
 
+import java.util.Optional;
+
 import com.fasterxml.jackson.annotation.JsonIgnore;
 
 import jakarta.persistence.Column;
@@ -26,6 +28,10 @@ public class Direccion {
     @Column(nullable = false, length = 500)
     private String direccionCompleta;
 
+    // Ubicacion para el despacho de ambulancias; nula mientras la direccion no se haya ubicado.
+    private Double latitud;
+    private Double longitud;
+
     @ManyToOne
     @JoinColumn(name = "paciente_id", nullable = false)
     @JsonIgnore
@@ -60,6 +66,27 @@ public class Direccion {
         this.direccionCompleta = direccionCompleta;
     }
 
+    public Double getLatitud() {
+        return latitud;
+    }
+
+    public void setLatitud(Double latitud) {
+        this.latitud = latitud;
+    }
+
+    public Double getLongitud() {
+        return longitud;
+    }
+
+    public void setLongitud(Double longitud) {
+        this.longitud = longitud;
+    }
+
+    // Posicion de la direccion, vacia si aun no tiene coordenadas.
+    public Optional<Posicion> ubicacion() {
+        return latitud == null || longitud == null ? Optional.empty() : Optional.of(new Posicion(latitud, longitud));
+    }
+
     public Paciente getPaciente() {
         return paciente;
     }
@@ -0,0 +1,5 @@
+package com.clinica.sistema.Modelo;
+
+// Id y texto de una direccion aun sin coordenadas, lo unico que necesita la ubicacion en segundo plano (sin cargar paciente).
+public record DireccionSinUbicar(Long id, String direccionCompleta) {
+}
@@ -0,0 +1,45 @@
+package com.clinica.sistema.Modelo;
+
+import com.fasterxml.jackson.annotation.JsonInclude;
+
+// Linea del diario de despacho de ambulancias. Cada evento lleva el estado resultante (no un incremento),
+// para que reaplicar un evento repetido tras una compactacion no cambie el resultado.
+@JsonInclude(JsonInclude.Include.NON_NULL)
+public record EventoDespacho(String tipo, long id, Long instante, Long paciente, Long direccion, Double latitud, Double longitud,
+                             Integer gravedad, Integer prioridad, String unidad, Double distanciaKm, Integer minutos) {
+
+    public static final String CREADA = "CREADA";
+    public static final String ASIGNADA = "ASIGNADA";
+    public static final String EN_CAMINO = "EN_CAMINO";
+    public static final String EN_LUGAR = "EN_LUGAR";
+    public static final String ESCALADA = "ESCALADA";
+    public static final String FINALIZADA = "FINALIZADA";
+
+    public static EventoDespacho creada(SolicitudAmbulancia solicitud) {
+        return new EventoDespacho(CREADA, solicitud.getId(), solicitud.getCreadaMs(), solicitud.getIdPaciente(), solicitud.getIdDireccion(),
+                solicitud.getDestino().latitud(), solicitud.getDestino().longitud(), solicitud.getGravedad(), solicitud.getPrioridad(),
+                null, null, null);
+    }
+
+    public static EventoDespacho asignada(SolicitudAmbulancia solicitud) {
+        return new EventoDespacho(ASIGNADA, solicitud.getId(), solicitud.getAsignadaMs(), null, null, null, null, null, null,
+                solicitud.getCodigoUnidad(), solicitud.getDistanciaKm(), solicitud.getMinutosEstimados());
+    }
+
+    public static EventoDespacho enCamino(long id) {
+        return new EventoDespacho(EN_CAMINO, id, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public static EventoDespacho enLugar(long id) {
+        return new EventoDespacho(EN_LUGAR, id, null, null, null, null, null, null, null, null, null, null);
+    }
+
+    public static EventoDespacho escalada(SolicitudAmbulancia solicitud) {
+        return new EventoDespacho(ESCALADA, solicitud.getId(), null, null, null, null, null, null, solicitud.getPrioridad(),
+                null, null, null);
+    }
+
+    public static EventoDespacho finalizada(long id) {
+        return new EventoDespacho(FINALIZADA, id, null, null, null, null, null, null, null, null, null, null);
+    }
+}
@@ -0,0 +1,15 @@
+package com.clinica.sistema.Modelo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Fila plana de una cita para el historial del paciente y las exportaciones (Excel/CSV).
+// Se obtiene con una sola consulta (cita + nombre del medico + especialidad) sin cargar las entidades asociadas.
+public record FilaReporteCita(Long id, LocalDate fecha, LocalTime hora, String estado, String medico, String especialidad) {
+
+    public FilaReporteCita {
+        if (especialidad == null) {
+            especialidad = "Sin Especialidad";
+        }
+    }
+}
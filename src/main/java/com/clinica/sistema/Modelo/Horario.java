@@ -8,12 +8,18 @@ import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.JoinColumn;
 import jakarta.persistence.ManyToOne;
 import jakarta.persistence.Table;
+import jakarta.persistence.UniqueConstraint;
 
+// Un medico tiene como maximo un horario por fecha y hora; el indice unico atiende las busquedas y los UPDATE
+// condicionales por (medico, fecha, hora) y el segundo indice la consulta de horarios libres de un medico en un dia.
 @Entity
-@Table(name = "horarios")
+@Table(name = "horarios",
+    uniqueConstraints = @UniqueConstraint(name = "uk_horarios_medico_fecha_hora", columnNames = {"medico_id", "fecha", "hora"}),
+    indexes = @Index(name = "idx_horarios_medico_fecha_disponible", columnList = "medico_id, fecha, disponible"))
 public class Horario {
 
     @Id
@@ -0,0 +1,8 @@
+package com.clinica.sistema.Modelo;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+// Vista ligera de un horario libre, usada por /api/horarios-disponibles en lugar de la entidad Horario completa.
+public record HorarioDisponible(Long idMedico, LocalDate fecha, LocalTime hora) {
+}
@@ -0,0 +1,5 @@
+package com.clinica.sistema.Modelo;
+
+// Correo y DNI de un paciente, lo unico que necesita el filtro de registro (sin cargar la entidad Paciente).
+public record IdentidadPaciente(String correo, String dni) {
+}
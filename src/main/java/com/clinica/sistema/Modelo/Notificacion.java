@@ -1,19 +1,29 @@
 package com.clinica.sistema.Modelo;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 
 import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
 import jakarta.persistence.OneToOne;
 import jakarta.persistence.Table;
 
+// Indice (estado, proximo_intento): la busqueda de pendientes vencidas del despachador y el conteo por estado de las metricas.
 @Entity
-@Table(name = "notificaciones")
+@Table(name = "notificaciones",
+    indexes = @Index(name = "idx_notificaciones_estado_proximo", columnList = "estado, proximo_intento"))
 public class Notificacion {
 
+    // Estados de la bandeja de salida (outbox) de notificaciones
+    public static final String ESTADO_PENDIENTE = "Pendiente";
+    public static final String ESTADO_ENVIANDO = "Enviando";
+    public static final String ESTADO_ENVIADA = "Enviada";
+    public static final String ESTADO_FALLIDA = "Fallida";
+
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
     private Long id;
@@ -27,6 +37,21 @@ public class Notificacion {
     @Column(nullable = false)
     private LocalDate fechaEnvio;
 
+    @Column(length = 200)
+    private String asunto;
+
+    @Column(length = 20)
+    private String estado;
+
+    @Column(nullable = false)
+    private int intentos;
+
+    // Momento a partir del cual puede (re)intentarse el envio; mientras esta "Enviando" marca el fin de la reserva del despachador.
+    private LocalDateTime proximoIntento;
+
+    @Column(length = 500)
+    private String ultimoError;
+
     @OneToOne(mappedBy = "notificacion")
     private Cita cita;
 
@@ -77,6 +102,46 @@ public class Notificacion {
         this.fechaEnvio = fechaEnvio;
     }
 
+    public String getAsunto() {
+        return asunto;
+    }
+
+    public void setAsunto(String asunto) {
+        this.asunto = asunto;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public int getIntentos() {
+        return intentos;
+    }
+
+    public void setIntentos(int intentos) {
+        this.intentos = intentos;
+    }
+
+    public LocalDateTime getProximoIntento() {
+        return proximoIntento;
+    }
+
+    public void setProximoIntento(LocalDateTime proximoIntento) {
+        this.proximoIntento = proximoIntento;
+    }
+
+    public String getUltimoError() {
+        return ultimoError;
+    }
+
+    public void setUltimoError(String ultimoError) {
+        this.ultimoError = ultimoError;
+    }
+
     public Cita getCita() {
         return cita;
     }
@@ -92,6 +157,10 @@ public class Notificacion {
                 ", mensaje='" + mensaje + '\'' +
                 ", emailDestinatario='" + emailDestinatario + '\'' +
                 ", fechaEnvio=" + fechaEnvio +
+                ", asunto='" + asunto + '\'' +
+                ", estado='" + estado + '\'' +
+                ", intentos=" + intentos +
+                ", proximoIntento=" + proximoIntento +
                 ", cita=" + (cita != null ? cita.getId() : null) +
                 '}';
     }
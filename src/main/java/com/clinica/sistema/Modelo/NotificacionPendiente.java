@@ -0,0 +1,5 @@
+package com.clinica.sistema.Modelo;
+
+// Datos minimos de una notificacion que el despachador necesita para enviarla, sin cargar la cita asociada.
+public record NotificacionPendiente(Long id, String emailDestinatario, String asunto, String mensaje, int intentos) {
+}
@@ -0,0 +1,114 @@
+package com.clinica.sistema.Modelo;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Objects;
+
+import org.springframework.security.core.CredentialsContainer;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetails;
+
+// Principal de Spring Security con la identidad del paciente (ID, nombre y DNI), cargada una sola vez al iniciar sesion.
+// Evita volver a buscar al paciente por correo en cada peticion autenticada.
+public class PacienteAutenticado implements UserDetails, CredentialsContainer {
+
+    private static final long serialVersionUID = 1L;
+
+    private final Long id;
+    private final String correo;
+    private final String nombre;
+    private final String apellido;
+    private final String dni;
+    private final List<GrantedAuthority> roles;
+    private String contraseña;
+
+    public PacienteAutenticado(Long id, String correo, String contraseña, String nombre, String apellido, String dni,
+                               Collection<? extends GrantedAuthority> roles) {
+        this.id = id;
+        this.correo = correo;
+        this.contraseña = contraseña;
+        this.nombre = nombre;
+        this.apellido = apellido;
+        this.dni = dni;
+        this.roles = List.copyOf(roles);
+    }
+
+    public static PacienteAutenticado desde(Paciente paciente, Collection<? extends GrantedAuthority> roles) {
+        return new PacienteAutenticado(paciente.getId(), paciente.getCorreo(), paciente.getContraseña(),
+                paciente.getNombre(), paciente.getApellido(), paciente.getDni(), roles);
+    }
+
+    // Copia con otra contrasena codificada (tras el rehash al iniciar sesion).
+    public PacienteAutenticado conContraseña(String nuevaContraseña) {
+        return new PacienteAutenticado(id, correo, nuevaContraseña, nombre, apellido, dni, roles);
+    }
+
+    public Long getId() {
+        return id;
+    }
+
+    public String getCorreo() {
+        return correo;
+    }
+
+    public String getNombre() {
+        return nombre;
+    }
+
+    public String getApellido() {
+        return apellido;
+    }
+
+    public String getNombreCompleto() {
+        return nombre + " " + apellido;
+    }
+
+    public String getDni() {
+        return dni;
+    }
+
+    @Override
+    public Collection<? extends GrantedAuthority> getAuthorities() {
+        return roles;
+    }
+
+    @Override
+    public String getPassword() {
+        return contraseña;
+    }
+
+    @Override
+    public String getUsername() {
+        return correo;
+    }
+
+    // Spring Security borra la contraseña del principal tras autenticar para que no quede en la sesion.
+    @Override
+    public void eraseCredentials() {
+        this.contraseña = null;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof PacienteAutenticado that)) return false;
+        return Objects.equals(correo, that.correo);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hashCode(correo);
+    }
+
+    @Override
+    public String toString() {
+        return "PacienteAutenticado{" +
+                "id=" + id +
+                ", correo='" + correo + '\'' +
+                ", nombre='" + nombre + '\'' +
+                ", apellido='" + apellido + '\'' +
+                ", dni='" + dni + '\'' +
+                ", roles=" + roles +
+                '}';
+    }
+}
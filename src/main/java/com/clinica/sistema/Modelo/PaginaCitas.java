@@ -0,0 +1,16 @@
+package com.clinica.sistema.Modelo;
+
+import java.util.List;
+
+// Una pagina de citas de un paciente y el cursor para pedir la siguiente (null si no hay mas).
+public record PaginaCitas(List<FilaReporteCita> citas, String siguiente) {
+
+    // Recibe hasta tamano + 1 filas: la fila extra solo indica que existe otra pagina y no se devuelve.
+    public static PaginaCitas de(List<FilaReporteCita> filas, int tamano) {
+        if (filas.size() <= tamano) {
+            return new PaginaCitas(filas, null);
+        }
+        List<FilaReporteCita> pagina = filas.subList(0, tamano);
+        return new PaginaCitas(List.copyOf(pagina), CursorCita.desde(pagina.get(tamano - 1)).codificar());
+    }
+}
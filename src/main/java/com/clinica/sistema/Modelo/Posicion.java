@@ -0,0 +1,21 @@
+package com.clinica.sistema.Modelo;
+
+// Coordenadas en grados decimales (WGS84) de una direccion o de una unidad de ambulancia.
+public record Posicion(double latitud, double longitud) {
+
+    public static final double KM_POR_GRADO = 111.32;
+
+    public Posicion {
+        if (Double.isNaN(latitud) || latitud < -90 || latitud > 90 || Double.isNaN(longitud) || longitud < -180 || longitud > 180) {
+            throw new IllegalArgumentException("Coordenadas fuera de rango: " + latitud + ", " + longitud);
+        }
+    }
+
+    // Aproximacion equirectangular: a escala de ciudad el error frente a la distancia geodesica es despreciable
+    // y evita la trigonometria de haversine en cada candidato de la busqueda del despacho.
+    public double distanciaKm(Posicion otra) {
+        double x = (otra.longitud - longitud) * Math.cos(Math.toRadians((latitud + otra.latitud) / 2));
+        double y = otra.latitud - latitud;
+        return Math.sqrt(x * x + y * y) * KM_POR_GRADO;
+    }
+}
@@ -0,0 +1,151 @@
+package com.clinica.sistema.Modelo;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Estado en memoria de una solicitud de ambulancia; se serializa como respuesta al paciente.
+// La prioridad empieza en la gravedad declarada (1 = critica ... 4 = baja) y baja hacia 0 al escalarse por SLA.
+public class SolicitudAmbulancia {
+
+    public static final String ESTADO_EN_COLA = "En cola";
+    public static final String ESTADO_ASIGNADA = "Asignada";
+    public static final String ESTADO_EN_CAMINO = "En camino";
+    public static final String ESTADO_EN_LUGAR = "En el lugar";
+    public static final String ESTADO_SIN_UNIDAD = "Sin unidad disponible";
+    public static final String ESTADO_FINALIZADA = "Finalizada";
+
+    public static final int GRAVEDAD_CRITICA = 1;
+    public static final int GRAVEDAD_ALTA = 2;
+    public static final int GRAVEDAD_MEDIA = 3;
+    public static final int GRAVEDAD_BAJA = 4;
+    // Prioridad de una solicitud que ya incumplio su SLA: va antes que cualquier otra.
+    public static final int PRIORIDAD_SLA_VENCIDO = 0;
+
+    private final long id;
+    private final Long idPaciente;
+    private final Long idDireccion;
+    private final Posicion destino;
+    private final int gravedad;
+    private final long creadaMs;
+
+    private final AtomicReference<String> estado = new AtomicReference<>(ESTADO_EN_COLA);
+    // Solo cambia fuera de la cola de triaje (ColaTriaje la quita y la vuelve a insertar).
+    private volatile int prioridad;
+    private volatile String codigoUnidad;
+    private volatile double distanciaKm;
+    private volatile int minutosEstimados;
+    private volatile long asignadaMs;
+
+    public SolicitudAmbulancia(long id, Long idPaciente, Long idDireccion, Posicion destino, int gravedad, long creadaMs) {
+        if (gravedad < GRAVEDAD_CRITICA || gravedad > GRAVEDAD_BAJA) {
+            throw new IllegalArgumentException("La gravedad debe estar entre " + GRAVEDAD_CRITICA + " y " + GRAVEDAD_BAJA + ".");
+        }
+        this.id = id;
+        this.idPaciente = idPaciente;
+        this.idDireccion = idDireccion;
+        this.destino = destino;
+        this.gravedad = gravedad;
+        this.prioridad = gravedad;
+        this.creadaMs = creadaMs;
+    }
+
+    // Asigna la unidad solo si la solicitud sigue en cola. False si se finalizo mientras se buscaba la unidad.
+    // Los datos de la unidad se escriben antes del cambio de estado: si la asignacion gana, finalizar() los ve.
+    public boolean asignar(String codigoUnidad, double distanciaKm, int minutosEstimados, long asignadaMs) {
+        this.codigoUnidad = codigoUnidad;
+        this.distanciaKm = distanciaKm;
+        this.minutosEstimados = minutosEstimados;
+        this.asignadaMs = asignadaMs;
+        if (estado.compareAndSet(ESTADO_EN_COLA, ESTADO_ASIGNADA)) {
+            return true;
+        }
+        this.codigoUnidad = null;
+        return false;
+    }
+
+    // La unidad asignada salio hacia el destino. False si la solicitud no estaba asignada.
+    public boolean partir() {
+        return estado.compareAndSet(ESTADO_ASIGNADA, ESTADO_EN_CAMINO);
+    }
+
+    // La unidad llego al destino. False si no estaba en camino.
+    public boolean llegar() {
+        return estado.compareAndSet(ESTADO_EN_CAMINO, ESTADO_EN_LUGAR);
+    }
+
+    public void rechazar() {
+        this.estado.set(ESTADO_SIN_UNIDAD);
+    }
+
+    // Devuelve true si la solicitud tenia una unidad asignada que ahora debe volver a la flota.
+    public boolean finalizar() {
+        String anterior = estado.getAndSet(ESTADO_FINALIZADA);
+        return ESTADO_ASIGNADA.equals(anterior) || ESTADO_EN_CAMINO.equals(anterior) || ESTADO_EN_LUGAR.equals(anterior);
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    public Long getIdPaciente() {
+        return idPaciente;
+    }
+
+    public Long getIdDireccion() {
+        return idDireccion;
+    }
+
+    public Posicion getDestino() {
+        return destino;
+    }
+
+    public int getGravedad() {
+        return gravedad;
+    }
+
+    public int getPrioridad() {
+        return prioridad;
+    }
+
+    public void setPrioridad(int prioridad) {
+        this.prioridad = prioridad;
+    }
+
+    @JsonIgnore
+    public long getCreadaMs() {
+        return creadaMs;
+    }
+
+    public LocalDateTime getCreadaEn() {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(creadaMs), ZoneId.systemDefault());
+    }
+
+    public String getEstado() {
+        return estado.get();
+    }
+
+    public String getCodigoUnidad() {
+        return codigoUnidad;
+    }
+
+    public double getDistanciaKm() {
+        return distanciaKm;
+    }
+
+    public int getMinutosEstimados() {
+        return minutosEstimados;
+    }
+
+    @JsonIgnore
+    public long getAsignadaMs() {
+        return asignadaMs;
+    }
+
+    public LocalDateTime getAsignadaEn() {
+        return asignadaMs == 0 ? null : LocalDateTime.ofInstant(Instant.ofEpochMilli(asignadaMs), ZoneId.systemDefault());
+    }
+}
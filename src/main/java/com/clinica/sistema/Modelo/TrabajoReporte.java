@@ -0,0 +1,155 @@
+package com.clinica.sistema.Modelo;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+// Estado en memoria de un reporte general generado en segundo plano; se serializa como respuesta de progreso.
+public class TrabajoReporte {
+
+    public static final String ESTADO_EN_COLA = "En cola";
+    public static final String ESTADO_EN_PROCESO = "En proceso";
+    public static final String ESTADO_COMPLETADO = "Completado";
+    public static final String ESTADO_FALLIDO = "Fallido";
+
+    public static final String FORMATO_XLSX = "xlsx";
+    public static final String FORMATO_CSV = "csv";
+
+    private final String id;
+    private final String solicitante;
+    private final String formato;
+    private final LocalDate desde;
+    private final LocalDate hasta;
+    private final Long idEspecialidad;
+    private final Long idMedico;
+    private final LocalDateTime creadoEn;
+
+    private volatile String estado = ESTADO_EN_COLA;
+    private volatile long filasTotales;
+    private final AtomicLong filasProcesadas = new AtomicLong();
+    private volatile LocalDateTime finalizadoEn;
+    private volatile String error;
+    private volatile Path archivo;
+
+    public TrabajoReporte(String id, String solicitante, String formato, LocalDate desde, LocalDate hasta,
+                          Long idEspecialidad, Long idMedico) {
+        this.id = id;
+        this.solicitante = solicitante;
+        this.formato = formato;
+        this.desde = desde;
+        this.hasta = hasta;
+        this.idEspecialidad = idEspecialidad;
+        this.idMedico = idMedico;
+        this.creadoEn = LocalDateTime.now();
+    }
+
+    // Porcentaje de filas escritas respecto al total estimado al iniciar.
+    public int getPorcentaje() {
+        if (ESTADO_COMPLETADO.equals(estado)) {
+            return 100;
+        }
+        long total = filasTotales;
+        return total <= 0 ? 0 : (int) Math.min(99, filasProcesadas.get() * 100 / total);
+    }
+
+    public void registrarFila() {
+        filasProcesadas.incrementAndGet();
+    }
+
+    // Getters y Setters
+
+    public String getId() {
+        return id;
+    }
+
+    public String getSolicitante() {
+        return solicitante;
+    }
+
+    public String getFormato() {
+        return formato;
+    }
+
+    public LocalDate getDesde() {
+        return desde;
+    }
+
+    public LocalDate getHasta() {
+        return hasta;
+    }
+
+    public Long getIdEspecialidad() {
+        return idEspecialidad;
+    }
+
+    public Long getIdMedico() {
+        return idMedico;
+    }
+
+    public LocalDateTime getCreadoEn() {
+        return creadoEn;
+    }
+
+    public String getEstado() {
+        return estado;
+    }
+
+    public void setEstado(String estado) {
+        this.estado = estado;
+    }
+
+    public long getFilasTotales() {
+        return filasTotales;
+    }
+
+    public void setFilasTotales(long filasTotales) {
+        this.filasTotales = filasTotales;
+    }
+
+    public long getFilasProcesadas() {
+        return filasProcesadas.get();
+    }
+
+    public LocalDateTime getFinalizadoEn() {
+        return finalizadoEn;
+    }
+
+    public void setFinalizadoEn(LocalDateTime finalizadoEn) {
+        this.finalizadoEn = finalizadoEn;
+    }
+
+    public String getError() {
+        return error;
+    }
+
+    public void setError(String error) {
+        this.error = error;
+    }
+
+    @JsonIgnore
+    public Path getArchivo() {
+        return archivo;
+    }
+
+    public void setArchivo(Path archivo) {
+        this.archivo = archivo;
+    }
+
+    @Override
+    public String toString() {
+        return "TrabajoReporte{" +
+                "id='" + id + '\'' +
+                ", solicitante='" + solicitante + '\'' +
+                ", formato='" + formato + '\'' +
+                ", desde=" + desde +
+                ", hasta=" + hasta +
+                ", idEspecialidad=" + idEspecialidad +
+                ", idMedico=" + idMedico +
+                ", estado='" + estado + '\'' +
+                ", filasProcesadas=" + filasProcesadas.get() +
+                '}';
+    }
+}
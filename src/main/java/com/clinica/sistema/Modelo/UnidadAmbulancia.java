@@ -0,0 +1,62 @@
+package com.clinica.sistema.Modelo;
+
+import java.util.concurrent.atomic.AtomicReference;
+
+// Unidad de la flota en memoria. El estado se cambia solo por compareAndSet: dos solicitudes que eligen
+// la misma unidad a la vez compiten por 'reservar' y exactamente una gana.
+public class UnidadAmbulancia {
+
+    public static final String ESTADO_DISPONIBLE = "Disponible";
+    public static final String ESTADO_ASIGNADA = "Asignada";
+
+    private final String codigo;
+    private volatile Posicion posicion;
+    // Siempre contiene una de las constantes ESTADO_*; compareAndSet compara por referencia.
+    private final AtomicReference<String> estado = new AtomicReference<>(ESTADO_DISPONIBLE);
+    private volatile Long idSolicitud;
+
+    public UnidadAmbulancia(String codigo, Posicion posicion) {
+        this.codigo = codigo;
+        this.posicion = posicion;
+    }
+
+    // Pasa la unidad de disponible a asignada; devuelve false si otra solicitud la tomo antes.
+    public boolean reservar(long idSolicitud) {
+        if (!estado.compareAndSet(ESTADO_DISPONIBLE, ESTADO_ASIGNADA)) {
+            return false;
+        }
+        this.idSolicitud = idSolicitud;
+        return true;
+    }
+
+    // Devuelve la unidad a disponible; false si ya lo estaba. La solicitud se limpia antes del cambio de estado
+    // para no borrar la de una reserva posterior.
+    public boolean liberar() {
+        idSolicitud = null;
+        return estado.compareAndSet(ESTADO_ASIGNADA, ESTADO_DISPONIBLE);
+    }
+
+    public boolean isDisponible() {
+        return estado.get() == ESTADO_DISPONIBLE;
+    }
+
+    public String getCodigo() {
+        return codigo;
+    }
+
+    public Posicion getPosicion() {
+        return posicion;
+    }
+
+    public void setPosicion(Posicion posicion) {
+        this.posicion = posicion;
+    }
+
+    public String getEstado() {
+        return estado.get();
+    }
+
+    public Long getIdSolicitud() {
+        return idSolicitud;
+    }
+}
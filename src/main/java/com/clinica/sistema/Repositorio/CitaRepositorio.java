@@ -1,16 +1,96 @@
 package com.clinica.sistema.Repositorio;
 
+import java.time.LocalDate;
+import java.time.LocalTime;
 import java.util.List;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.FilaReporteCita;
 import com.clinica.sistema.Modelo.Paciente;
 
+import jakarta.persistence.QueryHint;
+
 @Repository
 public interface CitaRepositorio extends JpaRepository<Cita, Long> {
     List<Cita> findByPacienteAndEstado(Paciente paciente, String estado);
     List<Cita> findByPacienteAndEstadoNot(Paciente paciente, String estado);
     List<Cita> findByPaciente(Paciente paciente);
-}
\ No newline at end of file
+
+    // Historial de un paciente ya proyectado: una sola consulta, sin cargar Paciente, Medico, Especialidad ni Notificacion.
+    @Query("SELECT new com.clinica.sistema.Modelo.FilaReporteCita(c.id, c.fecha, c.hora, c.estado, CONCAT(m.nombre, ' ', m.apellido), e.nombre) " +
+           "FROM Cita c JOIN c.medico m LEFT JOIN m.especialidad e " +
+           "WHERE c.paciente.id = :idPaciente ORDER BY c.fecha, c.hora, c.id")
+    List<FilaReporteCita> findFilasPorPaciente(@Param("idPaciente") Long idPaciente);
+
+    // Paginacion por clave (fecha, hora, id) del historial: cada pagina se lee con un rango sobre el indice del paciente
+    // en lugar de OFFSET, asi el costo no crece con el numero de citas. La condicion redundante sobre c.fecha acota el rango.
+    // El tamano de pagina llega en el Pageable (siempre la primera pagina).
+    String FILA_CITA = "SELECT new com.clinica.sistema.Modelo.FilaReporteCita(c.id, c.fecha, c.hora, c.estado, CONCAT(m.nombre, ' ', m.apellido), e.nombre) " +
+                       "FROM Cita c JOIN c.medico m LEFT JOIN m.especialidad e ";
+
+    @Query(FILA_CITA + "WHERE c.paciente.id = :idPaciente AND c.estado = 'Pendiente' ORDER BY c.fecha, c.hora, c.id")
+    List<FilaReporteCita> findPrimerasPendientes(@Param("idPaciente") Long idPaciente, Pageable pagina);
+
+    @Query(FILA_CITA + "WHERE c.paciente.id = :idPaciente AND c.estado = 'Pendiente' AND c.fecha >= :fecha " +
+           "AND (c.fecha > :fecha OR c.hora > :hora OR (c.hora = :hora AND c.id > :id)) ORDER BY c.fecha, c.hora, c.id")
+    List<FilaReporteCita> findPendientesDespuesDe(@Param("idPaciente") Long idPaciente, @Param("fecha") LocalDate fecha,
+                                                  @Param("hora") LocalTime hora, @Param("id") Long id, Pageable pagina);
+
+    @Query(FILA_CITA + "WHERE c.paciente.id = :idPaciente AND c.estado <> 'Pendiente' ORDER BY c.fecha DESC, c.hora DESC, c.id DESC")
+    List<FilaReporteCita> findPrimerasPasadas(@Param("idPaciente") Long idPaciente, Pageable pagina);
+
+    @Query(FILA_CITA + "WHERE c.paciente.id = :idPaciente AND c.estado <> 'Pendiente' AND c.fecha <= :fecha " +
+           "AND (c.fecha < :fecha OR c.hora < :hora OR (c.hora = :hora AND c.id < :id)) ORDER BY c.fecha DESC, c.hora DESC, c.id DESC")
+    List<FilaReporteCita> findPasadasAntesDe(@Param("idPaciente") Long idPaciente, @Param("fecha") LocalDate fecha,
+                                             @Param("hora") LocalTime hora, @Param("id") Long id, Pageable pagina);
+
+    // Filas del reporte general, leidas con un cursor del servidor en bloques de fetch size (requiere useCursorFetch=true en MySQL).
+    // Debe consumirse dentro de una transaccion y cerrarse al terminar.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "500"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.clinica.sistema.Modelo.FilaReporteCita(c.id, c.fecha, c.hora, c.estado, CONCAT(m.nombre, ' ', m.apellido), e.nombre) " +
+           "FROM Cita c JOIN c.medico m LEFT JOIN m.especialidad e " +
+           "WHERE c.fecha BETWEEN :desde AND :hasta " +
+           "AND (:idEspecialidad IS NULL OR e.id = :idEspecialidad) AND (:idMedico IS NULL OR m.id = :idMedico) " +
+           "ORDER BY c.fecha, c.hora, c.id")
+    Stream<FilaReporteCita> streamFilasReporte(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta,
+                                               @Param("idEspecialidad") Long idEspecialidad, @Param("idMedico") Long idMedico);
+
+    @Query("SELECT COUNT(c) FROM Cita c JOIN c.medico m LEFT JOIN m.especialidad e " +
+           "WHERE c.fecha BETWEEN :desde AND :hasta " +
+           "AND (:idEspecialidad IS NULL OR e.id = :idEspecialidad) AND (:idMedico IS NULL OR m.id = :idMedico)")
+    long contarFilasReporte(@Param("desde") LocalDate desde, @Param("hasta") LocalDate hasta,
+                            @Param("idEspecialidad") Long idEspecialidad, @Param("idMedico") Long idMedico);
+
+    // Cancela la cita solo si sigue pendiente. Devuelve 1 si la cancelo, 0 si ya estaba cancelada o completada;
+    // asi dos cancelaciones de la misma cita (doble clic, reintento) no liberan dos veces su horario.
+    @Modifying
+    @Query("UPDATE Cita c SET c.estado = 'Cancelada' WHERE c.id = :id AND c.estado = 'Pendiente'")
+    int cancelarSiPendiente(@Param("id") Long id);
+
+    // IDs de citas pendientes cuya hora ya paso, en bloques. Sin cota inferior de fecha: una cita registrada tarde con
+    // fecha pasada tambien se cierra; el indice (estado, fecha) limita la lectura a las pendientes.
+    @Query("SELECT c.id FROM Cita c WHERE c.estado = 'Pendiente' " +
+           "AND (c.fecha < :hoy OR (c.fecha = :hoy AND c.hora < :horaActual)) ORDER BY c.id")
+    List<Long> findIdsPendientesVencidas(@Param("hoy") LocalDate hoy, @Param("horaActual") LocalTime horaActual,
+                                         Pageable bloque);
+
+    // Pasa un bloque de citas a 'Completada' en un solo UPDATE; ignora las que cambiaron de estado entretanto.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Cita c SET c.estado = 'Completada' WHERE c.id IN :ids AND c.estado = 'Pendiente'")
+    int completarPendientes(@Param("ids") List<Long> ids);
+}
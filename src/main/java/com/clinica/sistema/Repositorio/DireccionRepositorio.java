@@ -1,15 +1,31 @@
 package com.clinica.sistema.Repositorio;
 
 import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.DireccionSinUbicar;
 
 import java.util.List;
 import java.util.Optional;
 
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface DireccionRepositorio extends JpaRepository<Direccion, Long> {
     List<Direccion> findByPacienteId(Long pacienteId);
     Optional<Direccion> findByIdAndPacienteId(Long id, Long pacienteId);
+
+    // Direcciones sin coordenadas con id mayor a 'desde', en orden de id (paginacion por clave).
+    @Query("SELECT new com.clinica.sistema.Modelo.DireccionSinUbicar(d.id, d.direccionCompleta) FROM Direccion d "
+            + "WHERE d.latitud IS NULL AND d.id > :desde ORDER BY d.id")
+    List<DireccionSinUbicar> findSinUbicarDesde(@Param("desde") Long desde, Pageable pagina);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Direccion d SET d.latitud = :latitud, d.longitud = :longitud WHERE d.id = :id")
+    int actualizarUbicacion(@Param("id") Long id, @Param("latitud") Double latitud, @Param("longitud") Double longitud);
 }
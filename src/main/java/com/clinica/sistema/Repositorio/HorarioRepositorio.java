@@ -1,8 +1,12 @@
 package com.clinica.sistema.Repositorio;
 
 import com.clinica.sistema.Modelo.Horario;
+import com.clinica.sistema.Modelo.HorarioDisponible;
 import com.clinica.sistema.Modelo.Medico; // Necesario para el método findByMedico
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
 import java.time.LocalDate; // Necesario para la fecha
@@ -18,4 +22,24 @@ public interface HorarioRepositorio extends JpaRepository<Horario, Long> {
 
     Optional<Horario> findByMedicoAndFechaAndHora(Medico medico, LocalDate fecha, LocalTime hora);
 
+    // Carga todos los horarios libres en forma compacta para construir el indice de disponibilidad.
+    @Query("SELECT new com.clinica.sistema.Modelo.HorarioDisponible(h.medico.id, h.fecha, h.hora) FROM Horario h WHERE h.disponible = true")
+    List<HorarioDisponible> findTodosLosDisponibles();
+
+    @Query("SELECT DISTINCT h.hora FROM Horario h")
+    List<LocalTime> findHorasDistintas();
+
+    boolean existsByMedicoIdAndFechaAndHora(Long idMedico, LocalDate fecha, LocalTime hora);
+
+    // Reserva el horario con un UPDATE condicional: solo una transaccion puede pasar de disponible a ocupado.
+    // Devuelve 1 si la reserva se realizo, 0 si el horario no existe o ya estaba ocupado.
+    @Modifying
+    @Query("UPDATE Horario h SET h.disponible = false WHERE h.medico.id = :idMedico AND h.fecha = :fecha AND h.hora = :hora AND h.disponible = true")
+    int reservarSiDisponible(@Param("idMedico") Long idMedico, @Param("fecha") LocalDate fecha, @Param("hora") LocalTime hora);
+
+    // Libera el horario con un UPDATE condicional. Devuelve 1 si se libero, 0 si no existia o ya estaba libre.
+    @Modifying
+    @Query("UPDATE Horario h SET h.disponible = true WHERE h.medico.id = :idMedico AND h.fecha = :fecha AND h.hora = :hora AND h.disponible = false")
+    int liberarSiOcupado(@Param("idMedico") Long idMedico, @Param("fecha") LocalDate fecha, @Param("hora") LocalTime hora);
+
 }
\ No newline at end of file
@@ -7,6 +7,7 @@ import java.util.List;
 import java.util.Optional;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
 @Repository
@@ -14,4 +15,7 @@ public interface MedicoRepositorio extends JpaRepository<Medico, Long> {
     List<Medico> findByEspecialidad(Especialidad especialidad);
     Optional<Medico> findByNombreAndApellido(String nombre, String apellido);
 
+    @Query("SELECT m.id FROM Medico m")
+    List<Long> findTodosLosIds();
+
 }
\ No newline at end of file
@@ -1,10 +1,57 @@
 package com.clinica.sistema.Repositorio;
 
 import com.clinica.sistema.Modelo.Notificacion;
+import com.clinica.sistema.Modelo.NotificacionPendiente;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+import org.springframework.data.domain.Pageable;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
+import org.springframework.transaction.annotation.Transactional;
 
 @Repository
 public interface NotificacionRepositorio extends JpaRepository<Notificacion, Long> {
 
-}
\ No newline at end of file
+    // Notificaciones pendientes cuyo proximo intento ya vencio, las mas antiguas primero.
+    @Query("SELECT new com.clinica.sistema.Modelo.NotificacionPendiente(n.id, n.emailDestinatario, n.asunto, n.mensaje, n.intentos) " +
+           "FROM Notificacion n WHERE n.estado = 'Pendiente' AND n.proximoIntento <= :ahora ORDER BY n.proximoIntento, n.id")
+    List<NotificacionPendiente> findPendientesVencidas(@Param("ahora") LocalDateTime ahora, Pageable pagina);
+
+    // Reserva la notificacion para un trabajador; solo una instancia del despachador puede reclamarla.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.estado = 'Enviando', n.proximoIntento = :finReserva WHERE n.id = :id AND n.estado = 'Pendiente'")
+    int reclamar(@Param("id") Long id, @Param("finReserva") LocalDateTime finReserva);
+
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.estado = 'Enviada', n.intentos = n.intentos + 1, n.fechaEnvio = :fechaEnvio, n.ultimoError = null WHERE n.id = :id")
+    int marcarEnviada(@Param("id") Long id, @Param("fechaEnvio") LocalDate fechaEnvio);
+
+    // Registra un intento fallido: vuelve a 'Pendiente' con un nuevo proximo intento, o pasa a 'Fallida' (dead-letter).
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.estado = :estado, n.intentos = n.intentos + 1, n.proximoIntento = :proximoIntento, n.ultimoError = :error WHERE n.id = :id")
+    int registrarFallo(@Param("id") Long id, @Param("estado") String estado,
+                       @Param("proximoIntento") LocalDateTime proximoIntento, @Param("error") String error);
+
+    // Devuelve a la cola una notificacion reclamada que no llego a ejecutarse.
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.estado = 'Pendiente', n.proximoIntento = :ahora WHERE n.id = :id AND n.estado = 'Enviando'")
+    int devolverAPendiente(@Param("id") Long id, @Param("ahora") LocalDateTime ahora);
+
+    // Recupera notificaciones cuya reserva expiro (por ejemplo, si la aplicacion se detuvo durante el envio).
+    @Transactional
+    @Modifying
+    @Query("UPDATE Notificacion n SET n.estado = 'Pendiente' WHERE n.estado = 'Enviando' AND n.proximoIntento < :ahora")
+    int recuperarReservasVencidas(@Param("ahora") LocalDateTime ahora);
+
+    long countByEstado(String estado);
+}
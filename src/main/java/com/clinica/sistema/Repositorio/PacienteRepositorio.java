@@ -1,11 +1,22 @@
 package com.clinica.sistema.Repositorio; 
 
+import com.clinica.sistema.Modelo.IdentidadPaciente;
 import com.clinica.sistema.Modelo.Paciente;
 
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
+import org.hibernate.jpa.HibernateHints;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository; 
+import org.springframework.transaction.annotation.Transactional;
+
+import jakarta.persistence.QueryHint;
 
 @Repository 
 public interface PacienteRepositorio extends JpaRepository<Paciente, Long> {
@@ -13,4 +24,24 @@ public interface PacienteRepositorio extends JpaRepository<Paciente, Long> {
     Optional<Paciente> findByCorreo(String correo);
     Optional<Paciente> findByCorreoAndContraseña(String correo, String contraseña);
 
+    // IDs de los pacientes con ese correo o ese DNI, en una sola consulta. Se usa UNION y no OR para que cada
+    // rama use su indice unico (un OR sobre dos columnas puede terminar recorriendo la tabla).
+    @Query("SELECT p.id FROM Paciente p WHERE p.correo = :correo UNION SELECT p.id FROM Paciente p WHERE p.dni = :dni")
+    List<Long> findIdsPorCorreoODni(@Param("correo") String correo, @Param("dni") String dni);
+
+    // Correo y DNI de todos los pacientes, leidos con cursor para construir el filtro de registro.
+    // Debe consumirse dentro de una transaccion y cerrarse al terminar.
+    @QueryHints({
+        @QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"),
+        @QueryHint(name = HibernateHints.HINT_READ_ONLY, value = "true")
+    })
+    @Query("SELECT new com.clinica.sistema.Modelo.IdentidadPaciente(p.correo, p.dni) FROM Paciente p")
+    Stream<IdentidadPaciente> streamIdentidades();
+
+    // Reemplaza el hash de la contrasena (rehash con el costo vigente tras un login correcto).
+    @Transactional
+    @Modifying
+    @Query("UPDATE Paciente p SET p.contraseña = :contrasena WHERE p.id = :id")
+    int actualizarContrasena(@Param("id") Long id, @Param("contrasena") String contrasena);
+
 }
\ No newline at end of file
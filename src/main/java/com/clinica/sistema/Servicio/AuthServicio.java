@@ -7,6 +7,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.slf4j.MDC;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
@@ -19,6 +20,8 @@ import com.clinica.sistema.Repositorio.PacienteRepositorio;
 public class AuthServicio {
 
     private final PacienteRepositorio pacienteRepositorio;
+    private final FiltroRegistroPacientes filtroRegistro;
+    private final GeocodificadorDirecciones geocodificador;
 
     @Autowired
     private PasswordEncoder passwordEncoder;
@@ -30,8 +33,11 @@ public class AuthServicio {
     private static final String MDC_USER_ID = "userId";
     private static final String MDC_USER_DNI = "userDni";
 
-    public AuthServicio(PacienteRepositorio pacienteRepositorio) {
+    public AuthServicio(PacienteRepositorio pacienteRepositorio, FiltroRegistroPacientes filtroRegistro,
+                        GeocodificadorDirecciones geocodificador) {
         this.pacienteRepositorio = pacienteRepositorio;
+        this.filtroRegistro = filtroRegistro;
+        this.geocodificador = geocodificador;
     }
 
     // Verifica la existencia de un paciente por correo electronico o DNI.
@@ -46,10 +52,17 @@ public class AuthServicio {
             throw new IllegalArgumentException("El DNI no puede estar vacio.");
         }
 
-        Optional<Paciente> pacientePorCorreo = pacienteRepositorio.findByCorreo(email);
-        Optional<Paciente> pacientePorDni = pacienteRepositorio.findByDni(dni);
+        // El filtro descarta sin consultar la base de datos a casi todos los pacientes nuevos.
+        if (!filtroRegistro.posiblementeRegistrado(email, dni)) {
+            logger.info("Verificacion de existencia: el correo {} y el DNI {} no estan registrados (filtro en memoria).", email, dni);
+            return false;
+        }
 
-        boolean existe = pacientePorCorreo.isPresent() || pacientePorDni.isPresent();
+        // Posible coincidencia: se confirma con una sola consulta por correo o DNI.
+        boolean existe = !pacienteRepositorio.findIdsPorCorreoODni(email, dni).isEmpty();
+        if (!existe) {
+            filtroRegistro.registrarFalsoPositivo();
+        }
         
         if (existe) {
             // Si el paciente existe, puedes cargar parte de su información en el MDC
@@ -93,8 +106,20 @@ public class AuthServicio {
         direccion.setPaciente(paciente);
         paciente.getDirecciones().add(direccion);
         logger.debug("Asignando direccion al paciente con DNI: {}. Direccion: {}", paciente.getDni(), direccion.getDireccionCompleta());
+        if (!geocodificador.ubicar(direccion)) {
+            logger.warn("La direccion del paciente con DNI {} no se pudo ubicar en el nomenclator: {}", paciente.getDni(), direccion.getDireccionCompleta());
+        }
 
-        Paciente pacienteGuardado = pacienteRepositorio.save(paciente);
+        // Se agrega al filtro antes de confirmar: si la insercion falla, solo queda un falso positivo.
+        filtroRegistro.registrar(paciente.getCorreo(), paciente.getDni());
+        Paciente pacienteGuardado;
+        try {
+            pacienteGuardado = pacienteRepositorio.save(paciente);
+        } catch (DataIntegrityViolationException e) {
+            // Las restricciones unicas de correo y DNI tienen la ultima palabra (por ejemplo, dos registros simultaneos).
+            logger.warn("Registro rechazado por la base de datos para DNI {} y correo {}: ya existe.", paciente.getDni(), paciente.getCorreo());
+            throw new IllegalArgumentException("Ya existe un paciente con el correo: " + paciente.getCorreo() + " o DNI: " + paciente.getDni() + ".");
+        }
         
         // Una vez que el paciente es guardado y tiene un ID, podemos poner sus datos en el MDC
         MDC.put(MDC_USER_FULL_NAME, pacienteGuardado.getNombre() + " " + pacienteGuardado.getApellido());
@@ -128,6 +153,14 @@ public class AuthServicio {
         return paciente;
     }
 
+    // Referencia al paciente por su ID sin consultar la base de datos, para asociarlo a otras entidades (por ejemplo, una direccion).
+    public Paciente referenciaPaciente(Long id) {
+        if (id == null || id <= 0) {
+            throw new IllegalArgumentException("El ID del paciente no puede ser nulo o negativo.");
+        }
+        return pacienteRepositorio.getReferenceById(id);
+    }
+
     // Busca un paciente por su ID.
     public Optional<Paciente> buscarPacientePorId(Long id) {
         logger.debug("Buscando paciente por ID: {}", id);
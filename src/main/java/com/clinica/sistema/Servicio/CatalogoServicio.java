@@ -0,0 +1,134 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.google.common.hash.Hashing;
+
+// Instantanea versionada en memoria de especialidades y medicos (datos de referencia que casi no cambian).
+// Guarda el JSON ya serializado y su ETag para que las APIs respondan sin consultar MySQL ni volver a serializar.
+// Se carga al arrancar y puede recargarse sin reiniciar la aplicacion.
+@Service
+public class CatalogoServicio {
+
+    private final Logger logger = LoggerFactory.getLogger(CatalogoServicio.class);
+
+    private final EspecialidadRepositorio especialidadRepositorio;
+    private final MedicoRepositorio medicoRepositorio;
+    private final ObjectMapper objectMapper;
+
+    private final AtomicLong version = new AtomicLong();
+    // Serializa las recargas; se mantiene durante las consultas a la base de datos.
+    private final ReentrantLock recarga = new ReentrantLock();
+    private volatile Instantanea actual;
+
+    public CatalogoServicio(EspecialidadRepositorio especialidadRepositorio, MedicoRepositorio medicoRepositorio,
+                            ObjectMapper objectMapper) {
+        this.especialidadRepositorio = especialidadRepositorio;
+        this.medicoRepositorio = medicoRepositorio;
+        this.objectMapper = objectMapper;
+    }
+
+    // Contenido JSON listo para enviar, con su ETag (hash del contenido, estable entre recargas y reinicios si no cambia).
+    public record RecursoJson(byte[] contenido, String etag) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void cargarAlIniciar() {
+        recargar();
+    }
+
+    // Vuelve a leer especialidades y medicos y publica una nueva version. Devuelve el numero de version publicado.
+    public long recargar() {
+        recarga.lock();
+        try {
+            return recargarConLock();
+        } finally {
+            recarga.unlock();
+        }
+    }
+
+    private long recargarConLock() {
+        long inicio = System.nanoTime();
+        List<Especialidad> especialidades = List.copyOf(especialidadRepositorio.findAll());
+        Map<Long, List<Medico>> medicosPorEspecialidad = medicoRepositorio.findAll().stream()
+                .filter(medico -> medico.getEspecialidad() != null)
+                .collect(Collectors.groupingBy(medico -> medico.getEspecialidad().getId(), LinkedHashMap::new, Collectors.toUnmodifiableList()));
+
+        Map<Long, RecursoJson> medicosJson = new LinkedHashMap<>();
+        for (Especialidad especialidad : especialidades) {
+            medicosJson.put(especialidad.getId(), serializar(medicosPorEspecialidad.getOrDefault(especialidad.getId(), List.of())));
+        }
+
+        long nuevaVersion = version.incrementAndGet();
+        actual = new Instantanea(nuevaVersion, especialidades, medicosPorEspecialidad, serializar(especialidades), medicosJson);
+        logger.info("Catalogo de referencia v{} cargado: {} especialidades y {} medicos en {} ms.", nuevaVersion, especialidades.size(),
+                medicosPorEspecialidad.values().stream().mapToInt(List::size).sum(), (System.nanoTime() - inicio) / 1_000_000);
+        return nuevaVersion;
+    }
+
+    public List<Especialidad> getEspecialidades() {
+        return instantanea().especialidades();
+    }
+
+    // Vacio si la especialidad no existe; lista vacia si existe pero no tiene medicos.
+    public Optional<List<Medico>> getMedicos(Long idEspecialidad) {
+        Instantanea instantanea = instantanea();
+        if (!instantanea.medicosJson().containsKey(idEspecialidad)) {
+            return Optional.empty();
+        }
+        return Optional.of(instantanea.medicosPorEspecialidad().getOrDefault(idEspecialidad, List.of()));
+    }
+
+    public RecursoJson getEspecialidadesJson() {
+        return instantanea().especialidadesJson();
+    }
+
+    public Optional<RecursoJson> getMedicosJson(Long idEspecialidad) {
+        return Optional.ofNullable(instantanea().medicosJson().get(idEspecialidad));
+    }
+
+    public long getVersion() {
+        return version.get();
+    }
+
+    private Instantanea instantanea() {
+        Instantanea instantanea = actual;
+        if (instantanea == null) {
+            // Acceso antes de ApplicationReadyEvent (por ejemplo, en pruebas): se carga bajo demanda.
+            recargar();
+            instantanea = actual;
+        }
+        return instantanea;
+    }
+
+    private RecursoJson serializar(Object valor) {
+        try {
+            byte[] contenido = objectMapper.writeValueAsBytes(valor);
+            return new RecursoJson(contenido, Hashing.sha256().hashBytes(contenido).toString().substring(0, 32));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el catalogo de referencia: " + e.getMessage(), e);
+        }
+    }
+
+    private record Instantanea(long version, List<Especialidad> especialidades, Map<Long, List<Medico>> medicosPorEspecialidad,
+                               RecursoJson especialidadesJson, Map<Long, RecursoJson> medicosJson) {
+    }
+}
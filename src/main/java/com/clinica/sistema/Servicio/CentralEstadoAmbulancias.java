@@ -0,0 +1,245 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.MediaType;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+// Reparte los cambios de estado de las solicitudes de ambulancia a los pacientes conectados por Server-Sent Events.
+// Las conexiones son peticiones asincronas del contenedor (no ocupan un hilo mientras esperan). Publicar solo serializa
+// el estado una vez y lo deja en la cola de cada suscriptor; un pool pequeno escribe en las conexiones, con a lo sumo
+// una tarea por suscriptor, de modo que un cliente lento no retrasa a los demas ni al despacho. Un suscriptor con mas
+// de 'pendientes-max' mensajes sin enviar se desconecta (el navegador se reconecta y recibe el estado vigente).
+// Cada 'latido-ms' se envia un comentario para mantener viva la conexion y detectar clientes caidos.
+@Component
+public class CentralEstadoAmbulancias {
+
+    private static final Logger logger = LoggerFactory.getLogger(CentralEstadoAmbulancias.class);
+
+    static final String EVENTO_ESTADO = "estado";
+    private static final String LATIDO = "latido";
+
+    private final Executor ejecutor;
+    private final ObjectMapper objectMapper;
+    private final long timeoutMs;
+    private final int pendientesMax;
+
+    private final Map<Long, Set<Suscriptor>> suscriptores = new ConcurrentHashMap<>();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private final LongAdder enviados = new LongAdder();
+    private final LongAdder desconectadosLentos = new LongAdder();
+
+    public CentralEstadoAmbulancias(@Qualifier("ejecutorEventosAmbulancia") Executor ejecutor,
+                                    ObjectMapper objectMapper,
+                                    @Value("${clinica.ambulancias.eventos.timeout-ms:1800000}") long timeoutMs,
+                                    @Value("${clinica.ambulancias.eventos.pendientes-max:32}") int pendientesMax) {
+        if (pendientesMax <= 0) {
+            throw new IllegalArgumentException("El maximo de mensajes pendientes por conexion debe ser positivo.");
+        }
+        this.ejecutor = ejecutor;
+        this.objectMapper = objectMapper;
+        this.timeoutMs = timeoutMs;
+        this.pendientesMax = pendientesMax;
+    }
+
+    // Abre una conexion para la solicitud y le envia de inmediato su estado vigente.
+    public SseEmitter suscribir(SolicitudAmbulancia solicitud) {
+        return suscribir(solicitud, new SseEmitter(timeoutMs));
+    }
+
+    SseEmitter suscribir(SolicitudAmbulancia solicitud, SseEmitter emitter) {
+        Suscriptor suscriptor = new Suscriptor(solicitud.getId(), emitter);
+        emitter.onCompletion(() -> quitar(suscriptor));
+        emitter.onTimeout(() -> quitar(suscriptor));
+        emitter.onError(error -> quitar(suscriptor));
+        suscriptores.computeIfAbsent(solicitud.getId(), id -> ConcurrentHashMap.newKeySet()).add(suscriptor);
+        conexiones.incrementAndGet();
+        encolar(suscriptor, new Mensaje(EVENTO_ESTADO, serializar(solicitud), terminal(solicitud)));
+        return emitter;
+    }
+
+    // Publica el estado actual de la solicitud a sus suscriptores. No bloquea: solo encola.
+    public void publicar(SolicitudAmbulancia solicitud) {
+        Set<Suscriptor> destinatarios = suscriptores.get(solicitud.getId());
+        if (destinatarios == null || destinatarios.isEmpty()) {
+            return;
+        }
+        Mensaje mensaje = new Mensaje(EVENTO_ESTADO, serializar(solicitud), terminal(solicitud));
+        for (Suscriptor suscriptor : destinatarios) {
+            encolar(suscriptor, mensaje);
+        }
+    }
+
+    @Scheduled(initialDelayString = "${clinica.ambulancias.eventos.latido-ms:15000}",
+               fixedDelayString = "${clinica.ambulancias.eventos.latido-ms:15000}")
+    public void latido() {
+        Mensaje latido = new Mensaje(null, LATIDO, false);
+        for (Set<Suscriptor> destinatarios : suscriptores.values()) {
+            for (Suscriptor suscriptor : destinatarios) {
+                encolar(suscriptor, latido);
+            }
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        for (Set<Suscriptor> destinatarios : suscriptores.values()) {
+            for (Suscriptor suscriptor : destinatarios) {
+                suscriptor.emitter.complete();
+                quitar(suscriptor);
+            }
+        }
+    }
+
+    private void encolar(Suscriptor suscriptor, Mensaje mensaje) {
+        if (suscriptor.cerrado.get()) {
+            return;
+        }
+        if (suscriptor.tamano.incrementAndGet() > pendientesMax) {
+            desconectadosLentos.increment();
+            logger.warn("Conexion de seguimiento de la solicitud de ambulancia {} cerrada: {} mensajes sin enviar.",
+                    suscriptor.idSolicitud, pendientesMax);
+            // Se completa desde el pool: el emitter se sincroniza con el envio en curso y quien publica no debe esperarlo.
+            quitar(suscriptor);
+            try {
+                ejecutor.execute(suscriptor.emitter::complete);
+            } catch (RejectedExecutionException e) {
+                logger.debug("Pool de eventos saturado; la conexion de la solicitud {} se cerrara por timeout.", suscriptor.idSolicitud);
+            }
+            return;
+        }
+        suscriptor.pendientes.add(mensaje);
+        programar(suscriptor);
+    }
+
+    private void programar(Suscriptor suscriptor) {
+        if (!suscriptor.enviando.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ejecutor.execute(() -> vaciar(suscriptor));
+        } catch (RejectedExecutionException e) {
+            suscriptor.enviando.set(false);
+            logger.warn("Pool de eventos de ambulancia saturado; se cierra la conexion de la solicitud {}.", suscriptor.idSolicitud);
+            cerrar(suscriptor);
+        }
+    }
+
+    // Envia en orden lo pendiente de un suscriptor. Solo una tarea por suscriptor a la vez ('enviando').
+    private void vaciar(Suscriptor suscriptor) {
+        do {
+            Mensaje mensaje;
+            while ((mensaje = suscriptor.pendientes.poll()) != null) {
+                suscriptor.tamano.decrementAndGet();
+                if (suscriptor.cerrado.get()) {
+                    continue;
+                }
+                try {
+                    suscriptor.emitter.send(mensaje.evento());
+                    enviados.increment();
+                } catch (IOException | IllegalStateException e) {
+                    // Cliente desconectado: el contenedor completa la peticion asincrona.
+                    logger.debug("No se pudo enviar a la conexion de la solicitud {}: {}", suscriptor.idSolicitud, e.getMessage());
+                    quitar(suscriptor);
+                    continue;
+                }
+                if (mensaje.terminal()) {
+                    cerrar(suscriptor);
+                }
+            }
+            suscriptor.enviando.set(false);
+            // Un mensaje encolado justo despues del ultimo poll no debe quedar sin enviar.
+        } while (!suscriptor.pendientes.isEmpty() && suscriptor.enviando.compareAndSet(false, true));
+    }
+
+    private void cerrar(Suscriptor suscriptor) {
+        if (!suscriptor.cerrado.get()) {
+            suscriptor.emitter.complete();
+        }
+        quitar(suscriptor);
+    }
+
+    private void quitar(Suscriptor suscriptor) {
+        if (!suscriptor.cerrado.compareAndSet(false, true)) {
+            return;
+        }
+        conexiones.decrementAndGet();
+        suscriptores.computeIfPresent(suscriptor.idSolicitud, (id, destinatarios) -> {
+            destinatarios.remove(suscriptor);
+            return destinatarios.isEmpty() ? null : destinatarios;
+        });
+    }
+
+    private String serializar(SolicitudAmbulancia solicitud) {
+        try {
+            return objectMapper.writeValueAsString(solicitud);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar la solicitud de ambulancia " + solicitud.getId(), e);
+        }
+    }
+
+    // Tras estos estados no hay mas cambios y la conexion se cierra.
+    private static boolean terminal(SolicitudAmbulancia solicitud) {
+        String estado = solicitud.getEstado();
+        return SolicitudAmbulancia.ESTADO_FINALIZADA.equals(estado) || SolicitudAmbulancia.ESTADO_SIN_UNIDAD.equals(estado);
+    }
+
+    public int getConexiones() {
+        return conexiones.get();
+    }
+
+    public long getEnviados() {
+        return enviados.sum();
+    }
+
+    public long getDesconectadosLentos() {
+        return desconectadosLentos.sum();
+    }
+
+    // Mensaje ya serializado; sin nombre es un comentario (latido).
+    private record Mensaje(String nombre, String datos, boolean terminal) {
+
+        SseEmitter.SseEventBuilder evento() {
+            return nombre == null
+                    ? SseEmitter.event().comment(datos)
+                    : SseEmitter.event().name(nombre).data(datos, MediaType.APPLICATION_JSON);
+        }
+    }
+
+    private static final class Suscriptor {
+
+        private final long idSolicitud;
+        private final SseEmitter emitter;
+        private final Queue<Mensaje> pendientes = new ConcurrentLinkedQueue<>();
+        private final AtomicInteger tamano = new AtomicInteger();
+        private final AtomicBoolean enviando = new AtomicBoolean();
+        private final AtomicBoolean cerrado = new AtomicBoolean();
+
+        private Suscriptor(long idSolicitud, SseEmitter emitter) {
+            this.idSolicitud = idSolicitud;
+            this.emitter = emitter;
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package com.clinica.sistema.Servicio;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+
+// Pasa a 'Completada' las citas pendientes cuya hora ya paso, con UPDATEs por bloques.
+// No se recorre el historico: las citas completadas salen del rango 'Pendiente' del indice (estado, fecha), asi que cada
+// ejecucion solo lee las pendientes. Tampoco se guarda una cota inferior por fecha: una cita pendiente puede registrarse
+// despues con una fecha ya revisada.
+@Component
+public class CierreCitasVencidas {
+
+    private final Logger logger = LoggerFactory.getLogger(CierreCitasVencidas.class);
+
+    private final CitaRepositorio citaRepositorio;
+
+    @Value("${clinica.citas.cierre.tamano-bloque:500}")
+    private int tamanoBloque;
+
+    // Metricas del proceso
+    private final AtomicLong ejecuciones = new AtomicLong();
+    private final AtomicLong citasCompletadas = new AtomicLong();
+    private volatile long ultimaEjecucionCitas = -1;
+    private volatile long ultimaEjecucionMs = -1;
+
+    public CierreCitasVencidas(CitaRepositorio citaRepositorio) {
+        this.citaRepositorio = citaRepositorio;
+    }
+
+    @Scheduled(initialDelayString = "${clinica.citas.cierre.retraso-inicial-ms:30000}",
+               fixedDelayString = "${clinica.citas.cierre.intervalo-ms:300000}")
+    public void completarCitasVencidas() {
+        long inicio = System.nanoTime();
+        LocalDateTime ahora = LocalDateTime.now();
+        LocalDate hoy = ahora.toLocalDate();
+        LocalTime horaActual = ahora.toLocalTime();
+
+        // Cada bloque es su propia transaccion; si el proceso se interrumpe, los bloques ya aplicados se conservan.
+        long completadas = 0;
+        List<Long> ids;
+        do {
+            ids = citaRepositorio.findIdsPendientesVencidas(hoy, horaActual, PageRequest.of(0, tamanoBloque));
+            if (!ids.isEmpty()) {
+                completadas += citaRepositorio.completarPendientes(ids);
+            }
+        } while (ids.size() == tamanoBloque);
+
+        ultimaEjecucionMs = (System.nanoTime() - inicio) / 1_000_000;
+        ultimaEjecucionCitas = completadas;
+        citasCompletadas.addAndGet(completadas);
+        ejecuciones.incrementAndGet();
+
+        if (completadas > 0) {
+            logger.info("Cierre de citas vencidas: {} citas pasaron a 'Completada' en {} ms.", completadas, ultimaEjecucionMs);
+        } else {
+            logger.debug("Cierre de citas vencidas: sin citas por completar ({} ms).", ultimaEjecucionMs);
+        }
+    }
+
+    public long getEjecuciones() {
+        return ejecuciones.get();
+    }
+
+    public long getCitasCompletadas() {
+        return citasCompletadas.get();
+    }
+
+    public long getUltimaEjecucionCitas() {
+        return ultimaEjecucionCitas;
+    }
+
+    public long getUltimaEjecucionMs() {
+        return ultimaEjecucionMs;
+    }
+}
@@ -1,56 +1,99 @@
 package com.clinica.sistema.Servicio;
 
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.time.LocalTime;
 import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Comparator;
 import java.util.List;
 import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.CursorCita;
 import com.clinica.sistema.Modelo.Especialidad;
-import com.clinica.sistema.Modelo.Horario;
+import com.clinica.sistema.Modelo.FilaReporteCita;
+import com.clinica.sistema.Modelo.HorarioDisponible;
 import com.clinica.sistema.Modelo.Medico;
 import com.clinica.sistema.Modelo.Notificacion;
 import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Modelo.PaginaCitas;
 import com.clinica.sistema.Repositorio.CitaRepositorio;
-import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
 import com.clinica.sistema.Repositorio.HorarioRepositorio;
 import com.clinica.sistema.Repositorio.MedicoRepositorio;
 import com.clinica.sistema.Repositorio.PacienteRepositorio;
 
+import io.micrometer.core.annotation.Timed;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+
+// Todos los metodos publicos quedan medidos en clinica.citas.servicio (etiqueta 'method'); la reserva ademas
+// se mide en clinica.citas.reserva con su resultado.
 @Service
+@Timed(value = "clinica.citas.servicio", description = "Duracion de las operaciones de CitaServicio")
 public class CitaServicio {
 
     private final Logger logger = LoggerFactory.getLogger(CitaServicio.class);
 
+    private static final String ASUNTO_CONFIRMACION = "Confirmacion de Cita Medica - Clinica Angry";
+
+    // Resultados de la reserva para la etiqueta 'resultado' de clinica.citas.reserva
+    private static final String RESERVA_EXITO = "exito";
+    private static final String RESERVA_HORARIO_OCUPADO = "horario_ocupado";
+    private static final String RESERVA_ERROR_VALIDACION = "error_validacion";
+    private static final String RESERVA_ERROR = "error";
+
     private final CitaRepositorio citaRepositorio;
     private final PacienteRepositorio pacienteRepositorio;
     private final MedicoRepositorio medicoRepositorio;
     private final HorarioRepositorio horarioRepositorio;
-    private final EspecialidadRepositorio especialidadRepositorio;
-    private final NotificacionServicio notificacionServicio;
+    private final CatalogoServicio catalogoServicio;
+    private final IndiceDisponibilidad indiceDisponibilidad;
+    private final int tamanoPaginaHistorial;
+    private final MeterRegistry meterRegistry;
 
     public CitaServicio(CitaRepositorio citaRepositorio, PacienteRepositorio pacienteRepositorio,
             MedicoRepositorio medicoRepositorio, HorarioRepositorio horarioRepositorio,
-            EspecialidadRepositorio especialidadRepositorio, NotificacionServicio notificacionServicio) {
+            CatalogoServicio catalogoServicio, IndiceDisponibilidad indiceDisponibilidad,
+            @Value("${clinica.historial.tamano-pagina:10}") int tamanoPaginaHistorial,
+            MeterRegistry meterRegistry) {
         this.citaRepositorio = citaRepositorio;
         this.pacienteRepositorio = pacienteRepositorio;
         this.medicoRepositorio = medicoRepositorio;
         this.horarioRepositorio = horarioRepositorio;
-        this.especialidadRepositorio = especialidadRepositorio;
-        this.notificacionServicio = notificacionServicio;
+        this.catalogoServicio = catalogoServicio;
+        this.indiceDisponibilidad = indiceDisponibilidad;
+        if (tamanoPaginaHistorial < 1) {
+            throw new IllegalArgumentException("clinica.historial.tamano-pagina debe ser mayor que cero.");
+        }
+        this.tamanoPaginaHistorial = tamanoPaginaHistorial;
+        this.meterRegistry = meterRegistry;
     }
 
-    // Metodo auxiliar para obtener la informacion del paciente para el log
+    // Metodo auxiliar para obtener la informacion del paciente para el log, sin consultar la base de datos.
     private String getPacienteLogInfo(Long pacienteId) {
-        return pacienteRepositorio.findById(pacienteId)
-            .map(p -> String.format("%s %s (ID: %d, DNI: %s)", p.getNombre(), p.getApellido(), p.getId(), p.getDni()))
-            .orElseGet(() -> String.format("ID Paciente %d (no encontrado)", pacienteId));
+        return ContextoPaciente.describir(pacienteId);
+    }
+
+    // Si el paciente es el de la peticion en curso ya se sabe que existe y basta una referencia (sin consulta);
+    // en otro caso (tareas programadas, otro paciente) se verifica en la base de datos como antes.
+    private Paciente obtenerPaciente(Long idPaciente, String operacion) {
+        if (ContextoPaciente.para(idPaciente).isPresent()) {
+            return pacienteRepositorio.getReferenceById(idPaciente);
+        }
+        return pacienteRepositorio.findById(idPaciente)
+                .orElseThrow(() -> {
+                    logger.error("Error al {}: Paciente con ID {} no encontrado.", operacion, idPaciente);
+                    return new IllegalArgumentException("Paciente con ID " + idPaciente + " no encontrado.");
+                });
     }
 
     // Crea una nueva cita en el sistema.
@@ -60,6 +103,8 @@ public class CitaServicio {
         String pacienteInfo = getPacienteLogInfo(idPaciente);
         logger.info("El {} esta intentando crear una cita.", pacienteInfo);
 
+        Timer.Sample muestra = Timer.start(meterRegistry);
+        String resultado = RESERVA_ERROR;
         try {
             // Valida que los parametros de fecha, hora, ID de medico e ID de paciente no sean nulos o vacios.
             if (fechaStr == null || fechaStr.isBlank()) {
@@ -84,13 +129,14 @@ public class CitaServicio {
             LocalTime horaCita = LocalTime.parse(horaStr);
             logger.debug("Para {}: Fecha parseada: {}, Hora parseada: {}.", pacienteInfo, fechaCita, horaCita);
 
-            // Obtiene el paciente por su ID, lanzando una excepcion si no se encuentra.
-            Paciente paciente = pacienteRepositorio.findById(idPaciente)
-                    .orElseThrow(() -> {
-                        logger.error("Error al crear cita: Paciente con ID {} no encontrado.", idPaciente);
-                        return new IllegalArgumentException("Paciente con ID " + idPaciente + " no encontrado.");
-                    });
-            logger.debug("Paciente '{} {}' (ID: {}) encontrado para la creacion de cita.", paciente.getNombre(), paciente.getApellido(), paciente.getId());
+            // Obtiene el paciente por su ID, lanzando una excepcion si no se encuentra. El nombre y el correo
+            // se toman del contexto de la peticion para no inicializar la referencia.
+            Optional<PacienteAutenticado> identidad = ContextoPaciente.para(idPaciente);
+            Paciente paciente = obtenerPaciente(idPaciente, "crear cita");
+            String nombrePaciente = identidad.map(PacienteAutenticado::getNombreCompleto)
+                    .orElseGet(() -> paciente.getNombre() + " " + paciente.getApellido());
+            String correoPaciente = identidad.map(PacienteAutenticado::getCorreo).orElseGet(paciente::getCorreo);
+            logger.debug("Paciente '{}' (ID: {}) encontrado para la creacion de cita.", nombrePaciente, idPaciente);
 
             // Obtiene el medico por su ID, lanzando una excepcion si no se encuentra.
             Medico medico = medicoRepositorio.findById(idMedico)
@@ -100,21 +146,20 @@ public class CitaServicio {
                     });
             logger.debug("Medico 'Dr. {} {}' (ID: {}) encontrado para la creacion de cita.", medico.getNombre(), medico.getApellido(), medico.getId());
 
-            // Busca el horario especifico para la fecha, hora y medico.
-            Optional<Horario> horarioOptional = horarioRepositorio.findByFechaAndHoraAndMedico(fechaCita, horaCita, medico);
-            // Lanza una excepcion si el horario no esta disponible.
-            Horario horario = horarioOptional.orElseThrow(() -> {
-                logger.error("Error al crear cita para {} y medico ID {}: Horario disponible no encontrado para fecha {} y hora {}.", pacienteInfo, idMedico, fechaCita, horaCita);
-                return new IllegalArgumentException(
-                        "Horario disponible no encontrado para la fecha y hora especificadas.");
-            });
-            logger.debug("Horario ID {} encontrado. Disponibilidad actual: {}.", horario.getId(), horario.isDisponible());
-
-            // Lanza una excepcion si el horario no esta disponible.
-            if (!horario.isDisponible()) {
-                logger.warn("Para {}: El horario seleccionado (ID: {}) ya no esta disponible.", pacienteInfo, horario.getId());
-                throw new IllegalStateException("El horario seleccionado ya no esta disponible.");
+            // Reserva el horario con una unica operacion atomica: solo una solicitud concurrente puede ganarlo.
+            int horariosReservados = horarioRepositorio.reservarSiDisponible(idMedico, fechaCita, horaCita);
+            if (horariosReservados == 0) {
+                // Solo en el camino de fallo se distingue entre horario inexistente y horario ya ocupado.
+                if (!horarioRepositorio.existsByMedicoIdAndFechaAndHora(idMedico, fechaCita, horaCita)) {
+                    logger.error("Error al crear cita para {} y medico ID {}: Horario disponible no encontrado para fecha {} y hora {}.", pacienteInfo, idMedico, fechaCita, horaCita);
+                    throw new IllegalArgumentException(
+                            "Horario disponible no encontrado para la fecha y hora especificadas.");
+                }
+                logger.warn("Para {}: El horario del medico ID {} en fecha {} a las {} ya no esta disponible.", pacienteInfo, idMedico, fechaCita, horaCita);
+                throw new HorarioNoDisponibleException("El horario seleccionado ya no esta disponible.");
             }
+            indiceDisponibilidad.ocuparTrasConfirmar(idMedico, fechaCita, horaCita);
+            logger.info("Horario del medico {} en fecha {} a las {} marcado como NO DISPONIBLE.", medico.getNombre() + " " + medico.getApellido(), fechaCita, horaCita);
 
             // Crea una nueva instancia de Cita y establece sus propiedades.
             Cita nuevaCita = new Cita();
@@ -125,127 +170,108 @@ public class CitaServicio {
             nuevaCita.setMedico(medico);
             logger.debug("Para {}: Cita inicial construida: Fecha {}, Hora {}, Paciente ID {}, Medico ID {}. Estado: 'Pendiente'.", pacienteInfo, fechaCita, horaCita, idPaciente, idMedico);
 
-            // Marca el horario como no disponible y lo guarda.
-            horario.setDisponible(false);
-            horarioRepositorio.save(horario);
-            logger.info("Horario ID {} marcado como NO DISPONIBLE para medico {} en fecha {} a las {}.", horario.getId(), medico.getNombre() + " " + medico.getApellido(), horario.getFecha(), horario.getHora());
-
-            // Guarda la nueva cita en el repositorio.
+            // Construye el mensaje de confirmacion de la cita.
+            String mensajeContenido = String.format(
+                    """
+                            Hola %s,
+
+                            Te confirmamos tu cita medica:
+                            Medico: Dr. %s (%s)
+                            Fecha: %s
+                            Hora: %s
+
+                            Por favor, se puntual. ¡Te esperamos!
+
+                            Saludos cordiales,
+                            Clinica Angry
+                            """,
+                    nombrePaciente,
+                    medico.getNombre() + " " + medico.getApellido(),
+                    medico.getEspecialidad() != null ? medico.getEspecialidad().getNombre() : "Sin Especialidad",
+                    fechaCita.format(
+                            DateTimeFormatter.ofPattern("dd/MM/yyyy")),
+                    horaCita
+                            .format(DateTimeFormatter.ofPattern("HH:mm")));
+
+            // Crea la notificacion en la bandeja de salida: se guarda en la misma transaccion que la cita
+            // y el DespachadorNotificaciones la envia en segundo plano, fuera de la reserva.
+            Notificacion nuevaNotificacion = new Notificacion();
+            nuevaNotificacion.setMensaje(mensajeContenido);
+            nuevaNotificacion.setEmailDestinatario(correoPaciente);
+            nuevaNotificacion.setAsunto(ASUNTO_CONFIRMACION);
+            nuevaNotificacion.setFechaEnvio(LocalDate.now());
+            nuevaNotificacion.setEstado(Notificacion.ESTADO_PENDIENTE);
+            nuevaNotificacion.setIntentos(0);
+            nuevaNotificacion.setProximoIntento(LocalDateTime.now());
+            nuevaCita.setNotificacion(nuevaNotificacion);
+            nuevaNotificacion.setCita(nuevaCita);
+
+            // Guarda la nueva cita (y su notificacion en cascada) en el repositorio.
             Cita citaGuardada = citaRepositorio.save(nuevaCita);
-            logger.info("Para {}: Se ha creado una cita (ID: {}) exitosamente.", pacienteInfo, citaGuardada.getId());
-
-            try {
-                // Construye el mensaje de confirmacion de la cita.
-                String mensajeContenido = String.format(
-                        """
-                                Hola %s,
-
-                                Te confirmamos tu cita medica:
-                                Medico: Dr. %s (%s)
-                                Fecha: %s
-                                Hora: %s
-
-                                Por favor, se puntual. ¡Te esperamos!
-
-                                Saludos cordiales,
-                                Clinica Angry
-                                """,
-                        paciente.getNombre() + " " + paciente.getApellido(),
-                        medico.getNombre() + " " + medico.getApellido(),
-                        medico.getEspecialidad().getNombre(),
-                        horario.getFecha().format(
-                                DateTimeFormatter.ofPattern("dd/MM/yyyy")),
-                        horario.getHora()
-                                .format(DateTimeFormatter.ofPattern("HH:mm")));
-
-                // Crea y configura la notificacion para la cita.
-                Notificacion nuevaNotificacion = new Notificacion();
-                nuevaNotificacion.setMensaje(mensajeContenido);
-                nuevaNotificacion.setEmailDestinatario(paciente.getCorreo());
-                nuevaNotificacion.setFechaEnvio(LocalDate.now());
-
-                // Asocia la notificacion con la cita y guarda la cita actualizada.
-                citaGuardada.setNotificacion(nuevaNotificacion);
-                nuevaNotificacion.setCita(citaGuardada);
-
-                citaRepositorio.save(citaGuardada);
-
-                // Envia el correo de confirmacion.
-                notificacionServicio.enviarCorreoSimple(
-                        paciente.getCorreo(),
-                        "Confirmacion de Cita Medica - Clinica Angry",
-                        mensajeContenido);
-                logger.info("Notificacion de confirmacion enviada a {} para cita ID {}.", paciente.getCorreo(), citaGuardada.getId());
-            } catch (Exception e) {
-                logger.error("Error al enviar notificacion de confirmacion para la cita ID {} del {}: {}. La cita ya fue guardada.", citaGuardada.getId(), pacienteInfo, e.getMessage(), e);
-            }
+            logger.info("Para {}: Se ha creado una cita (ID: {}) exitosamente. Notificacion de confirmacion para {} encolada.", pacienteInfo, citaGuardada.getId(), correoPaciente);
+            resultado = RESERVA_EXITO;
             return citaGuardada;
+        } catch (HorarioNoDisponibleException e) {
+            resultado = RESERVA_HORARIO_OCUPADO;
+            throw e;
+        } catch (IllegalArgumentException | DateTimeParseException e) {
+            resultado = RESERVA_ERROR_VALIDACION;
+            throw e;
         } finally {
             // No se gestiona MDC en esta capa.
+            muestra.stop(Timer.builder("clinica.citas.reserva")
+                    .description("Duracion de la reserva de citas por resultado")
+                    .tag("resultado", resultado)
+                    .publishPercentileHistogram()
+                    .register(meterRegistry));
         }
     }
 
-    // Obtiene todas las citas de un paciente.
-    public List<Cita> obtenerTodasLasCitasPorPaciente(Long idPaciente) {
+    // Obtiene todas las citas de un paciente ya proyectadas para el historial y la exportacion, ordenadas por fecha y hora.
+    // Con el paciente de la peticion en el contexto se resuelve con una unica consulta.
+    public List<FilaReporteCita> obtenerResumenCitasPorPaciente(Long idPaciente) {
         String pacienteInfo = getPacienteLogInfo(idPaciente);
-        logger.info("El {} esta solicitando todas sus citas.", pacienteInfo);
+        logger.info("El {} esta solicitando el resumen de sus citas.", pacienteInfo);
 
-        try {
-            Paciente paciente = pacienteRepositorio.findById(idPaciente)
-                    .orElseThrow(() -> {
-                        logger.error("Error al obtener todas las citas: Paciente con ID {} no encontrado.", idPaciente);
-                        return new IllegalArgumentException("Paciente con ID " + idPaciente + " no encontrado.");
-                    });
-            List<Cita> citas = citaRepositorio.findByPaciente(paciente);
-            logger.info("El {} ha recuperado {} citas.", pacienteInfo, citas.size());
-            return citas;
-        } finally {
-            // No se gestiona MDC en esta capa.
+        if (ContextoPaciente.para(idPaciente).isEmpty() && !pacienteRepositorio.existsById(idPaciente)) {
+            logger.error("Error al obtener el resumen de citas: Paciente con ID {} no encontrado.", idPaciente);
+            throw new IllegalArgumentException("Paciente con ID " + idPaciente + " no encontrado.");
         }
+        List<FilaReporteCita> citas = citaRepositorio.findFilasPorPaciente(idPaciente);
+        logger.info("El {} ha recuperado {} citas.", pacienteInfo, citas.size());
+        return citas;
     }
 
-    // Obtiene las citas pendientes para un paciente especifico.
-    public List<Cita> obtenerCitasPendientesPorPaciente(Long idPaciente) {
+    // Pagina de citas pendientes de un paciente, de la mas proxima a la mas lejana, a partir del cursor recibido (null = primera pagina).
+    public PaginaCitas obtenerPaginaCitasPendientes(Long idPaciente, String despues) {
         String pacienteInfo = getPacienteLogInfo(idPaciente);
-        logger.info("El {} esta solicitando sus citas pendientes.", pacienteInfo);
-
-        try {
-            // Obtiene el paciente por su ID.
-            Paciente paciente = pacienteRepositorio.findById(idPaciente)
-                    .orElseThrow(() -> {
-                        logger.error("Error al obtener citas pendientes: Paciente con ID {} no encontrado.", idPaciente);
-                        return new IllegalArgumentException(
-                                "Paciente con ID " + idPaciente + " no encontrado.");
-                    });
-            // Obtiene las citas del paciente con estado "Pendiente".
-            List<Cita> citasPendientes = citaRepositorio.findByPacienteAndEstado(paciente, "Pendiente");
-            logger.info("El {} ha encontrado {} citas pendientes.", pacienteInfo, citasPendientes.size());
-            return citasPendientes;
-        } finally {
-            // No se gestiona MDC en esta capa.
+        PageRequest pagina = PageRequest.of(0, tamanoPaginaHistorial + 1);
+        List<FilaReporteCita> filas;
+        if (despues == null || despues.isBlank()) {
+            filas = citaRepositorio.findPrimerasPendientes(idPaciente, pagina);
+        } else {
+            CursorCita cursor = CursorCita.decodificar(despues);
+            filas = citaRepositorio.findPendientesDespuesDe(idPaciente, cursor.fecha(), cursor.hora(), cursor.id(), pagina);
         }
+        PaginaCitas resultado = PaginaCitas.de(filas, tamanoPaginaHistorial);
+        logger.info("El {} ha recuperado una pagina de {} citas pendientes.", pacienteInfo, resultado.citas().size());
+        return resultado;
     }
 
-    // Obtiene el historial de citas de un paciente.
-    public List<Cita> obtenerHistorialCitasPorPaciente(Long idPaciente) {
+    // Pagina de citas completadas o canceladas de un paciente, de la mas reciente a la mas antigua, a partir del cursor recibido.
+    public PaginaCitas obtenerPaginaHistorialCitas(Long idPaciente, String antes) {
         String pacienteInfo = getPacienteLogInfo(idPaciente);
-        logger.info("El {} esta solicitando su historial de citas.", pacienteInfo);
-
-        try {
-            // Obtiene el paciente por su ID.
-            Paciente paciente = pacienteRepositorio.findById(idPaciente)
-                    .orElseThrow(() -> {
-                        logger.error("Error al obtener historial de citas: Paciente con ID {} no encontrado.", idPaciente);
-                        return new IllegalArgumentException(
-                                "Paciente con ID " + idPaciente + " no encontrado.");
-                    });
-            // Obtiene las citas del paciente cuyo estado no es "Pendiente".
-            List<Cita> historialCitas = citaRepositorio.findByPacienteAndEstadoNot(paciente, "Pendiente");
-            logger.info("El {} ha encontrado {} citas en su historial.", pacienteInfo, historialCitas.size());
-            return historialCitas;
-        } finally {
-            // No se gestiona MDC en esta capa.
+        PageRequest pagina = PageRequest.of(0, tamanoPaginaHistorial + 1);
+        List<FilaReporteCita> filas;
+        if (antes == null || antes.isBlank()) {
+            filas = citaRepositorio.findPrimerasPasadas(idPaciente, pagina);
+        } else {
+            CursorCita cursor = CursorCita.decodificar(antes);
+            filas = citaRepositorio.findPasadasAntesDe(idPaciente, cursor.fecha(), cursor.hora(), cursor.id(), pagina);
         }
+        PaginaCitas resultado = PaginaCitas.de(filas, tamanoPaginaHistorial);
+        logger.info("El {} ha recuperado una pagina de {} citas de su historial.", pacienteInfo, resultado.citas().size());
+        return resultado;
     }
 
     // Cancela una cita especifica.
@@ -265,22 +291,24 @@ public class CitaServicio {
 
                 logger.info("Cita (ID: {}) de {} con medico '{}' encontrada. Estado actual: '{}'.", idCita, pacienteInfo, nombreMedico, cita.getEstado());
 
-                // Cambia el estado de la cita a "Cancelada".
-                cita.setEstado("Cancelada");
-                citaRepositorio.save(cita);
+                // Cambia el estado de la cita a "Cancelada" con un UPDATE condicional: si otra peticion ya la cancelo
+                // (o el cierre programado la completo), el horario no se toca porque podria pertenecer ya a otra cita.
+                if (citaRepositorio.cancelarSiPendiente(idCita) == 0) {
+                    logger.warn("La cita ID {} de {} no se cancelo porque ya no estaba pendiente (estado: '{}').", idCita, pacienteInfo, cita.getEstado());
+                    throw new IllegalStateException("La cita ya no esta pendiente.");
+                }
                 logger.info("Cita ID {} de {} CANCELADA exitosamente.", idCita, pacienteInfo);
 
-                // Busca el horario asociado a la cita y lo marca como disponible.
-                Optional<Horario> horarioOptional = horarioRepositorio.findByFechaAndHoraAndMedico(
+                // Libera el horario asociado a la cita con un UPDATE condicional.
+                int horariosLiberados = horarioRepositorio.liberarSiOcupado(
+                        cita.getMedico().getId(),
                         cita.getFecha(),
-                        cita.getHora(), cita.getMedico());
-                if (horarioOptional.isPresent()) {
-                    Horario horario = horarioOptional.get();
-                    horario.setDisponible(true);
-                    horarioRepositorio.save(horario);
-                    logger.info("Horario ID {} (Fecha: {}, Hora: {}) para medico '{}' marcado como DISPONIBLE tras la cancelacion de la cita de {}.", horario.getId(), horario.getFecha(), horario.getHora(), nombreMedico, pacienteInfo);
+                        cita.getHora());
+                if (horariosLiberados > 0) {
+                    indiceDisponibilidad.liberarTrasConfirmar(cita.getMedico().getId(), cita.getFecha(), cita.getHora());
+                    logger.info("Horario (Fecha: {}, Hora: {}) para medico '{}' marcado como DISPONIBLE tras la cancelacion de la cita de {}.", cita.getFecha(), cita.getHora(), nombreMedico, pacienteInfo);
                 } else {
-                    logger.warn("No se encontro el horario correspondiente para la cita ID {} ({} con Medico: {}) al intentar liberar la disponibilidad. Posible inconsistencia de datos.", idCita, pacienteInfo, nombreMedico);
+                    logger.warn("No se encontro el horario ocupado correspondiente para la cita ID {} ({} con Medico: {}) al intentar liberar la disponibilidad. Posible inconsistencia de datos.", idCita, pacienteInfo, nombreMedico);
                 }
                 return true;
             } finally {
@@ -292,20 +320,12 @@ public class CitaServicio {
         }
     }
 
-    @Transactional
-    public void guardarCitas(List<Cita> citas) {
-        // Esta operacion es una accion interna del sistema o de un proceso batch, no directamente de un "paciente" logueado.
-        // Por lo tanto, el MDC de paciente no es relevante aqui.
-        citaRepositorio.saveAll(citas);
-        logger.debug("Se guardaron {} citas en la base de datos.", citas.size());
-    }
-
     // Obtiene todas las especialidades disponibles.
     public List<Especialidad> obtenerTodasLasEspecialidades() {
         logger.info("Se solicito la obtencion de todas las especialidades.");
-        // Obtiene todas las especialidades del repositorio.
-        List<Especialidad> especialidades = especialidadRepositorio.findAll();
-        logger.info("Se recuperaron {} especialidades de la base de datos.", especialidades.size());
+        // Obtiene las especialidades del catalogo en memoria.
+        List<Especialidad> especialidades = catalogoServicio.getEspecialidades();
+        logger.info("Se recuperaron {} especialidades del catalogo (v{}).", especialidades.size(), catalogoServicio.getVersion());
         return especialidades;
     }
 
@@ -317,22 +337,20 @@ public class CitaServicio {
             logger.warn("Validacion fallida: El ID de la especialidad no puede ser nulo o negativo. ID recibido: {}", idEspecialidad);
             throw new IllegalArgumentException("El ID de la especialidad no puede ser nulo o negativo.");
         }
-        // Obtiene la especialidad por su ID.
-        Especialidad especialidad = especialidadRepositorio.findById(idEspecialidad)
+        // Obtiene los medicos asociados a la especialidad desde el catalogo en memoria.
+        List<Medico> medicos = catalogoServicio.getMedicos(idEspecialidad)
                 .orElseThrow(() -> {
                     logger.error("Error al obtener medicos: Especialidad con ID {} no encontrada.", idEspecialidad);
                     return new IllegalArgumentException(
                             "Especialidad con ID " + idEspecialidad + " no encontrada.");
                 });
-        logger.debug("Especialidad '{}' (ID: {}) encontrada.", especialidad.getNombre(), idEspecialidad);
-        // Obtiene los medicos asociados a la especialidad.
-        List<Medico> medicos = medicoRepositorio.findByEspecialidad(especialidad);
-        logger.info("Se encontraron {} medicos para la especialidad '{}'.", medicos.size(), especialidad.getNombre());
+        logger.info("Se encontraron {} medicos para la especialidad con ID {}.", medicos.size(), idEspecialidad);
         return medicos;
     }
 
     // Obtiene los horarios disponibles para un medico en una fecha determinada.
-    public List<Horario> obtenerHorariosDisponiblesPorMedicoYFecha(Long idMedico, LocalDate fecha) {
+    // Responde desde el indice en memoria y solo consulta la base de datos si el indice no puede responder.
+    public List<HorarioDisponible> obtenerHorariosDisponiblesPorMedicoYFecha(Long idMedico, LocalDate fecha) {
         logger.info("Se solicitan horarios disponibles para el medico con ID: {} en la fecha: {}.", idMedico, fecha);
         // Valida que el ID del medico y la fecha no sean nulos o invalidos.
         if (idMedico == null || idMedico <= 0) {
@@ -343,6 +361,13 @@ public class CitaServicio {
             logger.warn("Validacion fallida: La fecha no puede ser nula para buscar horarios del medico ID {}.", idMedico);
             throw new IllegalArgumentException("La fecha no puede ser nula.");
         }
+
+        Optional<List<HorarioDisponible>> desdeIndice = indiceDisponibilidad.consultar(idMedico, fecha);
+        if (desdeIndice.isPresent()) {
+            logger.info("Se encontraron {} horarios disponibles (indice en memoria) para el medico ID {} en la fecha {}.", desdeIndice.get().size(), idMedico, fecha);
+            return desdeIndice.get();
+        }
+
         // Obtiene el medico por su ID.
         Medico medico = medicoRepositorio.findById(idMedico)
                 .orElseThrow(() -> {
@@ -351,8 +376,11 @@ public class CitaServicio {
                 });
         logger.debug("Medico 'Dr. {} {}' (ID: {}) encontrado para buscar horarios.", medico.getNombre(), medico.getApellido(), idMedico);
         // Obtiene los horarios disponibles para el medico y la fecha.
-        List<Horario> horarios = horarioRepositorio.findByMedicoAndFechaAndDisponibleTrue(medico, fecha);
+        List<HorarioDisponible> horarios = horarioRepositorio.findByMedicoAndFechaAndDisponibleTrue(medico, fecha).stream()
+                .map(horario -> new HorarioDisponible(idMedico, horario.getFecha(), horario.getHora()))
+                .sorted(Comparator.comparing(HorarioDisponible::hora))
+                .toList();
         logger.info("Se encontraron {} horarios disponibles para el medico '{}' en la fecha {}.", horarios.size(), medico.getNombre() + " " + medico.getApellido(), fecha);
         return horarios;
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,109 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.TreeSet;
+import java.util.concurrent.locks.ReentrantLock;
+
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+
+// Solicitudes de ambulancia en espera de unidad, ordenadas por prioridad (gravedad, rebajada al escalar por SLA)
+// y, a igual prioridad, por antiguedad. Un arbol ordenado bajo un lock: insertar, quitar y reordenar son O(log n).
+public class ColaTriaje {
+
+    private static final Comparator<SolicitudAmbulancia> ORDEN = Comparator
+            .comparingInt(SolicitudAmbulancia::getPrioridad)
+            .thenComparingLong(SolicitudAmbulancia::getCreadaMs)
+            .thenComparingLong(SolicitudAmbulancia::getId);
+
+    private final int capacidad;
+    private final TreeSet<SolicitudAmbulancia> cola = new TreeSet<>(ORDEN);
+    private final ReentrantLock lock = new ReentrantLock();
+
+    public ColaTriaje(int capacidad) {
+        if (capacidad <= 0) {
+            throw new IllegalArgumentException("La capacidad de la cola de triaje debe ser positiva.");
+        }
+        this.capacidad = capacidad;
+    }
+
+    // Devuelve false si la cola esta llena.
+    public boolean encolar(SolicitudAmbulancia solicitud) {
+        lock.lock();
+        try {
+            if (cola.size() >= capacidad) {
+                return false;
+            }
+            cola.add(solicitud);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public boolean quitar(SolicitudAmbulancia solicitud) {
+        lock.lock();
+        try {
+            return cola.remove(solicitud);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Cambia la prioridad de una solicitud en cola (la prioridad es parte de la clave de orden, por eso se reinserta).
+    // Devuelve false si la solicitud ya no estaba en la cola.
+    public boolean cambiarPrioridad(SolicitudAmbulancia solicitud, int prioridad) {
+        lock.lock();
+        try {
+            if (!cola.remove(solicitud)) {
+                return false;
+            }
+            solicitud.setPrioridad(prioridad);
+            cola.add(solicitud);
+            return true;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Las primeras 'cantidad' solicitudes en orden de atencion.
+    public List<SolicitudAmbulancia> primeras(int cantidad) {
+        lock.lock();
+        try {
+            List<SolicitudAmbulancia> primeras = new ArrayList<>(Math.min(cantidad, cola.size()));
+            for (SolicitudAmbulancia solicitud : cola) {
+                if (primeras.size() == cantidad) {
+                    break;
+                }
+                primeras.add(solicitud);
+            }
+            return primeras;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Posicion (desde 1) de la solicitud en la cola; 0 si no esta.
+    public int posicion(SolicitudAmbulancia solicitud) {
+        lock.lock();
+        try {
+            return cola.contains(solicitud) ? cola.headSet(solicitud).size() + 1 : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getTamano() {
+        lock.lock();
+        try {
+            return cola.size();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public int getCapacidad() {
+        return capacidad;
+    }
+}
@@ -0,0 +1,52 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.Optional;
+
+import org.slf4j.MDC;
+
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+
+// Paciente de la peticion en curso, establecido una sola vez por FiltroContextoPaciente junto con las claves MDC de los logs.
+// Los servicios lo leen para registrar y asociar al paciente sin volver a consultarlo en la base de datos.
+// Fuera de una peticion web (tareas programadas, pruebas) esta vacio y los servicios consultan como antes.
+public final class ContextoPaciente {
+
+    public static final String MDC_USER_FULL_NAME = "userFullName";
+    public static final String MDC_USER_ID = "userId";
+    public static final String MDC_USER_DNI = "userDni";
+
+    private static final ThreadLocal<PacienteAutenticado> ACTUAL = new ThreadLocal<>();
+
+    private ContextoPaciente() {
+    }
+
+    public static void establecer(PacienteAutenticado paciente) {
+        ACTUAL.set(paciente);
+        MDC.put(MDC_USER_FULL_NAME, paciente.getNombreCompleto());
+        MDC.put(MDC_USER_ID, String.valueOf(paciente.getId()));
+        MDC.put(MDC_USER_DNI, paciente.getDni());
+    }
+
+    public static void limpiar() {
+        ACTUAL.remove();
+        MDC.remove(MDC_USER_FULL_NAME);
+        MDC.remove(MDC_USER_ID);
+        MDC.remove(MDC_USER_DNI);
+    }
+
+    public static Optional<PacienteAutenticado> actual() {
+        return Optional.ofNullable(ACTUAL.get());
+    }
+
+    // Solo devuelve el paciente de la peticion si es el indicado (un servicio puede recibir el ID de otro paciente).
+    public static Optional<PacienteAutenticado> para(Long idPaciente) {
+        return actual().filter(paciente -> paciente.getId().equals(idPaciente));
+    }
+
+    // Descripcion del paciente para los logs, sin consultar la base de datos.
+    public static String describir(Long idPaciente) {
+        return para(idPaciente)
+                .map(p -> String.format("Paciente %s (ID: %d, DNI: %s)", p.getNombreCompleto(), p.getId(), p.getDni()))
+                .orElseGet(() -> String.format("Paciente con ID %d", idPaciente));
+    }
+}
@@ -0,0 +1,12 @@
+package com.clinica.sistema.Servicio;
+
+import org.springframework.security.authentication.AuthenticationServiceException;
+
+// Se lanza cuando el pool de hashing de contrasenas esta lleno. Es una AuthenticationException para que el login
+// la trate como un fallo de autenticacion (redirige a /login?ocupado) y no como un error 500.
+public class ContrasenasSaturadasException extends AuthenticationServiceException {
+
+    public ContrasenasSaturadasException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -1,26 +1,40 @@
 package com.clinica.sistema.Servicio;
 
 import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
 import com.clinica.sistema.Repositorio.PacienteRepositorio;
 import org.slf4j.Logger; 
 import org.slf4j.LoggerFactory; 
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
 import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsPasswordService;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
 import org.springframework.stereotype.Service;
-import org.springframework.security.core.userdetails.User;
 
-import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
-public class CustomUserDetailsService implements UserDetailsService {
+public class CustomUserDetailsService implements UserDetailsService, UserDetailsPasswordService {
 
     private final Logger logger = LoggerFactory.getLogger(CustomUserDetailsService.class); 
 
     private final PacienteRepositorio pacienteRepositorio;
 
-    public CustomUserDetailsService(PacienteRepositorio pacienteRepositorio) {
+    // Correos de los usuarios con acceso a la administracion (reportes generales).
+    private final Set<String> correosAdministradores;
+
+    public CustomUserDetailsService(PacienteRepositorio pacienteRepositorio,
+                                    @Value("${clinica.admin.correos:}") Set<String> correosAdministradores) {
         this.pacienteRepositorio = pacienteRepositorio;
+        this.correosAdministradores = correosAdministradores.stream()
+            .map(correo -> correo.trim().toLowerCase())
+            .filter(correo -> !correo.isEmpty())
+            .collect(Collectors.toSet());
     }
 
     // Carga los detalles de un usuario para autenticación por su correo electrónico.
@@ -38,11 +52,21 @@ public class CustomUserDetailsService implements UserDetailsService {
 
         logger.info("Usuario '{}' (ID: {}) cargado exitosamente para autenticacion.", paciente.getCorreo(), paciente.getId());
 
-        // Retorna un objeto UserDetails de Spring Security con el correo, contraseña y sin roles específicos.
-        return new User(
-            paciente.getCorreo(),
-            paciente.getContraseña(), 
-            Collections.emptyList() 
-        );
+        // Retorna el principal con la identidad del paciente (ID, nombre, DNI) y el rol de administrador si corresponde,
+        // para que las peticiones autenticadas no tengan que volver a buscarlo por correo.
+        List<GrantedAuthority> roles = correosAdministradores.contains(paciente.getCorreo().toLowerCase())
+            ? List.of(new SimpleGrantedAuthority("ROLE_ADMIN"))
+            : List.of();
+        return PacienteAutenticado.desde(paciente, roles);
+    }
+
+    // Spring Security lo invoca tras un login correcto cuando el hash guardado usa un costo menor que clinica.contrasenas.costo:
+    // guarda el nuevo hash (calculado con la contrasena recien verificada) sin que el paciente tenga que cambiarla.
+    @Override
+    public UserDetails updatePassword(UserDetails usuario, String nuevaContraseña) {
+        PacienteAutenticado paciente = (PacienteAutenticado) usuario;
+        pacienteRepositorio.actualizarContrasena(paciente.getId(), nuevaContraseña);
+        logger.info("Contrasena del usuario ID {} recodificada con el costo vigente.", paciente.getId());
+        return paciente.conContraseña(nuevaContraseña);
     }
 }
\ No newline at end of file
@@ -0,0 +1,147 @@
+package com.clinica.sistema.Servicio;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.Notificacion;
+import com.clinica.sistema.Modelo.NotificacionPendiente;
+import com.clinica.sistema.Repositorio.NotificacionRepositorio;
+import com.clinica.sistema.Servicio.MotorEnvioCorreo.ResultadoEnvio;
+import com.google.common.collect.Lists;
+
+// Vacia la bandeja de salida de notificaciones: reclama las pendientes, las envia por lotes en un pool acotado
+// y reintenta con espera exponencial hasta pasarlas a 'Fallida' (dead-letter).
+@Component
+public class DespachadorNotificaciones {
+
+    private final Logger logger = LoggerFactory.getLogger(DespachadorNotificaciones.class);
+
+    private final NotificacionRepositorio notificacionRepositorio;
+    private final NotificacionServicio notificacionServicio;
+    private final ThreadPoolTaskExecutor ejecutor;
+
+    @Value("${clinica.notificaciones.lote:20}")
+    private int tamanoLote;
+
+    @Value("${clinica.correo.mensajes-por-conexion:10}")
+    private int mensajesPorConexion;
+
+    @Value("${clinica.notificaciones.max-intentos:5}")
+    private int maxIntentos;
+
+    @Value("${clinica.notificaciones.espera-inicial-ms:30000}")
+    private long esperaInicialMs;
+
+    @Value("${clinica.notificaciones.espera-maxima-ms:3600000}")
+    private long esperaMaximaMs;
+
+    @Value("${clinica.notificaciones.reserva-ms:120000}")
+    private long reservaMs;
+
+    public DespachadorNotificaciones(NotificacionRepositorio notificacionRepositorio,
+                                     NotificacionServicio notificacionServicio,
+                                     @Qualifier("ejecutorNotificaciones") ThreadPoolTaskExecutor ejecutor) {
+        this.notificacionRepositorio = notificacionRepositorio;
+        this.notificacionServicio = notificacionServicio;
+        this.ejecutor = ejecutor;
+    }
+
+    @Scheduled(fixedDelayString = "${clinica.notificaciones.intervalo-ms:2000}")
+    public void despacharPendientes() {
+        LocalDateTime ahora = LocalDateTime.now();
+
+        int recuperadas = notificacionRepositorio.recuperarReservasVencidas(ahora);
+        if (recuperadas > 0) {
+            logger.warn("Se devolvieron {} notificaciones con reserva vencida a estado 'Pendiente'.", recuperadas);
+        }
+
+        // Solo se reclaman tantas notificaciones como quepan en los huecos libres del pool (un lote por tarea).
+        int huecosLibres = ejecutor.getThreadPoolExecutor().getQueue().remainingCapacity()
+                + (ejecutor.getMaxPoolSize() - ejecutor.getActiveCount());
+        int limite = (int) Math.min(tamanoLote, (long) huecosLibres * mensajesPorConexion);
+        if (limite <= 0) {
+            logger.debug("Pool de notificaciones saturado; se omite este ciclo de despacho.");
+            return;
+        }
+
+        List<NotificacionPendiente> reclamadas = new ArrayList<>();
+        for (NotificacionPendiente pendiente : notificacionRepositorio.findPendientesVencidas(ahora, PageRequest.of(0, limite))) {
+            // Si otra instancia la reclamo primero, el UPDATE condicional no afecta filas.
+            if (notificacionRepositorio.reclamar(pendiente.id(), ahora.plus(Duration.ofMillis(reservaMs))) > 0) {
+                reclamadas.add(pendiente);
+            }
+        }
+
+        // Cada lote se envia por una sola conexion SMTP del pool.
+        for (List<NotificacionPendiente> lote : Lists.partition(reclamadas, mensajesPorConexion)) {
+            try {
+                ejecutor.execute(() -> enviarLote(lote));
+            } catch (TaskRejectedException e) {
+                LocalDateTime momento = LocalDateTime.now();
+                lote.forEach(pendiente -> notificacionRepositorio.devolverAPendiente(pendiente.id(), momento));
+                logger.debug("Pool de notificaciones lleno; {} notificaciones vuelven a la cola.", lote.size());
+            }
+        }
+    }
+
+    private void enviarLote(List<NotificacionPendiente> lote) {
+        List<SimpleMailMessage> mensajes = lote.stream()
+                .map(pendiente -> notificacionServicio.construirMensaje(pendiente.emailDestinatario(), pendiente.asunto(), pendiente.mensaje()))
+                .toList();
+        List<ResultadoEnvio> resultados;
+        try {
+            resultados = notificacionServicio.enviarLote(mensajes);
+        } catch (RuntimeException e) {
+            lote.forEach(pendiente -> registrarFallo(pendiente, e.getMessage()));
+            return;
+        }
+
+        for (int i = 0; i < lote.size(); i++) {
+            NotificacionPendiente pendiente = lote.get(i);
+            ResultadoEnvio resultado = resultados.get(i);
+            if (resultado.exitoso()) {
+                notificacionRepositorio.marcarEnviada(pendiente.id(), LocalDate.now());
+                logger.info("Notificacion ID {} enviada a {} en el intento {}.", pendiente.id(), pendiente.emailDestinatario(), pendiente.intentos() + 1);
+            } else {
+                registrarFallo(pendiente, resultado.error());
+            }
+        }
+    }
+
+    private void registrarFallo(NotificacionPendiente pendiente, String detalle) {
+        int intentosRealizados = pendiente.intentos() + 1;
+        String error = detalle != null && detalle.length() > 500 ? detalle.substring(0, 500) : detalle;
+
+        if (intentosRealizados >= maxIntentos) {
+            notificacionRepositorio.registrarFallo(pendiente.id(), Notificacion.ESTADO_FALLIDA, null, error);
+            logger.error("Notificacion ID {} a {} marcada como 'Fallida' tras {} intentos. Ultimo error: {}",
+                    pendiente.id(), pendiente.emailDestinatario(), intentosRealizados, error);
+            return;
+        }
+
+        LocalDateTime proximoIntento = LocalDateTime.now().plus(Duration.ofMillis(calcularEspera(intentosRealizados)));
+        notificacionRepositorio.registrarFallo(pendiente.id(), Notificacion.ESTADO_PENDIENTE, proximoIntento, error);
+        logger.warn("Fallo el intento {} de la notificacion ID {} a {}. Proximo intento: {}. Error: {}",
+                intentosRealizados, pendiente.id(), pendiente.emailDestinatario(), proximoIntento, error);
+    }
+
+    // Espera exponencial: inicial * 2^(intentos - 1), limitada por la espera maxima.
+    long calcularEspera(int intentosRealizados) {
+        int exponente = Math.min(intentosRealizados - 1, 30);
+        return Math.min(esperaMaximaMs, esperaInicialMs * (1L << exponente));
+    }
+}
@@ -0,0 +1,471 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.EventoDespacho;
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+import com.clinica.sistema.Modelo.UnidadAmbulancia;
+
+// Despacho de ambulancias: asigna la unidad disponible mas cercana y, si no hay, deja la solicitud en la cola de triaje
+// (gravedad y antiguedad). Cada solicitud en cola tiene un temporizador en la rueda de SLA: al llegar a 'sla-aviso' de su
+// tiempo de respuesta sube un nivel de prioridad y al vencer pasa delante de todas. Al liberarse una unidad se atiende
+// la cola en orden. Cada cambio se anexa al diario de despacho, desde el que se reconstruye el estado al reiniciar,
+// y se publica a los pacientes que siguen su solicitud en vivo. Las escaladas solo reordenan la cola en el hilo de la
+// rueda; su anotacion en el diario y su publicacion se hacen en 'ejecutorDiarioSla' para no retrasar los demas plazos.
+@Service
+public class DespachoAmbulancias {
+
+    private static final Logger logger = LoggerFactory.getLogger(DespachoAmbulancias.class);
+
+    // Solicitudes de la cabeza de la cola que se intentan asignar en cada vuelta del despacho.
+    private static final int LOTE_DESPACHO = 64;
+
+    private final FlotaAmbulancias flota;
+    private final RuedaTemporizadores ruedaSla;
+    private final DiarioDespacho diario;
+    private final CentralEstadoAmbulancias central;
+    private final Executor ejecutorSla;
+    private final ColaTriaje cola;
+    private final double velocidadKmh;
+    private final long[] slaMs;
+    private final double fraccionAviso;
+    private final long compactarCada;
+
+    private final AtomicLong secuencia = new AtomicLong();
+    // Solicitudes en cola o asignadas.
+    private final Map<Long, SolicitudAmbulancia> activas = new ConcurrentHashMap<>();
+    private final Map<Long, RuedaTemporizadores.Tarea> temporizadores = new ConcurrentHashMap<>();
+    private final ReentrantLock despachoCola = new ReentrantLock();
+    // Escaladas ya aplicadas a la cola, pendientes de anotar y publicar; solo una tarea las vacia a la vez.
+    private final Queue<Escalada> escaladasPendientes = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean registrandoEscaladas = new AtomicBoolean();
+
+    private final LongAdder encoladas = new LongAdder();
+    private final LongAdder escaladas = new LongAdder();
+    private final LongAdder slaVencidos = new LongAdder();
+    private final LongAdder rechazadas = new LongAdder();
+
+    public DespachoAmbulancias(FlotaAmbulancias flota,
+                               @Qualifier("ruedaSla") RuedaTemporizadores ruedaSla,
+                               DiarioDespacho diario,
+                               CentralEstadoAmbulancias central,
+                               @Qualifier("ejecutorDiarioSla") Executor ejecutorSla,
+                               @Value("${clinica.ambulancias.velocidad-kmh:30}") double velocidadKmh,
+                               @Value("${clinica.ambulancias.cola.capacidad:20000}") int capacidadCola,
+                               @Value("${clinica.ambulancias.sla-ms:480000,900000,1800000,3600000}") long[] slaMs,
+                               @Value("${clinica.ambulancias.sla-aviso:0.8}") double fraccionAviso,
+                               @Value("${clinica.ambulancias.diario.compactar-cada:10000}") long compactarCada) {
+        if (velocidadKmh <= 0) {
+            throw new IllegalArgumentException("La velocidad media de las ambulancias debe ser positiva.");
+        }
+        if (slaMs.length != SolicitudAmbulancia.GRAVEDAD_BAJA) {
+            throw new IllegalArgumentException("Se esperaba un SLA por cada nivel de gravedad (" + SolicitudAmbulancia.GRAVEDAD_BAJA + ").");
+        }
+        if (fraccionAviso <= 0 || fraccionAviso >= 1) {
+            throw new IllegalArgumentException("La fraccion de aviso del SLA debe estar entre 0 y 1.");
+        }
+        this.flota = flota;
+        this.ruedaSla = ruedaSla;
+        this.diario = diario;
+        this.central = central;
+        this.ejecutorSla = ejecutorSla;
+        this.cola = new ColaTriaje(capacidadCola);
+        this.velocidadKmh = velocidadKmh;
+        this.slaMs = slaMs.clone();
+        this.fraccionAviso = fraccionAviso;
+        this.compactarCada = compactarCada;
+    }
+
+    // Con la cola vacia se intenta asignar directamente; si hay solicitudes esperando, la nueva entra a la cola
+    // para no adelantar a otras de mayor prioridad. Con la cola llena se devuelve en estado 'Sin unidad disponible'.
+    public SolicitudAmbulancia solicitar(Long idPaciente, Direccion direccion, int gravedad) {
+        Posicion destino = direccion.ubicacion()
+                .orElseThrow(() -> new IllegalStateException("La direccion " + direccion.getId() + " no tiene ubicacion."));
+        SolicitudAmbulancia solicitud = new SolicitudAmbulancia(secuencia.incrementAndGet(), idPaciente, direccion.getId(), destino,
+                gravedad, System.currentTimeMillis());
+
+        if (cola.getTamano() == 0) {
+            Optional<UnidadAmbulancia> unidad = flota.asignarMasCercana(solicitud.getId(), destino);
+            if (unidad.isPresent()) {
+                activas.put(solicitud.getId(), solicitud);
+                registrar(EventoDespacho.creada(solicitud), solicitud);
+                asignar(solicitud, unidad.get());
+                return solicitud;
+            }
+        }
+
+        if (!cola.encolar(solicitud)) {
+            solicitud.rechazar();
+            rechazadas.increment();
+            logger.warn("Solicitud de ambulancia {} rechazada: la cola de triaje esta llena ({} solicitudes).", solicitud.getId(), cola.getCapacidad());
+            return solicitud;
+        }
+        activas.put(solicitud.getId(), solicitud);
+        registrar(EventoDespacho.creada(solicitud), solicitud);
+        encoladas.increment();
+        programarSla(solicitud);
+        logger.info("Solicitud de ambulancia {} (gravedad {}) en cola de triaje.", solicitud.getId(), gravedad);
+        despacharCola();
+        return solicitud;
+    }
+
+    // Asigna unidades libres a las solicitudes en cola, en orden de prioridad. Devuelve cuantas se asignaron.
+    public int despacharCola() {
+        int asignadas = 0;
+        despachoCola.lock();
+        try {
+            while (flota.getDisponibles() > 0) {
+                List<SolicitudAmbulancia> primeras = cola.primeras(LOTE_DESPACHO);
+                int antes = asignadas;
+                for (SolicitudAmbulancia solicitud : primeras) {
+                    if (flota.getDisponibles() == 0) {
+                        break;
+                    }
+                    Optional<UnidadAmbulancia> unidad = flota.asignarMasCercana(solicitud.getId(), solicitud.getDestino());
+                    if (unidad.isEmpty()) {
+                        continue;
+                    }
+                    if (cola.quitar(solicitud)) {
+                        if (asignar(solicitud, unidad.get())) {
+                            asignadas++;
+                        }
+                    } else {
+                        // Finalizada (cancelada) mientras se buscaba la unidad.
+                        flota.liberar(unidad.get().getCodigo());
+                    }
+                }
+                // Cola vacia o las unidades libres estan fuera del radio de las solicitudes en espera.
+                if (asignadas == antes) {
+                    break;
+                }
+            }
+        } finally {
+            despachoCola.unlock();
+        }
+        return asignadas;
+    }
+
+    // False si la solicitud se finalizo despues de salir de la cola; la unidad reservada vuelve entonces a la flota.
+    private boolean asignar(SolicitudAmbulancia solicitud, UnidadAmbulancia unidad) {
+        double km = solicitud.getDestino().distanciaKm(unidad.getPosicion());
+        if (!solicitud.asignar(unidad.getCodigo(), km, (int) Math.ceil(km / velocidadKmh * 60), System.currentTimeMillis())) {
+            flota.liberar(unidad.getCodigo());
+            logger.debug("Solicitud de ambulancia {} finalizada antes de asignarle la unidad {}; la unidad vuelve a la flota.",
+                    solicitud.getId(), unidad.getCodigo());
+            return false;
+        }
+        cancelarSla(solicitud.getId());
+        registrar(EventoDespacho.asignada(solicitud), solicitud);
+        logger.info("Solicitud de ambulancia {} asignada a la unidad {} a {} km.", solicitud.getId(), solicitud.getCodigoUnidad(),
+                String.format("%.2f", km));
+        return true;
+    }
+
+    // Libera la unidad de una solicitud atendida, o retira de la cola una que aun esperaba.
+    // Devuelve false si la solicitud no estaba activa.
+    public boolean finalizar(long idSolicitud) {
+        SolicitudAmbulancia solicitud = activas.remove(idSolicitud);
+        if (solicitud == null) {
+            return false;
+        }
+        cancelarSla(idSolicitud);
+        cola.quitar(solicitud);
+        boolean conUnidad = solicitud.finalizar();
+        registrar(EventoDespacho.finalizada(idSolicitud), solicitud);
+        if (conUnidad) {
+            flota.liberar(solicitud.getCodigoUnidad());
+            logger.info("Solicitud de ambulancia {} finalizada; la unidad {} vuelve a estar disponible.", idSolicitud, solicitud.getCodigoUnidad());
+            despacharCola();
+        }
+        return true;
+    }
+
+    // La unidad de la solicitud salio hacia el destino. False si la solicitud no esta activa o no estaba asignada.
+    public boolean marcarEnCamino(long idSolicitud) {
+        SolicitudAmbulancia solicitud = activas.get(idSolicitud);
+        if (solicitud == null || !solicitud.partir()) {
+            return false;
+        }
+        registrar(EventoDespacho.enCamino(idSolicitud), solicitud);
+        return true;
+    }
+
+    // La unidad llego al destino. False si la solicitud no esta activa o no estaba en camino.
+    public boolean marcarEnLugar(long idSolicitud) {
+        SolicitudAmbulancia solicitud = activas.get(idSolicitud);
+        if (solicitud == null || !solicitud.llegar()) {
+            return false;
+        }
+        registrar(EventoDespacho.enLugar(idSolicitud), solicitud);
+        logger.info("La unidad {} llego al destino de la solicitud de ambulancia {}.", solicitud.getCodigoUnidad(), idSolicitud);
+        return true;
+    }
+
+    private void registrar(EventoDespacho evento, SolicitudAmbulancia solicitud) {
+        diario.registrar(evento);
+        central.publicar(solicitud);
+    }
+
+    // Programa el siguiente paso del SLA segun el tiempo ya esperado: aviso (sube un nivel) y luego vencimiento.
+    private void programarSla(SolicitudAmbulancia solicitud) {
+        long sla = slaMs[solicitud.getGravedad() - 1];
+        long aviso = (long) (sla * fraccionAviso);
+        long esperado = System.currentTimeMillis() - solicitud.getCreadaMs();
+        RuedaTemporizadores.Tarea tarea;
+        if (esperado < aviso) {
+            tarea = ruedaSla.programar(() -> avisarSla(solicitud), aviso - esperado);
+        } else if (esperado < sla) {
+            escalar(solicitud, Math.max(SolicitudAmbulancia.GRAVEDAD_CRITICA, solicitud.getGravedad() - 1));
+            tarea = ruedaSla.programar(() -> vencerSla(solicitud), sla - esperado);
+        } else {
+            vencerSla(solicitud);
+            return;
+        }
+        temporizadores.put(solicitud.getId(), tarea);
+        // Asignada mientras se programaba: el temporizador ya no hace falta.
+        if (!SolicitudAmbulancia.ESTADO_EN_COLA.equals(solicitud.getEstado())) {
+            cancelarSla(solicitud.getId());
+        }
+    }
+
+    private void avisarSla(SolicitudAmbulancia solicitud) {
+        temporizadores.remove(solicitud.getId());
+        if (SolicitudAmbulancia.ESTADO_EN_COLA.equals(solicitud.getEstado())) {
+            programarSla(solicitud);
+        }
+    }
+
+    private void vencerSla(SolicitudAmbulancia solicitud) {
+        temporizadores.remove(solicitud.getId());
+        if (escalar(solicitud, SolicitudAmbulancia.PRIORIDAD_SLA_VENCIDO)) {
+            slaVencidos.increment();
+            logger.warn("Solicitud de ambulancia {} (gravedad {}) sin unidad asignada al vencer su SLA de {} ms.",
+                    solicitud.getId(), solicitud.getGravedad(), slaMs[solicitud.getGravedad() - 1]);
+        }
+    }
+
+    // Sube la prioridad de una solicitud en cola (nunca la baja). Devuelve false si no cambio.
+    private boolean escalar(SolicitudAmbulancia solicitud, int prioridad) {
+        if (prioridad >= solicitud.getPrioridad() || !cola.cambiarPrioridad(solicitud, prioridad)) {
+            return false;
+        }
+        escaladas.increment();
+        escaladasPendientes.add(new Escalada(EventoDespacho.escalada(solicitud), solicitud));
+        programarRegistroEscaladas();
+        return true;
+    }
+
+    private void programarRegistroEscaladas() {
+        if (!registrandoEscaladas.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            ejecutorSla.execute(this::registrarEscaladas);
+        } catch (RejectedExecutionException e) {
+            // Quedan pendientes para la siguiente escalada. Perder la anotacion no cambia la recuperacion: al reiniciar,
+            // el SLA se vuelve a evaluar con el tiempo ya esperado desde la creacion.
+            registrandoEscaladas.set(false);
+            logger.warn("No se pudo programar el registro de {} escaladas de SLA: {}", escaladasPendientes.size(), e.getMessage());
+        }
+    }
+
+    // Anota y publica en orden las escaladas pendientes. Solo una tarea a la vez ('registrandoEscaladas').
+    private void registrarEscaladas() {
+        do {
+            Escalada escalada;
+            while ((escalada = escaladasPendientes.poll()) != null) {
+                registrar(escalada.evento(), escalada.solicitud());
+            }
+            registrandoEscaladas.set(false);
+            // Una escalada agregada justo despues del ultimo poll no debe quedar sin registrar.
+        } while (!escaladasPendientes.isEmpty() && registrandoEscaladas.compareAndSet(false, true));
+    }
+
+    private void cancelarSla(long idSolicitud) {
+        RuedaTemporizadores.Tarea tarea = temporizadores.remove(idSolicitud);
+        if (tarea != null) {
+            tarea.cancelar();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recuperarAlIniciar() {
+        recuperar();
+    }
+
+    // Reconstruye las solicitudes activas desde el diario: las asignadas vuelven a reservar su unidad (o regresan
+    // a la cola si la unidad ya no esta libre) y las en cola retoman su SLA segun lo que ya esperaron.
+    // Despues compacta el diario. Devuelve cuantas solicitudes se recuperaron.
+    public int recuperar() {
+        Map<Long, SolicitudAmbulancia> recuperadas = new LinkedHashMap<>();
+        long ultimoId = 0;
+        for (EventoDespacho evento : diario.leer()) {
+            ultimoId = Math.max(ultimoId, evento.id());
+            SolicitudAmbulancia solicitud = recuperadas.get(evento.id());
+            switch (evento.tipo()) {
+                case EventoDespacho.CREADA -> recuperadas.put(evento.id(), desdeEvento(evento));
+                case EventoDespacho.ASIGNADA -> {
+                    if (solicitud != null) {
+                        solicitud.asignar(evento.unidad(), evento.distanciaKm(), evento.minutos(), evento.instante());
+                    }
+                }
+                case EventoDespacho.EN_CAMINO -> {
+                    if (solicitud != null) {
+                        solicitud.partir();
+                    }
+                }
+                case EventoDespacho.EN_LUGAR -> {
+                    if (solicitud != null) {
+                        solicitud.llegar();
+                    }
+                }
+                case EventoDespacho.ESCALADA -> {
+                    if (solicitud != null) {
+                        solicitud.setPrioridad(Math.min(solicitud.getPrioridad(), evento.prioridad()));
+                    }
+                }
+                case EventoDespacho.FINALIZADA -> recuperadas.remove(evento.id());
+                default -> logger.warn("Evento de despacho desconocido en el diario: {}", evento.tipo());
+            }
+        }
+        secuencia.accumulateAndGet(ultimoId, Math::max);
+
+        int reencoladas = 0;
+        for (SolicitudAmbulancia solicitud : recuperadas.values()) {
+            if (solicitud.getCodigoUnidad() != null) {
+                if (flota.reservar(solicitud.getCodigoUnidad(), solicitud.getId())) {
+                    activas.put(solicitud.getId(), solicitud);
+                    continue;
+                }
+                logger.debug("La unidad {} de la solicitud {} ya no esta disponible; la solicitud vuelve a la cola.",
+                        solicitud.getCodigoUnidad(), solicitud.getId());
+                solicitud = enCola(solicitud);
+                reencoladas++;
+            }
+            if (!cola.encolar(solicitud)) {
+                logger.error("Cola de triaje llena al recuperar la solicitud de ambulancia {}; se descarta.", solicitud.getId());
+                continue;
+            }
+            activas.put(solicitud.getId(), solicitud);
+            programarSla(solicitud);
+        }
+        diario.compactar(this::estadoVigente);
+        if (!recuperadas.isEmpty()) {
+            logger.info("Despacho recuperado del diario: {} solicitudes activas ({} en cola, {} devueltas a la cola).",
+                    activas.size(), cola.getTamano(), reencoladas);
+        }
+        despacharCola();
+        return recuperadas.size();
+    }
+
+    @Scheduled(initialDelayString = "${clinica.ambulancias.diario.revision-ms:60000}",
+               fixedDelayString = "${clinica.ambulancias.diario.revision-ms:60000}")
+    public void compactarDiario() {
+        if (diario.getEventosDesdeCompactacion() >= compactarCada) {
+            diario.compactar(this::estadoVigente);
+        }
+    }
+
+    // Eventos minimos que reconstruyen las solicitudes activas (creacion con su prioridad vigente, asignacion y avance).
+    private List<EventoDespacho> estadoVigente() {
+        List<SolicitudAmbulancia> vigentes = new ArrayList<>(activas.values());
+        vigentes.sort(Comparator.comparingLong(SolicitudAmbulancia::getId));
+        List<EventoDespacho> eventos = new ArrayList<>(vigentes.size() * 2);
+        for (SolicitudAmbulancia solicitud : vigentes) {
+            eventos.add(EventoDespacho.creada(solicitud));
+            if (solicitud.getCodigoUnidad() != null) {
+                eventos.add(EventoDespacho.asignada(solicitud));
+            }
+            String estado = solicitud.getEstado();
+            if (SolicitudAmbulancia.ESTADO_EN_CAMINO.equals(estado) || SolicitudAmbulancia.ESTADO_EN_LUGAR.equals(estado)) {
+                eventos.add(EventoDespacho.enCamino(solicitud.getId()));
+            }
+            if (SolicitudAmbulancia.ESTADO_EN_LUGAR.equals(estado)) {
+                eventos.add(EventoDespacho.enLugar(solicitud.getId()));
+            }
+        }
+        return eventos;
+    }
+
+    private static SolicitudAmbulancia desdeEvento(EventoDespacho evento) {
+        SolicitudAmbulancia solicitud = new SolicitudAmbulancia(evento.id(), evento.paciente(), evento.direccion(),
+                new Posicion(evento.latitud(), evento.longitud()), evento.gravedad(), evento.instante());
+        solicitud.setPrioridad(evento.prioridad());
+        return solicitud;
+    }
+
+    private static SolicitudAmbulancia enCola(SolicitudAmbulancia asignada) {
+        SolicitudAmbulancia solicitud = new SolicitudAmbulancia(asignada.getId(), asignada.getIdPaciente(), asignada.getIdDireccion(),
+                asignada.getDestino(), asignada.getGravedad(), asignada.getCreadaMs());
+        solicitud.setPrioridad(asignada.getPrioridad());
+        return solicitud;
+    }
+
+    // Evento de escalada tomado al reordenar la cola (con la prioridad de ese momento) y la solicitud a publicar.
+    private record Escalada(EventoDespacho evento, SolicitudAmbulancia solicitud) {
+    }
+
+    public Optional<SolicitudAmbulancia> buscarActiva(long idSolicitud) {
+        return Optional.ofNullable(activas.get(idSolicitud));
+    }
+
+    // Posicion (desde 1) de la solicitud en la cola de triaje; 0 si no esta en cola.
+    public int posicionEnCola(SolicitudAmbulancia solicitud) {
+        return cola.posicion(solicitud);
+    }
+
+    public Collection<SolicitudAmbulancia> getActivas() {
+        return Collections.unmodifiableCollection(activas.values());
+    }
+
+    public int getEnCola() {
+        return cola.getTamano();
+    }
+
+    public long getEncoladas() {
+        return encoladas.sum();
+    }
+
+    public long getEscaladas() {
+        return escaladas.sum();
+    }
+
+    public long getSlaVencidos() {
+        return slaVencidos.sum();
+    }
+
+    public long getRechazadas() {
+        return rechazadas.sum();
+    }
+
+    public int getEscaladasPendientes() {
+        return escaladasPendientes.size();
+    }
+}
@@ -0,0 +1,215 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.EventoDespacho;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import jakarta.annotation.PreDestroy;
+
+// Diario de solo anexado (una linea JSON por evento) con el que el despacho de ambulancias reconstruye sus solicitudes
+// en cola y asignadas tras un reinicio. Con 'sincronizar' cada evento se fuerza a disco antes de responder; sin el,
+// queda en la cache del sistema operativo (sobrevive a la caida del proceso, no a la del equipo).
+// La compactacion reescribe el archivo con solo el estado vigente. Con archivo vacio el diario esta deshabilitado.
+@Component
+public class DiarioDespacho {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiarioDespacho.class);
+
+    private final Path archivo;
+    private final boolean sincronizar;
+    private final ObjectMapper objectMapper;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final LongAdder errores = new LongAdder();
+    private FileChannel canal;
+    private long eventosDesdeCompactacion;
+
+    public DiarioDespacho(@Value("${clinica.ambulancias.diario.archivo:}") String archivo,
+                          @Value("${clinica.ambulancias.diario.sincronizar:false}") boolean sincronizar,
+                          ObjectMapper objectMapper) {
+        this.archivo = archivo == null || archivo.isBlank() ? null : Path.of(archivo).toAbsolutePath();
+        this.sincronizar = sincronizar;
+        this.objectMapper = objectMapper;
+        if (this.archivo != null) {
+            try {
+                Files.createDirectories(this.archivo.getParent());
+                this.canal = abrir();
+                cerrarLineaIncompleta();
+            } catch (IOException e) {
+                throw new UncheckedIOException("No se pudo abrir el diario de despacho " + this.archivo, e);
+            }
+            logger.info("Diario de despacho en {} (sincronizar: {}).", this.archivo, sincronizar);
+        }
+    }
+
+    public boolean isHabilitado() {
+        return archivo != null;
+    }
+
+    // Anexa un evento. Un fallo de escritura se registra y se cuenta, pero no detiene el despacho de la emergencia.
+    public void registrar(EventoDespacho evento) {
+        if (archivo == null) {
+            return;
+        }
+        ByteBuffer linea;
+        try {
+            linea = ByteBuffer.wrap(linea(evento));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("No se pudo serializar el evento de despacho " + evento, e);
+        }
+        lock.lock();
+        try {
+            while (linea.hasRemaining()) {
+                canal.write(linea);
+            }
+            if (sincronizar) {
+                canal.force(false);
+            }
+            eventosDesdeCompactacion++;
+        } catch (IOException e) {
+            errores.increment();
+            logger.error("No se pudo escribir el evento {} de la solicitud {} en el diario de despacho: {}", evento.tipo(), evento.id(), e.getMessage(), e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Eventos del diario en orden. Las lineas ilegibles (la ultima, si el proceso cayo a mitad de una escritura) se descartan.
+    public List<EventoDespacho> leer() {
+        List<EventoDespacho> eventos = new ArrayList<>();
+        if (archivo == null || !Files.exists(archivo)) {
+            return eventos;
+        }
+        lock.lock();
+        try (BufferedReader lector = Files.newBufferedReader(archivo, StandardCharsets.UTF_8)) {
+            String linea;
+            int numero = 0;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (linea.isBlank()) {
+                    continue;
+                }
+                try {
+                    eventos.add(objectMapper.readValue(linea, EventoDespacho.class));
+                } catch (JsonProcessingException e) {
+                    logger.warn("Linea {} del diario de despacho ilegible, se descarta: {}", numero, e.getOriginalMessage());
+                }
+            }
+            return eventos;
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el diario de despacho " + archivo, e);
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Reescribe el diario con los eventos que describen el estado vigente. El estado se obtiene con el lock del diario
+    // tomado, de modo que ningun evento posterior se pierde: a lo sumo se anexa despues y se reaplica sin efecto.
+    public void compactar(Supplier<List<EventoDespacho>> estadoVigente) {
+        if (archivo == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            List<EventoDespacho> eventos = estadoVigente.get();
+            Path temporal = archivo.resolveSibling(archivo.getFileName() + ".tmp");
+            try (FileChannel nuevo = FileChannel.open(temporal, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                for (EventoDespacho evento : eventos) {
+                    ByteBuffer linea = ByteBuffer.wrap(linea(evento));
+                    while (linea.hasRemaining()) {
+                        nuevo.write(linea);
+                    }
+                }
+                nuevo.force(true);
+            }
+            canal.close();
+            Files.move(temporal, archivo, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            canal = abrir();
+            eventosDesdeCompactacion = 0;
+            logger.info("Diario de despacho compactado: {} eventos vigentes.", eventos.size());
+        } catch (IOException e) {
+            errores.increment();
+            logger.error("No se pudo compactar el diario de despacho {}: {}", archivo, e.getMessage(), e);
+            try {
+                if (!canal.isOpen()) {
+                    canal = abrir();
+                }
+            } catch (IOException reapertura) {
+                throw new UncheckedIOException("No se pudo reabrir el diario de despacho " + archivo, reapertura);
+            }
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        if (archivo == null) {
+            return;
+        }
+        lock.lock();
+        try {
+            canal.close();
+        } catch (IOException e) {
+            logger.warn("No se pudo cerrar el diario de despacho: {}", e.getMessage());
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    // Si el proceso cayo a mitad de una escritura, termina esa linea para que el siguiente evento no quede pegado a ella.
+    private void cerrarLineaIncompleta() throws IOException {
+        if (canal.size() == 0) {
+            return;
+        }
+        ByteBuffer ultimo = ByteBuffer.allocate(1);
+        try (FileChannel lectura = FileChannel.open(archivo, StandardOpenOption.READ)) {
+            lectura.read(ultimo, lectura.size() - 1);
+        }
+        if (ultimo.get(0) != '\n') {
+            canal.write(ByteBuffer.wrap(new byte[] { '\n' }));
+        }
+    }
+
+    private FileChannel abrir() throws IOException {
+        return FileChannel.open(archivo, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+    }
+
+    private byte[] linea(EventoDespacho evento) throws JsonProcessingException {
+        return (objectMapper.writeValueAsString(evento) + "\n").getBytes(StandardCharsets.UTF_8);
+    }
+
+    public long getEventosDesdeCompactacion() {
+        lock.lock();
+        try {
+            return eventosDesdeCompactacion;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    public long getErrores() {
+        return errores.sum();
+    }
+}
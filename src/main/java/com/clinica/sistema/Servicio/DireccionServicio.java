@@ -5,12 +5,17 @@ import java.util.Optional;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
 import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.DireccionSinUbicar;
+import com.clinica.sistema.Modelo.Posicion;
 import com.clinica.sistema.Repositorio.DireccionRepositorio;
-import com.clinica.sistema.Repositorio.PacienteRepositorio;
 
 @Service
 public class DireccionServicio {
@@ -18,19 +23,52 @@ public class DireccionServicio {
     private final Logger logger = LoggerFactory.getLogger(DireccionServicio.class);
 
     private final DireccionRepositorio direccionRepositorio;
-    private final PacienteRepositorio pacienteRepositorio; // Inyectar PacienteRepositorio
+    private final GeocodificadorDirecciones geocodificador;
+    private final int loteUbicacion;
 
     // Constructor que inyecta los repositorios necesarios.
-    public DireccionServicio(DireccionRepositorio direccionRepositorio, PacienteRepositorio pacienteRepositorio) {
+    public DireccionServicio(DireccionRepositorio direccionRepositorio, GeocodificadorDirecciones geocodificador,
+                             @Value("${clinica.direcciones.lote-ubicacion:500}") int loteUbicacion) {
         this.direccionRepositorio = direccionRepositorio;
-        this.pacienteRepositorio = pacienteRepositorio; // Inicializar PacienteRepositorio
+        this.geocodificador = geocodificador;
+        this.loteUbicacion = loteUbicacion;
     }
 
-    // Metodo auxiliar para obtener la informacion del paciente para el log
+    @EventListener(ApplicationReadyEvent.class)
+    public void ubicarAlIniciar() {
+        ubicarDireccionesPendientes();
+    }
+
+    // Ubica las direcciones guardadas sin coordenadas (anteriores al nomenclator o de la carga inicial), por lotes de id.
+    // Las que el nomenclator no reconoce se quedan sin coordenadas y se reintentan en el siguiente arranque.
+    // Devuelve cuantas se ubicaron.
+    public int ubicarDireccionesPendientes() {
+        int ubicadas = 0;
+        int sinUbicar = 0;
+        long desde = 0;
+        List<DireccionSinUbicar> lote;
+        do {
+            lote = direccionRepositorio.findSinUbicarDesde(desde, PageRequest.ofSize(loteUbicacion));
+            for (DireccionSinUbicar pendiente : lote) {
+                Optional<Posicion> posicion = geocodificador.geocodificar(pendiente.direccionCompleta());
+                if (posicion.isPresent()) {
+                    direccionRepositorio.actualizarUbicacion(pendiente.id(), posicion.get().latitud(), posicion.get().longitud());
+                    ubicadas++;
+                } else {
+                    sinUbicar++;
+                }
+                desde = pendiente.id();
+            }
+        } while (lote.size() == loteUbicacion);
+        if (ubicadas + sinUbicar > 0) {
+            logger.info("Direcciones pendientes procesadas: {} ubicadas, {} sin coincidencia en el nomenclator.", ubicadas, sinUbicar);
+        }
+        return ubicadas;
+    }
+
+    // Metodo auxiliar para obtener la informacion del paciente para el log, sin consultar la base de datos.
     private String getPacienteLogInfo(Long pacienteId) {
-        return pacienteRepositorio.findById(pacienteId)
-            .map(p -> String.format("Paciente %s %s (ID: %d, DNI: %s)", p.getNombre(), p.getApellido(), p.getId(), p.getDni()))
-            .orElseGet(() -> String.format("Paciente con ID %d (no encontrado)", pacienteId));
+        return ContextoPaciente.describir(pacienteId);
     }
 
     // Obtiene una lista de direcciones asociadas a un ID de paciente especifico.
@@ -70,6 +108,10 @@ public class DireccionServicio {
         String pacienteInfo = getPacienteLogInfo(pacienteId);
 
         logger.info("El {} esta guardando una nueva direccion (Direccion: {}).", pacienteInfo, direccion.getDireccionCompleta());
+        // Se geocodifica aqui para que la solicitud de ambulancia ya encuentre las coordenadas en la direccion.
+        if (!geocodificador.ubicar(direccion)) {
+            logger.warn("El {} guarda una direccion que no se pudo ubicar en el nomenclator: {}", pacienteInfo, direccion.getDireccionCompleta());
+        }
         // Guarda la direccion en el repositorio.
         Direccion direccionGuardada = direccionRepositorio.save(direccion);
         logger.info("El {} ha guardado la direccion ID {} exitosamente.", pacienteInfo, direccionGuardada.getId());
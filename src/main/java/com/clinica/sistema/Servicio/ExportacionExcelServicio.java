@@ -0,0 +1,116 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.util.WorkbookUtil;
+import org.apache.poi.xssf.streaming.SXSSFWorkbook;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import com.clinica.sistema.Modelo.FilaReporteCita;
+
+import io.micrometer.core.annotation.Timed;
+
+// Genera exportaciones de citas. El XLSX usa un libro en streaming (SXSSF): solo mantiene en memoria una ventana
+// de filas y vuelca el resto a un archivo temporal, por lo que el uso de heap no depende del numero de filas.
+@Service
+@Timed(value = "clinica.exportacion", description = "Duracion de las exportaciones de citas (Excel/CSV)")
+public class ExportacionExcelServicio {
+
+    private final Logger logger = LoggerFactory.getLogger(ExportacionExcelServicio.class);
+
+    private static final String[] ENCABEZADOS = { "ID Cita", "Fecha", "Hora", "Estado", "Medico", "Especialidad" };
+
+    // Anchos fijos en caracteres; autoSizeColumn no es compatible con el streaming (necesita todas las filas en memoria).
+    private static final int[] ANCHOS = { 10, 12, 8, 12, 30, 25 };
+
+    private final int ventanaFilas;
+
+    public ExportacionExcelServicio(@Value("${clinica.exportacion.ventana-filas:100}") int ventanaFilas) {
+        this.ventanaFilas = ventanaFilas;
+    }
+
+    // Escribe las filas en una hoja y el libro completo en la salida. Devuelve el numero de filas de datos escritas.
+    public int escribirFilas(String nombreHoja, Iterator<FilaReporteCita> filas, OutputStream salida) throws IOException {
+        SXSSFWorkbook workbook = new SXSSFWorkbook(ventanaFilas);
+        workbook.setCompressTempFiles(true);
+        try {
+            Sheet sheet = workbook.createSheet(WorkbookUtil.createSafeSheetName(nombreHoja));
+            for (int i = 0; i < ANCHOS.length; i++) {
+                sheet.setColumnWidth(i, ANCHOS[i] * 256);
+            }
+
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < ENCABEZADOS.length; i++) {
+                headerRow.createCell(i).setCellValue(ENCABEZADOS[i]);
+            }
+
+            int rowNum = 1;
+            while (filas.hasNext()) {
+                escribirFila(sheet.createRow(rowNum++), filas.next());
+            }
+
+            workbook.write(salida);
+            salida.flush();
+            logger.debug("Libro Excel '{}' escrito con {} filas.", nombreHoja, rowNum - 1);
+            return rowNum - 1;
+        } finally {
+            // Elimina los archivos temporales de la ventana de filas.
+            workbook.dispose();
+            workbook.close();
+        }
+    }
+
+    // Escribe las filas en formato CSV (separador ';', UTF-8 con BOM para que Excel respete los acentos).
+    public int escribirFilasCsv(Iterator<FilaReporteCita> filas, OutputStream salida) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(salida, StandardCharsets.UTF_8));
+        writer.write('\uFEFF');
+        writer.write(String.join(";", ENCABEZADOS));
+        writer.write("\r\n");
+
+        int total = 0;
+        while (filas.hasNext()) {
+            FilaReporteCita fila = filas.next();
+            writer.write(fila.id() + ";" + fila.fecha() + ";" + fila.hora() + ";" + campoCsv(fila.estado()) + ";"
+                    + campoCsv(fila.medico()) + ";" + campoCsv(fila.especialidad()));
+            writer.write("\r\n");
+            total++;
+        }
+        writer.flush();
+        return total;
+    }
+
+    // Un valor que empieza por '=', '+', '-', '@', tabulador o retorno de carro Excel lo interpreta como formula;
+    // se antepone un apostrofo para que quede como texto. Se entrecomilla si contiene separador, comillas o saltos de linea.
+    private String campoCsv(String valor) {
+        if (valor == null) {
+            return "";
+        }
+        if (!valor.isEmpty() && "=+-@\t\r".indexOf(valor.charAt(0)) >= 0) {
+            valor = "'" + valor;
+        }
+        if (valor.contains(";") || valor.contains("\"") || valor.contains("\n") || valor.contains("\r")) {
+            return "\"" + valor.replace("\"", "\"\"") + "\"";
+        }
+        return valor;
+    }
+
+    private void escribirFila(Row row, FilaReporteCita fila) {
+        row.createCell(0).setCellValue(fila.id());
+        row.createCell(1).setCellValue(fila.fecha().toString());
+        row.createCell(2).setCellValue(fila.hora().toString());
+        row.createCell(3).setCellValue(fila.estado());
+        row.createCell(4).setCellValue(fila.medico());
+        row.createCell(5).setCellValue(fila.especialidad());
+    }
+}
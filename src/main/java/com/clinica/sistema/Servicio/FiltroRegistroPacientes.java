@@ -0,0 +1,211 @@
+package com.clinica.sistema.Servicio;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Locale;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.clinica.sistema.Modelo.IdentidadPaciente;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.google.common.hash.BloomFilter;
+import com.google.common.hash.Funnels;
+
+// Filtro de Bloom en memoria con el correo y el DNI (normalizados) de todos los pacientes. Si responde "no registrado"
+// es seguro y el registro no consulta la base de datos; si responde "posiblemente registrado", se confirma con una consulta.
+// Se construye al arrancar, se actualiza en cada registro y se reconstruye con mas capacidad cuando se llena.
+// Las restricciones unicas de la tabla siguen siendo la ultima palabra (ver AuthServicio.guardarPaciente).
+@Component
+public class FiltroRegistroPacientes {
+
+    private final Logger logger = LoggerFactory.getLogger(FiltroRegistroPacientes.class);
+
+    private final PacienteRepositorio pacienteRepositorio;
+    private final TransactionTemplate transaccionLectura;
+    private final long capacidadMinima;
+    private final double tasaFalsosPositivos;
+    private final ReentrantLock reconstruccion = new ReentrantLock();
+    // Los registros toman la lectura (concurrentes entre si); la reconstruccion toma la escritura solo para abrir el
+    // registro de pendientes y para publicar el filtro nuevo, de modo que ningun registro quede a medias en el cambio.
+    private final ReentrantReadWriteLock intercambio = new ReentrantReadWriteLock();
+
+    // Filtro vigente (null mientras no este construido: todo se considera posiblemente registrado) y su capacidad en pacientes.
+    private volatile BloomFilter<CharSequence> actual;
+    private volatile long capacidad;
+    // Registros hechos durante una reconstruccion (null fuera de ella): la lectura de la base de datos puede no verlos
+    // (aun no confirmados), asi que se reaplican al filtro nuevo antes de publicarlo. Se asigna bajo 'intercambio'.
+    // Un registro anterior a la reconstruccion que se confirme despues de la lectura si puede faltar en el filtro nuevo;
+    // en ese caso la restriccion unica rechaza el duplicado.
+    private volatile Queue<IdentidadPaciente> pendientes;
+
+    // Metricas del filtro
+    private final AtomicLong descartados = new AtomicLong();
+    private final AtomicLong posibles = new AtomicLong();
+    private final AtomicLong falsosPositivos = new AtomicLong();
+
+    public FiltroRegistroPacientes(PacienteRepositorio pacienteRepositorio,
+                                   PlatformTransactionManager transactionManager,
+                                   @Value("${clinica.registro.filtro.capacidad-minima:100000}") long capacidadMinima,
+                                   @Value("${clinica.registro.filtro.falsos-positivos:0.01}") double tasaFalsosPositivos) {
+        if (capacidadMinima < 1) {
+            throw new IllegalArgumentException("clinica.registro.filtro.capacidad-minima debe ser mayor que cero.");
+        }
+        if (tasaFalsosPositivos <= 0 || tasaFalsosPositivos >= 1) {
+            throw new IllegalArgumentException("clinica.registro.filtro.falsos-positivos debe estar entre 0 y 1.");
+        }
+        this.pacienteRepositorio = pacienteRepositorio;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+        this.capacidadMinima = capacidadMinima;
+        this.tasaFalsosPositivos = tasaFalsosPositivos;
+    }
+
+    // Se construye una vez que la carga de datos inicial termino.
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconstruir();
+    }
+
+    // Con mas elementos que la capacidad prevista la tasa de falsos positivos sube; se reconstruye con el doble de pacientes.
+    @Scheduled(initialDelayString = "${clinica.registro.filtro.verificacion-ms:600000}",
+               fixedDelayString = "${clinica.registro.filtro.verificacion-ms:600000}")
+    public void verificarCapacidad() {
+        BloomFilter<CharSequence> filtro = actual;
+        if (filtro != null && filtro.approximateElementCount() > 2 * capacidad) {
+            logger.info("Filtro de registro lleno ({} elementos para {} pacientes). Se reconstruye.", filtro.approximateElementCount(), capacidad);
+            reconstruir();
+        }
+    }
+
+    // Vuelve a leer correo y DNI de todos los pacientes y publica un filtro nuevo.
+    public void reconstruir() {
+        reconstruccion.lock();
+        try {
+            long inicio = System.nanoTime();
+            long nuevaCapacidad = Math.max(capacidadMinima, 2 * pacienteRepositorio.count());
+            // Dos claves por paciente: correo y DNI.
+            BloomFilter<CharSequence> nuevo = BloomFilter.create(Funnels.stringFunnel(StandardCharsets.UTF_8), 2 * nuevaCapacidad, tasaFalsosPositivos);
+            Queue<IdentidadPaciente> registrosDurante = new ConcurrentLinkedQueue<>();
+            conIntercambio(() -> pendientes = registrosDurante);
+            long leidos;
+            try {
+                leidos = transaccionLectura.execute(estado -> {
+                    try (Stream<IdentidadPaciente> identidades = pacienteRepositorio.streamIdentidades()) {
+                        return identidades.mapToLong(identidad -> {
+                            agregar(nuevo, identidad.correo(), identidad.dni());
+                            return 1;
+                        }).sum();
+                    }
+                });
+                conIntercambio(() -> {
+                    registrosDurante.forEach(registro -> agregar(nuevo, registro.correo(), registro.dni()));
+                    capacidad = nuevaCapacidad;
+                    actual = nuevo;
+                    pendientes = null;
+                });
+            } finally {
+                // Si la lectura fallo, el filtro anterior ya recibio esos registros.
+                if (pendientes == registrosDurante) {
+                    conIntercambio(() -> pendientes = null);
+                }
+            }
+            logger.info("Filtro de registro construido con {} pacientes y {} registros durante la reconstruccion (capacidad {}) en {} ms.",
+                    leidos, registrosDurante.size(), nuevaCapacidad, (System.nanoTime() - inicio) / 1_000_000);
+        } catch (RuntimeException e) {
+            // Sin filtro (o con el anterior) el registro sigue funcionando, solo que consultando la base de datos.
+            logger.error("No se pudo construir el filtro de registro: {}", e.getMessage(), e);
+        } finally {
+            reconstruccion.unlock();
+        }
+    }
+
+    // false solo si es seguro que ni el correo ni el DNI estan registrados.
+    public boolean posiblementeRegistrado(String correo, String dni) {
+        BloomFilter<CharSequence> filtro = actual;
+        if (filtro == null) {
+            return true;
+        }
+        boolean posible = filtro.mightContain(claveCorreo(correo)) || filtro.mightContain(claveDni(dni));
+        (posible ? posibles : descartados).incrementAndGet();
+        return posible;
+    }
+
+    // Agrega el paciente al filtro. Se llama antes de confirmar la insercion: si luego se revierte, solo queda un falso positivo.
+    // Durante una reconstruccion tambien se anota en 'pendientes', para que el filtro nuevo lo incluya al publicarse.
+    public void registrar(String correo, String dni) {
+        Lock lectura = intercambio.readLock();
+        lectura.lock();
+        try {
+            BloomFilter<CharSequence> filtro = actual;
+            if (filtro != null) {
+                agregar(filtro, correo, dni);
+            }
+            Queue<IdentidadPaciente> registrosDurante = pendientes;
+            if (registrosDurante != null) {
+                registrosDurante.add(new IdentidadPaciente(correo, dni));
+            }
+        } finally {
+            lectura.unlock();
+        }
+    }
+
+    // El filtro dijo "posiblemente registrado" y la base de datos lo desmintio.
+    public void registrarFalsoPositivo() {
+        falsosPositivos.incrementAndGet();
+    }
+
+    public long getDescartados() {
+        return descartados.get();
+    }
+
+    public long getPosibles() {
+        return posibles.get();
+    }
+
+    public long getFalsosPositivos() {
+        return falsosPositivos.get();
+    }
+
+    public long getElementosAproximados() {
+        BloomFilter<CharSequence> filtro = actual;
+        return filtro == null ? 0 : filtro.approximateElementCount();
+    }
+
+    private void conIntercambio(Runnable accion) {
+        Lock escritura = intercambio.writeLock();
+        escritura.lock();
+        try {
+            accion.run();
+        } finally {
+            escritura.unlock();
+        }
+    }
+
+    private static void agregar(BloomFilter<CharSequence> filtro, String correo, String dni) {
+        filtro.put(claveCorreo(correo));
+        filtro.put(claveDni(dni));
+    }
+
+    // El correo se compara sin mayusculas (como la intercalacion de MySQL); normalizar de mas solo puede sumar falsos positivos.
+    private static String claveCorreo(String correo) {
+        return "c:" + correo.trim().toLowerCase(Locale.ROOT);
+    }
+
+    private static String claveDni(String dni) {
+        return "d:" + dni.trim();
+    }
+}
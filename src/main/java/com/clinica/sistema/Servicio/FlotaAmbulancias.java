@@ -0,0 +1,184 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.UnidadAmbulancia;
+
+// Registro en memoria de las unidades de ambulancia con un indice espacial de rejilla uniforme: cada unidad esta en
+// la celda (fila, columna) de su posicion. La busqueda de la mas cercana recorre anillos de celdas alrededor del destino
+// y se detiene cuando ningun anillo restante puede contener una unidad mas proxima que la mejor encontrada.
+// La asignacion es un compareAndSet sobre el estado de la unidad: si otra solicitud la gano, se busca de nuevo.
+@Component
+public class FlotaAmbulancias {
+
+    private final double celdaGrados;
+    private final double radioMaximoKm;
+
+    private final ConcurrentHashMap<String, UnidadAmbulancia> unidades = new ConcurrentHashMap<>();
+    private final ConcurrentHashMap<Long, Set<UnidadAmbulancia>> celdas = new ConcurrentHashMap<>();
+
+    private final AtomicInteger disponibles = new AtomicInteger();
+    private final LongAdder asignaciones = new LongAdder();
+    private final LongAdder conflictos = new LongAdder();
+
+    public FlotaAmbulancias(@Value("${clinica.ambulancias.celda-km:1.0}") double celdaKm,
+                            @Value("${clinica.ambulancias.radio-maximo-km:60}") double radioMaximoKm) {
+        if (celdaKm <= 0 || radioMaximoKm <= 0) {
+            throw new IllegalArgumentException("El tamano de celda y el radio maximo deben ser positivos.");
+        }
+        this.celdaGrados = celdaKm / Posicion.KM_POR_GRADO;
+        this.radioMaximoKm = radioMaximoKm;
+    }
+
+    public void registrar(String codigo, Posicion posicion) {
+        UnidadAmbulancia unidad = new UnidadAmbulancia(codigo, posicion);
+        if (unidades.putIfAbsent(codigo, unidad) != null) {
+            throw new IllegalArgumentException("La unidad " + codigo + " ya esta registrada.");
+        }
+        celda(clave(posicion)).add(unidad);
+        disponibles.incrementAndGet();
+    }
+
+    // Actualiza la posicion (GPS) de una unidad. Se agrega a la celda nueva antes de quitarla de la anterior,
+    // de modo que una busqueda concurrente nunca la pierde (a lo sumo la ve dos veces).
+    public void actualizarPosicion(String codigo, Posicion posicion) {
+        UnidadAmbulancia unidad = buscar(codigo);
+        synchronized (unidad) {
+            long anterior = clave(unidad.getPosicion());
+            long nueva = clave(posicion);
+            unidad.setPosicion(posicion);
+            if (anterior != nueva) {
+                celda(nueva).add(unidad);
+                celdas.get(anterior).remove(unidad);
+            }
+        }
+    }
+
+    // Reserva la unidad disponible mas cercana al destino dentro del radio maximo. Vacio si no hay ninguna.
+    public Optional<UnidadAmbulancia> asignarMasCercana(long idSolicitud, Posicion destino) {
+        while (disponibles.get() > 0) {
+            UnidadAmbulancia candidata = masCercanaDisponible(destino);
+            if (candidata == null) {
+                return Optional.empty();
+            }
+            if (candidata.reservar(idSolicitud)) {
+                disponibles.decrementAndGet();
+                asignaciones.increment();
+                return Optional.of(candidata);
+            }
+            // Otra solicitud la reservo entre la busqueda y el compareAndSet.
+            conflictos.increment();
+        }
+        return Optional.empty();
+    }
+
+    // Reserva una unidad concreta (al recuperar una asignacion del diario). False si no existe o ya esta ocupada.
+    public boolean reservar(String codigo, long idSolicitud) {
+        UnidadAmbulancia unidad = unidades.get(codigo);
+        if (unidad == null || !unidad.reservar(idSolicitud)) {
+            return false;
+        }
+        disponibles.decrementAndGet();
+        asignaciones.increment();
+        return true;
+    }
+
+    public void liberar(String codigo) {
+        if (buscar(codigo).liberar()) {
+            disponibles.incrementAndGet();
+        }
+    }
+
+    private UnidadAmbulancia masCercanaDisponible(Posicion destino) {
+        // Ancho en km de una celda en la direccion mas estrecha (la longitud se encoge con el coseno de la latitud).
+        double anchoCeldaKm = celdaGrados * Posicion.KM_POR_GRADO * Math.max(0.01, Math.cos(Math.toRadians(destino.latitud())));
+        int anillosMaximos = (int) Math.ceil(radioMaximoKm / anchoCeldaKm) + 1;
+        long fila = (long) Math.floor(destino.latitud() / celdaGrados);
+        long columna = (long) Math.floor(destino.longitud() / celdaGrados);
+
+        UnidadAmbulancia mejor = null;
+        double mejorKm = radioMaximoKm;
+        for (int anillo = 0; anillo <= anillosMaximos; anillo++) {
+            // Toda celda del anillo 'r' esta a por lo menos r - 1 celdas completas del destino.
+            if (mejor != null && (anillo - 1) * anchoCeldaKm > mejorKm) {
+                break;
+            }
+            for (long f = fila - anillo; f <= fila + anillo; f++) {
+                // En las filas intermedias del anillo solo cuentan la primera y la ultima columna.
+                boolean borde = f == fila - anillo || f == fila + anillo;
+                long paso = borde ? 1 : 2L * anillo;
+                for (long c = columna - anillo; c <= columna + anillo; c += paso) {
+                    Set<UnidadAmbulancia> enCelda = celdas.get(clave(f, c));
+                    if (enCelda == null) {
+                        continue;
+                    }
+                    for (UnidadAmbulancia unidad : enCelda) {
+                        if (!unidad.isDisponible()) {
+                            continue;
+                        }
+                        double km = destino.distanciaKm(unidad.getPosicion());
+                        if (km <= mejorKm) {
+                            mejor = unidad;
+                            mejorKm = km;
+                        }
+                    }
+                }
+            }
+        }
+        return mejor;
+    }
+
+    private UnidadAmbulancia buscar(String codigo) {
+        UnidadAmbulancia unidad = unidades.get(codigo);
+        if (unidad == null) {
+            throw new IllegalArgumentException("La unidad " + codigo + " no esta registrada.");
+        }
+        return unidad;
+    }
+
+    private Set<UnidadAmbulancia> celda(long clave) {
+        return celdas.computeIfAbsent(clave, k -> ConcurrentHashMap.newKeySet());
+    }
+
+    private long clave(Posicion posicion) {
+        return clave((long) Math.floor(posicion.latitud() / celdaGrados), (long) Math.floor(posicion.longitud() / celdaGrados));
+    }
+
+    private static long clave(long fila, long columna) {
+        return (fila << 32) ^ (columna & 0xFFFFFFFFL);
+    }
+
+    public Optional<UnidadAmbulancia> unidad(String codigo) {
+        return Optional.ofNullable(unidades.get(codigo));
+    }
+
+    public Collection<UnidadAmbulancia> getUnidades() {
+        return Collections.unmodifiableCollection(unidades.values());
+    }
+
+    public int getTotalUnidades() {
+        return unidades.size();
+    }
+
+    public int getDisponibles() {
+        return disponibles.get();
+    }
+
+    public long getAsignaciones() {
+        return asignaciones.sum();
+    }
+
+    public long getConflictos() {
+        return conflictos.sum();
+    }
+}
@@ -0,0 +1,229 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.text.Normalizer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.regex.Pattern;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.stereotype.Component;
+
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.Posicion;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+// Geocodificacion sin conexion de direcciones de pacientes contra un nomenclator local (distritos y vias de Lima).
+// El texto se normaliza (minusculas, sin tildes ni signos, abreviaturas expandidas) y el resultado se guarda en una
+// cache acotada (se desalojan las menos usadas) por texto normalizado, incluidas las direcciones que no se pudieron ubicar.
+// Se usa al guardar la direccion: al pedir una ambulancia las coordenadas ya estan en la entidad.
+@Component
+public class GeocodificadorDirecciones {
+
+    private static final Logger logger = LoggerFactory.getLogger(GeocodificadorDirecciones.class);
+
+    private static final Pattern MARCAS_DIACRITICAS = Pattern.compile("\\p{M}+");
+    private static final Pattern NO_ALFANUMERICO = Pattern.compile("[^a-z0-9]+");
+
+    private static final Map<String, String> ABREVIATURAS = Map.ofEntries(
+            Map.entry("av", "avenida"), Map.entry("avda", "avenida"), Map.entry("ave", "avenida"),
+            Map.entry("jr", "jiron"), Map.entry("jir", "jiron"),
+            Map.entry("ca", "calle"), Map.entry("cl", "calle"), Map.entry("cll", "calle"),
+            Map.entry("psje", "pasaje"), Map.entry("pje", "pasaje"), Map.entry("pj", "pasaje"),
+            Map.entry("prol", "prolongacion"), Map.entry("urb", "urbanizacion"),
+            Map.entry("mz", "manzana"), Map.entry("lt", "lote"), Map.entry("dpto", "departamento"));
+    // Marcas de numero que no ayudan a ubicar la direccion.
+    private static final Set<String> DESCARTADAS = Set.of("n", "nro", "num", "numero");
+    // Tambien son nombres de provincia ("San Isidro, Lima"): solo cuentan si no aparece otro distrito.
+    private static final Set<String> PROVINCIAS = Set.of("lima", "callao");
+
+    // Distrito normalizado (o alias) -> distrito canonico normalizado.
+    private final Map<String, String> distritos = new HashMap<>();
+    private final Map<String, Posicion> centroides = new HashMap<>();
+    // Via normalizada -> punto representativo por distrito normalizado.
+    private final Map<String, Map<String, Posicion>> vias = new HashMap<>();
+
+    private final Cache<String, Optional<Posicion>> cache;
+    private final LongAdder sinUbicacion = new LongAdder();
+
+    public GeocodificadorDirecciones(@Value("${clinica.direcciones.nomenclator:classpath:nomenclator/lima.csv}") Resource nomenclator,
+                                     @Value("${clinica.direcciones.cache-tamano:10000}") long tamanoCache) {
+        if (tamanoCache < 0) {
+            throw new IllegalArgumentException("El tamano de la cache de geocodificacion no puede ser negativo.");
+        }
+        cargar(nomenclator);
+        this.cache = CacheBuilder.newBuilder().maximumSize(tamanoCache).recordStats().build();
+        logger.info("Nomenclator cargado: {} distritos, {} nombres de distrito y {} vias.", centroides.size(), distritos.size(), vias.size());
+    }
+
+    // Asigna a la direccion las coordenadas de su texto; devuelve false (y la deja sin coordenadas) si no se pudo ubicar.
+    public boolean ubicar(Direccion direccion) {
+        Optional<Posicion> posicion = geocodificar(direccion.getDireccionCompleta());
+        direccion.setLatitud(posicion.map(Posicion::latitud).orElse(null));
+        direccion.setLongitud(posicion.map(Posicion::longitud).orElse(null));
+        return posicion.isPresent();
+    }
+
+    public Optional<Posicion> geocodificar(String direccionCompleta) {
+        if (direccionCompleta == null || direccionCompleta.isBlank()) {
+            return Optional.empty();
+        }
+        String normalizada = normalizar(direccionCompleta);
+        try {
+            return cache.get(normalizada, () -> resolver(normalizada));
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Error al geocodificar la direccion: " + direccionCompleta, e.getCause());
+        }
+    }
+
+    // Minusculas, sin tildes ni signos de puntuacion, abreviaturas de via expandidas y espacios simples.
+    public static String normalizar(String texto) {
+        String sinTildes = MARCAS_DIACRITICAS.matcher(Normalizer.normalize(texto, Normalizer.Form.NFD)).replaceAll("");
+        String[] palabras = NO_ALFANUMERICO.matcher(sinTildes.toLowerCase(Locale.ROOT)).replaceAll(" ").trim().split(" ");
+        StringBuilder normalizada = new StringBuilder(sinTildes.length());
+        for (String palabra : palabras) {
+            if (palabra.isEmpty() || DESCARTADAS.contains(palabra)) {
+                continue;
+            }
+            if (normalizada.length() > 0) {
+                normalizada.append(' ');
+            }
+            normalizada.append(ABREVIATURAS.getOrDefault(palabra, palabra));
+        }
+        return normalizada.toString();
+    }
+
+    // Busca la via mas larga que aparezca en el texto y el ultimo distrito mencionado fuera de ella.
+    // Con via y distrito usa el tramo de la via en ese distrito; si el nomenclator no lo tiene, el centroide del distrito.
+    // Sin distrito solo se ubica una via de un unico tramo: promediar tramos de distritos distintos daria un punto
+    // que no esta en ninguno (y la ambulancia se despacharia desde la base equivocada).
+    private Optional<Posicion> resolver(String normalizada) {
+        String texto = " " + normalizada + " ";
+        String via = null;
+        for (String nombre : vias.keySet()) {
+            if ((via == null || nombre.length() > via.length()) && texto.contains(" " + nombre + " ")) {
+                via = nombre;
+            }
+        }
+        String distrito = ultimoDistrito(via == null ? texto : texto.replace(" " + via + " ", " "));
+
+        Posicion posicion = null;
+        if (via != null) {
+            Map<String, Posicion> tramos = vias.get(via);
+            if (distrito != null) {
+                posicion = tramos.getOrDefault(distrito, centroides.get(distrito));
+            } else if (tramos.size() == 1) {
+                posicion = tramos.values().iterator().next();
+            }
+        } else if (distrito != null) {
+            posicion = centroides.get(distrito);
+        }
+        if (posicion == null) {
+            sinUbicacion.increment();
+        }
+        return Optional.ofNullable(posicion);
+    }
+
+    // Gana el nombre que termina mas tarde; a igual final, el mas largo ("san juan de miraflores" sobre "miraflores").
+    private String ultimoDistrito(String texto) {
+        String encontrado = null;
+        int finEncontrado = -1;
+        String provincia = null;
+        for (Map.Entry<String, String> entrada : distritos.entrySet()) {
+            String nombre = entrada.getKey();
+            int indice = texto.lastIndexOf(" " + nombre + " ");
+            if (indice < 0) {
+                continue;
+            }
+            int fin = indice + nombre.length();
+            if (PROVINCIAS.contains(nombre)) {
+                provincia = entrada.getValue();
+            } else if (fin > finEncontrado || (fin == finEncontrado && nombre.length() > encontrado.length())) {
+                encontrado = nombre;
+                finEncontrado = fin;
+            }
+        }
+        return encontrado != null ? distritos.get(encontrado) : provincia;
+    }
+
+    private void cargar(Resource nomenclator) {
+        List<String[]> alias = new ArrayList<>();
+        try (BufferedReader lector = new BufferedReader(new InputStreamReader(nomenclator.getInputStream(), StandardCharsets.UTF_8))) {
+            String linea;
+            int numero = 0;
+            while ((linea = lector.readLine()) != null) {
+                numero++;
+                if (linea.isBlank() || linea.startsWith("#")) {
+                    continue;
+                }
+                String[] campos = linea.split(";", -1);
+                if (campos.length != 5) {
+                    throw new IllegalStateException("Linea " + numero + " del nomenclator invalida: " + linea);
+                }
+                String nombre = normalizar(campos[1]);
+                String distrito = normalizar(campos[2]);
+                switch (campos[0]) {
+                    case "distrito" -> {
+                        distritos.put(nombre, nombre);
+                        centroides.put(nombre, posicion(campos, numero));
+                    }
+                    case "alias" -> alias.add(new String[] { nombre, distrito });
+                    case "via" -> vias.computeIfAbsent(nombre, k -> new LinkedHashMap<>()).put(distrito, posicion(campos, numero));
+                    default -> throw new IllegalStateException("Linea " + numero + " del nomenclator con tipo desconocido: " + campos[0]);
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("No se pudo leer el nomenclator " + nomenclator.getDescription(), e);
+        }
+        for (String[] par : alias) {
+            if (!centroides.containsKey(par[1])) {
+                throw new IllegalStateException("El alias '" + par[0] + "' apunta a un distrito desconocido: " + par[1]);
+            }
+            distritos.put(par[0], par[1]);
+        }
+    }
+
+    private static Posicion posicion(String[] campos, int numero) {
+        try {
+            return new Posicion(Double.parseDouble(campos[3]), Double.parseDouble(campos[4]));
+        } catch (IllegalArgumentException e) {
+            throw new IllegalStateException("Linea " + numero + " del nomenclator con coordenadas invalidas.", e);
+        }
+    }
+
+    public long getAciertos() {
+        return cache.stats().hitCount();
+    }
+
+    public long getFallos() {
+        return cache.stats().missCount();
+    }
+
+    public double getTasaAcierto() {
+        return cache.stats().hitRate();
+    }
+
+    public long getSinUbicacion() {
+        return sinUbicacion.sum();
+    }
+
+    public long getTamanoCache() {
+        return cache.size();
+    }
+}
@@ -0,0 +1,9 @@
+package com.clinica.sistema.Servicio;
+
+// Se lanza cuando otro paciente reservo el horario antes que la solicitud actual.
+public class HorarioNoDisponibleException extends IllegalStateException {
+
+    public HorarioNoDisponibleException(String mensaje) {
+        super(mensaje);
+    }
+}
@@ -0,0 +1,293 @@
+package com.clinica.sistema.Servicio;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import com.clinica.sistema.Modelo.HorarioDisponible;
+import com.clinica.sistema.Repositorio.HorarioRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+
+// Indice en memoria de la disponibilidad de horarios: por cada medico y dia guarda un mapa de bits
+// (un bit por hora del catalogo) para responder /api/horarios-disponibles sin consultar MySQL.
+// Se construye al arrancar, se actualiza tras cada commit de crearCita/cancelarCita y se verifica
+// periodicamente contra la base de datos.
+@Component
+public class IndiceDisponibilidad {
+
+    private final Logger logger = LoggerFactory.getLogger(IndiceDisponibilidad.class);
+
+    // Un long por dia admite como maximo 64 horas distintas en el catalogo.
+    private static final int MAX_HORAS_CATALOGO = Long.SIZE;
+
+    private final HorarioRepositorio horarioRepositorio;
+    private final MedicoRepositorio medicoRepositorio;
+
+    // Instantanea vigente; es null mientras el indice no este construido o tras una invalidacion.
+    private volatile Instantanea actual;
+
+    // Cambios aplicados mientras se reconstruye, para reaplicarlos sobre la nueva instantanea.
+    private List<Cambio> cambiosDuranteReconstruccion;
+
+    // Una reconstruccion a la vez: una verificacion programada que coincide con una reconstruccion manual espera a que
+    // termine, en lugar de reemplazar el registro de cambios de la otra y perder los que ya se habian anotado.
+    private final ReentrantLock reconstruccion = new ReentrantLock();
+
+    // Metricas del indice
+    private final AtomicLong aciertos = new AtomicLong();
+    private final AtomicLong fallos = new AtomicLong();
+    private final AtomicLong reconstrucciones = new AtomicLong();
+    private final AtomicLong inconsistencias = new AtomicLong();
+    private volatile long ultimaReconstruccionMs = -1;
+
+    public IndiceDisponibilidad(HorarioRepositorio horarioRepositorio, MedicoRepositorio medicoRepositorio) {
+        this.horarioRepositorio = horarioRepositorio;
+        this.medicoRepositorio = medicoRepositorio;
+    }
+
+    // Construye el indice una vez que la aplicacion (y la carga de datos inicial) esta lista.
+    @EventListener(ApplicationReadyEvent.class)
+    public void construirAlIniciar() {
+        reconstruir();
+    }
+
+    // Reconstruye el indice a partir de la base de datos (por ejemplo, tras una carga masiva de horarios).
+    public void reconstruir() {
+        reconstruccion.lock();
+        try {
+            construirYPublicar();
+        } finally {
+            reconstruccion.unlock();
+        }
+    }
+
+    // Devuelve los horarios libres del medico en la fecha, o vacio si el indice no puede responder
+    // (no construido o medico desconocido) y hay que consultar la base de datos.
+    public Optional<List<HorarioDisponible>> consultar(Long idMedico, LocalDate fecha) {
+        Instantanea instantanea = actual;
+        if (instantanea == null || !instantanea.medicos.contains(idMedico)) {
+            fallos.incrementAndGet();
+            return Optional.empty();
+        }
+        aciertos.incrementAndGet();
+
+        long mascara = instantanea.mascara(idMedico, fecha);
+        List<HorarioDisponible> horarios = new ArrayList<>(Long.bitCount(mascara));
+        while (mascara != 0) {
+            int posicion = Long.numberOfTrailingZeros(mascara);
+            horarios.add(new HorarioDisponible(idMedico, fecha, instantanea.horas[posicion]));
+            mascara &= mascara - 1;
+        }
+        return Optional.of(horarios);
+    }
+
+    // Marca el horario como ocupado cuando la transaccion actual confirme (o de inmediato si no hay transaccion).
+    public void ocuparTrasConfirmar(Long idMedico, LocalDate fecha, LocalTime hora) {
+        trasConfirmar(new Cambio(idMedico, fecha, hora, false));
+    }
+
+    // Marca el horario como disponible cuando la transaccion actual confirme (o de inmediato si no hay transaccion).
+    public void liberarTrasConfirmar(Long idMedico, LocalDate fecha, LocalTime hora) {
+        trasConfirmar(new Cambio(idMedico, fecha, hora, true));
+    }
+
+    // Compara el indice con la base de datos; si difieren, registra la inconsistencia y reemplaza el indice.
+    @Scheduled(initialDelayString = "${clinica.indice-disponibilidad.verificacion-ms:600000}",
+               fixedDelayString = "${clinica.indice-disponibilidad.verificacion-ms:600000}")
+    public void verificarConsistencia() {
+        reconstruccion.lock();
+        try {
+            Instantanea anterior = actual;
+            Instantanea nueva = construirYPublicar();
+            if (anterior != null && nueva != null && !anterior.mismoContenido(nueva)) {
+                inconsistencias.incrementAndGet();
+                logger.warn("Indice de disponibilidad inconsistente con la base de datos; se reemplazo por una version reconstruida.");
+            }
+        } finally {
+            reconstruccion.unlock();
+        }
+        logger.info("Indice de disponibilidad: aciertos {}, fallos {}, tasa de acierto {}%, reconstrucciones {}, ultima reconstruccion {} ms, inconsistencias {}.",
+                aciertos.get(), fallos.get(), String.format("%.1f", getTasaAcierto() * 100), reconstrucciones.get(), ultimaReconstruccionMs, inconsistencias.get());
+    }
+
+    // Lee todos los horarios libres y sustituye la instantanea vigente. Devuelve la nueva instantanea o null si no se pudo construir.
+    // Se llama con el lock 'reconstruccion' tomado.
+    private Instantanea construirYPublicar() {
+        long inicio = System.nanoTime();
+        synchronized (this) {
+            cambiosDuranteReconstruccion = new ArrayList<>();
+        }
+
+        Instantanea nueva = null;
+        try {
+            nueva = construirDesdeBaseDeDatos();
+        } finally {
+            synchronized (this) {
+                // Reaplica en orden los cambios confirmados mientras se leia la base de datos.
+                if (nueva != null) {
+                    for (Cambio cambio : cambiosDuranteReconstruccion) {
+                        if (!nueva.aplicar(cambio.idMedico(), cambio.fecha(), cambio.hora(), cambio.disponible())) {
+                            nueva = null;
+                            break;
+                        }
+                    }
+                }
+                cambiosDuranteReconstruccion = null;
+                actual = nueva;
+            }
+        }
+
+        ultimaReconstruccionMs = (System.nanoTime() - inicio) / 1_000_000;
+        reconstrucciones.incrementAndGet();
+        logger.info("Indice de disponibilidad reconstruido en {} ms.", ultimaReconstruccionMs);
+        return nueva;
+    }
+
+    private Instantanea construirDesdeBaseDeDatos() {
+        List<HorarioDisponible> disponibles = horarioRepositorio.findTodosLosDisponibles();
+        Set<Long> medicos = new HashSet<>(medicoRepositorio.findTodosLosIds());
+
+        // El catalogo incluye todas las horas existentes (libres u ocupadas) para que sea estable entre reconstrucciones.
+        TreeSet<LocalTime> catalogo = new TreeSet<>(horarioRepositorio.findHorasDistintas());
+        if (catalogo.size() > MAX_HORAS_CATALOGO) {
+            logger.warn("El catalogo de horas ({}) excede el maximo indexable ({}). Se consultara la base de datos directamente.", catalogo.size(), MAX_HORAS_CATALOGO);
+            return null;
+        }
+
+        Instantanea nueva = new Instantanea(catalogo.toArray(new LocalTime[0]), medicos);
+        for (HorarioDisponible horario : disponibles) {
+            nueva.aplicar(horario.idMedico(), horario.fecha(), horario.hora(), true);
+        }
+        return nueva;
+    }
+
+    public long getAciertos() {
+        return aciertos.get();
+    }
+
+    public long getFallos() {
+        return fallos.get();
+    }
+
+    public double getTasaAcierto() {
+        long total = aciertos.get() + fallos.get();
+        return total == 0 ? 0.0 : (double) aciertos.get() / total;
+    }
+
+    public long getReconstrucciones() {
+        return reconstrucciones.get();
+    }
+
+    public long getInconsistencias() {
+        return inconsistencias.get();
+    }
+
+    public long getUltimaReconstruccionMs() {
+        return ultimaReconstruccionMs;
+    }
+
+    private void trasConfirmar(Cambio cambio) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    aplicar(cambio);
+                }
+            });
+        } else {
+            aplicar(cambio);
+        }
+    }
+
+    private synchronized void aplicar(Cambio cambio) {
+        if (cambiosDuranteReconstruccion != null) {
+            cambiosDuranteReconstruccion.add(cambio);
+        }
+        Instantanea instantanea = actual;
+        if (instantanea != null && !instantanea.aplicar(cambio.idMedico(), cambio.fecha(), cambio.hora(), cambio.disponible())) {
+            // Hora fuera del catalogo: el indice deja de responder hasta la proxima reconstruccion.
+            logger.warn("La hora {} no pertenece al catalogo del indice de disponibilidad. Se invalida el indice hasta la proxima verificacion.", cambio.hora());
+            actual = null;
+        }
+    }
+
+    private record Cambio(Long idMedico, LocalDate fecha, LocalTime hora, boolean disponible) {
+    }
+
+    // Contenido inmutable en estructura (catalogo y medicos) con mapas de bits mutables por medico y dia.
+    private static final class Instantanea {
+
+        private final LocalTime[] horas;
+        private final Set<Long> medicos;
+        private final Map<Long, Map<LocalDate, AtomicLong>> bits = new ConcurrentHashMap<>();
+
+        Instantanea(LocalTime[] horas, Set<Long> medicos) {
+            this.horas = horas;
+            this.medicos = medicos;
+        }
+
+        long mascara(Long idMedico, LocalDate fecha) {
+            Map<LocalDate, AtomicLong> dias = bits.get(idMedico);
+            if (dias == null) {
+                return 0L;
+            }
+            AtomicLong mascara = dias.get(fecha);
+            return mascara == null ? 0L : mascara.get();
+        }
+
+        // Devuelve false si la hora no pertenece al catalogo.
+        boolean aplicar(Long idMedico, LocalDate fecha, LocalTime hora, boolean disponible) {
+            int posicion = Arrays.binarySearch(horas, hora);
+            if (posicion < 0) {
+                return !disponible;
+            }
+            long bit = 1L << posicion;
+            AtomicLong mascara = bits
+                    .computeIfAbsent(idMedico, id -> new ConcurrentHashMap<>())
+                    .computeIfAbsent(fecha, f -> new AtomicLong());
+            if (disponible) {
+                mascara.getAndUpdate(valor -> valor | bit);
+            } else {
+                mascara.getAndUpdate(valor -> valor & ~bit);
+            }
+            return true;
+        }
+
+        boolean mismoContenido(Instantanea otra) {
+            if (!Arrays.equals(horas, otra.horas) || !medicos.equals(otra.medicos)) {
+                return false;
+            }
+            Set<Long> todosLosMedicos = new HashSet<>(bits.keySet());
+            todosLosMedicos.addAll(otra.bits.keySet());
+            for (Long idMedico : todosLosMedicos) {
+                Set<LocalDate> fechas = new HashSet<>(bits.getOrDefault(idMedico, Map.of()).keySet());
+                fechas.addAll(otra.bits.getOrDefault(idMedico, Map.of()).keySet());
+                for (LocalDate fecha : fechas) {
+                    if (mascara(idMedico, fecha) != otra.mascara(idMedico, fecha)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+    }
+}
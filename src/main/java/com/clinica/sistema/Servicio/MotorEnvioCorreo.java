@@ -0,0 +1,198 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+import org.springframework.mail.javamail.MimeMailMessage;
+import org.springframework.stereotype.Component;
+
+import com.google.common.util.concurrent.RateLimiter;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.mail.MessagingException;
+import jakarta.mail.Transport;
+import jakarta.mail.internet.MimeMessage;
+
+// Motor de envio SMTP: mantiene un pequeño pool de conexiones autenticadas abiertas, envia varios mensajes
+// por conexion y limita el ritmo de envio al permitido por el proveedor.
+// Si el JavaMailSender no es un JavaMailSenderImpl (por ejemplo, en pruebas), delega en el envio estandar.
+@Component
+public class MotorEnvioCorreo {
+
+    private final Logger logger = LoggerFactory.getLogger(MotorEnvioCorreo.class);
+
+    private final JavaMailSender mailSender;
+    private final JavaMailSenderImpl senderSmtp;
+    private final int tamanoPool;
+    private final long esperaConexionMs;
+    private final RateLimiter limitador;
+
+    // Conexiones abiertas y libres; los permisos limitan el total de conexiones (libres + prestadas).
+    private final BlockingQueue<Transport> conexionesLibres;
+    private final Semaphore permisos;
+
+    public MotorEnvioCorreo(JavaMailSender mailSender,
+                            @Value("${clinica.correo.pool.tamano:3}") int tamanoPool,
+                            @Value("${clinica.correo.mensajes-por-segundo:5}") double mensajesPorSegundo,
+                            @Value("${clinica.correo.pool.espera-conexion-ms:10000}") long esperaConexionMs) {
+        this.mailSender = mailSender;
+        this.senderSmtp = mailSender instanceof JavaMailSenderImpl impl ? impl : null;
+        this.tamanoPool = tamanoPool;
+        this.esperaConexionMs = esperaConexionMs;
+        this.limitador = mensajesPorSegundo > 0 ? RateLimiter.create(mensajesPorSegundo) : null;
+        this.conexionesLibres = new ArrayBlockingQueue<>(tamanoPool);
+        this.permisos = new Semaphore(tamanoPool, true);
+    }
+
+    // Resultado de un mensaje dentro de un lote; error es null si el envio fue exitoso.
+    public record ResultadoEnvio(boolean exitoso, String error) {
+    }
+
+    // Envia los mensajes reutilizando una sola conexion del pool. Devuelve un resultado por mensaje, en el mismo orden.
+    public List<ResultadoEnvio> enviarLote(List<SimpleMailMessage> mensajes) {
+        List<ResultadoEnvio> resultados = new ArrayList<>(mensajes.size());
+        if (senderSmtp == null) {
+            for (SimpleMailMessage mensaje : mensajes) {
+                adquirirCupoDeEnvio();
+                resultados.add(enviarSinPool(mensaje));
+            }
+            return resultados;
+        }
+
+        if (!tomarPermiso()) {
+            while (resultados.size() < mensajes.size()) {
+                resultados.add(new ResultadoEnvio(false, "Tiempo de espera agotado para obtener una conexion SMTP del pool."));
+            }
+            return resultados;
+        }
+
+        Transport conexion = null;
+        try {
+            conexion = prestarConexion();
+            for (SimpleMailMessage mensaje : mensajes) {
+                adquirirCupoDeEnvio();
+                if (!conexion.isConnected()) {
+                    // El servidor cerro la conexion a mitad del lote; se reemplaza y se continua.
+                    cerrarSilenciosamente(conexion);
+                    conexion = abrirConexion();
+                }
+                resultados.add(enviarPorConexion(conexion, mensaje));
+            }
+        } catch (MessagingException e) {
+            logger.error("No se pudo obtener una conexion SMTP del pool: {}", e.getMessage());
+            cerrarSilenciosamente(conexion);
+            conexion = null;
+            while (resultados.size() < mensajes.size()) {
+                resultados.add(new ResultadoEnvio(false, "Conexion SMTP no disponible: " + e.getMessage()));
+            }
+        } finally {
+            if (conexion != null) {
+                devolverConexion(conexion);
+            } else {
+                permisos.release();
+            }
+        }
+        return resultados;
+    }
+
+    private ResultadoEnvio enviarSinPool(SimpleMailMessage mensaje) {
+        try {
+            mailSender.send(mensaje);
+            return new ResultadoEnvio(true, null);
+        } catch (RuntimeException e) {
+            return new ResultadoEnvio(false, e.getMessage());
+        }
+    }
+
+    private ResultadoEnvio enviarPorConexion(Transport conexion, SimpleMailMessage mensaje) {
+        try {
+            MimeMessage mime = senderSmtp.createMimeMessage();
+            mensaje.copyTo(new MimeMailMessage(mime));
+            mime.saveChanges();
+            conexion.sendMessage(mime, mime.getAllRecipients());
+            return new ResultadoEnvio(true, null);
+        } catch (MessagingException | RuntimeException e) {
+            logger.warn("Fallo el envio SMTP a {}: {}", Arrays.toString(mensaje.getTo()), e.getMessage());
+            return new ResultadoEnvio(false, e.getMessage());
+        }
+    }
+
+    private void adquirirCupoDeEnvio() {
+        if (limitador != null) {
+            limitador.acquire();
+        }
+    }
+
+    private boolean tomarPermiso() {
+        try {
+            return permisos.tryAcquire(esperaConexionMs, TimeUnit.MILLISECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    // Toma una conexion libre o abre una nueva. Requiere haber tomado un permiso del pool.
+    private Transport prestarConexion() throws MessagingException {
+        Transport conexion = conexionesLibres.poll();
+        if (conexion != null && conexion.isConnected()) {
+            return conexion;
+        }
+        cerrarSilenciosamente(conexion);
+        return abrirConexion();
+    }
+
+    private void devolverConexion(Transport conexion) {
+        if (!conexionesLibres.offer(conexion)) {
+            cerrarSilenciosamente(conexion);
+        }
+        permisos.release();
+    }
+
+    private Transport abrirConexion() throws MessagingException {
+        Transport conexion = senderSmtp.getSession().getTransport(senderSmtp.getProtocol());
+        String usuario = senderSmtp.getUsername() != null && !senderSmtp.getUsername().isBlank() ? senderSmtp.getUsername() : null;
+        String contrasena = usuario != null ? senderSmtp.getPassword() : null;
+        conexion.connect(senderSmtp.getHost(), senderSmtp.getPort(), usuario, contrasena);
+        logger.debug("Nueva conexion SMTP abierta con {}:{}.", senderSmtp.getHost(), senderSmtp.getPort());
+        return conexion;
+    }
+
+    private void cerrarSilenciosamente(Transport conexion) {
+        if (conexion == null) {
+            return;
+        }
+        try {
+            conexion.close();
+        } catch (MessagingException e) {
+            logger.debug("Error al cerrar una conexion SMTP: {}", e.getMessage());
+        }
+    }
+
+    public int getTamanoPool() {
+        return tamanoPool;
+    }
+
+    public int getConexionesLibres() {
+        return conexionesLibres.size();
+    }
+
+    @PreDestroy
+    public void cerrar() {
+        Transport conexion;
+        while ((conexion = conexionesLibres.poll()) != null) {
+            cerrarSilenciosamente(conexion);
+        }
+    }
+}
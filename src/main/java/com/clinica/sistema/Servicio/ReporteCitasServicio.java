@@ -0,0 +1,181 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskRejectedException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.clinica.sistema.Modelo.FilaReporteCita;
+import com.clinica.sistema.Modelo.TrabajoReporte;
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+
+import jakarta.annotation.PreDestroy;
+
+// Reportes generales de citas (por especialidad, medico y rango de fechas) generados en segundo plano.
+// Las filas se leen con un cursor de la base de datos y se escriben a un archivo temporal, de modo que ni el heap
+// ni el hilo de la peticion dependen del tamano del reporte. El pool de reportes limita cuantos se generan a la vez.
+@Service
+public class ReporteCitasServicio {
+
+    private final Logger logger = LoggerFactory.getLogger(ReporteCitasServicio.class);
+
+    private final CitaRepositorio citaRepositorio;
+    private final ExportacionExcelServicio exportacionExcelServicio;
+    private final ThreadPoolTaskExecutor ejecutor;
+    private final TransactionTemplate transaccionLectura;
+
+    private final Map<String, TrabajoReporte> trabajos = new ConcurrentHashMap<>();
+
+    @Value("${clinica.reportes.max-dias:366}")
+    private long maxDias;
+
+    @Value("${clinica.reportes.retencion-ms:3600000}")
+    private long retencionMs;
+
+    public ReporteCitasServicio(CitaRepositorio citaRepositorio,
+                                ExportacionExcelServicio exportacionExcelServicio,
+                                @Qualifier("ejecutorReportes") ThreadPoolTaskExecutor ejecutor,
+                                PlatformTransactionManager transactionManager) {
+        this.citaRepositorio = citaRepositorio;
+        this.exportacionExcelServicio = exportacionExcelServicio;
+        this.ejecutor = ejecutor;
+        this.transaccionLectura = new TransactionTemplate(transactionManager);
+        this.transaccionLectura.setReadOnly(true);
+    }
+
+    // Registra el reporte y lo encola; lanza IllegalStateException si ya hay demasiados reportes en cola.
+    public TrabajoReporte solicitarReporte(String solicitante, String formato, LocalDate desde, LocalDate hasta,
+                                           Long idEspecialidad, Long idMedico) {
+        if (!TrabajoReporte.FORMATO_XLSX.equals(formato) && !TrabajoReporte.FORMATO_CSV.equals(formato)) {
+            throw new IllegalArgumentException("Formato de reporte no soportado: " + formato);
+        }
+        if (desde == null || hasta == null || hasta.isBefore(desde)) {
+            throw new IllegalArgumentException("El rango de fechas del reporte no es valido.");
+        }
+        if (desde.plusDays(maxDias).isBefore(hasta)) {
+            throw new IllegalArgumentException("El rango de fechas no puede superar " + maxDias + " dias.");
+        }
+
+        TrabajoReporte trabajo = new TrabajoReporte(UUID.randomUUID().toString(), solicitante, formato, desde, hasta, idEspecialidad, idMedico);
+        trabajos.put(trabajo.getId(), trabajo);
+        try {
+            ejecutor.execute(() -> generar(trabajo));
+        } catch (TaskRejectedException e) {
+            trabajos.remove(trabajo.getId());
+            logger.warn("Reporte rechazado para {}: la cola de reportes esta llena.", solicitante);
+            throw new IllegalStateException("Hay demasiados reportes en proceso. Intentalo nuevamente en unos minutos.");
+        }
+        logger.info("Reporte {} encolado por {}: formato {}, desde {} hasta {}, especialidad {}, medico {}.",
+                trabajo.getId(), solicitante, formato, desde, hasta, idEspecialidad, idMedico);
+        return trabajo;
+    }
+
+    // Solo el administrador que lo solicito puede consultar o descargar su reporte.
+    public Optional<TrabajoReporte> obtenerTrabajo(String id, String solicitante) {
+        return Optional.ofNullable(trabajos.get(id))
+                .filter(trabajo -> trabajo.getSolicitante().equals(solicitante));
+    }
+
+    public List<TrabajoReporte> obtenerTrabajos(String solicitante) {
+        return trabajos.values().stream()
+                .filter(trabajo -> trabajo.getSolicitante().equals(solicitante))
+                .sorted(Comparator.comparing(TrabajoReporte::getCreadoEn).reversed())
+                .toList();
+    }
+
+    private void generar(TrabajoReporte trabajo) {
+        long inicio = System.nanoTime();
+        trabajo.setEstado(TrabajoReporte.ESTADO_EN_PROCESO);
+        Path archivo = null;
+        try {
+            archivo = Files.createTempFile("reporte-citas-" + trabajo.getId(), "." + trabajo.getFormato());
+            // Se registra desde que existe para que la limpieza al detener la aplicacion lo encuentre aunque no haya terminado.
+            trabajo.setArchivo(archivo);
+            Path destino = archivo;
+            int filas = transaccionLectura.execute(estado -> escribirReporte(trabajo, destino));
+
+            trabajo.setEstado(TrabajoReporte.ESTADO_COMPLETADO);
+            logger.info("Reporte {} completado: {} filas en {} ms ({} bytes).",
+                    trabajo.getId(), filas, (System.nanoTime() - inicio) / 1_000_000, Files.size(archivo));
+        } catch (IOException | RuntimeException e) {
+            trabajo.setEstado(TrabajoReporte.ESTADO_FALLIDO);
+            trabajo.setError(e.getMessage());
+            trabajo.setArchivo(null);
+            eliminarArchivo(archivo);
+            logger.error("Error al generar el reporte {}: {}", trabajo.getId(), e.getMessage(), e);
+        } finally {
+            trabajo.setFinalizadoEn(LocalDateTime.now());
+        }
+    }
+
+    private int escribirReporte(TrabajoReporte trabajo, Path archivo) {
+        trabajo.setFilasTotales(citaRepositorio.contarFilasReporte(
+                trabajo.getDesde(), trabajo.getHasta(), trabajo.getIdEspecialidad(), trabajo.getIdMedico()));
+
+        try (Stream<FilaReporteCita> filas = citaRepositorio.streamFilasReporte(
+                     trabajo.getDesde(), trabajo.getHasta(), trabajo.getIdEspecialidad(), trabajo.getIdMedico());
+             OutputStream salida = Files.newOutputStream(archivo)) {
+            Stream<FilaReporteCita> conProgreso = filas.peek(fila -> trabajo.registrarFila());
+            if (TrabajoReporte.FORMATO_CSV.equals(trabajo.getFormato())) {
+                return exportacionExcelServicio.escribirFilasCsv(conProgreso.iterator(), salida);
+            }
+            return exportacionExcelServicio.escribirFilas("Citas " + trabajo.getDesde() + " a " + trabajo.getHasta(),
+                    conProgreso.iterator(), salida);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    // Elimina los reportes (y sus archivos) que superaron el tiempo de retencion.
+    @Scheduled(fixedDelayString = "${clinica.reportes.limpieza-ms:600000}")
+    public void eliminarReportesVencidos() {
+        LocalDateTime limite = LocalDateTime.now().minusNanos(retencionMs * 1_000_000);
+        trabajos.values().removeIf(trabajo -> {
+            if (trabajo.getFinalizadoEn() == null || trabajo.getFinalizadoEn().isAfter(limite)) {
+                return false;
+            }
+            eliminarArchivo(trabajo.getArchivo());
+            logger.debug("Reporte {} eliminado tras superar el tiempo de retencion.", trabajo.getId());
+            return true;
+        });
+    }
+
+    // Los reportes solo viven en memoria: al detener la aplicacion sus archivos temporales ya no se pueden descargar.
+    @PreDestroy
+    public void eliminarArchivosPendientes() {
+        trabajos.values().forEach(trabajo -> eliminarArchivo(trabajo.getArchivo()));
+        trabajos.clear();
+    }
+
+    private void eliminarArchivo(Path archivo) {
+        if (archivo == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(archivo);
+        } catch (IOException e) {
+            logger.warn("No se pudo eliminar el archivo temporal {}: {}", archivo, e.getMessage());
+        }
+    }
+}
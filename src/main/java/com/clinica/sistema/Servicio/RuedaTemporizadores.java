@@ -0,0 +1,178 @@
+package com.clinica.sistema.Servicio;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+// Rueda de temporizadores con hash (estilo HashedWheelTimer): 'ranuras' listas recorridas por un unico hilo,
+// una por tick. Programar y cancelar son O(1) y no toman locks; el hilo de la rueda pasa las tareas nuevas
+// a su ranura al inicio de cada tick y ejecuta las vencidas. Una tarea nunca se ejecuta antes de su plazo
+// y como mucho un tick despues (mas lo que tarden las tareas anteriores del mismo tick), por lo que las acciones
+// deben ser cortas. Miles de temporizadores pendientes no cuestan mas que su memoria.
+public class RuedaTemporizadores {
+
+    private static final Logger logger = LoggerFactory.getLogger(RuedaTemporizadores.class);
+
+    private final long tickNanos;
+    private final List<Tarea>[] ranuras;
+    private final int mascara;
+    private final Queue<Tarea> nuevas = new ConcurrentLinkedQueue<>();
+    private final Thread hilo;
+    private final long inicioNanos;
+    private volatile boolean activa = true;
+
+    private final LongAdder ejecutadas = new LongAdder();
+    private final LongAdder retrasoTotalNanos = new LongAdder();
+    private final AtomicLong retrasoMaximoNanos = new AtomicLong();
+    private final AtomicLong pendientes = new AtomicLong();
+
+    @SuppressWarnings("unchecked")
+    public RuedaTemporizadores(String nombre, long tickMs, int ranuras) {
+        if (tickMs <= 0 || ranuras <= 0) {
+            throw new IllegalArgumentException("El tick y el numero de ranuras de la rueda deben ser positivos.");
+        }
+        int tamano = Integer.highestOneBit(ranuras) == ranuras ? ranuras : Integer.highestOneBit(ranuras) << 1;
+        this.tickNanos = TimeUnit.MILLISECONDS.toNanos(tickMs);
+        this.ranuras = new List[tamano];
+        for (int i = 0; i < tamano; i++) {
+            this.ranuras[i] = new ArrayList<>();
+        }
+        this.mascara = tamano - 1;
+        this.inicioNanos = System.nanoTime();
+        this.hilo = new Thread(this::girar, nombre);
+        this.hilo.setDaemon(true);
+        this.hilo.start();
+    }
+
+    // Ejecuta 'accion' en el hilo de la rueda cuando pasen 'retrasoMs' milisegundos.
+    public Tarea programar(Runnable accion, long retrasoMs) {
+        if (!activa) {
+            throw new IllegalStateException("La rueda de temporizadores esta detenida.");
+        }
+        Tarea tarea = new Tarea(accion, System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(Math.max(0, retrasoMs)));
+        pendientes.incrementAndGet();
+        nuevas.add(tarea);
+        return tarea;
+    }
+
+    public void detener() {
+        activa = false;
+        LockSupport.unpark(hilo);
+        try {
+            hilo.join(TimeUnit.NANOSECONDS.toMillis(tickNanos) * 10 + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void girar() {
+        long tick = 0;
+        while (activa) {
+            // Fin del tick actual: las tareas con plazo anterior a este instante vencen en este tick.
+            long finTick = inicioNanos + (tick + 1) * tickNanos;
+            long espera;
+            while (activa && (espera = finTick - System.nanoTime()) > 0) {
+                LockSupport.parkNanos(this, espera);
+            }
+            if (!activa) {
+                break;
+            }
+            transferirNuevas(tick);
+            ejecutarVencidas(ranuras[(int) (tick & mascara)], finTick);
+            tick++;
+        }
+    }
+
+    private void transferirNuevas(long tick) {
+        // Se limita por tick para que una rafaga de programaciones no retrase los vencimientos.
+        for (int i = 0; i < 100_000; i++) {
+            Tarea tarea = nuevas.poll();
+            if (tarea == null) {
+                return;
+            }
+            if (tarea.cancelada.get()) {
+                continue;
+            }
+            long tickPlazo = (tarea.plazoNanos - inicioNanos) / tickNanos;
+            tarea.vueltas = (tickPlazo - tick) / ranuras.length;
+            ranuras[(int) (Math.max(tickPlazo, tick) & mascara)].add(tarea);
+        }
+    }
+
+    private void ejecutarVencidas(List<Tarea> ranura, long finTick) {
+        int conservadas = 0;
+        for (int i = 0; i < ranura.size(); i++) {
+            Tarea tarea = ranura.get(i);
+            if (tarea.cancelada.get()) {
+                continue;
+            }
+            if (tarea.vueltas > 0 || tarea.plazoNanos >= finTick) {
+                tarea.vueltas--;
+                ranura.set(conservadas++, tarea);
+                continue;
+            }
+            if (!tarea.cancelada.compareAndSet(false, true)) {
+                continue;
+            }
+            pendientes.decrementAndGet();
+            long retraso = Math.max(0, System.nanoTime() - tarea.plazoNanos);
+            ejecutadas.increment();
+            retrasoTotalNanos.add(retraso);
+            retrasoMaximoNanos.accumulateAndGet(retraso, Math::max);
+            try {
+                tarea.accion.run();
+            } catch (RuntimeException e) {
+                logger.error("Error en un temporizador de la rueda {}: {}", hilo.getName(), e.getMessage(), e);
+            }
+        }
+        ranura.subList(conservadas, ranura.size()).clear();
+    }
+
+    public long getPendientes() {
+        return pendientes.get();
+    }
+
+    public long getEjecutadas() {
+        return ejecutadas.sum();
+    }
+
+    public double getRetrasoMedioMs() {
+        long total = ejecutadas.sum();
+        return total == 0 ? 0 : retrasoTotalNanos.sum() / 1e6 / total;
+    }
+
+    public double getRetrasoMaximoMs() {
+        return retrasoMaximoNanos.get() / 1e6;
+    }
+
+    // Temporizador programado; 'cancelar' es seguro desde cualquier hilo y devuelve false si ya se ejecuto.
+    public final class Tarea {
+
+        private final Runnable accion;
+        private final long plazoNanos;
+        private final AtomicBoolean cancelada = new AtomicBoolean();
+        private long vueltas;
+
+        private Tarea(Runnable accion, long plazoNanos) {
+            this.accion = accion;
+            this.plazoNanos = plazoNanos;
+        }
+
+        public boolean cancelar() {
+            if (cancelada.compareAndSet(false, true)) {
+                pendientes.decrementAndGet();
+                return true;
+            }
+            return false;
+        }
+    }
+}
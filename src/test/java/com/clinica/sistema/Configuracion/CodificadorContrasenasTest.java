@@ -0,0 +1,168 @@
+package com.clinica.sistema.Configuracion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.userdetails.User;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.clinica.sistema.Servicio.ContrasenasSaturadasException;
+
+// Comprueba el rehash transparente al iniciar sesion cuando sube el costo de BCrypt
+// y el rechazo inmediato cuando el pool de hashing y su cola estan llenos.
+@SpringBootTest(properties = "clinica.contrasenas.costo=5")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class CodificadorContrasenasTest {
+
+    private static final String CONTRASENA = "rehash12345";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void unLoginCorrectoRecodificaLaContrasenaConElCostoVigente() throws Exception {
+        String correo = "rehash." + System.nanoTime() + "@clinica.com";
+        String dni = String.format("%08d", System.nanoTime() % 100_000_000L);
+        pacienteRepositorio.save(new Paciente(null, "Rehash", "Prueba", dni, "987654321", correo,
+                new BCryptPasswordEncoder(4).encode(CONTRASENA), new ArrayList<>()));
+
+        mockMvc.perform(formLogin("/login").userParameter("correo").passwordParam("contraseña").user(correo).password(CONTRASENA))
+                .andExpect(redirectedUrl("/"));
+
+        String hash = pacienteRepositorio.findByCorreo(correo).orElseThrow().getContraseña();
+        assertTrue(hash.startsWith("$2a$05$"), () -> "El hash no se recodifico con costo 5: " + hash);
+        assertTrue(new BCryptPasswordEncoder().matches(CONTRASENA, hash));
+
+        // El hash nuevo sigue sirviendo para iniciar sesion y ya no se recodifica.
+        mockMvc.perform(formLogin("/login").userParameter("correo").passwordParam("contraseña").user(correo).password(CONTRASENA))
+                .andExpect(redirectedUrl("/"));
+        assertEquals(hash, pacienteRepositorio.findByCorreo(correo).orElseThrow().getContraseña());
+    }
+
+    // La cola puede llenarse entre upgradeEncoding y el encode del rehash: el login sigue y se conserva el hash anterior.
+    @Test
+    void siElRehashEsRechazadoElLoginSigueConElHashAnterior() {
+        String hashAnterior = "hash-anterior";
+        List<String> actualizaciones = new ArrayList<>();
+        PasswordEncoder saturado = new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence contrasena) {
+                if (CONTRASENA.contentEquals(contrasena)) {
+                    throw new ContrasenasSaturadasException("Pool saturado");
+                }
+                return "hash-" + contrasena;
+            }
+
+            @Override
+            public boolean matches(CharSequence contrasena, String codificada) {
+                return CONTRASENA.contentEquals(contrasena) && hashAnterior.equals(codificada);
+            }
+
+            @Override
+            public boolean upgradeEncoding(String codificada) {
+                return true;
+            }
+        };
+        ProveedorAutenticacionContrasenas proveedor = new ProveedorAutenticacionContrasenas(
+                correo -> User.withUsername(correo).password(hashAnterior).build(),
+                saturado,
+                (usuario, nuevaContrasena) -> {
+                    actualizaciones.add(nuevaContrasena);
+                    return usuario;
+                });
+
+        Authentication autenticacion = proveedor.authenticate(
+                UsernamePasswordAuthenticationToken.unauthenticated("saturado@clinica.com", CONTRASENA));
+
+        assertTrue(autenticacion.isAuthenticated());
+        assertEquals(hashAnterior, ((UserDetails) autenticacion.getPrincipal()).getPassword());
+        assertTrue(actualizaciones.isEmpty(), "Sin hash nuevo no se debe actualizar la contrasena guardada.");
+    }
+
+    @Test
+    void conElPoolLlenoSeRechazaDeInmediato() throws Exception {
+        ThreadPoolTaskExecutor ejecutor = new ThreadPoolTaskExecutor();
+        ejecutor.setCorePoolSize(1);
+        ejecutor.setMaxPoolSize(1);
+        ejecutor.setQueueCapacity(1);
+        ejecutor.initialize();
+        CountDownLatch enCurso = new CountDownLatch(1);
+        CountDownLatch liberar = new CountDownLatch(1);
+        CodificadorContrasenasAcotado codificador = new CodificadorContrasenasAcotado(new PasswordEncoder() {
+            @Override
+            public String encode(CharSequence contrasena) {
+                return contrasena.toString();
+            }
+
+            @Override
+            public boolean matches(CharSequence contrasena, String codificada) {
+                enCurso.countDown();
+                try {
+                    return liberar.await(10, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    return false;
+                }
+            }
+
+            @Override
+            public boolean upgradeEncoding(String codificada) {
+                return true;
+            }
+        }, ejecutor);
+
+        try {
+            // Una verificacion ocupa el unico hilo y otra la unica plaza de la cola.
+            List<CompletableFuture<Boolean>> enEspera = new ArrayList<>();
+            enEspera.add(CompletableFuture.supplyAsync(() -> codificador.matches("a", "a")));
+            assertTrue(enCurso.await(10, TimeUnit.SECONDS));
+            enEspera.add(CompletableFuture.supplyAsync(() -> codificador.matches("b", "b")));
+            while (ejecutor.getThreadPoolExecutor().getQueue().remainingCapacity() > 0) {
+                Thread.onSpinWait();
+            }
+
+            assertThrows(ContrasenasSaturadasException.class, () -> codificador.encode("c"));
+            assertFalse(codificador.upgradeEncoding("x"), "Con la cola llena el rehash debe posponerse.");
+            assertEquals(1, codificador.getRechazos());
+
+            liberar.countDown();
+            for (CompletableFuture<Boolean> verificacion : enEspera) {
+                assertTrue(verificacion.get(10, TimeUnit.SECONDS));
+            }
+        } finally {
+            liberar.countDown();
+            ejecutor.shutdown();
+        }
+    }
+}
@@ -0,0 +1,227 @@
+package com.clinica.sistema.Configuracion;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.clinica.sistema.Servicio.CitaServicio;
+import com.clinica.sistema.Servicio.ContextoPaciente;
+
+import ch.qos.logback.classic.AsyncAppender;
+import ch.qos.logback.classic.Level;
+import ch.qos.logback.classic.Logger;
+import ch.qos.logback.classic.LoggerContext;
+import ch.qos.logback.classic.encoder.PatternLayoutEncoder;
+import ch.qos.logback.classic.spi.ILoggingEvent;
+import ch.qos.logback.core.Appender;
+import ch.qos.logback.core.FileAppender;
+
+// Mide el rendimiento de reservas concurrentes sin logs, con el archivo de log sincrono (configuracion anterior)
+// y con el appender asincrono del perfil 'produccion'. Se ejecuta con: mvn -Pbenchmark test
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class RegistroAsincronoBenchmarkTest {
+
+    private static final int MEDICOS = 20;
+    private static final int DIAS = 100;
+    private static final List<LocalTime> HORAS = List.of(LocalTime.of(8, 0), LocalTime.of(9, 0), LocalTime.of(10, 0),
+            LocalTime.of(11, 0), LocalTime.of(12, 0), LocalTime.of(13, 0), LocalTime.of(14, 0), LocalTime.of(15, 0),
+            LocalTime.of(16, 0), LocalTime.of(17, 0));
+    private static final int HILOS = 8;
+    private static final int RESERVAS_POR_RONDA = 1600;
+    private static final int RONDAS = 3;
+    private static final double SOBRECOSTO_MAXIMO = 0.10;
+
+    private enum Modo { SIN_LOGS, SINCRONO, ASINCRONO }
+
+    private record Hueco(Long idMedico, LocalDate fecha, LocalTime hora) {
+    }
+
+    @Autowired
+    private CitaServicio citaServicio;
+    @Autowired
+    private SembradorHorarios sembradorHorarios;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @TempDir
+    Path directorio;
+
+    @Test
+    void elRegistroAsincronoCuestaPocoEnLasReservas() throws Exception {
+        Queue<Hueco> huecos = prepararHuecos();
+        PacienteAutenticado paciente = PacienteAutenticado.desde(
+                pacienteRepositorio.findByCorreo("chipa.robladillo@gmail.com").orElseThrow(), List.of());
+
+        LoggerContext contexto = (LoggerContext) LoggerFactory.getILoggerFactory();
+        Logger logger = contexto.getLogger("com.clinica.sistema");
+        Level nivelAnterior = logger.getLevel();
+        boolean aditivoAnterior = logger.isAdditive();
+        logger.setAdditive(false);
+
+        Map<Modo, List<Double>> resultados = new EnumMap<>(Modo.class);
+        try {
+            // Calentamiento (JIT, pool de conexiones) descartado.
+            medir(Modo.ASINCRONO, logger, contexto, huecos, paciente);
+            for (int ronda = 0; ronda < RONDAS; ronda++) {
+                for (Modo modo : Modo.values()) {
+                    resultados.computeIfAbsent(modo, m -> new ArrayList<>()).add(medir(modo, logger, contexto, huecos, paciente));
+                }
+            }
+        } finally {
+            logger.setLevel(nivelAnterior);
+            logger.setAdditive(aditivoAnterior);
+        }
+
+        double sinLogs = mediana(resultados.get(Modo.SIN_LOGS));
+        double sincrono = mediana(resultados.get(Modo.SINCRONO));
+        double asincrono = mediana(resultados.get(Modo.ASINCRONO));
+        double sobrecosto = 1 - asincrono / sinLogs;
+        // La prueba mide el propio registro: la medicion va en el mensaje de la asercion, no a la consola.
+        assertTrue(sobrecosto < SOBRECOSTO_MAXIMO, () -> String.format(
+                "El registro asincrono reduce el rendimiento de reservas un %.1f%%. Reservas/s (%d hilos): sin logs %.0f | "
+                        + "log sincrono %.0f (%.1f%%) | log asincrono %.0f (%.1f%%)",
+                sobrecosto * 100, HILOS, sinLogs, sincrono, (1 - sincrono / sinLogs) * 100, asincrono, sobrecosto * 100));
+    }
+
+    private Queue<Hueco> prepararHuecos() {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Registro " + System.nanoTime()));
+        List<Medico> medicos = new ArrayList<>();
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(medicoRepositorio.save(new Medico(null, "Medico" + i, "Registro", especialidad)));
+        }
+        // Rango lejano para no chocar con los horarios de la carga inicial ni con otras pruebas.
+        LocalDate inicio = LocalDate.now().plusYears(10);
+        LocalDate fin = inicio.plusDays(DIAS - 1);
+        sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+
+        Queue<Hueco> huecos = new ConcurrentLinkedQueue<>();
+        for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+            for (LocalTime hora : HORAS) {
+                for (Medico medico : medicos) {
+                    huecos.add(new Hueco(medico.getId(), fecha, hora));
+                }
+            }
+        }
+        return huecos;
+    }
+
+    private double medir(Modo modo, Logger logger, LoggerContext contexto, Queue<Hueco> huecos, PacienteAutenticado paciente) throws Exception {
+        Appender<ILoggingEvent> appender = crearAppender(modo, contexto);
+        if (appender != null) {
+            logger.addAppender(appender);
+        }
+        logger.setLevel(modo == Modo.SIN_LOGS ? Level.OFF : Level.INFO);
+        try {
+            return reservasPorSegundo(huecos, paciente);
+        } finally {
+            if (appender != null) {
+                logger.detachAppender(appender);
+                appender.stop();
+            }
+        }
+    }
+
+    // Mismo formato que el appender FILE de logback-spring.xml.
+    private Appender<ILoggingEvent> crearAppender(Modo modo, LoggerContext contexto) {
+        if (modo == Modo.SIN_LOGS) {
+            return null;
+        }
+        PatternLayoutEncoder encoder = new PatternLayoutEncoder();
+        encoder.setContext(contexto);
+        encoder.setPattern("%d{yyyy-MM-dd HH:mm:ss.SSS} %-5level - %msg%n");
+        encoder.start();
+
+        FileAppender<ILoggingEvent> archivo = new FileAppender<>();
+        archivo.setContext(contexto);
+        archivo.setName("benchmark-archivo-" + modo);
+        archivo.setFile(directorio.resolve(modo + "-" + System.nanoTime() + ".log").toString());
+        archivo.setEncoder(encoder);
+        archivo.start();
+        if (modo == Modo.SINCRONO) {
+            return archivo;
+        }
+
+        AsyncAppender asincrono = new AsyncAppender();
+        asincrono.setContext(contexto);
+        asincrono.setName("benchmark-asincrono");
+        asincrono.setQueueSize(8192);
+        asincrono.addAppender(archivo);
+        asincrono.start();
+        return asincrono;
+    }
+
+    // Cada hilo simula una peticion autenticada: el contexto del paciente (y el MDC) queda establecido como en el filtro.
+    private double reservasPorSegundo(Queue<Hueco> huecos, PacienteAutenticado paciente) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        List<Future<?>> futuros = new ArrayList<>();
+        int porHilo = RESERVAS_POR_RONDA / HILOS;
+        for (int i = 0; i < HILOS; i++) {
+            futuros.add(ejecutor.submit(() -> {
+                salida.await();
+                ContextoPaciente.establecer(paciente);
+                try {
+                    for (int n = 0; n < porHilo; n++) {
+                        Hueco hueco = huecos.remove();
+                        citaServicio.crearCita(hueco.fecha().toString(), hueco.hora().toString(), hueco.idMedico(), paciente.getId());
+                    }
+                } finally {
+                    ContextoPaciente.limpiar();
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(5, TimeUnit.MINUTES);
+        }
+        long duracion = System.nanoTime() - inicio;
+        ejecutor.shutdown();
+        return porHilo * HILOS * 1_000_000_000.0 / duracion;
+    }
+
+    private static double mediana(List<Double> valores) {
+        List<Double> ordenados = valores.stream().sorted().toList();
+        return ordenados.get(ordenados.size() / 2);
+    }
+}
@@ -0,0 +1,108 @@
+package com.clinica.sistema.Configuracion;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Horario;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.HorarioRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+
+// Compara la carga anterior de horarios (consulta + save por fila) con el sembrado por lotes para ~100k horarios,
+// y comprueba que volver a sembrar no inserta duplicados. Se ejecuta con: mvn -Pbenchmark test
+@SpringBootTest
+@ActiveProfiles("test")
+@Tag("benchmark")
+class SembradorHorariosBenchmarkTest {
+
+    private static final int MEDICOS = 100;
+    private static final int DIAS = 334;
+    private static final List<LocalTime> HORAS = List.of(LocalTime.of(9, 0), LocalTime.of(11, 0), LocalTime.of(15, 0));
+
+    @Autowired
+    private SembradorHorarios sembradorHorarios;
+    @Autowired
+    private HorarioRepositorio horarioRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void elSembradoPorLotesEsMasRapidoEIdempotente() {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Sembrado " + System.nanoTime()));
+        List<Medico> medicos = new ArrayList<>();
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(medicoRepositorio.save(new Medico(null, "Medico" + i, "Sembrado", especialidad)));
+        }
+        // Rango lejano para no chocar con los horarios de la carga inicial.
+        LocalDate inicio = LocalDate.now().plusYears(5);
+        LocalDate fin = inicio.plusDays(DIAS - 1);
+        int esperados = MEDICOS * DIAS * HORAS.size();
+
+        long inicioAnterior = System.nanoTime();
+        new TransactionTemplate(transactionManager).executeWithoutResult(estado -> sembrarComoAntes(medicos, inicio, fin));
+        long anteriorMs = (System.nanoTime() - inicioAnterior) / 1_000_000;
+        borrarHorarios(medicos);
+
+        long inicioLotes = System.nanoTime();
+        int insertados = sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+        long lotesMs = (System.nanoTime() - inicioLotes) / 1_000_000;
+
+        // Una carga parcial se completa y una segunda ejecucion no inserta nada.
+        jdbcTemplate.update("DELETE FROM horarios WHERE medico_id = ? AND fecha = ?", medicos.get(0).getId(), inicio);
+        int reparados = sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+        int repetidos = sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+
+        System.out.printf("Sembrado de %d horarios: consulta + save por fila %d ms | lotes JDBC %d ms%n", esperados, anteriorMs, lotesMs);
+
+        assertEquals(esperados, insertados);
+        assertEquals(HORAS.size(), reparados);
+        assertEquals(0, repetidos);
+        borrarHorarios(medicos);
+    }
+
+    // Reproduce el bucle anterior de DataLoader.
+    private void sembrarComoAntes(List<Medico> medicos, LocalDate inicio, LocalDate fin) {
+        for (Medico medico : medicos) {
+            for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+                for (LocalTime hora : HORAS) {
+                    if (horarioRepositorio.findByMedicoAndFechaAndHora(medico, fecha, hora).isPresent()) {
+                        continue;
+                    }
+                    horarioRepositorio.save(new Horario(null, fecha, hora, true, medico));
+                }
+            }
+        }
+    }
+
+    private void borrarHorarios(List<Medico> medicos) {
+        for (Medico medico : medicos) {
+            jdbcTemplate.update("DELETE FROM horarios WHERE medico_id = ?", medico.getId());
+        }
+    }
+}
@@ -0,0 +1,330 @@
+package com.clinica.sistema.Controlador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.CookieManager;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.clinica.sistema.Configuracion.SembradorHorarios;
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.clinica.sistema.Servicio.IndiceDisponibilidad;
+import com.clinica.sistema.Servicio.SmtpFalso;
+
+// Prueba de carga de extremo a extremo: arranca la aplicacion en un puerto local con H2 y un SMTP falso, inicia sesion
+// con muchos pacientes sinteticos y genera peticiones a ritmo fijo contra /api/horarios-disponibles, /reserva/confirmar
+// y /cancelar-cita (incluidas cancelaciones repetidas). Informa rendimiento y percentiles de latencia por endpoint y al
+// final verifica que ningun horario quedo reservado dos veces ni hay citas pendientes sobre horarios libres.
+// Se ejecuta con: mvn -Pbenchmark test -Dtest=CargaReservasBenchmarkTest [-Dcarga.pacientes=50 -Dcarga.tasa=200 -Dcarga.duracion-s=30]
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+    "clinica.notificaciones.intervalo-ms=500",
+    "clinica.citas.cierre.retraso-inicial-ms=3600000"
+})
+@ActiveProfiles("test")
+@Tag("benchmark")
+class CargaReservasBenchmarkTest {
+
+    private static final int PACIENTES = Integer.getInteger("carga.pacientes", 50);
+    private static final int PETICIONES_POR_SEGUNDO = Integer.getInteger("carga.tasa", 200);
+    private static final int DURACION_S = Integer.getInteger("carga.duracion-s", 30);
+    private static final int HILOS = Integer.getInteger("carga.hilos", 32);
+
+    // Pocos horarios para muchos pacientes: la contencion por el mismo hueco es parte de la prueba.
+    private static final int MEDICOS = 5;
+    private static final int DIAS = 4;
+    private static final List<LocalTime> HORAS = List.of(LocalTime.of(9, 0), LocalTime.of(11, 0), LocalTime.of(15, 0));
+    private static final String CONTRASENA = "carga12345";
+
+    private static final String HORARIOS = "GET /api/horarios-disponibles";
+    private static final String RESERVAR = "POST /reserva/confirmar";
+    private static final String PENDIENTES = "GET /api/historial/pendientes";
+    private static final String CANCELAR = "POST /cancelar-cita";
+    private static final Pattern ID_CITA = Pattern.compile("\"id\"\\s*:\\s*(\\d+)");
+
+    private static final SmtpFalso SMTP = iniciarSmtp();
+
+    @LocalServerPort
+    private int puerto;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private SembradorHorarios sembradorHorarios;
+    @Autowired
+    private IndiceDisponibilidad indiceDisponibilidad;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private final Map<String, Estadisticas> estadisticas = new ConcurrentHashMap<>();
+
+    private record Hueco(Long idMedico, LocalDate fecha, LocalTime hora) {
+    }
+
+    @DynamicPropertySource
+    static void configurarCorreo(DynamicPropertyRegistry registro) {
+        registro.add("spring.mail.host", () -> "127.0.0.1");
+        registro.add("spring.mail.port", SMTP::getPuerto);
+    }
+
+    @AfterAll
+    static void detenerSmtp() throws IOException {
+        SMTP.close();
+    }
+
+    @Test
+    void laReservaSoportaCargaSinRomperInvariantes() throws Exception {
+        List<Medico> medicos = crearMedicos();
+        List<Hueco> huecos = sembrarHuecos(medicos);
+        List<HttpClient> sesiones = iniciarSesiones(crearPacientes());
+
+        ExecutorService trabajadores = Executors.newFixedThreadPool(HILOS);
+        ScheduledExecutorService ritmo = Executors.newSingleThreadScheduledExecutor();
+        long periodoNs = 1_000_000_000L / PETICIONES_POR_SEGUNDO;
+        long inicio = System.nanoTime();
+        AtomicLong tick = new AtomicLong();
+
+        // Carga en lazo abierto: cada tick agenda una operacion a su hora prevista, aunque las anteriores no hayan terminado.
+        // La latencia se mide desde esa hora prevista, de modo que la espera en cola tambien cuenta (sin omision coordinada).
+        ritmo.scheduleAtFixedRate(() -> {
+            long previsto = inicio + tick.getAndIncrement() * periodoNs;
+            HttpClient sesion = sesiones.get(ThreadLocalRandom.current().nextInt(sesiones.size()));
+            trabajadores.execute(() -> ejecutarOperacion(sesion, huecos, previsto));
+        }, 0, periodoNs, TimeUnit.NANOSECONDS);
+
+        Thread.sleep(TimeUnit.SECONDS.toMillis(DURACION_S));
+        ritmo.shutdownNow();
+        trabajadores.shutdown();
+        assertTrue(trabajadores.awaitTermination(2, TimeUnit.MINUTES), "Las peticiones en curso no terminaron a tiempo.");
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+
+        imprimirInforme(segundos);
+        verificarInvariantes(medicos);
+
+        long erroresServidor = estadisticas.values().stream().mapToLong(e -> e.erroresServidor.get()).sum();
+        assertEquals(0, erroresServidor, "Hubo respuestas 5xx o fallos de conexion durante la carga.");
+    }
+
+    // Mezcla aproximada de una sesion real: consultar horarios, reservar y, a veces, cancelar.
+    private void ejecutarOperacion(HttpClient sesion, List<Hueco> huecos, long previsto) {
+        ThreadLocalRandom aleatorio = ThreadLocalRandom.current();
+        Hueco hueco = huecos.get(aleatorio.nextInt(huecos.size()));
+        int eleccion = aleatorio.nextInt(100);
+        if (eleccion < 50) {
+            enviar(HORARIOS, sesion, previsto, HttpRequest.newBuilder(uri("/api/horarios-disponibles?idMedico=" + hueco.idMedico()
+                    + "&fechaCita=" + hueco.fecha())).GET());
+        } else if (eleccion < 85) {
+            enviar(RESERVAR, sesion, previsto, formulario("/reserva/confirmar", Map.of(
+                    "fechaCita", hueco.fecha().toString(), "horaCita", hueco.hora().toString(), "idMedico", hueco.idMedico().toString())));
+        } else {
+            HttpResponse<String> pendientes = enviar(PENDIENTES, sesion, previsto,
+                    HttpRequest.newBuilder(uri("/api/historial/pendientes")).GET());
+            if (pendientes == null || pendientes.statusCode() != 200) {
+                return;
+            }
+            Matcher ids = ID_CITA.matcher(pendientes.body());
+            if (!ids.find()) {
+                return;
+            }
+            String idCita = ids.group(1);
+            enviar(CANCELAR, sesion, System.nanoTime(), formulario("/cancelar-cita", Map.of("id", idCita)));
+            // Doble envio (doble clic o reintento): debe responder 409 sin volver a liberar el horario.
+            if (aleatorio.nextInt(5) == 0) {
+                enviar(CANCELAR, sesion, System.nanoTime(), formulario("/cancelar-cita", Map.of("id", idCita)));
+            }
+        }
+    }
+
+    private HttpResponse<String> enviar(String endpoint, HttpClient sesion, long previsto, HttpRequest.Builder peticion) {
+        Estadisticas estadistica = estadisticas.computeIfAbsent(endpoint, e -> new Estadisticas());
+        try {
+            HttpResponse<String> respuesta = sesion.send(peticion.timeout(Duration.ofSeconds(30)).build(),
+                    HttpResponse.BodyHandlers.ofString());
+            estadistica.registrar(System.nanoTime() - previsto, respuesta.statusCode());
+            return respuesta;
+        } catch (IOException e) {
+            // Sin respuesta (conexion rechazada o tiempo agotado): cuenta como error del servidor.
+            estadistica.registrar(System.nanoTime() - previsto, 599);
+            return null;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
+        }
+    }
+
+    private List<Medico> crearMedicos() {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Carga " + System.nanoTime()));
+        List<Medico> medicos = new ArrayList<>();
+        for (int i = 0; i < MEDICOS; i++) {
+            medicos.add(medicoRepositorio.save(new Medico(null, "Medico" + i, "Carga", especialidad)));
+        }
+        return medicos;
+    }
+
+    private List<Hueco> sembrarHuecos(List<Medico> medicos) {
+        LocalDate inicio = LocalDate.now().plusYears(20);
+        LocalDate fin = inicio.plusDays(DIAS - 1);
+        sembradorHorarios.sembrar(medicos, inicio, fin, HORAS);
+        indiceDisponibilidad.reconstruir();
+
+        List<Hueco> huecos = new ArrayList<>();
+        for (LocalDate fecha = inicio; !fecha.isAfter(fin); fecha = fecha.plusDays(1)) {
+            for (LocalTime hora : HORAS) {
+                for (Medico medico : medicos) {
+                    huecos.add(new Hueco(medico.getId(), fecha, hora));
+                }
+            }
+        }
+        return huecos;
+    }
+
+    private List<String> crearPacientes() {
+        // BCrypt es lento a proposito: un solo hash compartido por todos los pacientes sinteticos.
+        String hash = passwordEncoder.encode(CONTRASENA);
+        long semilla = System.nanoTime() % 10_000_000L;
+        List<Paciente> pacientes = new ArrayList<>();
+        for (int i = 0; i < PACIENTES; i++) {
+            pacientes.add(new Paciente(null, "Paciente", "Carga", String.format("%08d", 80_000_000 + (semilla + i) % 10_000_000),
+                    "900000000", "carga" + semilla + "." + i + "@clinica.com", hash, new ArrayList<>()));
+        }
+        return pacienteRepositorio.saveAll(pacientes).stream().map(Paciente::getCorreo).toList();
+    }
+
+    // Una sesion HTTP (con su propia cookie JSESSIONID) por paciente, iniciada con el formulario de login.
+    private List<HttpClient> iniciarSesiones(List<String> correos) throws Exception {
+        List<HttpClient> sesiones = new ArrayList<>();
+        for (String correo : correos) {
+            HttpClient sesion = HttpClient.newBuilder()
+                    .cookieHandler(new CookieManager())
+                    .followRedirects(HttpClient.Redirect.NEVER)
+                    .connectTimeout(Duration.ofSeconds(10))
+                    .build();
+            HttpResponse<Void> respuesta = sesion.send(formulario("/login", Map.of("correo", correo, "contraseña", CONTRASENA)).build(),
+                    HttpResponse.BodyHandlers.discarding());
+            String destino = respuesta.headers().firstValue("Location").orElse("");
+            assertTrue(respuesta.statusCode() == 302 && !destino.contains("error"), "No se pudo iniciar sesion con " + correo + ": " + destino);
+            sesiones.add(sesion);
+        }
+        return sesiones;
+    }
+
+    private void verificarInvariantes(List<Medico> medicos) {
+        String idsMedicos = medicos.stream().map(m -> String.valueOf(m.getId())).collect(Collectors.joining(","));
+
+        List<Map<String, Object>> reservadosDosVeces = jdbcTemplate.queryForList(
+                "SELECT medico_id, fecha, hora, COUNT(*) AS citas FROM citas WHERE estado = 'Pendiente' AND medico_id IN (" + idsMedicos + ") "
+                + "GROUP BY medico_id, fecha, hora HAVING COUNT(*) > 1");
+        assertTrue(reservadosDosVeces.isEmpty(), () -> "Horarios reservados mas de una vez: " + reservadosDosVeces);
+
+        List<Long> citasSobreHorarioLibre = jdbcTemplate.queryForList(
+                "SELECT c.id FROM citas c JOIN horarios h ON h.medico_id = c.medico_id AND h.fecha = c.fecha AND h.hora = c.hora "
+                + "WHERE c.estado = 'Pendiente' AND h.disponible = TRUE AND c.medico_id IN (" + idsMedicos + ")", Long.class);
+        assertTrue(citasSobreHorarioLibre.isEmpty(), () -> "Citas pendientes cuyo horario sigue marcado como disponible: " + citasSobreHorarioLibre);
+
+        List<Long> horariosSinCita = jdbcTemplate.queryForList(
+                "SELECT h.id FROM horarios h WHERE h.disponible = FALSE AND h.medico_id IN (" + idsMedicos + ") AND NOT EXISTS ("
+                + "SELECT 1 FROM citas c WHERE c.medico_id = h.medico_id AND c.fecha = h.fecha AND c.hora = h.hora AND c.estado = 'Pendiente')", Long.class);
+        assertTrue(horariosSinCita.isEmpty(), () -> "Horarios ocupados sin una cita pendiente: " + horariosSinCita);
+    }
+
+    private void imprimirInforme(double segundos) {
+        System.out.printf("Carga: %d pacientes, %d peticiones/s previstas, %.1f s, %d hilos. Correos enviados al SMTP falso: %d.%n",
+                PACIENTES, PETICIONES_POR_SEGUNDO, segundos, HILOS, SMTP.getMensajes());
+        System.out.printf("%-32s %8s %9s %9s %9s %9s %9s  %s%n", "Endpoint", "Total", "Pet/s", "p50 ms", "p95 ms", "p99 ms", "max ms", "Estados");
+        new TreeMap<>(estadisticas).forEach((endpoint, e) -> {
+            List<Long> latencias = e.latencias.stream().sorted().toList();
+            System.out.printf("%-32s %8d %9.1f %9.1f %9.1f %9.1f %9.1f  %s%n", endpoint, latencias.size(), latencias.size() / segundos,
+                    percentilMs(latencias, 0.50), percentilMs(latencias, 0.95), percentilMs(latencias, 0.99),
+                    percentilMs(latencias, 1.0), new TreeMap<>(e.estados));
+        });
+    }
+
+    private static double percentilMs(List<Long> ordenadas, double percentil) {
+        if (ordenadas.isEmpty()) {
+            return 0;
+        }
+        int posicion = (int) Math.ceil(percentil * ordenadas.size()) - 1;
+        return ordenadas.get(Math.max(0, posicion)) / 1e6;
+    }
+
+    private URI uri(String ruta) {
+        return URI.create("http://127.0.0.1:" + puerto + ruta);
+    }
+
+    private HttpRequest.Builder formulario(String ruta, Map<String, String> campos) {
+        String cuerpo = campos.entrySet().stream()
+                .map(c -> URLEncoder.encode(c.getKey(), StandardCharsets.UTF_8) + "=" + URLEncoder.encode(c.getValue(), StandardCharsets.UTF_8))
+                .collect(Collectors.joining("&"));
+        return HttpRequest.newBuilder(uri(ruta))
+                .header("Content-Type", "application/x-www-form-urlencoded")
+                .POST(HttpRequest.BodyPublishers.ofString(cuerpo));
+    }
+
+    private static SmtpFalso iniciarSmtp() {
+        try {
+            return new SmtpFalso(1);
+        } catch (IOException e) {
+            throw new IllegalStateException("No se pudo iniciar el SMTP falso", e);
+        }
+    }
+
+    private static class Estadisticas {
+        final Queue<Long> latencias = new ConcurrentLinkedQueue<>();
+        final Map<Integer, AtomicLong> estados = new ConcurrentHashMap<>();
+        final AtomicLong erroresServidor = new AtomicLong();
+
+        void registrar(long latenciaNs, int estado) {
+            latencias.add(latenciaNs);
+            estados.computeIfAbsent(estado, e -> new AtomicLong()).incrementAndGet();
+            if (estado >= 500) {
+                erroresServidor.incrementAndGet();
+            }
+        }
+    }
+}
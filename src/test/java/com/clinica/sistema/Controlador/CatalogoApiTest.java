@@ -0,0 +1,60 @@
+package com.clinica.sistema.Controlador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.clinica.sistema.Servicio.CatalogoServicio;
+
+@SpringBootTest
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+@WithMockUser(username = "chipa.robladillo@gmail.com")
+class CatalogoApiTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CatalogoServicio catalogoServicio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void lasEspecialidadesSeRevalidanConEtag() throws Exception {
+        String etag = mockMvc.perform(get("/api/especialidades"))
+                .andExpect(status().isOk())
+                .andExpect(header().string(HttpHeaders.CACHE_CONTROL, "no-cache, private"))
+                .andReturn().getResponse().getHeader(HttpHeaders.ETAG);
+        assertNotNull(etag);
+
+        mockMvc.perform(get("/api/especialidades").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+
+        // Recargar sin cambios publica una nueva version con el mismo contenido y el mismo ETag.
+        long version = catalogoServicio.getVersion();
+        catalogoServicio.recargar();
+        assertEquals(version + 1, catalogoServicio.getVersion());
+        mockMvc.perform(get("/api/especialidades").header(HttpHeaders.IF_NONE_MATCH, etag))
+                .andExpect(status().isNotModified());
+    }
+
+    @Test
+    void losMedicosDeUnaEspecialidadInexistenteDevuelven404() throws Exception {
+        mockMvc.perform(get("/api/medicos-por-especialidad").param("idEspecialidad", "999999"))
+                .andExpect(status().isNotFound());
+    }
+}
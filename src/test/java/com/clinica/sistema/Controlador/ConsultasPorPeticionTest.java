@@ -0,0 +1,145 @@
+package com.clinica.sistema.Controlador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.redirectedUrl;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.web.context.HttpSessionSecurityContextRepository;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.RequestBuilder;
+
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Horario;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.PacienteAutenticado;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.HorarioRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.clinica.sistema.Servicio.CitaServicio;
+
+// Comprueba que, tras iniciar sesion, las rutas autenticadas ya no consultan la tabla 'pacientes' para identificar al usuario
+// y que la reserva reutiliza el contexto del paciente de la peticion en lugar de volver a leerlo.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.clinica.sistema.Controlador.ContadorSentencias")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ConsultasPorPeticionTest {
+
+    private static final String CORREO = "chipa.robladillo@gmail.com";
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private HorarioRepositorio horarioRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+    @Autowired
+    private CitaServicio citaServicio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    private MockHttpSession sesion;
+
+    @BeforeEach
+    void iniciarSesion() throws Exception {
+        ContadorSentencias.reiniciar();
+        MvcResult resultado = mockMvc.perform(formLogin("/login")
+                        .userParameter("correo").passwordParam("contraseña")
+                        .user(CORREO).password("jeanpierre"))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        // El inicio de sesion es el unico momento en que se lee al paciente.
+        assertEquals(1, ContadorSentencias.contarSobreTabla("pacientes"));
+
+        sesion = (MockHttpSession) resultado.getRequest().getSession(false);
+        assertNotNull(sesion);
+        SecurityContext contexto = (SecurityContext) sesion.getAttribute(HttpSessionSecurityContextRepository.SPRING_SECURITY_CONTEXT_KEY);
+        PacienteAutenticado paciente = assertInstanceOf(PacienteAutenticado.class, contexto.getAuthentication().getPrincipal());
+        assertEquals("71632364", paciente.getDni());
+        assertEquals("Jeanpierre Chipa", paciente.getNombreCompleto());
+    }
+
+    @Test
+    void lasPaginasAutenticadasNoConsultanPacientes() throws Exception {
+        assertEquals(0, consultasAPacientes(get("/").session(sesion)));
+        assertEquals(0, consultasAPacientes(get("/reserva").session(sesion)));
+    }
+
+    @Test
+    void lasApisDeReservaNoConsultanPacientes() throws Exception {
+        Long idMedico = medicoRepositorio.findAll().get(0).getId();
+        assertEquals(0, consultasAPacientes(get("/api/especialidades").session(sesion)));
+        assertEquals(0, consultasAPacientes(get("/api/horarios-disponibles").session(sesion)
+                .param("idMedico", String.valueOf(idMedico))
+                .param("fechaCita", LocalDate.now().plusDays(1).toString())));
+    }
+
+    @Test
+    void cerrarSesionNoConsultaPacientes() throws Exception {
+        assertEquals(0, consultasAPacientes(post("/logout").session(sesion)));
+    }
+
+    @Test
+    void reservarConElContextoDeLaPeticionEjecutaMenosConsultas() throws Exception {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Consultas " + System.nanoTime()));
+        Medico medico = medicoRepositorio.save(new Medico(null, "Medico", "Consultas", especialidad));
+        LocalDate fecha = LocalDate.now().plusYears(3);
+        horarioRepositorio.save(new Horario(null, fecha, LocalTime.of(9, 0), true, medico));
+        horarioRepositorio.save(new Horario(null, fecha, LocalTime.of(10, 0), true, medico));
+        Long idPaciente = pacienteRepositorio.findByCorreo(CORREO).orElseThrow().getId();
+
+        // Sin contexto de peticion (como antes del filtro): el servicio tiene que leer al paciente.
+        ContadorSentencias.reiniciar();
+        citaServicio.crearCita(fecha.toString(), "09:00", medico.getId(), idPaciente);
+        long pacientesSinContexto = ContadorSentencias.contarSobreTabla("pacientes");
+        long totalSinContexto = ContadorSentencias.contarTodas();
+
+        // Reserva real: el filtro ya establecio al paciente y el servicio solo usa una referencia.
+        ContadorSentencias.reiniciar();
+        mockMvc.perform(post("/reserva/confirmar").session(sesion)
+                        .param("fechaCita", fecha.toString())
+                        .param("horaCita", "10:00")
+                        .param("idMedico", String.valueOf(medico.getId())))
+                .andExpect(redirectedUrl("/historial"));
+        long pacientesConContexto = ContadorSentencias.contarSobreTabla("pacientes");
+        long totalConContexto = ContadorSentencias.contarTodas();
+
+        System.out.printf("Consultas por reserva: sin contexto %d (pacientes %d) | con contexto %d (pacientes %d)%n",
+                totalSinContexto, pacientesSinContexto, totalConContexto, pacientesConContexto);
+        assertTrue(pacientesSinContexto > 0);
+        assertEquals(0, pacientesConContexto);
+        assertTrue(totalConContexto < totalSinContexto);
+    }
+
+    private long consultasAPacientes(RequestBuilder peticion) throws Exception {
+        ContadorSentencias.reiniciar();
+        int estado = mockMvc.perform(peticion).andReturn().getResponse().getStatus();
+        assertTrue(estado < 400, "Respuesta inesperada: " + estado);
+        return ContadorSentencias.contarSobreTabla("pacientes");
+    }
+}
@@ -0,0 +1,41 @@
+package com.clinica.sistema.Controlador;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.regex.Pattern;
+
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+
+// Registra el SQL que Hibernate ejecuta en el hilo actual (MockMvc atiende la peticion en el hilo de la prueba),
+// para contar consultas por endpoint sin mezclar las de las tareas programadas.
+public class ContadorSentencias implements StatementInspector {
+
+    private static final ThreadLocal<List<String>> SENTENCIAS = ThreadLocal.withInitial(ArrayList::new);
+
+    @Override
+    public String inspect(String sql) {
+        SENTENCIAS.get().add(sql);
+        return sql;
+    }
+
+    public static void reiniciar() {
+        SENTENCIAS.get().clear();
+    }
+
+    public static List<String> registradas() {
+        return List.copyOf(SENTENCIAS.get());
+    }
+
+    public static long contarTodas() {
+        return SENTENCIAS.get().size();
+    }
+
+    // Numero de sentencias registradas que leen o escriben la tabla indicada.
+    public static long contarSobreTabla(String tabla) {
+        Pattern patron = Pattern.compile("\\b" + Pattern.quote(tabla.toLowerCase(Locale.ROOT)) + "\\b");
+        return SENTENCIAS.get().stream()
+                .filter(sql -> patron.matcher(sql.toLowerCase(Locale.ROOT)).find())
+                .count();
+    }
+}
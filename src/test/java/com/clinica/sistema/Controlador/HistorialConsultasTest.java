@@ -0,0 +1,160 @@
+package com.clinica.sistema.Controlador;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestBuilders.formLogin;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.mock.web.MockHttpSession;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
+import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Comprueba que el historial paginado por clave ejecuta una sentencia SQL por lista y por pagina, y la exportacion una sola,
+// sin importar cuantas citas (y de cuantos medicos distintos) tenga el paciente: sin cargas N+1 ni OFFSET.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.clinica.sistema.Controlador.ContadorSentencias")
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class HistorialConsultasTest {
+
+    private static final String CONTRASENA = "historial123";
+    private static final int TAMANO_PAGINA = 10;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private PasswordEncoder passwordEncoder;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @ParameterizedTest
+    @ValueSource(ints = { 3, 300 })
+    void elHistorialEjecutaUnaConsultaPorListaSinImportarSuTamano(int citas) throws Exception {
+        String correo = "historial" + citas + "." + System.nanoTime() + "@clinica.com";
+        MockHttpSession sesion = iniciarSesion(crearPacienteConCitas(correo, citas));
+
+        // Primera pagina de pendientes y de pasadas: una consulta por clave para cada lista.
+        ContadorSentencias.reiniciar();
+        MvcResult pagina = mockMvc.perform(get("/historial").session(sesion))
+                .andExpect(status().isOk())
+                .andReturn();
+        assertEquals(2, ContadorSentencias.contarTodas(), () -> "Sentencias del historial: " + ContadorSentencias.registradas());
+        List<?> pendientes = (List<?>) pagina.getModelAndView().getModel().get("citasPendientes");
+        List<?> historial = (List<?>) pagina.getModelAndView().getModel().get("historialCitas");
+        assertEquals(Math.min(citas, 2 * TAMANO_PAGINA), pendientes.size() + historial.size());
+
+        // Recorrer todas las paginas por la API: cada una es una sola consulta y ninguna cita se repite ni se pierde.
+        Set<Long> vistas = new HashSet<>();
+        vistas.addAll(recorrer(sesion, "/api/historial/pendientes", "despues", true));
+        vistas.addAll(recorrer(sesion, "/api/historial/pasadas", "antes", false));
+        assertEquals(citas, vistas.size());
+
+        ContadorSentencias.reiniciar();
+        mockMvc.perform(get("/historial/exportar/excel").session(sesion))
+                .andExpect(status().isOk());
+        assertEquals(1, ContadorSentencias.contarTodas(), () -> "Sentencias de la exportacion: " + ContadorSentencias.registradas());
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = { "no-es-un-cursor", "2025-01-01_25:00_1", "2025-01-01_09:00_x" })
+    void unCursorInvalidoDevuelveBadRequest(String cursor) throws Exception {
+        MockHttpSession sesion = iniciarSesion(crearPacienteConCitas("cursor." + System.nanoTime() + "@clinica.com", 1));
+        mockMvc.perform(get("/api/historial/pasadas").session(sesion).param("antes", cursor))
+                .andExpect(status().isBadRequest());
+    }
+
+    // Sigue los cursores hasta el final comprobando el orden (fecha, hora, id) entre paginas.
+    private List<Long> recorrer(MockHttpSession sesion, String ruta, String parametro, boolean ascendente) throws Exception {
+        List<Long> ids = new ArrayList<>();
+        String cursor = null;
+        String anterior = null;
+        do {
+            ContadorSentencias.reiniciar();
+            MockHttpServletRequestBuilder peticion = get(ruta).session(sesion);
+            if (cursor != null) {
+                peticion.param(parametro, cursor);
+            }
+            String cuerpo = mockMvc.perform(peticion).andExpect(status().isOk()).andReturn().getResponse().getContentAsString();
+            assertEquals(1, ContadorSentencias.contarTodas());
+
+            JsonNode pagina = objectMapper.readTree(cuerpo);
+            assertTrue(pagina.get("citas").size() <= TAMANO_PAGINA);
+            for (JsonNode cita : pagina.get("citas")) {
+                String clave = cita.get("fecha").asText() + " " + cita.get("hora").asText() + " " + String.format("%010d", cita.get("id").asLong());
+                if (anterior != null) {
+                    int orden = clave.compareTo(anterior);
+                    assertTrue(ascendente ? orden > 0 : orden < 0, "Orden incorrecto en " + ruta + ": " + anterior + " / " + clave);
+                }
+                anterior = clave;
+                ids.add(cita.get("id").asLong());
+            }
+            cursor = pagina.get("siguiente").isNull() ? null : pagina.get("siguiente").asText();
+        } while (cursor != null);
+        return ids;
+    }
+
+    // Paciente propio con citas repartidas entre todos los medicos de la carga inicial, insertadas por JDBC.
+    private String crearPacienteConCitas(String correo, int citas) {
+        String dni = String.format("%08d", System.nanoTime() % 100_000_000L);
+        Paciente paciente = pacienteRepositorio.save(new Paciente(null, "Historial", "Prueba", dni, "987654321",
+                correo, passwordEncoder.encode(CONTRASENA), new ArrayList<>()));
+        List<Long> medicos = medicoRepositorio.findAll().stream().map(Medico::getId).toList();
+
+        LocalDate inicio = LocalDate.now().minusDays(citas / 2);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < citas; i++) {
+            filas.add(new Object[] {
+                inicio.plusDays(i), LocalTime.of(8 + i % 10, 0), i % 2 == 0 ? "Pendiente" : "Completada",
+                paciente.getId(), medicos.get(i % medicos.size())
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO citas (fecha, hora, estado, paciente_id, medico_id) VALUES (?, ?, ?, ?, ?)", filas);
+        return correo;
+    }
+
+    private MockHttpSession iniciarSesion(String correo) throws Exception {
+        MvcResult resultado = mockMvc.perform(formLogin("/login")
+                        .userParameter("correo").passwordParam("contraseña")
+                        .user(correo).password(CONTRASENA))
+                .andExpect(status().is3xxRedirection())
+                .andReturn();
+        MockHttpSession sesion = (MockHttpSession) resultado.getRequest().getSession(false);
+        assertNotNull(sesion);
+        return sesion;
+    }
+}
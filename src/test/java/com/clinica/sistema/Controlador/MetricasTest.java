@@ -0,0 +1,73 @@
+package com.clinica.sistema.Controlador;
+
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.actuate.observability.AutoConfigureObservability;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+
+import com.clinica.sistema.Servicio.CitaServicio;
+import com.clinica.sistema.Servicio.NotificacionServicio;
+
+// Comprueba que /actuator/prometheus publica las metricas propias (reservas por resultado, indice, correo y bandeja de salida),
+// las del pool de conexiones y las de las peticiones HTTP, y que solo responde a administradores autenticados.
+@SpringBootTest
+@AutoConfigureMockMvc
+@AutoConfigureObservability
+@ActiveProfiles("test")
+class MetricasTest {
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private CitaServicio citaServicio;
+    @Autowired
+    private NotificacionServicio notificacionServicio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void prometheusPublicaLasMetricasDeLaClinica() throws Exception {
+        assertThrows(IllegalArgumentException.class, () -> citaServicio.crearCita("", "09:00", 1L, 1L));
+        mockMvc.perform(get("/login")).andExpect(status().isOk());
+        notificacionServicio.enviarLote(List.of(notificacionServicio.construirMensaje("paciente@prueba.com", "Asunto", "Mensaje")));
+
+        String metricas = mockMvc.perform(get("/actuator/prometheus").with(user("admin@clinica.com").roles("ADMIN")))
+                .andExpect(status().isOk())
+                .andReturn().getResponse().getContentAsString();
+        for (String esperada : new String[] {
+                "clinica_citas_reserva_seconds_count{resultado=\"error_validacion\"",
+                "clinica_citas_reserva_seconds_bucket",
+                "clinica_citas_servicio_seconds_count",
+                "clinica_indice_disponibilidad_consultas_total",
+                "clinica_correo_pool_conexiones",
+                "clinica_correo_envio_seconds_count",
+                "clinica_correo_bandeja{estado=\"pendiente\"",
+                "clinica_correo_bandeja{estado=\"fallida\"",
+                "hikaricp_connections_active",
+                "http_server_requests_seconds_bucket" }) {
+            assertTrue(metricas.contains(esperada), () -> "Falta la metrica " + esperada);
+        }
+    }
+
+    @Test
+    void lasMetricasPidenUnAdministradorAutenticado() throws Exception {
+        // Aunque la peticion llegue desde la maquina local (por ejemplo, a traves de un proxy), sin credenciales no responde.
+        mockMvc.perform(get("/actuator/prometheus")).andExpect(status().isUnauthorized());
+        mockMvc.perform(get("/actuator/prometheus").with(user("paciente@prueba.com")))
+                .andExpect(status().isForbidden());
+    }
+}
@@ -0,0 +1,237 @@
+package com.clinica.sistema.Controlador;
+
+import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+import static org.springframework.security.test.web.servlet.request.SecurityMockMvcRequestPostProcessors.user;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.get;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.post;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
+
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.concurrent.CountDownLatch;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.test.autoconfigure.web.servlet.AutoConfigureMockMvc;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.RequestPostProcessor;
+
+import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.TrabajoReporte;
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+import com.clinica.sistema.Servicio.ReporteCitasServicio;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Reportes generales en segundo plano: progreso, descarga, rechazo con el pool saturado, retencion, limpieza al
+// detenerse y acceso solo para administradores. Un hilo y un hueco en cola para poder saturar el pool a voluntad.
+@SpringBootTest(properties = {
+        "clinica.reportes.max-concurrentes=1",
+        "clinica.reportes.capacidad-cola=1",
+        "clinica.reportes.retencion-ms=0" })
+@AutoConfigureMockMvc
+@ActiveProfiles("test")
+class ReportesAdminTest {
+
+    private static final String ADMIN = "admin.reportes@clinica.com";
+    private static final int CITAS = 5;
+
+    @Autowired
+    private MockMvc mockMvc;
+    @Autowired
+    private ObjectMapper objectMapper;
+    @Autowired
+    private ReporteCitasServicio reporteCitasServicio;
+    @Autowired
+    @Qualifier("ejecutorReportes")
+    private ThreadPoolTaskExecutor ejecutorReportes;
+    @Autowired
+    private CitaRepositorio citaRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    private Medico medico;
+
+    // La base H2 se comparte entre clases de prueba: el reporte se filtra por un medico propio con CITAS citas.
+    @BeforeEach
+    void preparar() {
+        long sufijo = System.nanoTime();
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Reportes " + sufijo));
+        medico = medicoRepositorio.save(new Medico(null, "Prueba", "Reportes", especialidad));
+
+        String numero = String.format("%06d", sufijo % 1_000_000);
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Paciente");
+        paciente.setApellido("Reportes");
+        paciente.setDni("98" + numero);
+        paciente.setTelefono("998" + numero);
+        paciente.setCorreo("paciente.reportes" + sufijo + "@prueba.com");
+        paciente.setContraseña("no-usada");
+        paciente = pacienteRepositorio.save(paciente);
+
+        for (int i = 0; i < CITAS; i++) {
+            citaRepositorio.save(new Cita(null, LocalDate.now().minusDays(i), LocalTime.of(9 + i, 0), "Pendiente", paciente, medico, null));
+        }
+    }
+
+    @Test
+    void informaElProgresoYPermiteDescargarElReporteCompletado() throws Exception {
+        String ubicacion = solicitar("csv");
+
+        JsonNode trabajo = esperarFin(ubicacion);
+        assertEquals(TrabajoReporte.ESTADO_COMPLETADO, trabajo.get("estado").asText());
+        assertEquals(100, trabajo.get("porcentaje").asInt());
+        assertEquals(CITAS, trabajo.get("filasTotales").asLong());
+        assertEquals(CITAS, trabajo.get("filasProcesadas").asLong());
+        assertFalse(trabajo.has("archivo"));
+
+        byte[] contenido = mockMvc.perform(get(ubicacion + "/descarga").with(admin()))
+                .andExpect(status().isOk())
+                .andExpect(header().string("Content-Type", "text/csv"))
+                .andExpect(header().string("Content-Disposition", containsString("reporte_citas_")))
+                .andReturn().getResponse().getContentAsByteArray();
+        String csv = new String(contenido, StandardCharsets.UTF_8);
+        // Encabezado mas una linea por cita.
+        assertEquals(CITAS + 1, csv.split("\r\n").length);
+        assertTrue(csv.contains("Prueba Reportes"));
+    }
+
+    @Test
+    void rechazaConServicioNoDisponibleCuandoElPoolEstaSaturado() throws Exception {
+        CountDownLatch liberar = new CountDownLatch(1);
+        CountDownLatch ocupado = new CountDownLatch(1);
+        ejecutorReportes.execute(() -> {
+            ocupado.countDown();
+            try {
+                liberar.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        try {
+            ocupado.await();
+            // El unico hilo esta ocupado: el primer reporte espera en la cola y todavia no se puede descargar.
+            String enCola = solicitar("xlsx");
+            mockMvc.perform(get(enCola + "/descarga").with(admin())).andExpect(status().isConflict());
+
+            // Con la cola llena, el siguiente se rechaza en lugar de acumularse.
+            mockMvc.perform(post("/admin/reportes").with(admin())
+                            .param("formato", "xlsx")
+                            .param("desde", LocalDate.now().minusDays(CITAS).toString())
+                            .param("hasta", LocalDate.now().toString())
+                            .param("idMedico", medico.getId().toString()))
+                    .andExpect(status().isServiceUnavailable());
+        } finally {
+            liberar.countDown();
+        }
+    }
+
+    @Test
+    void eliminaLosReportesYSusArchivosTrasLaRetencion() throws Exception {
+        String ubicacion = solicitar("xlsx");
+        esperarFin(ubicacion);
+        Path archivo = archivoDe(ubicacion);
+        assertTrue(Files.exists(archivo));
+
+        reporteCitasServicio.eliminarReportesVencidos();
+
+        assertFalse(Files.exists(archivo));
+        mockMvc.perform(get(ubicacion).with(admin())).andExpect(status().isNotFound());
+    }
+
+    @Test
+    void alDetenerseEliminaLosArchivosTemporales() throws Exception {
+        String ubicacion = solicitar("csv");
+        esperarFin(ubicacion);
+        Path archivo = archivoDe(ubicacion);
+        assertTrue(Files.exists(archivo));
+
+        reporteCitasServicio.eliminarArchivosPendientes();
+
+        assertFalse(Files.exists(archivo));
+    }
+
+    @Test
+    void soloLosAdministradoresAccedenASusPropiosReportes() throws Exception {
+        mockMvc.perform(get("/admin/reportes")).andExpect(status().is3xxRedirection());
+        mockMvc.perform(get("/admin/reportes").with(user("paciente@prueba.com")))
+                .andExpect(status().isForbidden());
+        mockMvc.perform(post("/admin/reportes").with(user("paciente@prueba.com"))
+                        .param("desde", LocalDate.now().toString())
+                        .param("hasta", LocalDate.now().toString()))
+                .andExpect(status().isForbidden());
+
+        // Otro administrador no ve ni descarga un reporte ajeno.
+        String ubicacion = solicitar("csv");
+        esperarFin(ubicacion);
+        RequestPostProcessor otroAdmin = user("otro.admin@clinica.com").roles("ADMIN");
+        mockMvc.perform(get(ubicacion).with(otroAdmin)).andExpect(status().isNotFound());
+        mockMvc.perform(get(ubicacion + "/descarga").with(otroAdmin)).andExpect(status().isNotFound());
+    }
+
+    private RequestPostProcessor admin() {
+        return user(ADMIN).roles("ADMIN");
+    }
+
+    private String solicitar(String formato) throws Exception {
+        String ubicacion = mockMvc.perform(post("/admin/reportes").with(admin())
+                        .param("formato", formato)
+                        .param("desde", LocalDate.now().minusDays(CITAS).toString())
+                        .param("hasta", LocalDate.now().toString())
+                        .param("idMedico", medico.getId().toString()))
+                .andExpect(status().isAccepted())
+                .andReturn().getResponse().getHeader("Location");
+        assertNotNull(ubicacion);
+        return ubicacion;
+    }
+
+    // Consulta el progreso hasta que el reporte termina, como haria la pagina de administracion.
+    private JsonNode esperarFin(String ubicacion) throws Exception {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < limite) {
+            JsonNode trabajo = objectMapper.readTree(mockMvc.perform(get(ubicacion).with(admin()))
+                    .andExpect(status().isOk())
+                    .andReturn().getResponse().getContentAsString());
+            String estado = trabajo.get("estado").asText();
+            if (TrabajoReporte.ESTADO_COMPLETADO.equals(estado) || TrabajoReporte.ESTADO_FALLIDO.equals(estado)) {
+                return trabajo;
+            }
+            Thread.sleep(20);
+        }
+        return fail("El reporte " + ubicacion + " no termino en 10 s.");
+    }
+
+    private Path archivoDe(String ubicacion) {
+        String id = ubicacion.substring(ubicacion.lastIndexOf('/') + 1);
+        return reporteCitasServicio.obtenerTrabajo(id, ADMIN).orElseThrow().getArchivo();
+    }
+}
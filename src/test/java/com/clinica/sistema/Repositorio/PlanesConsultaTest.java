@@ -0,0 +1,170 @@
+package com.clinica.sistema.Repositorio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.sql.Connection;
+import java.sql.Date;
+import java.sql.ParameterMetaData;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.sql.SQLException;
+import java.sql.Time;
+import java.sql.Types;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import javax.sql.DataSource;
+
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Controlador.ContadorSentencias;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+
+// Ejecuta EXPLAIN sobre el SQL que Hibernate genera para cada consulta derivada de los repositorios de horarios,
+// citas y pacientes, con la base sembrada por DataLoader y un volumen de citas, y falla si alguna recorre la tabla completa.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.clinica.sistema.Controlador.ContadorSentencias")
+@ActiveProfiles("test")
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PlanesConsultaTest {
+
+    private static final int CITAS_SEMBRADAS = 5000;
+    private static final List<String> ESTADOS = List.of("Pendiente", "Completada", "Cancelada");
+
+    @Autowired
+    private HorarioRepositorio horarioRepositorio;
+    @Autowired
+    private CitaRepositorio citaRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private DataSource dataSource;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @BeforeAll
+    void sembrarCitas() {
+        List<Long> pacientes = pacienteRepositorio.findAll().stream().map(Paciente::getId).toList();
+        List<Long> medicos = medicoRepositorio.findAll().stream().map(Medico::getId).toList();
+        LocalDate inicio = LocalDate.now().minusYears(2);
+        List<Object[]> filas = new ArrayList<>();
+        for (int i = 0; i < CITAS_SEMBRADAS; i++) {
+            filas.add(new Object[] {
+                inicio.plusDays(i % 700), LocalTime.of(8 + i % 10, 0), ESTADOS.get(i % ESTADOS.size()),
+                pacientes.get(i % pacientes.size()), medicos.get(i % medicos.size())
+            });
+        }
+        jdbcTemplate.batchUpdate("INSERT INTO citas (fecha, hora, estado, paciente_id, medico_id) VALUES (?, ?, ?, ?, ?)", filas);
+        // Estadisticas actualizadas para que el optimizador elija con los volumenes reales.
+        jdbcTemplate.execute("ANALYZE");
+    }
+
+    @Test
+    void elEsquemaDeclaraLosIndicesCompuestos() {
+        List<String> indices = jdbcTemplate.queryForList(
+                "SELECT LOWER(INDEX_NAME) FROM INFORMATION_SCHEMA.INDEXES WHERE LOWER(TABLE_NAME) IN ('horarios', 'citas')", String.class);
+        for (String esperado : List.of("uk_horarios_medico_fecha_hora", "idx_horarios_medico_fecha_disponible",
+                "idx_citas_paciente_estado", "idx_citas_paciente_fecha_hora", "idx_citas_estado_fecha", "idx_citas_fecha_hora")) {
+            assertTrue(indices.stream().anyMatch(indice -> indice.startsWith(esperado)), () -> "Falta el indice " + esperado + ": " + indices);
+        }
+    }
+
+    @Test
+    void todasLasConsultasDerivadasEstanCubiertas() {
+        Set<String> declaradas = Stream.of(HorarioRepositorio.class, CitaRepositorio.class, PacienteRepositorio.class)
+                .flatMap(repositorio -> Arrays.stream(repositorio.getDeclaredMethods()))
+                .filter(metodo -> !metodo.isAnnotationPresent(Query.class) && !metodo.isDefault() && !metodo.isSynthetic())
+                .map(metodo -> metodo.getDeclaringClass().getSimpleName() + "." + metodo.getName())
+                .collect(Collectors.toSet());
+        assertEquals(declaradas, consultasDerivadas().keySet(),
+                "Cada consulta derivada nueva debe agregarse a esta prueba para verificar su plan de ejecucion.");
+    }
+
+    @Test
+    void ningunaConsultaDerivadaRecorreLaTablaCompleta() throws SQLException {
+        List<String> recorridos = new ArrayList<>();
+        for (Map.Entry<String, Runnable> consulta : consultasDerivadas().entrySet()) {
+            ContadorSentencias.reiniciar();
+            consulta.getValue().run();
+            // La primera sentencia es la consulta; las siguientes son cargas por clave primaria de asociaciones.
+            String sql = ContadorSentencias.registradas().get(0);
+            String plan = explicar(sql);
+            if (plan.toLowerCase(Locale.ROOT).contains("tablescan")) {
+                recorridos.add(consulta.getKey() + ":\n" + plan);
+            }
+        }
+        assertTrue(recorridos.isEmpty(), () -> "Consultas que recorren la tabla completa:\n" + String.join("\n\n", recorridos));
+    }
+
+    private Map<String, Runnable> consultasDerivadas() {
+        Medico medico = medicoRepositorio.findAll().get(0);
+        Paciente paciente = pacienteRepositorio.findAll().get(0);
+        LocalDate fecha = LocalDate.now().plusDays(1);
+        LocalTime hora = LocalTime.of(9, 0);
+
+        Map<String, Runnable> consultas = new LinkedHashMap<>();
+        consultas.put("HorarioRepositorio.findByFechaAndHoraAndMedico", () -> horarioRepositorio.findByFechaAndHoraAndMedico(fecha, hora, medico));
+        consultas.put("HorarioRepositorio.findByMedicoAndFechaAndDisponibleTrue", () -> horarioRepositorio.findByMedicoAndFechaAndDisponibleTrue(medico, fecha));
+        consultas.put("HorarioRepositorio.findByMedicoAndFechaAndHora", () -> horarioRepositorio.findByMedicoAndFechaAndHora(medico, fecha, hora));
+        consultas.put("HorarioRepositorio.existsByMedicoIdAndFechaAndHora", () -> horarioRepositorio.existsByMedicoIdAndFechaAndHora(medico.getId(), fecha, hora));
+        consultas.put("CitaRepositorio.findByPacienteAndEstado", () -> citaRepositorio.findByPacienteAndEstado(paciente, "Pendiente"));
+        consultas.put("CitaRepositorio.findByPacienteAndEstadoNot", () -> citaRepositorio.findByPacienteAndEstadoNot(paciente, "Pendiente"));
+        consultas.put("CitaRepositorio.findByPaciente", () -> citaRepositorio.findByPaciente(paciente));
+        consultas.put("PacienteRepositorio.findByDni", () -> pacienteRepositorio.findByDni(paciente.getDni()));
+        consultas.put("PacienteRepositorio.findByCorreo", () -> pacienteRepositorio.findByCorreo(paciente.getCorreo()));
+        consultas.put("PacienteRepositorio.findByCorreoAndContraseña", () -> pacienteRepositorio.findByCorreoAndContraseña(paciente.getCorreo(), "no-usada"));
+        return consultas;
+    }
+
+    // El plan no depende de los valores concretos: cada parametro recibe un valor de ejemplo de su tipo.
+    private String explicar(String sql) throws SQLException {
+        try (Connection conexion = dataSource.getConnection();
+             PreparedStatement sentencia = conexion.prepareStatement("EXPLAIN " + sql)) {
+            ParameterMetaData parametros = sentencia.getParameterMetaData();
+            for (int i = 1; i <= parametros.getParameterCount(); i++) {
+                sentencia.setObject(i, valorDeEjemplo(parametros.getParameterType(i)));
+            }
+            StringBuilder plan = new StringBuilder();
+            try (ResultSet resultado = sentencia.executeQuery()) {
+                while (resultado.next()) {
+                    plan.append(resultado.getString(1)).append('\n');
+                }
+            }
+            return plan.toString();
+        }
+    }
+
+    private static Object valorDeEjemplo(int tipo) {
+        return switch (tipo) {
+            case Types.DATE -> Date.valueOf(LocalDate.now());
+            case Types.TIME -> Time.valueOf(LocalTime.of(9, 0));
+            case Types.BOOLEAN -> Boolean.TRUE;
+            case Types.BIGINT, Types.INTEGER, Types.SMALLINT, Types.TINYINT -> 1L;
+            default -> "1";
+        };
+    }
+}
@@ -0,0 +1,186 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.servlet.mvc.method.annotation.ResponseBodyEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Reparto de estados de ambulancia por SSE: orden de los eventos, cierre al finalizar y desconexion de clientes lentos
+// sin frenar a los demas. Las conexiones se simulan con emitters que registran lo enviado, sin servidor.
+class CentralEstadoAmbulanciasTest {
+
+    private final ExecutorService ejecutor = Executors.newFixedThreadPool(4);
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+
+    @AfterEach
+    void detener() {
+        ejecutor.shutdownNow();
+    }
+
+    @Test
+    void elSuscriptorRecibeCadaEstadoEnOrdenYSeCierraAlFinalizar() throws Exception {
+        CentralEstadoAmbulancias central = new CentralEstadoAmbulancias(ejecutor, objectMapper, 60_000, 32);
+        SolicitudAmbulancia solicitud = solicitud(1);
+        EmitterRegistrado emitter = new EmitterRegistrado(5);
+        central.suscribir(solicitud, emitter);
+
+        solicitud.asignar("AMB-1", 2.5, 5, System.currentTimeMillis());
+        central.publicar(solicitud);
+        solicitud.partir();
+        central.publicar(solicitud);
+        solicitud.llegar();
+        central.publicar(solicitud);
+        solicitud.finalizar();
+        central.publicar(solicitud);
+
+        assertTrue(emitter.recibidos.await(5, TimeUnit.SECONDS));
+        List<String> estados = new ArrayList<>();
+        for (String evento : emitter.eventos) {
+            estados.add(objectMapper.readTree(evento.substring(evento.indexOf('{'), evento.lastIndexOf('}') + 1)).get("estado").asText());
+        }
+        assertEquals(List.of(SolicitudAmbulancia.ESTADO_EN_COLA, SolicitudAmbulancia.ESTADO_ASIGNADA, SolicitudAmbulancia.ESTADO_EN_CAMINO,
+                SolicitudAmbulancia.ESTADO_EN_LUGAR, SolicitudAmbulancia.ESTADO_FINALIZADA), estados);
+        assertTrue(emitter.completado.await(5, TimeUnit.SECONDS));
+        esperarSinConexiones(central);
+    }
+
+    @Test
+    void unClienteLentoSeDesconectaSinRetrasarALosDemas() throws InterruptedException, IOException {
+        CentralEstadoAmbulancias central = new CentralEstadoAmbulancias(ejecutor, objectMapper, 60_000, 4);
+        SolicitudAmbulancia solicitud = solicitud(1);
+        CountDownLatch liberarLento = new CountDownLatch(1);
+        EmitterRegistrado lento = new EmitterRegistrado(1) {
+            @Override
+            public void send(SseEventBuilder evento) throws IOException {
+                try {
+                    liberarLento.await(5, TimeUnit.SECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                super.send(evento);
+            }
+        };
+        EmitterRegistrado rapido = new EmitterRegistrado(11);
+        central.suscribir(solicitud, lento);
+        central.suscribir(solicitud, rapido);
+
+        // Cada latido llega al cliente rapido mientras el lento sigue bloqueado en su primer envio y acumula pendientes.
+        for (int i = 0; i < 10; i++) {
+            central.latido();
+            esperarEventos(rapido, i + 2);
+        }
+        assertTrue(rapido.recibidos.await(5, TimeUnit.SECONDS));
+        assertEquals(1, central.getDesconectadosLentos());
+        assertEquals(1, central.getConexiones());
+        liberarLento.countDown();
+        assertTrue(lento.completado.await(5, TimeUnit.SECONDS));
+        assertFalse(rapido.completado.await(0, TimeUnit.SECONDS));
+    }
+
+    // Miles de conexiones abiertas con 4 hilos de envio: cuanto tarda en llegar una ronda de estados a todas
+    // y cuanto cuesta publicar (lo que paga el hilo del despacho).
+    @Test
+    @Tag("benchmark")
+    void rendimientoConCincoMilConexiones() throws InterruptedException {
+        int conexiones = 5_000;
+        int rondas = 10;
+        CentralEstadoAmbulancias central = new CentralEstadoAmbulancias(ejecutor, objectMapper, 60_000, 32);
+        List<SolicitudAmbulancia> solicitudes = new ArrayList<>();
+        List<EmitterRegistrado> emitters = new ArrayList<>();
+        for (int i = 1; i <= conexiones; i++) {
+            SolicitudAmbulancia solicitud = solicitud(i);
+            EmitterRegistrado emitter = new EmitterRegistrado(rondas + 2);
+            central.suscribir(solicitud, emitter);
+            solicitudes.add(solicitud);
+            emitters.add(emitter);
+        }
+
+        long inicio = System.nanoTime();
+        long publicacionNanos = 0;
+        for (int ronda = 0; ronda < rondas; ronda++) {
+            for (SolicitudAmbulancia solicitud : solicitudes) {
+                solicitud.setPrioridad(ronda % SolicitudAmbulancia.GRAVEDAD_BAJA + 1);
+                long antes = System.nanoTime();
+                central.publicar(solicitud);
+                publicacionNanos += System.nanoTime() - antes;
+            }
+        }
+        central.latido();
+        for (EmitterRegistrado emitter : emitters) {
+            assertTrue(emitter.recibidos.await(30, TimeUnit.SECONDS));
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        long eventos = (long) conexiones * (rondas + 1);
+        assertEquals(conexiones, central.getConexiones());
+        assertEquals(0, central.getDesconectadosLentos());
+
+        System.out.printf("%d conexiones, %d eventos + latido: %.0f eventos/s entregados, publicar %.1f us de media%n",
+                conexiones, eventos, (eventos + conexiones) / segundos, publicacionNanos / 1e3 / eventos);
+    }
+
+    private static SolicitudAmbulancia solicitud(long id) {
+        return new SolicitudAmbulancia(id, id, id, new Posicion(-12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_ALTA,
+                System.currentTimeMillis());
+    }
+
+    private static void esperarEventos(EmitterRegistrado emitter, int cantidad) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (emitter.eventos.size() < cantidad && System.currentTimeMillis() < limite) {
+            Thread.sleep(1);
+        }
+        assertEquals(cantidad, emitter.eventos.size());
+    }
+
+    private static void esperarSinConexiones(CentralEstadoAmbulancias central) throws InterruptedException {
+        long limite = System.currentTimeMillis() + 5_000;
+        while (central.getConexiones() > 0 && System.currentTimeMillis() < limite) {
+            Thread.sleep(10);
+        }
+        assertEquals(0, central.getConexiones());
+    }
+
+    // Emitter sin conexion real: guarda el texto de cada evento enviado.
+    private static class EmitterRegistrado extends SseEmitter {
+
+        final List<String> eventos = new CopyOnWriteArrayList<>();
+        final CountDownLatch recibidos;
+        final CountDownLatch completado = new CountDownLatch(1);
+
+        EmitterRegistrado(int esperados) {
+            this.recibidos = new CountDownLatch(esperados);
+        }
+
+        @Override
+        public void send(SseEventBuilder evento) throws IOException {
+            StringBuilder texto = new StringBuilder();
+            for (ResponseBodyEmitter.DataWithMediaType parte : evento.build()) {
+                texto.append(parte.getData());
+            }
+            eventos.add(texto.toString());
+            recibidos.countDown();
+        }
+
+        @Override
+        public void complete() {
+            completado.countDown();
+        }
+    }
+}
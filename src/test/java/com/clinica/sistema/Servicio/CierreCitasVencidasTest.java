@@ -0,0 +1,103 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+@SpringBootTest(properties = "clinica.citas.cierre.tamano-bloque=2")
+@ActiveProfiles("test")
+class CierreCitasVencidasTest {
+
+    @Autowired
+    private CierreCitasVencidas cierreCitasVencidas;
+    @Autowired
+    private CitaRepositorio citaRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    private Medico medico;
+    private Paciente pacienteGuardado;
+
+    // La base H2 se comparte entre clases de prueba: cada prueba usa su propio medico y paciente.
+    @BeforeEach
+    void preparar() {
+        long sufijo = System.nanoTime();
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Cierre " + sufijo));
+        medico = medicoRepositorio.save(new Medico(null, "Prueba", "Cierre", especialidad));
+
+        String numero = String.format("%06d", sufijo % 1_000_000);
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Paciente");
+        paciente.setApellido("Cierre");
+        paciente.setDni("99" + numero);
+        paciente.setTelefono("999" + numero);
+        paciente.setCorreo("paciente.cierre" + sufijo + "@prueba.com");
+        paciente.setContraseña("no-usada");
+        pacienteGuardado = pacienteRepositorio.save(paciente);
+    }
+
+    @Test
+    void completaSoloLasCitasPendientesVencidas() {
+
+        LocalDate ayer = LocalDate.now().minusDays(1);
+        LocalDate manana = LocalDate.now().plusDays(1);
+        // Cinco citas vencidas para recorrer varios bloques de tamano 2.
+        Long[] vencidas = new Long[5];
+        for (int i = 0; i < vencidas.length; i++) {
+            vencidas[i] = guardarCita(ayer, LocalTime.of(8 + i, 0), "Pendiente", pacienteGuardado, medico);
+        }
+        Long futura = guardarCita(manana, LocalTime.of(9, 0), "Pendiente", pacienteGuardado, medico);
+        Long cancelada = guardarCita(ayer, LocalTime.of(15, 0), "Cancelada", pacienteGuardado, medico);
+
+        long completadasAntes = cierreCitasVencidas.getCitasCompletadas();
+        cierreCitasVencidas.completarCitasVencidas();
+
+        for (Long id : vencidas) {
+            assertEquals("Completada", citaRepositorio.findById(id).orElseThrow().getEstado());
+        }
+        assertEquals("Pendiente", citaRepositorio.findById(futura).orElseThrow().getEstado());
+        assertEquals("Cancelada", citaRepositorio.findById(cancelada).orElseThrow().getEstado());
+        assertTrue(cierreCitasVencidas.getCitasCompletadas() - completadasAntes >= vencidas.length);
+    }
+
+    // Una cita pendiente registrada despues de una pasada, con fecha ya revisada, se cierra en la siguiente.
+    @Test
+    void completaCitasVencidasRegistradasDespuesDeUnaPasada() {
+        cierreCitasVencidas.completarCitasVencidas();
+
+        Long tardia = guardarCita(LocalDate.now().minusDays(3), LocalTime.of(10, 0), "Pendiente", pacienteGuardado, medico);
+        cierreCitasVencidas.completarCitasVencidas();
+
+        assertEquals("Completada", citaRepositorio.findById(tardia).orElseThrow().getEstado());
+    }
+
+    private Long guardarCita(LocalDate fecha, LocalTime hora, String estado, Paciente paciente, Medico medico) {
+        return citaRepositorio.save(new Cita(null, fecha, hora, estado, paciente, medico, null)).getId();
+    }
+}
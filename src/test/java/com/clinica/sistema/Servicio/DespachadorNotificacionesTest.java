@@ -0,0 +1,182 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.DynamicPropertyRegistry;
+import org.springframework.test.context.DynamicPropertySource;
+
+import com.clinica.sistema.Modelo.Notificacion;
+import com.clinica.sistema.Repositorio.NotificacionRepositorio;
+
+// Bandeja de salida contra un servidor SMTP falso: envio, reintento con espera exponencial, paso a 'Fallida'
+// tras el maximo de intentos y recuperacion de reservas vencidas. El despacho se invoca a mano (ver application-test.properties).
+@SpringBootTest(properties = {
+        "clinica.notificaciones.max-intentos=3",
+        "clinica.notificaciones.espera-inicial-ms=60000",
+        "clinica.notificaciones.espera-maxima-ms=100000",
+        "clinica.correo.mensajes-por-segundo=0" })
+@ActiveProfiles("test")
+class DespachadorNotificacionesTest {
+
+    private static SmtpFalso smtp;
+
+    @Autowired
+    private DespachadorNotificaciones despachador;
+    @Autowired
+    private NotificacionRepositorio notificacionRepositorio;
+
+    @DynamicPropertySource
+    static void correo(DynamicPropertyRegistry registro) throws IOException {
+        smtp = new SmtpFalso(0);
+        registro.add("spring.mail.port", smtp::getPuerto);
+    }
+
+    @AfterAll
+    static void detenerSmtp() throws IOException {
+        smtp.close();
+    }
+
+    @AfterEach
+    void aceptarCorreo() {
+        smtp.setRechazarDestinatarios(false);
+    }
+
+    @Test
+    void enviaLasPendientesVencidas() {
+        int mensajesAntes = smtp.getMensajes();
+        Notificacion notificacion = crear(Notificacion.ESTADO_PENDIENTE, LocalDateTime.now().minusSeconds(1));
+
+        despachador.despacharPendientes();
+
+        Notificacion enviada = esperarFinDelEnvio(notificacion.getId());
+        assertEquals(Notificacion.ESTADO_ENVIADA, enviada.getEstado());
+        assertEquals(1, enviada.getIntentos());
+        assertNull(enviada.getUltimoError());
+        assertTrue(smtp.getMensajes() > mensajesAntes);
+    }
+
+    @Test
+    void reintentaConEsperaExponencialYPasaAFallidaTrasElMaximo() {
+        smtp.setRechazarDestinatarios(true);
+        Notificacion notificacion = crear(Notificacion.ESTADO_PENDIENTE, LocalDateTime.now().minusSeconds(1));
+
+        Notificacion primerFallo = despacharYEsperar(notificacion.getId());
+        assertEquals(Notificacion.ESTADO_PENDIENTE, primerFallo.getEstado());
+        assertEquals(1, primerFallo.getIntentos());
+        assertNotNull(primerFallo.getUltimoError());
+        assertEsperaAproximada(60_000, primerFallo.getProximoIntento());
+
+        // Mientras no vence la espera, el despacho no la vuelve a tomar.
+        despachador.despacharPendientes();
+        assertEquals(1, notificacionRepositorio.findById(notificacion.getId()).orElseThrow().getIntentos());
+
+        vencerProximoIntento(notificacion.getId());
+        Notificacion segundoFallo = despacharYEsperar(notificacion.getId());
+        assertEquals(Notificacion.ESTADO_PENDIENTE, segundoFallo.getEstado());
+        assertEquals(2, segundoFallo.getIntentos());
+        // La espera se duplica (120 s) pero queda limitada por la espera maxima.
+        assertEsperaAproximada(100_000, segundoFallo.getProximoIntento());
+
+        vencerProximoIntento(notificacion.getId());
+        Notificacion fallida = despacharYEsperar(notificacion.getId());
+        assertEquals(Notificacion.ESTADO_FALLIDA, fallida.getEstado());
+        assertEquals(3, fallida.getIntentos());
+        assertNull(fallida.getProximoIntento());
+        assertNotNull(fallida.getUltimoError());
+
+        // Una notificacion 'Fallida' no se vuelve a enviar aunque el proveedor ya acepte el correo.
+        smtp.setRechazarDestinatarios(false);
+        despachador.despacharPendientes();
+        assertEquals(Notificacion.ESTADO_FALLIDA, notificacionRepositorio.findById(notificacion.getId()).orElseThrow().getEstado());
+    }
+
+    @Test
+    void recuperaLasReservasVencidasYRespetaLasVigentes() {
+        Notificacion vencida = crear(Notificacion.ESTADO_ENVIANDO, LocalDateTime.now().minusMinutes(1));
+        Notificacion vigente = crear(Notificacion.ESTADO_ENVIANDO, LocalDateTime.now().plusHours(1));
+
+        despachador.despacharPendientes();
+
+        assertEquals(Notificacion.ESTADO_ENVIADA, esperarFinDelEnvio(vencida.getId()).getEstado());
+        Notificacion enCurso = notificacionRepositorio.findById(vigente.getId()).orElseThrow();
+        assertEquals(Notificacion.ESTADO_ENVIANDO, enCurso.getEstado());
+        assertEquals(0, enCurso.getIntentos());
+    }
+
+    @Test
+    void soloUnTrabajadorReclamaCadaNotificacion() {
+        Notificacion notificacion = crear(Notificacion.ESTADO_PENDIENTE, LocalDateTime.now().minusSeconds(1));
+        LocalDateTime finReserva = LocalDateTime.now().plusMinutes(2);
+
+        assertEquals(1, notificacionRepositorio.reclamar(notificacion.getId(), finReserva));
+        assertEquals(0, notificacionRepositorio.reclamar(notificacion.getId(), finReserva));
+
+        Notificacion reclamada = notificacionRepositorio.findById(notificacion.getId()).orElseThrow();
+        assertEquals(Notificacion.ESTADO_ENVIANDO, reclamada.getEstado());
+        assertFalse(reclamada.getProximoIntento().isBefore(finReserva.withNano(0)));
+    }
+
+    private Notificacion crear(String estado, LocalDateTime proximoIntento) {
+        Notificacion notificacion = new Notificacion();
+        notificacion.setEmailDestinatario("bandeja" + System.nanoTime() + "@prueba.com");
+        notificacion.setAsunto("Recordatorio de cita");
+        notificacion.setMensaje("Su cita es manana.");
+        notificacion.setFechaEnvio(LocalDate.now());
+        notificacion.setEstado(estado);
+        notificacion.setProximoIntento(proximoIntento);
+        return notificacionRepositorio.save(notificacion);
+    }
+
+    private void vencerProximoIntento(Long id) {
+        Notificacion notificacion = notificacionRepositorio.findById(id).orElseThrow();
+        notificacion.setProximoIntento(LocalDateTime.now().minusSeconds(1));
+        notificacionRepositorio.save(notificacion);
+    }
+
+    private Notificacion despacharYEsperar(Long id) {
+        despachador.despacharPendientes();
+        return esperarFinDelEnvio(id);
+    }
+
+    // El envio corre en el pool de notificaciones: espera a que la notificacion deje de estar reservada.
+    private Notificacion esperarFinDelEnvio(Long id) {
+        long limite = System.currentTimeMillis() + 10_000;
+        while (System.currentTimeMillis() < limite) {
+            Notificacion notificacion = notificacionRepositorio.findById(id).orElseThrow();
+            if (!Notificacion.ESTADO_ENVIANDO.equals(notificacion.getEstado())) {
+                return notificacion;
+            }
+            try {
+                Thread.sleep(20);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        return fail("La notificacion " + id + " sigue en 'Enviando' tras 10 s.");
+    }
+
+    private void assertEsperaAproximada(long esperaMs, LocalDateTime proximoIntento) {
+        assertNotNull(proximoIntento);
+        LocalDateTime ahora = LocalDateTime.now();
+        assertTrue(proximoIntento.isAfter(ahora.plusNanos((esperaMs - 10_000) * 1_000_000)),
+                () -> "Proximo intento demasiado pronto: " + proximoIntento);
+        assertTrue(proximoIntento.isBefore(ahora.plusNanos(esperaMs * 1_000_000)),
+                () -> "Proximo intento demasiado tarde: " + proximoIntento);
+    }
+}
@@ -0,0 +1,317 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.EventoDespacho;
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.SolicitudAmbulancia;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+// Cola de triaje, escalado por SLA en la rueda de temporizadores y recuperacion desde el diario.
+// Construye el despacho directamente, sin el contexto de Spring.
+class DespachoAmbulanciasTest {
+
+    private static final long[] SLA_LARGO = { 480_000, 900_000, 1_800_000, 3_600_000 };
+
+    @TempDir
+    Path directorio;
+
+    private final List<RuedaTemporizadores> ruedas = new ArrayList<>();
+    private final List<DiarioDespacho> diarios = new ArrayList<>();
+
+    @AfterEach
+    void detener() {
+        ruedas.forEach(RuedaTemporizadores::detener);
+        diarios.forEach(DiarioDespacho::cerrar);
+    }
+
+    @Test
+    void laColaSeAtiendePorGravedadYAntiguedad() {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        DespachoAmbulancias despacho = despacho(flota, diario("orden.journal"), SLA_LARGO);
+
+        SolicitudAmbulancia baja = despacho.solicitar(1L, direccion(1, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_BAJA);
+        SolicitudAmbulancia alta = despacho.solicitar(2L, direccion(2, -12.10, -77.00), SolicitudAmbulancia.GRAVEDAD_ALTA);
+        SolicitudAmbulancia critica = despacho.solicitar(3L, direccion(3, -12.00, -77.10), SolicitudAmbulancia.GRAVEDAD_CRITICA);
+        SolicitudAmbulancia altaPosterior = despacho.solicitar(4L, direccion(4, -12.08, -77.02), SolicitudAmbulancia.GRAVEDAD_ALTA);
+
+        assertEquals(4, despacho.getEnCola());
+        assertEquals(1, despacho.posicionEnCola(critica));
+        assertEquals(2, despacho.posicionEnCola(alta));
+        assertEquals(3, despacho.posicionEnCola(altaPosterior));
+        assertEquals(4, despacho.posicionEnCola(baja));
+
+        // Cada unidad que se registra y libera va a la primera solicitud de la cola.
+        flota.registrar("AMB-1", new Posicion(-12.05, -77.05));
+        despacho.despacharCola();
+        assertEquals("AMB-1", critica.getCodigoUnidad());
+
+        flota.registrar("AMB-2", new Posicion(-12.05, -77.05));
+        despacho.despacharCola();
+        assertEquals("AMB-2", alta.getCodigoUnidad());
+
+        assertTrue(despacho.finalizar(critica.getId()));
+        assertEquals("AMB-1", altaPosterior.getCodigoUnidad());
+        assertEquals(SolicitudAmbulancia.ESTADO_EN_COLA, baja.getEstado());
+        assertEquals(1, despacho.getEnCola());
+    }
+
+    @Test
+    void unaSolicitudQueSeAcercaASuSlaPasaDelanteDeUnaMasGrave() throws InterruptedException {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        // SLA de la gravedad baja: aviso a los 800 ms y vencimiento al segundo.
+        DespachoAmbulancias despacho = despacho(flota, diario("sla.journal"), new long[] { 60_000, 60_000, 60_000, 1_000 });
+
+        SolicitudAmbulancia baja = despacho.solicitar(1L, direccion(1, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_BAJA);
+        SolicitudAmbulancia critica = despacho.solicitar(2L, direccion(2, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_CRITICA);
+        assertEquals(2, despacho.posicionEnCola(baja));
+
+        long limite = System.currentTimeMillis() + 5_000;
+        while (baja.getPrioridad() != SolicitudAmbulancia.PRIORIDAD_SLA_VENCIDO && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(SolicitudAmbulancia.PRIORIDAD_SLA_VENCIDO, baja.getPrioridad());
+        assertEquals(1, despacho.posicionEnCola(baja));
+        // El aviso puede llegar tarde, ya vencido el SLA, y entonces se escala una sola vez.
+        assertTrue(despacho.getEscaladas() >= 1);
+        assertEquals(1, despacho.getSlaVencidos());
+        assertEquals(SolicitudAmbulancia.GRAVEDAD_CRITICA, critica.getPrioridad());
+    }
+
+    // El hilo de la rueda solo reordena la cola: la escalada se anota en el diario y se publica en el ejecutor aparte.
+    @Test
+    void lasEscaladasSeAnotanFueraDelHiloDeLaRueda() throws InterruptedException {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        DiarioDespacho diario = diario("escaladas.journal");
+        ConcurrentLinkedQueue<Runnable> tareas = new ConcurrentLinkedQueue<>();
+        DespachoAmbulancias despacho = despacho(flota, diario, new long[] { 60_000, 60_000, 60_000, 1_000 }, tareas::add);
+
+        SolicitudAmbulancia baja = despacho.solicitar(1L, direccion(1, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_BAJA);
+        SolicitudAmbulancia critica = despacho.solicitar(2L, direccion(2, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_CRITICA);
+
+        long limite = System.currentTimeMillis() + 5_000;
+        while (baja.getPrioridad() != SolicitudAmbulancia.PRIORIDAD_SLA_VENCIDO && System.currentTimeMillis() < limite) {
+            Thread.sleep(20);
+        }
+        assertEquals(1, despacho.posicionEnCola(baja));
+        assertEquals(2, despacho.posicionEnCola(critica));
+        assertTrue(escaladasEnDiario(diario).isEmpty());
+        assertTrue(despacho.getEscaladasPendientes() >= 1);
+        // Una sola tarea vacia todas las escaladas pendientes.
+        assertEquals(1, tareas.size());
+
+        Runnable tarea;
+        while ((tarea = tareas.poll()) != null) {
+            tarea.run();
+        }
+        List<EventoDespacho> escaladas = escaladasEnDiario(diario);
+        assertEquals(despacho.getEscaladas(), escaladas.size());
+        assertEquals(SolicitudAmbulancia.PRIORIDAD_SLA_VENCIDO, escaladas.get(escaladas.size() - 1).prioridad());
+        assertEquals(0, despacho.getEscaladasPendientes());
+    }
+
+    @Test
+    void unaSolicitudFinalizadaNoSeAsignaNiRetieneLaUnidad() {
+        SolicitudAmbulancia cancelada = new SolicitudAmbulancia(1L, 1L, 1L, new Posicion(-12.05, -77.05),
+                SolicitudAmbulancia.GRAVEDAD_MEDIA, System.currentTimeMillis());
+        assertFalse(cancelada.finalizar());
+        assertFalse(cancelada.asignar("AMB-1", 1.0, 2, System.currentTimeMillis()));
+        assertEquals(SolicitudAmbulancia.ESTADO_FINALIZADA, cancelada.getEstado());
+        assertNull(cancelada.getCodigoUnidad());
+
+        SolicitudAmbulancia atendida = new SolicitudAmbulancia(2L, 1L, 1L, new Posicion(-12.05, -77.05),
+                SolicitudAmbulancia.GRAVEDAD_MEDIA, System.currentTimeMillis());
+        assertTrue(atendida.asignar("AMB-1", 1.0, 2, System.currentTimeMillis()));
+        assertTrue(atendida.finalizar());
+    }
+
+    // Al liberarse la unidad, el despacho de la cola compite con la cancelacion de la solicitud que espera:
+    // gane quien gane, la solicitud termina finalizada y la unidad vuelve a la flota.
+    @Test
+    void cancelarMientrasSeDespachaLaColaDevuelveLaUnidad() throws Exception {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        flota.registrar("AMB-1", new Posicion(-12.05, -77.05));
+        DespachoAmbulancias despacho = despacho(flota, diario("carrera.journal"), SLA_LARGO);
+        ExecutorService hilos = Executors.newFixedThreadPool(2);
+        try {
+            for (int ronda = 0; ronda < 500; ronda++) {
+                SolicitudAmbulancia ocupante = despacho.solicitar(1L, direccion(1, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_MEDIA);
+                SolicitudAmbulancia enEspera = despacho.solicitar(2L, direccion(2, -12.06, -77.05), SolicitudAmbulancia.GRAVEDAD_MEDIA);
+                assertEquals("AMB-1", ocupante.getCodigoUnidad());
+                assertEquals(SolicitudAmbulancia.ESTADO_EN_COLA, enEspera.getEstado());
+
+                CountDownLatch salida = new CountDownLatch(1);
+                Future<?> liberar = hilos.submit(() -> {
+                    salida.await();
+                    return despacho.finalizar(ocupante.getId());
+                });
+                Future<?> cancelar = hilos.submit(() -> {
+                    salida.await();
+                    return despacho.finalizar(enEspera.getId());
+                });
+                salida.countDown();
+                liberar.get(5, TimeUnit.SECONDS);
+                cancelar.get(5, TimeUnit.SECONDS);
+
+                assertEquals(SolicitudAmbulancia.ESTADO_FINALIZADA, enEspera.getEstado(), "Ronda " + ronda);
+                assertEquals(1, flota.getDisponibles(), "Ronda " + ronda);
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+    }
+
+    @Test
+    void elEstadoSeRecuperaDelDiarioTrasUnReinicio() {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        flota.registrar("AMB-1", new Posicion(-12.05, -77.05));
+        DespachoAmbulancias despacho = despacho(flota, diario("recuperacion.journal"), SLA_LARGO);
+
+        SolicitudAmbulancia asignada = despacho.solicitar(1L, direccion(1, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_MEDIA);
+        SolicitudAmbulancia media = despacho.solicitar(2L, direccion(2, -12.06, -77.05), SolicitudAmbulancia.GRAVEDAD_MEDIA);
+        SolicitudAmbulancia critica = despacho.solicitar(3L, direccion(3, -12.07, -77.05), SolicitudAmbulancia.GRAVEDAD_CRITICA);
+        SolicitudAmbulancia cancelada = despacho.solicitar(4L, direccion(4, -12.08, -77.05), SolicitudAmbulancia.GRAVEDAD_BAJA);
+        assertTrue(despacho.finalizar(cancelada.getId()));
+        assertTrue(despacho.marcarEnCamino(asignada.getId()));
+        diarios.forEach(DiarioDespacho::cerrar);
+
+        // Reinicio: flota y despacho nuevos sobre el mismo diario.
+        FlotaAmbulancias flotaNueva = new FlotaAmbulancias(1.0, 60);
+        flotaNueva.registrar("AMB-1", new Posicion(-12.05, -77.05));
+        DespachoAmbulancias recuperado = despacho(flotaNueva, diario("recuperacion.journal"), SLA_LARGO);
+        assertEquals(3, recuperado.recuperar());
+
+        SolicitudAmbulancia asignadaRecuperada = recuperado.buscarActiva(asignada.getId()).orElseThrow();
+        assertEquals(SolicitudAmbulancia.ESTADO_EN_CAMINO, asignadaRecuperada.getEstado());
+        assertEquals("AMB-1", asignadaRecuperada.getCodigoUnidad());
+        assertEquals(0, flotaNueva.getDisponibles());
+        assertEquals(2, recuperado.getEnCola());
+        assertEquals(1, recuperado.posicionEnCola(recuperado.buscarActiva(critica.getId()).orElseThrow()));
+        assertEquals(2, recuperado.posicionEnCola(recuperado.buscarActiva(media.getId()).orElseThrow()));
+        assertTrue(recuperado.buscarActiva(cancelada.getId()).isEmpty());
+
+        // Los identificadores continuan tras el ultimo del diario.
+        SolicitudAmbulancia nueva = recuperado.solicitar(5L, direccion(5, -12.05, -77.05), SolicitudAmbulancia.GRAVEDAD_BAJA);
+        assertEquals(cancelada.getId() + 1, nueva.getId());
+    }
+
+    // Con 10.000 solicitudes pendientes: ritmo de encolado, precision de los temporizadores de SLA, ritmo de despacho
+    // al liberarse unidades y tiempo de recuperacion desde el diario.
+    @Test
+    @Tag("benchmark")
+    void rendimientoConDiezMilSolicitudesPendientes() throws InterruptedException {
+        int pendientes = 10_000;
+        Random aleatorio = new Random(11);
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        DespachoAmbulancias despacho = despacho(flota, diario("rendimiento.journal"), SLA_LARGO);
+
+        long inicio = System.nanoTime();
+        for (int i = 1; i <= pendientes; i++) {
+            despacho.solicitar((long) i, direccion(i, posicionEnLima(aleatorio)), 1 + aleatorio.nextInt(4));
+        }
+        double segundosEncolado = (System.nanoTime() - inicio) / 1e9;
+        assertEquals(pendientes, despacho.getEnCola());
+
+        // Precision de la rueda con la misma carga: 10.000 plazos repartidos en 2 s.
+        RuedaTemporizadores rueda = rueda();
+        ConcurrentLinkedQueue<Long> retrasos = new ConcurrentLinkedQueue<>();
+        CountDownLatch ejecutados = new CountDownLatch(pendientes);
+        for (int i = 0; i < pendientes; i++) {
+            long retrasoMs = 50 + aleatorio.nextInt(2_000);
+            long plazo = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(retrasoMs);
+            rueda.programar(() -> {
+                retrasos.add(System.nanoTime() - plazo);
+                ejecutados.countDown();
+            }, retrasoMs);
+        }
+        assertTrue(ejecutados.await(10, TimeUnit.SECONDS));
+        long[] ordenados = retrasos.stream().mapToLong(Long::longValue).sorted().toArray();
+        assertTrue(ordenados[0] >= 0, "Un temporizador se ejecuto antes de su plazo");
+
+        for (int i = 1; i <= pendientes / 2; i++) {
+            flota.registrar(String.format("AMB-%05d", i), posicionEnLima(aleatorio));
+        }
+        inicio = System.nanoTime();
+        int asignadas = despacho.despacharCola();
+        double segundosDespacho = (System.nanoTime() - inicio) / 1e9;
+        assertEquals(pendientes / 2, asignadas);
+
+        inicio = System.nanoTime();
+        FlotaAmbulancias flotaNueva = new FlotaAmbulancias(1.0, 60);
+        diarios.forEach(DiarioDespacho::cerrar);
+        int recuperadas = despacho(flotaNueva, diario("rendimiento.journal"), SLA_LARGO).recuperar();
+        double segundosRecuperacion = (System.nanoTime() - inicio) / 1e9;
+        assertEquals(pendientes, recuperadas);
+
+        System.out.printf("%d pendientes: encolado %.0f solicitudes/s, despacho %.0f asignaciones/s, recuperacion %.0f ms%n",
+                pendientes, pendientes / segundosEncolado, asignadas / segundosDespacho, segundosRecuperacion * 1000);
+        System.out.printf("Retraso de los temporizadores (tick 100 ms): p50 %.1f ms, p99 %.1f ms, max %.1f ms%n",
+                percentil(ordenados, 0.50) / 1e6, percentil(ordenados, 0.99) / 1e6, ordenados[ordenados.length - 1] / 1e6);
+    }
+
+    private DespachoAmbulancias despacho(FlotaAmbulancias flota, DiarioDespacho diario, long[] slaMs) {
+        return despacho(flota, diario, slaMs, Runnable::run);
+    }
+
+    private DespachoAmbulancias despacho(FlotaAmbulancias flota, DiarioDespacho diario, long[] slaMs, Executor ejecutorSla) {
+        CentralEstadoAmbulancias central = new CentralEstadoAmbulancias(Runnable::run, new ObjectMapper().findAndRegisterModules(), 60_000, 32);
+        return new DespachoAmbulancias(flota, rueda(), diario, central, ejecutorSla, 30, 20_000, slaMs, 0.8, 10_000);
+    }
+
+    private static List<EventoDespacho> escaladasEnDiario(DiarioDespacho diario) {
+        return diario.leer().stream().filter(evento -> EventoDespacho.ESCALADA.equals(evento.tipo())).toList();
+    }
+
+    private RuedaTemporizadores rueda() {
+        RuedaTemporizadores rueda = new RuedaTemporizadores("rueda-prueba", 100, 512);
+        ruedas.add(rueda);
+        return rueda;
+    }
+
+    private DiarioDespacho diario(String archivo) {
+        DiarioDespacho diario = new DiarioDespacho(directorio.resolve(archivo).toString(), false, new ObjectMapper());
+        diarios.add(diario);
+        return diario;
+    }
+
+    private static Direccion direccion(long id, double latitud, double longitud) {
+        return direccion(id, new Posicion(latitud, longitud));
+    }
+
+    private static Direccion direccion(long id, Posicion posicion) {
+        Direccion direccion = new Direccion();
+        direccion.setId(id);
+        direccion.setLatitud(posicion.latitud());
+        direccion.setLongitud(posicion.longitud());
+        return direccion;
+    }
+
+    private static Posicion posicionEnLima(Random aleatorio) {
+        return new Posicion(-12.25 + aleatorio.nextDouble() * 0.40, -77.15 + aleatorio.nextDouble() * 0.30);
+    }
+
+    private static double percentil(long[] ordenados, double fraccion) {
+        return ordenados[Math.min(ordenados.length - 1, (int) (ordenados.length * fraccion))];
+    }
+}
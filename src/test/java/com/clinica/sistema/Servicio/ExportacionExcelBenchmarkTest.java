@@ -0,0 +1,126 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryPoolMXBean;
+import java.lang.management.MemoryType;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+
+import org.apache.poi.ss.usermodel.Row;
+import org.apache.poi.ss.usermodel.Sheet;
+import org.apache.poi.ss.usermodel.Workbook;
+import org.apache.poi.xssf.usermodel.XSSFWorkbook;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.FilaReporteCita;
+import com.clinica.sistema.Modelo.Medico;
+
+// Compara el pico de heap y la latencia de la exportacion anterior (XSSF en memoria con autoSizeColumn y
+// copias del arreglo de bytes) contra la exportacion en streaming. Se ejecuta con: mvn -Pbenchmark test
+@Tag("benchmark")
+class ExportacionExcelBenchmarkTest {
+
+    @ParameterizedTest
+    @ValueSource(ints = { 10_000, 100_000 })
+    void laExportacionEnStreamingUsaMenosHeap(int filas) throws Exception {
+        List<Cita> citas = crearCitas(filas);
+        ExportacionExcelServicio servicio = new ExportacionExcelServicio(100);
+
+        Medicion anterior = medir(() -> exportarEnMemoria(citas));
+        Medicion streaming = medir(() -> servicio.escribirFilas("Historial Citas - Prueba", filas(citas), OutputStream.nullOutputStream()));
+
+        System.out.printf("%d filas | XSSF en memoria: %d ms, pico heap %d MB | SXSSF streaming: %d ms, pico heap %d MB%n",
+                filas, anterior.duracionMs(), anterior.picoHeapMb(), streaming.duracionMs(), streaming.picoHeapMb());
+
+        assertEquals(filas, servicio.escribirFilas("Historial", filas(citas), OutputStream.nullOutputStream()));
+        assertTrue(streaming.picoHeapMb() <= anterior.picoHeapMb(),
+                "La exportacion en streaming no deberia usar mas heap que la version en memoria.");
+    }
+
+    // Reproduce la implementacion anterior del controlador.
+    private int exportarEnMemoria(List<Cita> citas) throws IOException {
+        try (Workbook workbook = new XSSFWorkbook();
+             ByteArrayOutputStream outputStream = new ByteArrayOutputStream()) {
+            Sheet sheet = workbook.createSheet("Historial Citas - Prueba");
+            String[] headers = { "ID Cita", "Fecha", "Hora", "Estado", "Medico", "Especialidad" };
+            Row headerRow = sheet.createRow(0);
+            for (int i = 0; i < headers.length; i++) {
+                headerRow.createCell(i).setCellValue(headers[i]);
+            }
+            int rowNum = 1;
+            for (Cita cita : citas) {
+                Row row = sheet.createRow(rowNum++);
+                row.createCell(0).setCellValue(cita.getId());
+                row.createCell(1).setCellValue(cita.getFecha().toString());
+                row.createCell(2).setCellValue(cita.getHora().toString());
+                row.createCell(3).setCellValue(cita.getEstado());
+                row.createCell(4).setCellValue(cita.getMedico().getNombre() + " " + cita.getMedico().getApellido());
+                row.createCell(5).setCellValue(cita.getMedico().getEspecialidad().getNombre());
+            }
+            for (int i = 0; i < headers.length; i++) {
+                sheet.autoSizeColumn(i);
+            }
+            workbook.write(outputStream);
+            // La version anterior copiaba el arreglo tres veces: para el log, para Content-Length y para el cuerpo.
+            int tamanoLog = outputStream.toByteArray().length;
+            int contentLength = outputStream.toByteArray().length;
+            byte[] cuerpo = outputStream.toByteArray();
+            return tamanoLog == contentLength ? cuerpo.length : -1;
+        }
+    }
+
+    // Las filas se proyectan al vuelo, como las entrega el cursor de la consulta de exportacion.
+    private Iterator<FilaReporteCita> filas(List<Cita> citas) {
+        return citas.stream()
+                .map(cita -> new FilaReporteCita(cita.getId(), cita.getFecha(), cita.getHora(), cita.getEstado(),
+                        cita.getMedico().getNombre() + " " + cita.getMedico().getApellido(), cita.getMedico().getEspecialidad().getNombre()))
+                .iterator();
+    }
+
+    private Medicion medir(Exportacion exportacion) throws Exception {
+        List<MemoryPoolMXBean> poolsHeap = ManagementFactory.getMemoryPoolMXBeans().stream()
+                .filter(pool -> pool.getType() == MemoryType.HEAP)
+                .toList();
+        System.gc();
+        poolsHeap.forEach(MemoryPoolMXBean::resetPeakUsage);
+
+        long inicio = System.nanoTime();
+        exportacion.ejecutar();
+        long duracionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        long picoBytes = poolsHeap.stream().mapToLong(pool -> pool.getPeakUsage().getUsed()).sum();
+        return new Medicion(duracionMs, picoBytes / (1024 * 1024));
+    }
+
+    private List<Cita> crearCitas(int filas) {
+        Especialidad especialidad = new Especialidad(1L, "Cardiologia");
+        Medico medico = new Medico(1L, "Juan", "Perez", especialidad);
+        LocalDate fecha = LocalDate.of(2024, 1, 1);
+        List<Cita> citas = new ArrayList<>(filas);
+        for (int i = 0; i < filas; i++) {
+            citas.add(new Cita((long) i + 1, fecha.plusDays(i / 20), LocalTime.of(8 + (i % 10), 0), "Completada", null, medico, null));
+        }
+        return citas;
+    }
+
+    @FunctionalInterface
+    private interface Exportacion {
+        int ejecutar() throws Exception;
+    }
+
+    private record Medicion(long duracionMs, long picoHeapMb) {
+    }
+}
@@ -0,0 +1,40 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.clinica.sistema.Modelo.FilaReporteCita;
+
+// Escapado de los campos del CSV: separadores, comillas y saltos de linea, y valores que Excel tomaria por formulas.
+class ExportacionExcelServicioTest {
+
+    private final ExportacionExcelServicio servicio = new ExportacionExcelServicio(100);
+
+    @Test
+    void entrecomillaSeparadoresComillasYSaltosDeLinea() throws Exception {
+        assertEquals("1;2025-07-20;09:00;Pendiente;\"Ana; Maria\";\"Dr \"\"A\"\"\"", fila("Ana; Maria", "Dr \"A\""));
+        assertEquals("1;2025-07-20;09:00;Pendiente;\"Ana\nMaria\";\"Cardio\rlogia\"", fila("Ana\nMaria", "Cardio\rlogia"));
+    }
+
+    @Test
+    void neutralizaValoresQueExcelInterpretariaComoFormulas() throws Exception {
+        assertEquals("1;2025-07-20;09:00;Pendiente;\"'=HYPERLINK(\"\"x\"\")\";'+51 999", fila("=HYPERLINK(\"x\")", "+51 999"));
+        assertEquals("1;2025-07-20;09:00;Pendiente;'-2+3;'@SUM(A1)", fila("-2+3", "@SUM(A1)"));
+        assertEquals("1;2025-07-20;09:00;Pendiente;'\tA;Sin Especialidad", fila("\tA", null));
+    }
+
+    private String fila(String medico, String especialidad) throws Exception {
+        ByteArrayOutputStream salida = new ByteArrayOutputStream();
+        servicio.escribirFilasCsv(List.of(new FilaReporteCita(1L, LocalDate.of(2025, 7, 20), LocalTime.of(9, 0), "Pendiente",
+                medico, especialidad)).iterator(), salida);
+        String[] lineas = salida.toString(StandardCharsets.UTF_8).split("\r\n");
+        return lineas[1];
+    }
+}
@@ -0,0 +1,150 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import com.clinica.sistema.Controlador.ContadorSentencias;
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.IdentidadPaciente;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+// Comprueba que la verificacion de duplicados del registro no consulta la base de datos para un paciente nuevo,
+// usa una sola consulta ante una posible coincidencia y que las restricciones unicas siguen teniendo la ultima palabra.
+@SpringBootTest(properties = "spring.jpa.properties.hibernate.session_factory.statement_inspector=com.clinica.sistema.Controlador.ContadorSentencias")
+@ActiveProfiles("test")
+class FiltroRegistroPacientesTest {
+
+    @Autowired
+    private AuthServicio authServicio;
+    @Autowired
+    private FiltroRegistroPacientes filtroRegistro;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void unPacienteNuevoSeVerificaSinConsultarYUnoRegistradoConUnaConsulta() {
+        String correo = "filtro." + System.nanoTime() + "@clinica.com";
+        String dni = dniUnico();
+
+        ContadorSentencias.reiniciar();
+        assertFalse(authServicio.existePacientePorEmailODni(correo, dni));
+        assertEquals(0, ContadorSentencias.contarTodas(), () -> "Sentencias para un paciente nuevo: " + ContadorSentencias.registradas());
+
+        authServicio.guardarPaciente(nuevoPaciente(correo, dni), direccion());
+
+        ContadorSentencias.reiniciar();
+        assertTrue(authServicio.existePacientePorEmailODni(correo, dniUnico()));
+        assertTrue(authServicio.existePacientePorEmailODni("otro." + System.nanoTime() + "@clinica.com", dni));
+        assertTrue(ContadorSentencias.contarTodas() <= 2, () -> "Sentencias para dos posibles coincidencias: " + ContadorSentencias.registradas());
+    }
+
+    @Test
+    void laRestriccionUnicaRechazaLoQueElFiltroNoConoce() {
+        // Insertado por fuera de AuthServicio: el filtro no lo conoce y responde "nuevo".
+        String dni = dniUnico();
+        jdbcTemplate.update("INSERT INTO pacientes (nombre, apellido, dni, telefono, correo, contraseña) VALUES (?, ?, ?, ?, ?, ?)",
+                "Externo", "Prueba", dni, "987654321", "externo." + System.nanoTime() + "@clinica.com", "x");
+        String correo = "duplicado." + System.nanoTime() + "@clinica.com";
+        assertFalse(filtroRegistro.posiblementeRegistrado(correo, dni));
+
+        IllegalArgumentException error = assertThrows(IllegalArgumentException.class,
+                () -> authServicio.guardarPaciente(nuevoPaciente(correo, dni), direccion()));
+        assertTrue(error.getMessage().contains(dni));
+    }
+
+    @Test
+    void unRegistroHechoDuranteLaReconstruccionLlegaAlFiltroNuevo() {
+        // La lectura de la base de datos no ve al paciente que se registra mientras dura (aun no confirmado).
+        PacienteRepositorio repositorio = mock(PacienteRepositorio.class);
+        FiltroRegistroPacientes filtro = new FiltroRegistroPacientes(repositorio, mock(PlatformTransactionManager.class), 1_000, 0.01);
+        when(repositorio.streamIdentidades()).thenAnswer(invocacion -> {
+            filtro.registrar("durante@clinica.com", "12345678");
+            return Stream.of(new IdentidadPaciente("antes@clinica.com", "87654321"));
+        });
+
+        filtro.reconstruir();
+
+        assertTrue(filtro.posiblementeRegistrado("durante@clinica.com", "00000000"));
+        assertTrue(filtro.posiblementeRegistrado("antes@clinica.com", "00000000"));
+        assertFalse(filtro.posiblementeRegistrado("nadie@clinica.com", "00000000"));
+    }
+
+    @Test
+    void ningunRegistroSePierdeAunqueCoincidaConElCambioDeFiltro() throws Exception {
+        // Cada hilo confirma el paciente en la "base de datos" y lo registra en el filtro mientras se reconstruye sin pausa.
+        Queue<IdentidadPaciente> confirmados = new ConcurrentLinkedQueue<>();
+        PacienteRepositorio repositorio = mock(PacienteRepositorio.class);
+        when(repositorio.streamIdentidades()).thenAnswer(invocacion -> List.copyOf(confirmados).stream());
+        FiltroRegistroPacientes filtro = new FiltroRegistroPacientes(repositorio, mock(PlatformTransactionManager.class), 100_000, 0.01);
+        filtro.reconstruir();
+
+        int porHilo = 2_000;
+        ExecutorService hilos = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<?>> registradores = new ArrayList<>();
+            for (int h = 0; h < 4; h++) {
+                int hilo = h;
+                registradores.add(hilos.submit(() -> {
+                    for (int i = 0; i < porHilo; i++) {
+                        String correo = "carrera." + hilo + "." + i + "@clinica.com";
+                        confirmados.add(new IdentidadPaciente(correo, "0"));
+                        filtro.registrar(correo, "0");
+                    }
+                }));
+            }
+            while (registradores.stream().anyMatch(registrador -> !registrador.isDone())) {
+                filtro.reconstruir();
+            }
+            for (Future<?> registrador : registradores) {
+                registrador.get();
+            }
+        } finally {
+            hilos.shutdownNow();
+        }
+
+        for (int h = 0; h < 4; h++) {
+            for (int i = 0; i < porHilo; i++) {
+                String correo = "carrera." + h + "." + i + "@clinica.com";
+                assertTrue(filtro.posiblementeRegistrado(correo, "x"), () -> "Registro perdido en el cambio de filtro: " + correo);
+            }
+        }
+    }
+
+    private static Paciente nuevoPaciente(String correo, String dni) {
+        return new Paciente(null, "Filtro", "Prueba", dni, "987654321", correo, "filtro12345", new ArrayList<>());
+    }
+
+    private static Direccion direccion() {
+        return new Direccion(null, "Av. Prueba 123", null);
+    }
+
+    private static String dniUnico() {
+        return String.format("%08d", System.nanoTime() % 100_000_000L);
+    }
+}
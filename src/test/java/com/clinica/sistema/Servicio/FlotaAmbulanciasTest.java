@@ -0,0 +1,178 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Modelo.UnidadAmbulancia;
+
+// Comprueba el indice espacial de la flota contra una busqueda exhaustiva y que la asignacion concurrente
+// nunca entrega la misma unidad a dos solicitudes. No necesita el contexto de Spring.
+class FlotaAmbulanciasTest {
+
+    private static final int HILOS = 8;
+
+    @Test
+    void laUnidadAsignadaEsLaDisponibleMasCercana() {
+        Random aleatorio = new Random(7);
+        FlotaAmbulancias flota = flotaSimulada(2_000, aleatorio);
+        for (int i = 0; i < 500; i++) {
+            Posicion destino = posicionEnLima(aleatorio);
+            double esperada = flota.getUnidades().stream()
+                    .filter(UnidadAmbulancia::isDisponible)
+                    .mapToDouble(unidad -> destino.distanciaKm(unidad.getPosicion()))
+                    .min().orElseThrow();
+
+            UnidadAmbulancia asignada = flota.asignarMasCercana(i, destino).orElseThrow();
+            assertEquals(esperada, destino.distanciaKm(asignada.getPosicion()), 1e-6);
+            // Se conserva asignada la mitad de las veces para que la busqueda tenga que saltar unidades ocupadas.
+            if (i % 2 == 0) {
+                flota.liberar(asignada.getCodigo());
+            }
+        }
+        assertEquals(2_000 - 250, flota.getDisponibles());
+    }
+
+    @Test
+    void sinUnidadesDentroDelRadioNoSeAsignaNada() {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 5);
+        flota.registrar("AMB-1", new Posicion(-12.05, -77.05));
+        assertTrue(flota.asignarMasCercana(1, new Posicion(-12.20, -77.05)).isEmpty());
+        assertTrue(flota.asignarMasCercana(2, new Posicion(-12.06, -77.05)).isPresent());
+        assertTrue(flota.asignarMasCercana(3, new Posicion(-12.06, -77.05)).isEmpty());
+    }
+
+    @Test
+    void unaUnidadQueSeMueveSeBuscaEnSuNuevaCelda() {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        flota.registrar("AMB-NORTE", new Posicion(-11.90, -77.05));
+        flota.registrar("AMB-SUR", new Posicion(-12.20, -77.00));
+        Posicion destino = new Posicion(-12.19, -77.01);
+
+        flota.actualizarPosicion("AMB-NORTE", new Posicion(-12.19, -77.011));
+
+        assertEquals("AMB-NORTE", flota.asignarMasCercana(1, destino).orElseThrow().getCodigo());
+    }
+
+    @Test
+    void dosSolicitudesConcurrentesNuncaReservanLaMismaUnidad() throws Exception {
+        int unidades = 3_000;
+        FlotaAmbulancias flota = flotaSimulada(unidades, new Random(11));
+        Set<String> asignadas = ConcurrentHashMap.newKeySet();
+        AtomicLong duplicadas = new AtomicLong();
+        AtomicLong solicitudes = new AtomicLong();
+        CountDownLatch largada = new CountDownLatch(1);
+
+        // Todos los hilos piden en la misma zona para forzar que compitan por las mismas unidades.
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int h = 0; h < HILOS; h++) {
+            Random aleatorio = new Random(h);
+            futuros.add(ejecutor.submit(() -> {
+                largada.await();
+                for (;;) {
+                    Posicion destino = new Posicion(-12.05 + aleatorio.nextDouble() * 0.02, -77.05 + aleatorio.nextDouble() * 0.02);
+                    Optional<UnidadAmbulancia> unidad = flota.asignarMasCercana(solicitudes.incrementAndGet(), destino);
+                    if (unidad.isEmpty()) {
+                        return null;
+                    }
+                    if (!asignadas.add(unidad.get().getCodigo())) {
+                        duplicadas.incrementAndGet();
+                    }
+                }
+            }));
+        }
+        largada.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(1, TimeUnit.MINUTES);
+        }
+        ejecutor.shutdown();
+
+        assertEquals(0, duplicadas.get(), "Una unidad se asigno a dos solicitudes.");
+        assertEquals(unidades, asignadas.size());
+        assertEquals(0, flota.getDisponibles());
+        assertEquals(unidades, flota.getAsignaciones());
+    }
+
+    // Latencia de asignacion con miles de unidades y solicitudes concurrentes (cada unidad se libera al asignarse
+    // para mantener la ocupacion estable). Se ejecuta con: mvn -Pbenchmark test -Dtest=FlotaAmbulanciasTest
+    @Test
+    @Tag("benchmark")
+    void laAsignacionTardaMenosDeUnMilisegundoConMilesDeUnidades() throws Exception {
+        int unidades = Integer.getInteger("despacho.unidades", 5_000);
+        int solicitudesPorHilo = Integer.getInteger("despacho.solicitudes", 50_000);
+        FlotaAmbulancias flota = flotaSimulada(unidades, new Random(3));
+        // Tres cuartas partes de la flota ocupada, como en una hora punta.
+        Random ocupacion = new Random(5);
+        for (int i = 0; i < unidades * 3 / 4; i++) {
+            flota.asignarMasCercana(-i - 1L, posicionEnLima(ocupacion));
+        }
+
+        long[][] latencias = new long[HILOS][solicitudesPorHilo];
+        AtomicLong sinUnidad = new AtomicLong();
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        List<Future<?>> futuros = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < HILOS; h++) {
+            int hilo = h;
+            futuros.add(ejecutor.submit(() -> {
+                Random aleatorio = new Random(100 + hilo);
+                for (int i = 0; i < solicitudesPorHilo; i++) {
+                    Posicion destino = posicionEnLima(aleatorio);
+                    long t0 = System.nanoTime();
+                    Optional<UnidadAmbulancia> unidad = flota.asignarMasCercana((long) hilo * solicitudesPorHilo + i, destino);
+                    latencias[hilo][i] = System.nanoTime() - t0;
+                    if (unidad.isEmpty()) {
+                        sinUnidad.incrementAndGet();
+                    } else {
+                        flota.liberar(unidad.get().getCodigo());
+                    }
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get(5, TimeUnit.MINUTES);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        ejecutor.shutdown();
+
+        long[] todas = Arrays.stream(latencias).flatMapToLong(Arrays::stream).sorted().toArray();
+        double p50 = todas[todas.length / 2] / 1_000.0;
+        double p99 = todas[(int) (todas.length * 0.99)] / 1_000.0;
+        System.out.printf("%d unidades (%d libres), %d hilos: %.0f asignaciones/s, p50 %.1f us, p99 %.1f us, max %.1f us, %d conflictos%n",
+                unidades, unidades - unidades * 3 / 4, HILOS, todas.length / segundos, p50, p99, todas[todas.length - 1] / 1_000.0,
+                flota.getConflictos());
+
+        assertEquals(0, sinUnidad.get());
+        assertTrue(p99 < 1_000, String.format("p99 de asignacion %.1f us, se esperaba menos de 1 ms.", p99));
+    }
+
+    private static FlotaAmbulancias flotaSimulada(int unidades, Random aleatorio) {
+        FlotaAmbulancias flota = new FlotaAmbulancias(1.0, 60);
+        for (int i = 1; i <= unidades; i++) {
+            flota.registrar(String.format("AMB-%04d", i), posicionEnLima(aleatorio));
+        }
+        return flota;
+    }
+
+    private static Posicion posicionEnLima(Random aleatorio) {
+        return new Posicion(-12.25 + aleatorio.nextDouble() * 0.40, -77.15 + aleatorio.nextDouble() * 0.30);
+    }
+}
@@ -0,0 +1,167 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.core.io.ClassPathResource;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Modelo.Posicion;
+import com.clinica.sistema.Repositorio.DireccionRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+// Comprueba la normalizacion y la busqueda en el nomenclator de Lima, que las direcciones se guardan con coordenadas
+// y que las de la carga inicial se ubican al arrancar.
+@SpringBootTest
+@ActiveProfiles("test")
+class GeocodificacionDireccionesTest {
+
+    @Autowired
+    private GeocodificadorDirecciones geocodificador;
+    @Autowired
+    private DireccionServicio direccionServicio;
+    @Autowired
+    private DireccionRepositorio direccionRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void normalizaTildesSignosYAbreviaturas() {
+        assertEquals("avenida javier prado este 123 san isidro", GeocodificadorDirecciones.normalizar("  Av. Javier Prado Este N° 123,  San Isidro "));
+        assertEquals("jiron de la union 456 cercado de lima", GeocodificadorDirecciones.normalizar("JR. DE LA UNIÓN Nro. 456 - Cercado de Lima"));
+
+        // Con un locale por defecto turco, "I" pasaria a "ı" y la direccion ya no coincidiria con el nomenclator.
+        Locale anterior = Locale.getDefault();
+        Locale.setDefault(Locale.forLanguageTag("tr-TR"));
+        try {
+            assertEquals("avenida iquitos 1250 la victoria", GeocodificadorDirecciones.normalizar("AV. IQUITOS 1250, LA VICTORIA"));
+        } finally {
+            Locale.setDefault(anterior);
+        }
+    }
+
+    @Test
+    void ubicaPorViaYDistritoPorDistritoONoUbica() {
+        // Tramo de la via en el distrito indicado.
+        Posicion javierPradoSanBorja = geocodificador.geocodificar("Av. Javier Prado Este 2465, San Borja").orElseThrow();
+        assertEquals(-12.0880, javierPradoSanBorja.latitud(), 1e-9);
+        assertEquals(-76.9950, javierPradoSanBorja.longitud(), 1e-9);
+
+        // El distrito que termina mas tarde gana sobre el nombre de la via y sobre la provincia.
+        Posicion surco = geocodificador.geocodificar("Jr. La Molina 789, Santiago de Surco, Lima").orElseThrow();
+        assertEquals(-12.1430, surco.latitud(), 1e-9);
+        Posicion sjm = geocodificador.geocodificar("Mz. B Lt. 4, San Juan de Miraflores").orElseThrow();
+        assertEquals(-12.1570, sjm.latitud(), 1e-9);
+        assertTrue(geocodificador.geocodificar("Calle Los Pinos 12, SJL").isPresent());
+
+        assertTrue(geocodificador.geocodificar("Calle Inexistente 123, Arequipa").isEmpty());
+    }
+
+    @Test
+    void sinDistritoSoloUbicaLasViasDeUnUnicoTramo() {
+        // La Javier Prado cruza cinco distritos: sin distrito no se sabe en cual esta.
+        assertTrue(geocodificador.geocodificar("Av. Javier Prado Este 4200").isEmpty());
+
+        Posicion abancay = geocodificador.geocodificar("Av. Abancay 390").orElseThrow();
+        assertEquals(-12.0500, abancay.latitud(), 1e-9);
+        assertEquals(-77.0300, abancay.longitud(), 1e-9);
+    }
+
+    @Test
+    void lasDireccionesSeGuardanConCoordenadasYLasPendientesSeUbicanAlIniciar() {
+        // Direccion de la carga inicial, guardada sin pasar por el geocodificador y ubicada al arrancar.
+        Paciente paciente = pacienteRepositorio.findByCorreo("ariana.davila@gmail.com").orElseThrow();
+        Direccion inicial = direccionRepositorio.findByPacienteId(paciente.getId()).get(0);
+        assertTrue(inicial.ubicacion().isPresent(), () -> "Sin coordenadas: " + inicial);
+
+        Direccion nueva = direccionServicio.guardarDireccion(new Direccion(null, "Av. Arequipa 1200, Lince", paciente));
+        Direccion guardada = direccionRepositorio.findById(nueva.getId()).orElseThrow();
+        assertEquals(-12.0820, guardada.getLatitud(), 1e-9);
+        assertEquals(-77.0340, guardada.getLongitud(), 1e-9);
+
+        Direccion desconocida = direccionServicio.guardarDireccion(new Direccion(null, "Carretera a Canta km 20", paciente));
+        assertFalse(direccionRepositorio.findById(desconocida.getId()).orElseThrow().ubicacion().isPresent());
+    }
+
+    // Geocodificaciones por segundo sin cache y con la cache por texto normalizado, con un acceso sesgado
+    // (pocas direcciones muy repetidas, muchas poco frecuentes). Se ejecuta con:
+    // mvn -Pbenchmark test -Dtest=GeocodificacionDireccionesTest [-Dgeocodificacion.distintas=50000]
+    @Test
+    @Tag("benchmark")
+    void laCacheMultiplicaLasGeocodificacionesPorSegundo() {
+        int distintas = Integer.getInteger("geocodificacion.distintas", 50_000);
+        int consultas = Integer.getInteger("geocodificacion.consultas", 500_000);
+        long tamanoCache = Long.getLong("geocodificacion.cache", 10_000L);
+        List<String> direcciones = direccionesVariadas(distintas, new Random(17));
+
+        GeocodificadorDirecciones sinCache = new GeocodificadorDirecciones(new ClassPathResource("nomenclator/lima.csv"), 0);
+        GeocodificadorDirecciones conCache = new GeocodificadorDirecciones(new ClassPathResource("nomenclator/lima.csv"), tamanoCache);
+        // Calentamiento con el mismo patron de acceso.
+        consultar(sinCache, direcciones, consultas / 10, 1);
+        consultar(conCache, direcciones, consultas / 10, 1);
+        long aciertosPrevios = conCache.getAciertos();
+        long fallosPrevios = conCache.getFallos();
+
+        double sinCachePorSegundo = consultar(sinCache, direcciones, consultas, 2);
+        double conCachePorSegundo = consultar(conCache, direcciones, consultas, 2);
+        long aciertos = conCache.getAciertos() - aciertosPrevios;
+        double tasaAcierto = (double) aciertos / (aciertos + conCache.getFallos() - fallosPrevios);
+
+        System.out.printf("%d direcciones distintas, %d consultas: sin cache %.0f/s | cache de %d %.0f/s (x%.1f), tasa de acierto %.1f%%, sin ubicar %d%n",
+                distintas, consultas, sinCachePorSegundo, tamanoCache, conCachePorSegundo, conCachePorSegundo / sinCachePorSegundo,
+                tasaAcierto * 100, conCache.getSinUbicacion());
+
+        // Con el sesgo cubico, las tamanoCache direcciones mas pedidas reciben (tamanoCache / distintas)^(1/3) de las consultas:
+        // es el techo de la tasa de acierto (58% con los valores por defecto); se exige al menos tres cuartas partes.
+        double techo = Math.cbrt(Math.min(1.0, (double) tamanoCache / distintas));
+        assertTrue(tasaAcierto > techo * 0.75, String.format("Tasa de acierto %.1f%% demasiado baja (techo %.1f%%).", tasaAcierto * 100, techo * 100));
+        assertTrue(conCachePorSegundo > sinCachePorSegundo, "La cache deberia acelerar la geocodificacion.");
+    }
+
+    private static double consultar(GeocodificadorDirecciones geocodificador, List<String> direcciones, int consultas, long semilla) {
+        Random aleatorio = new Random(semilla);
+        long ubicadas = 0;
+        long inicio = System.nanoTime();
+        for (int i = 0; i < consultas; i++) {
+            // Sesgo hacia las primeras direcciones de la lista.
+            int indice = (int) (direcciones.size() * Math.pow(aleatorio.nextDouble(), 3));
+            if (geocodificador.geocodificar(direcciones.get(indice)).isPresent()) {
+                ubicadas++;
+            }
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        assertTrue(ubicadas > 0);
+        return consultas / segundos;
+    }
+
+    // Direcciones con vias y distritos del nomenclator, escritas con distintas abreviaturas y signos.
+    private static List<String> direccionesVariadas(int total, Random aleatorio) {
+        String[] vias = { "Av. Javier Prado Este", "Avenida Arequipa", "Jr. de la Unión", "Av. Brasil", "Calle Schell",
+                "Av. Túpac Amaru", "Jr. Huallaga", "Av. Universitaria", "Calle Los Pinos", "Psje. Santa Rosa" };
+        String[] distritos = { "San Isidro", "Lince", "Cercado de Lima", "Jesús María", "Miraflores", "Comas", "Los Olivos",
+                "San Miguel", "SJL", "Santiago de Surco", "Villa El Salvador", "Callao" };
+        List<String> direcciones = new ArrayList<>(total);
+        for (int i = 0; i < total; i++) {
+            direcciones.add(String.format("%s N° %d, %s%s", vias[aleatorio.nextInt(vias.length)], 100 + aleatorio.nextInt(4_000),
+                    distritos[aleatorio.nextInt(distritos.length)], aleatorio.nextBoolean() ? ", Lima" : ""));
+        }
+        return direcciones;
+    }
+}
@@ -0,0 +1,129 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.clinica.sistema.Modelo.HorarioDisponible;
+import com.clinica.sistema.Repositorio.HorarioRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+
+class IndiceDisponibilidadTest {
+
+    private static final LocalDate FECHA = LocalDate.of(2025, 7, 20);
+    private static final LocalTime NUEVE = LocalTime.of(9, 0);
+    private static final LocalTime ONCE = LocalTime.of(11, 0);
+    private static final LocalTime QUINCE = LocalTime.of(15, 0);
+
+    private HorarioRepositorio horarioRepositorio;
+    private IndiceDisponibilidad indice;
+
+    @BeforeEach
+    void preparar() {
+        horarioRepositorio = mock(HorarioRepositorio.class);
+        MedicoRepositorio medicoRepositorio = mock(MedicoRepositorio.class);
+        when(medicoRepositorio.findTodosLosIds()).thenReturn(List.of(1L, 2L));
+        when(horarioRepositorio.findHorasDistintas()).thenReturn(List.of(NUEVE, ONCE, QUINCE));
+        when(horarioRepositorio.findTodosLosDisponibles()).thenReturn(List.of(
+                new HorarioDisponible(1L, FECHA, QUINCE),
+                new HorarioDisponible(1L, FECHA, NUEVE),
+                new HorarioDisponible(2L, FECHA, ONCE)));
+        indice = new IndiceDisponibilidad(horarioRepositorio, medicoRepositorio);
+        indice.reconstruir();
+    }
+
+    @Test
+    void respondeDesdeMemoriaOrdenadoPorHora() {
+        List<HorarioDisponible> horarios = indice.consultar(1L, FECHA).orElseThrow();
+
+        assertEquals(List.of(NUEVE, QUINCE), horarios.stream().map(HorarioDisponible::hora).toList());
+        assertTrue(indice.consultar(2L, FECHA.plusDays(1)).orElseThrow().isEmpty());
+        assertEquals(2, indice.getAciertos());
+    }
+
+    @Test
+    void medicoDesconocidoCuentaComoFallo() {
+        assertTrue(indice.consultar(99L, FECHA).isEmpty());
+        assertEquals(1, indice.getFallos());
+    }
+
+    @Test
+    void reservarYCancelarActualizanElIndice() {
+        indice.ocuparTrasConfirmar(1L, FECHA, NUEVE);
+        assertEquals(List.of(QUINCE), indice.consultar(1L, FECHA).orElseThrow().stream().map(HorarioDisponible::hora).toList());
+
+        indice.liberarTrasConfirmar(1L, FECHA, NUEVE);
+        assertEquals(2, indice.consultar(1L, FECHA).orElseThrow().size());
+    }
+
+    @Test
+    void verificacionDetectaDiferenciasConLaBaseDeDatos() {
+        when(horarioRepositorio.findTodosLosDisponibles()).thenReturn(List.of(new HorarioDisponible(1L, FECHA, NUEVE)));
+
+        indice.verificarConsistencia();
+
+        assertEquals(1, indice.getInconsistencias());
+        assertEquals(1, indice.consultar(1L, FECHA).orElseThrow().size());
+        assertTrue(indice.consultar(2L, FECHA).orElseThrow().isEmpty());
+    }
+
+    // Una verificacion programada que coincide con una reconstruccion manual espera a que termine; la reserva confirmada
+    // mientras la reconstruccion leia la base de datos no se pierde.
+    @Test
+    void unaVerificacionQueCoincideConUnaReconstruccionNoPierdeCambios() throws Exception {
+        List<HorarioDisponible> antesDeReservar = List.of(
+                new HorarioDisponible(1L, FECHA, QUINCE),
+                new HorarioDisponible(1L, FECHA, NUEVE),
+                new HorarioDisponible(2L, FECHA, ONCE));
+        List<HorarioDisponible> trasReservar = List.of(
+                new HorarioDisponible(1L, FECHA, QUINCE),
+                new HorarioDisponible(2L, FECHA, ONCE));
+        CountDownLatch leyendo = new CountDownLatch(1);
+        CountDownLatch continuar = new CountDownLatch(1);
+        AtomicInteger lecturas = new AtomicInteger();
+        when(horarioRepositorio.findTodosLosDisponibles()).thenAnswer(invocacion -> {
+            if (lecturas.incrementAndGet() == 1) {
+                leyendo.countDown();
+                continuar.await(5, TimeUnit.SECONDS);
+                return antesDeReservar;
+            }
+            return trasReservar;
+        });
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        try {
+            Future<?> manual = ejecutor.submit(indice::reconstruir);
+            assertTrue(leyendo.await(5, TimeUnit.SECONDS));
+            Future<?> programada = ejecutor.submit(indice::verificarConsistencia);
+            indice.ocuparTrasConfirmar(1L, FECHA, NUEVE);
+            Thread.sleep(100);
+            // La verificacion sigue esperando: solo la reconstruccion manual leyo la base de datos.
+            verify(horarioRepositorio, times(2)).findTodosLosDisponibles();
+
+            continuar.countDown();
+            manual.get(5, TimeUnit.SECONDS);
+            programada.get(5, TimeUnit.SECONDS);
+        } finally {
+            ejecutor.shutdownNow();
+        }
+
+        assertEquals(List.of(QUINCE), indice.consultar(1L, FECHA).orElseThrow().stream().map(HorarioDisponible::hora).toList());
+        assertEquals(0, indice.getInconsistencias());
+    }
+}
@@ -0,0 +1,122 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.mail.SimpleMailMessage;
+import org.springframework.mail.javamail.JavaMailSenderImpl;
+
+import com.clinica.sistema.Servicio.MotorEnvioCorreo.ResultadoEnvio;
+
+// Compara el envio con una conexion SMTP por mensaje (JavaMailSender.send) contra el motor con pool y lotes,
+// usando un servidor SMTP falso local con latencia fija por comando. Se ejecuta con: mvn -Pbenchmark test
+@Tag("benchmark")
+class MotorEnvioCorreoBenchmarkTest {
+
+    private static final int MENSAJES = 300;
+    private static final int HILOS = 3;
+    private static final int MENSAJES_POR_LOTE = 10;
+    private static final long LATENCIA_POR_COMANDO_MS = 5;
+
+    @Test
+    void elPoolConLotesSuperaAlEnvioPorMensaje() throws Exception {
+        Resultado porMensaje;
+        try (SmtpFalso smtp = new SmtpFalso(LATENCIA_POR_COMANDO_MS)) {
+            JavaMailSenderImpl sender = crearSender(smtp.getPuerto());
+            porMensaje = medir(lote -> {
+                List<Long> latencias = new ArrayList<>();
+                for (SimpleMailMessage mensaje : lote) {
+                    long inicio = System.nanoTime();
+                    sender.send(mensaje);
+                    latencias.add(System.nanoTime() - inicio);
+                }
+                return latencias;
+            });
+            assertEquals(MENSAJES, smtp.getMensajes());
+            System.out.printf("Envio por mensaje: %.1f mensajes/s, p99 %.1f ms, %d conexiones.%n",
+                    porMensaje.mensajesPorSegundo(), porMensaje.p99Ms(), smtp.getConexiones());
+        }
+
+        Resultado conPool;
+        try (SmtpFalso smtp = new SmtpFalso(LATENCIA_POR_COMANDO_MS)) {
+            MotorEnvioCorreo motor = new MotorEnvioCorreo(crearSender(smtp.getPuerto()), HILOS, 0, 10_000);
+            conPool = medir(lote -> {
+                long inicio = System.nanoTime();
+                List<ResultadoEnvio> resultados = motor.enviarLote(lote);
+                long porMensajeNs = (System.nanoTime() - inicio) / lote.size();
+                assertTrue(resultados.stream().allMatch(ResultadoEnvio::exitoso));
+                return Collections.nCopies(lote.size(), porMensajeNs);
+            });
+            motor.cerrar();
+            assertEquals(MENSAJES, smtp.getMensajes());
+            assertTrue(smtp.getConexiones() <= HILOS, "El motor no debe abrir mas conexiones que el tamano del pool.");
+            System.out.printf("Envio con pool y lotes: %.1f mensajes/s, p99 %.1f ms, %d conexiones.%n",
+                    conPool.mensajesPorSegundo(), conPool.p99Ms(), smtp.getConexiones());
+        }
+
+        assertTrue(conPool.mensajesPorSegundo() > porMensaje.mensajesPorSegundo(),
+                "El envio con pool deberia tener mayor rendimiento que el envio por mensaje.");
+    }
+
+    private Resultado medir(EnvioDeLote envio) throws Exception {
+        List<List<SimpleMailMessage>> lotes = new ArrayList<>();
+        for (int i = 0; i < MENSAJES; i += MENSAJES_POR_LOTE) {
+            List<SimpleMailMessage> lote = new ArrayList<>();
+            for (int j = i; j < Math.min(i + MENSAJES_POR_LOTE, MENSAJES); j++) {
+                lote.add(crearMensaje(j));
+            }
+            lotes.add(lote);
+        }
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        List<Future<List<Long>>> futuros = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (List<SimpleMailMessage> lote : lotes) {
+            futuros.add(ejecutor.submit(() -> envio.enviar(lote)));
+        }
+        List<Long> latencias = new ArrayList<>();
+        for (Future<List<Long>> futuro : futuros) {
+            latencias.addAll(futuro.get(2, TimeUnit.MINUTES));
+        }
+        long duracionNs = System.nanoTime() - inicio;
+        ejecutor.shutdown();
+
+        Collections.sort(latencias);
+        long p99 = latencias.get((int) Math.ceil(latencias.size() * 0.99) - 1);
+        return new Resultado(MENSAJES / (duracionNs / 1e9), p99 / 1e6);
+    }
+
+    private JavaMailSenderImpl crearSender(int puerto) {
+        JavaMailSenderImpl sender = new JavaMailSenderImpl();
+        sender.setHost("127.0.0.1");
+        sender.setPort(puerto);
+        return sender;
+    }
+
+    private SimpleMailMessage crearMensaje(int numero) {
+        SimpleMailMessage mensaje = new SimpleMailMessage();
+        mensaje.setFrom("clinica@prueba.com");
+        mensaje.setTo("paciente" + numero + "@prueba.com");
+        mensaje.setSubject("Confirmacion de Cita Medica");
+        mensaje.setText("Mensaje de prueba numero " + numero);
+        return mensaje;
+    }
+
+    @FunctionalInterface
+    private interface EnvioDeLote {
+        List<Long> enviar(List<SimpleMailMessage> lote) throws Exception;
+    }
+
+    private record Resultado(double mensajesPorSegundo, double p99Ms) {
+    }
+}
@@ -0,0 +1,152 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Modelo.Direccion;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+// Registro con 1M de pacientes ya registrados: compara la verificacion de duplicados anterior (findByCorreo + findByDni)
+// con el filtro de Bloom, mide la tasa real de falsos positivos y el rendimiento de registros completos.
+// Se ejecuta con: mvn -Pbenchmark test -Dtest=RegistroPacientesBenchmarkTest [-Dregistro.pacientes=1000000]
+// Base H2 propia para que el millon de pacientes no afecte a otras pruebas del mismo proceso.
+@SpringBootTest(properties = "spring.datasource.url=jdbc:h2:mem:registroMasivo;MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1;LOCK_TIMEOUT=10000")
+@ActiveProfiles("test")
+@Tag("benchmark")
+class RegistroPacientesBenchmarkTest {
+
+    private static final int PACIENTES = Integer.getInteger("registro.pacientes", 1_000_000);
+    private static final int VERIFICACIONES = Integer.getInteger("registro.verificaciones", 20_000);
+    private static final int REGISTROS = Integer.getInteger("registro.registros", 400);
+    private static final int HILOS = 8;
+    private static final int LOTE_INSERCION = 10_000;
+
+    // Rangos de DNI separados de la carga inicial y de otras pruebas.
+    private static final int DNI_EXISTENTES = 20_000_000;
+    private static final int DNI_NUEVOS = 40_000_000;
+
+    @Autowired
+    private AuthServicio authServicio;
+    @Autowired
+    private FiltroRegistroPacientes filtroRegistro;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Value("${clinica.registro.filtro.falsos-positivos:0.01}")
+    private double tasaObjetivo;
+
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void elFiltroVerificaDuplicadosSinConsultarLaBaseDeDatos() throws Exception {
+        long inicio = System.nanoTime();
+        sembrarPacientes();
+        long siembraMs = (System.nanoTime() - inicio) / 1_000_000;
+        inicio = System.nanoTime();
+        filtroRegistro.reconstruir();
+        long construccionMs = (System.nanoTime() - inicio) / 1_000_000;
+
+        // Verificaciones de pacientes nuevos (el caso comun) con la consulta doble anterior y con el filtro.
+        double anterior = porSegundo(VERIFICACIONES, i -> pacienteRepositorio.findByCorreo(correoNuevo(i)).isPresent()
+                || pacienteRepositorio.findByDni(dniNuevo(i)).isPresent());
+        long falsosPositivosAntes = filtroRegistro.getFalsosPositivos();
+        double conFiltro = porSegundo(VERIFICACIONES, i -> authServicio.existePacientePorEmailODni(correoNuevo(i), dniNuevo(i)));
+        double tasaObservada = (double) (filtroRegistro.getFalsosPositivos() - falsosPositivosAntes) / VERIFICACIONES;
+
+        // Ningun paciente registrado puede pasar como nuevo.
+        AtomicLong noDetectados = new AtomicLong();
+        porSegundo(VERIFICACIONES, i -> {
+            int existente = (int) ((long) i * 7919 % PACIENTES);
+            if (!authServicio.existePacientePorEmailODni("masivo" + existente + "@clinica.com", String.format("%08d", DNI_EXISTENTES + existente))) {
+                noDetectados.incrementAndGet();
+            }
+            return true;
+        });
+
+        // Registro completo (verificacion, hash BCrypt en el pool acotado e insercion) de pacientes nuevos.
+        double registros = porSegundo(REGISTROS, i -> {
+            int n = VERIFICACIONES + i;
+            if (authServicio.existePacientePorEmailODni(correoNuevo(n), dniNuevo(n))) {
+                return false;
+            }
+            authServicio.guardarPaciente(new Paciente(null, "Registro", "Masivo", dniNuevo(n), "987654321", correoNuevo(n),
+                    "registro12345", new ArrayList<>()), new Direccion(null, "Av. Masiva " + n, null));
+            return true;
+        });
+
+        System.out.printf("%d pacientes sembrados en %d ms; filtro construido en %d ms (%d elementos).%n",
+                PACIENTES, siembraMs, construccionMs, filtroRegistro.getElementosAproximados());
+        System.out.printf("Verificacion de pacientes nuevos (%d hilos): consulta doble %.0f/s | filtro %.0f/s (x%.1f), falsos positivos %.3f%% (objetivo %.3f%%)%n",
+                HILOS, anterior, conFiltro, conFiltro / anterior, tasaObservada * 100, tasaObjetivo * 100);
+        System.out.printf("Registros completos: %.1f/s (%d hilos)%n", registros, HILOS);
+
+        assertEquals(0, noDetectados.get(), "El filtro dejo pasar pacientes ya registrados como nuevos.");
+        assertTrue(tasaObservada <= 3 * tasaObjetivo,
+                String.format("Tasa de falsos positivos %.3f%% muy por encima del objetivo %.3f%%.", tasaObservada * 100, tasaObjetivo * 100));
+        assertTrue(conFiltro > anterior, "La verificacion con filtro deberia ser mas rapida que la consulta doble.");
+    }
+
+    // Insercion directa por JDBC en lotes; el hash de contrasena no importa para la verificacion de duplicados.
+    private void sembrarPacientes() {
+        List<Object[]> filas = new ArrayList<>(LOTE_INSERCION);
+        for (int i = 0; i < PACIENTES; i++) {
+            filas.add(new Object[] { "Masivo", "Paciente", String.format("%08d", DNI_EXISTENTES + i), "900000000", "masivo" + i + "@clinica.com", "x" });
+            if (filas.size() == LOTE_INSERCION || i == PACIENTES - 1) {
+                jdbcTemplate.batchUpdate("INSERT INTO pacientes (nombre, apellido, dni, telefono, correo, contraseña) VALUES (?, ?, ?, ?, ?, ?)", filas);
+                filas.clear();
+            }
+        }
+    }
+
+    // Ejecuta 'total' operaciones repartidas entre HILOS hilos y devuelve operaciones por segundo.
+    private double porSegundo(int total, Predicate<Integer> operacion) throws Exception {
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        AtomicLong siguiente = new AtomicLong();
+        List<Future<?>> futuros = new ArrayList<>();
+        long inicio = System.nanoTime();
+        for (int h = 0; h < HILOS; h++) {
+            futuros.add(ejecutor.submit(() -> {
+                for (long i = siguiente.getAndIncrement(); i < total; i = siguiente.getAndIncrement()) {
+                    operacion.test((int) i);
+                }
+            }));
+        }
+        for (Future<?> futuro : futuros) {
+            futuro.get(10, TimeUnit.MINUTES);
+        }
+        double segundos = (System.nanoTime() - inicio) / 1e9;
+        ejecutor.shutdown();
+        return total / segundos;
+    }
+
+    private static String correoNuevo(int i) {
+        return "nuevo" + i + "@clinica.com";
+    }
+
+    private static String dniNuevo(int i) {
+        return String.format("%08d", DNI_NUEVOS + i);
+    }
+}
@@ -0,0 +1,184 @@
+package com.clinica.sistema.Servicio;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.mail.javamail.JavaMailSender;
+import org.springframework.test.context.ActiveProfiles;
+import org.springframework.test.context.bean.override.mockito.MockitoBean;
+
+import com.clinica.sistema.Modelo.Cita;
+import com.clinica.sistema.Modelo.Especialidad;
+import com.clinica.sistema.Modelo.Horario;
+import com.clinica.sistema.Modelo.Medico;
+import com.clinica.sistema.Modelo.Paciente;
+import com.clinica.sistema.Repositorio.CitaRepositorio;
+import com.clinica.sistema.Repositorio.EspecialidadRepositorio;
+import com.clinica.sistema.Repositorio.HorarioRepositorio;
+import com.clinica.sistema.Repositorio.MedicoRepositorio;
+import com.clinica.sistema.Repositorio.PacienteRepositorio;
+
+@SpringBootTest
+@ActiveProfiles("test")
+class ReservaConcurrenteTest {
+
+    private static final int SOLICITUDES = 300;
+    private static final int HILOS = 64;
+    private static final long TIEMPO_MAXIMO_MS = 30_000;
+
+    @Autowired
+    private CitaServicio citaServicio;
+    @Autowired
+    private CitaRepositorio citaRepositorio;
+    @Autowired
+    private HorarioRepositorio horarioRepositorio;
+    @Autowired
+    private MedicoRepositorio medicoRepositorio;
+    @Autowired
+    private EspecialidadRepositorio especialidadRepositorio;
+    @Autowired
+    private PacienteRepositorio pacienteRepositorio;
+
+    // Evita conexiones SMTP reales durante la prueba.
+    @MockitoBean
+    private JavaMailSender mailSender;
+
+    @Test
+    void soloUnaReservaGanaElMismoHorario() throws Exception {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Concurrencia " + System.nanoTime()));
+        Medico medico = medicoRepositorio.save(new Medico(null, "Prueba", "Concurrencia", especialidad));
+        LocalDate fecha = LocalDate.now().plusDays(7);
+        LocalTime hora = LocalTime.of(10, 0);
+        horarioRepositorio.save(new Horario(null, fecha, hora, true, medico));
+
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Paciente");
+        paciente.setApellido("Concurrente");
+        paciente.setDni("99000001");
+        paciente.setTelefono("999000001");
+        paciente.setCorreo("paciente.concurrente@prueba.com");
+        paciente.setContraseña("no-usada");
+        Paciente pacienteGuardado = pacienteRepositorio.save(paciente);
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(HILOS);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger exitos = new AtomicInteger();
+        AtomicInteger ocupados = new AtomicInteger();
+        Queue<Throwable> errores = new ConcurrentLinkedQueue<>();
+        List<Future<?>> futuros = new ArrayList<>();
+
+        for (int i = 0; i < SOLICITUDES; i++) {
+            futuros.add(ejecutor.submit(() -> {
+                salida.await();
+                try {
+                    citaServicio.crearCita(fecha.toString(), hora.toString(), medico.getId(), pacienteGuardado.getId());
+                    exitos.incrementAndGet();
+                } catch (HorarioNoDisponibleException e) {
+                    ocupados.incrementAndGet();
+                } catch (Throwable t) {
+                    errores.add(t);
+                }
+                return null;
+            }));
+        }
+
+        long inicio = System.nanoTime();
+        salida.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(60, TimeUnit.SECONDS);
+        }
+        long duracionMs = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - inicio);
+        ejecutor.shutdown();
+
+        System.out.printf("Reservas concurrentes: %d solicitudes en %d ms (%.1f solicitudes/s).%n",
+                SOLICITUDES, duracionMs, SOLICITUDES * 1000.0 / Math.max(1, duracionMs));
+
+        assertTrue(errores.isEmpty(), () -> "Errores inesperados: " + errores);
+        assertEquals(1, exitos.get(), "Exactamente una reserva debe ganar el horario.");
+        assertEquals(SOLICITUDES - 1, ocupados.get(), "El resto debe recibir 'horario no disponible'.");
+        assertFalse(horarioRepositorio.findByMedicoAndFechaAndHora(medico, fecha, hora).orElseThrow().isDisponible());
+
+        long citasDelHorario = citaRepositorio.findByPaciente(pacienteGuardado).stream()
+                .filter(c -> c.getFecha().equals(fecha) && c.getHora().equals(hora))
+                .count();
+        assertEquals(1, citasDelHorario, "Solo debe existir una cita para el horario disputado.");
+        assertTrue(duracionMs < TIEMPO_MAXIMO_MS, "Las reservas concurrentes tardaron demasiado: " + duracionMs + " ms");
+    }
+
+    // Dos cancelaciones simultaneas de la misma cita: solo una la cancela y libera el horario; un reintento tardio,
+    // cuando otro paciente ya reservo el horario liberado, no se lo quita.
+    @Test
+    void cancelarDosVecesNoLiberaElHorarioDeOtraCita() throws Exception {
+        Especialidad especialidad = especialidadRepositorio.save(new Especialidad(null, "Cancelacion " + System.nanoTime()));
+        Medico medico = medicoRepositorio.save(new Medico(null, "Prueba", "Cancelacion", especialidad));
+        LocalDate fecha = LocalDate.now().plusDays(8);
+        LocalTime hora = LocalTime.of(11, 0);
+        horarioRepositorio.save(new Horario(null, fecha, hora, true, medico));
+        Paciente primero = guardarPaciente("99000011");
+        Paciente segundo = guardarPaciente("99000012");
+
+        Cita cita = citaServicio.crearCita(fecha.toString(), hora.toString(), medico.getId(), primero.getId());
+
+        ExecutorService ejecutor = Executors.newFixedThreadPool(2);
+        CountDownLatch salida = new CountDownLatch(1);
+        AtomicInteger canceladas = new AtomicInteger();
+        AtomicInteger rechazadas = new AtomicInteger();
+        List<Future<?>> futuros = new ArrayList<>();
+        for (int i = 0; i < 2; i++) {
+            futuros.add(ejecutor.submit(() -> {
+                salida.await();
+                try {
+                    citaServicio.cancelarCita(cita.getId());
+                    canceladas.incrementAndGet();
+                } catch (IllegalStateException e) {
+                    rechazadas.incrementAndGet();
+                }
+                return null;
+            }));
+        }
+        salida.countDown();
+        for (Future<?> futuro : futuros) {
+            futuro.get(30, TimeUnit.SECONDS);
+        }
+        ejecutor.shutdown();
+
+        assertEquals(1, canceladas.get(), "Solo una cancelacion debe aplicarse.");
+        assertEquals(1, rechazadas.get(), "La otra debe recibir 'la cita ya no esta pendiente'.");
+        assertEquals("Cancelada", citaRepositorio.findById(cita.getId()).orElseThrow().getEstado());
+        assertTrue(horarioRepositorio.findByMedicoAndFechaAndHora(medico, fecha, hora).orElseThrow().isDisponible());
+
+        citaServicio.crearCita(fecha.toString(), hora.toString(), medico.getId(), segundo.getId());
+        assertThrows(IllegalStateException.class, () -> citaServicio.cancelarCita(cita.getId()));
+        assertFalse(horarioRepositorio.findByMedicoAndFechaAndHora(medico, fecha, hora).orElseThrow().isDisponible(),
+                "El reintento no debe liberar el horario reservado por el segundo paciente.");
+    }
+
+    private Paciente guardarPaciente(String dni) {
+        Paciente paciente = new Paciente();
+        paciente.setNombre("Paciente");
+        paciente.setApellido("Cancelacion");
+        paciente.setDni(dni);
+        paciente.setTelefono("9" + dni);
+        paciente.setCorreo("paciente." + dni + "@prueba.com");
+        paciente.setContraseña("no-usada");
+        return pacienteRepositorio.save(paciente);
+    }
+}
@@ -0,0 +1,118 @@
+package com.clinica.sistema.Servicio;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+// Servidor SMTP minimo para pruebas: acepta cualquier remitente y destinatario, descarta el contenido
+// y cuenta mensajes y conexiones. La latencia simula el tiempo de respuesta de un proveedor real.
+// Con rechazarDestinatarios activo responde 550 a cada RCPT, como un proveedor que rechaza el envio.
+public class SmtpFalso implements AutoCloseable {
+
+    private final ServerSocket servidor;
+    private final ExecutorService hilos = Executors.newCachedThreadPool();
+    private final long latenciaPorComandoMs;
+    private final AtomicInteger mensajes = new AtomicInteger();
+    private final AtomicInteger conexiones = new AtomicInteger();
+    private volatile boolean activo = true;
+    private volatile boolean rechazarDestinatarios;
+
+    public SmtpFalso(long latenciaPorComandoMs) throws IOException {
+        this.latenciaPorComandoMs = latenciaPorComandoMs;
+        this.servidor = new ServerSocket(0, 50, InetAddress.getLoopbackAddress());
+        hilos.execute(this::aceptar);
+    }
+
+    public int getPuerto() {
+        return servidor.getLocalPort();
+    }
+
+    public int getMensajes() {
+        return mensajes.get();
+    }
+
+    public int getConexiones() {
+        return conexiones.get();
+    }
+
+    public void setRechazarDestinatarios(boolean rechazarDestinatarios) {
+        this.rechazarDestinatarios = rechazarDestinatarios;
+    }
+
+    private void aceptar() {
+        while (activo) {
+            try {
+                Socket cliente = servidor.accept();
+                conexiones.incrementAndGet();
+                hilos.execute(() -> atender(cliente));
+            } catch (IOException e) {
+                // El servidor se cerro.
+            }
+        }
+    }
+
+    private void atender(Socket cliente) {
+        try (cliente;
+             BufferedReader entrada = new BufferedReader(new InputStreamReader(cliente.getInputStream(), StandardCharsets.US_ASCII))) {
+            OutputStream salida = cliente.getOutputStream();
+            responder(salida, "220 smtp-falso listo");
+
+            String linea;
+            while ((linea = entrada.readLine()) != null) {
+                String comando = linea.length() >= 4 ? linea.substring(0, 4).toUpperCase() : linea.toUpperCase();
+                esperar();
+                switch (comando) {
+                    case "EHLO", "HELO" -> responder(salida, "250 smtp-falso");
+                    case "RCPT" -> responder(salida, rechazarDestinatarios ? "550 Buzon no disponible" : "250 OK");
+                    case "MAIL", "RSET", "NOOP" -> responder(salida, "250 OK");
+                    case "DATA" -> {
+                        responder(salida, "354 Fin con <CRLF>.<CRLF>");
+                        while ((linea = entrada.readLine()) != null && !linea.equals(".")) {
+                            // Se descarta el contenido del mensaje.
+                        }
+                        mensajes.incrementAndGet();
+                        responder(salida, "250 OK mensaje aceptado");
+                    }
+                    case "QUIT" -> {
+                        responder(salida, "221 Adios");
+                        return;
+                    }
+                    default -> responder(salida, "502 Comando no implementado");
+                }
+            }
+        } catch (IOException e) {
+            // El cliente cerro la conexion.
+        }
+    }
+
+    private void esperar() {
+        if (latenciaPorComandoMs <= 0) {
+            return;
+        }
+        try {
+            Thread.sleep(latenciaPorComandoMs);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void responder(OutputStream salida, String respuesta) throws IOException {
+        salida.write((respuesta + "\r\n").getBytes(StandardCharsets.US_ASCII));
+        salida.flush();
+    }
+
+    @Override
+    public void close() throws IOException {
+        activo = false;
+        servidor.close();
+        hilos.shutdownNow();
+    }
+}